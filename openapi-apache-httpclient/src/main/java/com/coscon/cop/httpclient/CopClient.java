@@ -18,36 +18,81 @@ package com.coscon.cop.httpclient;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.ConnectionReuseStrategy;
+import org.apache.http.Header;
+import org.apache.http.HttpClientConnection;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.StatusLine;
+import org.apache.http.client.AuthenticationStrategy;
+import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.UserTokenHandler;
 import org.apache.http.client.fluent.Executor;
 import org.apache.http.client.fluent.Request;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.execchain.ClientExecChain;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.HttpRequestExecutor;
 import org.apache.http.util.EntityUtils;
 
 import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.ConnectionPoolConfig;
+import com.coscon.cop.core.ConnectionPoolStats;
+import com.coscon.cop.core.CredentialsProvider;
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.EndpointRouter;
 import com.coscon.cop.core.Namespace;
 import com.coscon.cop.core.Validator;
+import com.coscon.cop.internal.BodyVerifier;
 import com.coscon.cop.internal.CopClientBase;
+import com.coscon.cop.internal.CredentialsRefresher;
+import com.coscon.cop.internal.Payload;
+import com.coscon.cop.internal.StreamingValidator;
+import com.coscon.cop.internal.TenantCredentialsProvider;
 
 /**
  * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
@@ -59,6 +104,8 @@ public class CopClient extends CopClientBase implements Closeable {
 
 	private static final String HTTP_CONTEXT_NAMESPACE = "http.context.cop.namespace";
 
+	private static final String HTTP_CONTEXT_PRESIGNED = "http.context.cop.presigned";
+
 	private CopClient() {
 		super();
 
@@ -66,8 +113,11 @@ public class CopClient extends CopClientBase implements Closeable {
 
 	@Override
 	protected void initialize() {
-		httpClientBuilder = HttpClientBuilder.create();
+		httpClientBuilder = new PoolingClientBuilder();
 		httpClientBuilder.setConnectionTimeToLive(30, TimeUnit.SECONDS);
+		httpAsyncClientBuilder = HttpAsyncClients.custom();
+		httpAsyncClientBuilder.setConnectionTimeToLive(30, TimeUnit.SECONDS);
+		withConnectionPool(ConnectionPoolConfig.DEFAULT);
 		setSignMethod(defaultSignMethod);
 		setResponseHandler(defaultResponseHandler);
 	}
@@ -76,17 +126,320 @@ public class CopClient extends CopClientBase implements Closeable {
 		return new CopClient();
 	}
 
+	/**
+	 * Signs a batch of requests ahead of dispatch, e.g. the tracking calls of a
+	 * nightly job, in parallel across the {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+	 * <p>
+	 * Send the signed requests through {@link #execute(HttpUriRequest)} shortly
+	 * afterwards since <code>X-Coscon-Date</code> is checked by the gateway.
+	 * 
+	 * @param requests
+	 *            requests with absolute https URIs to COP.
+	 * @return the given requests, signed in place.
+	 * @throws ClientException
+	 *             when any request fails to be signed.
+	 */
+	public <T extends HttpUriRequest> List<T> signAll(List<T> requests) throws ClientException {
+		if (!(getSigner() instanceof CopClientSigner)) {
+			throw new ClientException("Batch signing is not supported by signer:" + getSigner());
+		}
+		try {
+			return ((CopClientSigner) getSigner()).signAll(getCredentialsProvider(), requests);
+		} catch (IOException e) {
+			throw new ClientException(e.getLocalizedMessage(), e);
+		}
+	}
+
+	/**
+	 * Executes a request signed by {@link #signAll(List)}, it is not signed
+	 * again.
+	 * 
+	 * @param signedRequest
+	 *            the signed request.
+	 * @return response with a repeatable entity.
+	 * @throws ClientException
+	 */
+	public HttpResponse execute(HttpUriRequest signedRequest) throws ClientException {
+		Objects.requireNonNull(httpClient, "httpClient may not be null");
+		HttpClientContext context = HttpClientContext.create();
+		context.setAttribute(HTTP_CONTEXT_PRESIGNED, Boolean.TRUE);
+		try {
+			HttpResponse response = httpClient.execute(signedRequest, context);
+			try {
+				HttpEntity entity = response.getEntity();
+				if (Objects.nonNull(entity)) {
+					response.setEntity(new BufferedHttpEntity(entity));
+				}
+			} finally {
+				if (response instanceof Closeable) {
+					((Closeable) response).close();
+				}
+			}
+			return response;
+		} catch (IOException e) {
+			throw new ClientException(e.getLocalizedMessage(), e);
+		}
+	}
+
 	@Override
 	public CopClient withCredentials(Namespace namespace, String apiKey, String secretKey) throws ClientException {
 		return (CopClient) super.withCredentials(namespace, apiKey, secretKey);
 	}
 
+	@Override
+	public CopClient rotateCredentials(Namespace namespace, String apiKey, String secretKey) {
+		return (CopClient) super.rotateCredentials(namespace, apiKey, secretKey);
+	}
+
+	@Override
+	public CopClient withCredentialsRefresher(CredentialsRefresher.Source source, long period, TimeUnit unit)
+			throws ClientException {
+		return (CopClient) super.withCredentialsRefresher(source, period, unit);
+	}
+
+	@Override
+	public CopClient withCredentialsProvider(CredentialsProvider provider) {
+		return (CopClient) super.withCredentialsProvider(provider);
+	}
+
+	@Override
+	public CopClient withRouter(Namespace namespace, EndpointRouter router) {
+		return (CopClient) super.withRouter(namespace, router);
+	}
+
+	@Override
+	public CopClient withValidator(Namespace namespace, Validator validator) {
+		return (CopClient) super.withValidator(namespace, validator);
+	}
+
 	private HttpClientBuilder httpClientBuilder;
 
 	private HttpClient httpClient = null;
 
 	private Executor executor = null;
 
+	private HttpAsyncClientBuilder httpAsyncClientBuilder;
+
+	private CloseableHttpAsyncClient httpAsyncClient = null;
+
+	/**
+	 * Guards the lazily started non-blocking client, a lock rather than a
+	 * monitor so virtual threads waiting for it do not pin their carrier.
+	 */
+	private final ReentrantLock httpAsyncClientLock = new ReentrantLock();
+
+	/**
+	 * Virtual-thread mode for JDK 21, the blocking doGet/doPost are meant to be
+	 * called from a virtual thread each. The connection pool of the client
+	 * waits on locks rather than monitors, so it is sized for that many
+	 * blocking requests in flight, and cookies, which are synchronized and of
+	 * no use to the gateway, are not managed. Call before
+	 * {@link #buildHttpClient()}.
+	 * 
+	 * @param maxConnections
+	 *            connections in total and per gateway.
+	 * @return self
+	 */
+	public CopClient withVirtualThreads(int maxConnections) {
+		withConnectionPool(ConnectionPoolConfig.copy(connectionPoolConfig).setMaxPerEndpoint(maxConnections)
+				.setMaxTotal(maxConnections).build());
+		getHttpClientBuilder().disableCookieManagement();
+		return this;
+	}
+
+	private ConnectionPoolConfig connectionPoolConfig;
+
+	private HttpClientConnectionManager connectionManager = null;
+
+	/**
+	 * Sizes the pools of the blocking and of the non-blocking client, a route
+	 * being a COP endpoint. Idle and expired connections of the blocking client
+	 * are evicted in the background. Call before {@link #buildHttpClient()},
+	 * {@link ConnectionPoolConfig#DEFAULT} applies otherwise.
+	 * 
+	 * @return self
+	 */
+	public CopClient withConnectionPool(ConnectionPoolConfig config) {
+		Objects.requireNonNull(config, "config may not be null");
+		ConnectionKeepAliveStrategy keepAliveStrategy = keepAliveStrategy(config.getKeepAliveMillis());
+		getHttpClientBuilder().setMaxConnTotal(config.getMaxTotal())
+				.setMaxConnPerRoute(config.getMaxPerEndpoint()).setKeepAliveStrategy(keepAliveStrategy)
+				.evictExpiredConnections()
+				.evictIdleConnections(config.getIdleTimeoutMillis(), TimeUnit.MILLISECONDS);
+		getHttpAsyncClientBuilder().setMaxConnTotal(config.getMaxTotal())
+				.setMaxConnPerRoute(config.getMaxPerEndpoint()).setKeepAliveStrategy(keepAliveStrategy);
+		connectionPoolConfig = config;
+		return this;
+	}
+
+	/**
+	 * @return the pool settings of {@link #withConnectionPool(ConnectionPoolConfig)}.
+	 */
+	public ConnectionPoolConfig getConnectionPoolConfig() {
+		return connectionPoolConfig;
+	}
+
+	/**
+	 * @return connections of the blocking client to all endpoints.
+	 * @throws ClientException
+	 *             if the client is not built yet, or its connection manager,
+	 *             set on the builder, is not a pool.
+	 */
+	public ConnectionPoolStats getConnectionPoolStats() throws ClientException {
+		return toConnectionPoolStats(getConnPoolControl().getTotalStats());
+	}
+
+	/**
+	 * @return connections of the blocking client to the endpoint, without
+	 *         proxy.
+	 * @throws ClientException
+	 *             if the client is not built yet, or its connection manager,
+	 *             set on the builder, is not a pool.
+	 */
+	public ConnectionPoolStats getConnectionPoolStats(Endpoint endpoint) throws ClientException {
+		Objects.requireNonNull(endpoint, "endpoint may not be null");
+		return toConnectionPoolStats(getConnPoolControl().getStats(routeOf(endpoint)));
+	}
+
+	@SuppressWarnings("unchecked")
+	private ConnPoolControl<HttpRoute> getConnPoolControl() throws ClientException {
+		if (Objects.isNull(this.httpClient)) {
+			throw new ClientException("httpclient is not built yet");
+		}
+		if (!(connectionManager instanceof ConnPoolControl)) {
+			throw new ClientException("Connection manager is not a pool");
+		}
+		return (ConnPoolControl<HttpRoute>) connectionManager;
+	}
+
+	/**
+	 * Opens connections to the gateway of every namespace with credentials,
+	 * or to the endpoints of its router, and parks them idle in the pool of the
+	 * blocking client, so that the first requests skip DNS, TCP and TLS
+	 * handshakes. Connections are opened in parallel, those not open by the
+	 * deadline are given up.
+	 * 
+	 * @param connectionsPerEndpoint
+	 *            up to <code>maxPerEndpoint</code> of the pool.
+	 * @return connections parked, those open by the deadline.
+	 * @throws ClientException
+	 *             if the client is not built yet.
+	 */
+	public int warmUp(int connectionsPerEndpoint, long timeout, TimeUnit unit) throws ClientException {
+		if (connectionsPerEndpoint < 1) {
+			throw new IllegalArgumentException("connectionsPerEndpoint must be positive");
+		}
+		Objects.requireNonNull(unit, "unit may not be null");
+		if (Objects.isNull(this.httpClient) || Objects.isNull(this.connectionManager)) {
+			throw new ClientException("httpclient is not built yet");
+		}
+		final HttpClientConnectionManager manager = this.connectionManager;
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		final long keepAliveMillis = connectionPoolConfig.getKeepAliveMillis();
+		List<HttpRoute> routes = new ArrayList<>();
+		for (Endpoint endpoint : getWarmUpEndpoints()) {
+			HttpRoute route = routeOf(endpoint);
+			for (int i = 0; i < Math.min(connectionsPerEndpoint, connectionPoolConfig.getMaxPerEndpoint()); i++) {
+				routes.add(route);
+			}
+		}
+		int size = Math.min(routes.size(), connectionPoolConfig.getMaxTotal());
+		if (size == 0) {
+			return 0;
+		}
+		// every connection is held until all are open, or they would be reused.
+		final CountDownLatch opened = new CountDownLatch(size);
+		final AtomicInteger parked = new AtomicInteger();
+		ExecutorService executor = newWarmUpExecutor(size);
+		for (final HttpRoute route : routes.subList(0, size)) {
+			executor.execute(() -> {
+				HttpClientConnection connection = null;
+				boolean ready = false;
+				try {
+					connection = manager.requestConnection(route, null).get(remainingMillis(deadline),
+							TimeUnit.MILLISECONDS);
+					if (!connection.isOpen()) {
+						HttpClientContext context = HttpClientContext.create();
+						int connectTimeout = (int) Math.min(Integer.MAX_VALUE, remainingMillis(deadline));
+						manager.connect(connection, route, connectTimeout, context);
+						manager.routeComplete(connection, route, context);
+					}
+					ready = true;
+				} catch (IOException | ExecutionException e) {
+					// not warmed up, the first request opens it.
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					opened.countDown();
+				}
+				if (connection == null) {
+					return;
+				}
+				if (ready) {
+					try {
+						opened.await(remainingMillis(deadline), TimeUnit.MILLISECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					parked.incrementAndGet();
+				}
+				// a connection not open or without its route is closed by the pool.
+				manager.releaseConnection(connection, null, keepAliveMillis, TimeUnit.MILLISECONDS);
+			});
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(remainingMillis(deadline), TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return parked.get();
+	}
+
+	private static long remainingMillis(long deadline) {
+		return Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+	}
+
+	/**
+	 * @return the direct route of the pool to the endpoint.
+	 */
+	private static HttpRoute routeOf(Endpoint endpoint) {
+		return new HttpRoute(new HttpHost(endpoint.getHost(), endpoint.getPort(), endpoint.getScheme()), null, true);
+	}
+
+	private static ConnectionPoolStats toConnectionPoolStats(PoolStats stats) {
+		return new ConnectionPoolStats(stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax());
+	}
+
+	/**
+	 * Keeps a connection alive as long as the gateway tells, up to the given
+	 * millis, which also apply when it does not tell.
+	 */
+	private static ConnectionKeepAliveStrategy keepAliveStrategy(long keepAliveMillis) {
+		return (response, context) -> {
+			long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			return duration < 0 ? keepAliveMillis : Math.min(duration, keepAliveMillis);
+		};
+	}
+
+	/**
+	 * Exposes the connection manager it builds, which holds the pool.
+	 */
+	private static final class PoolingClientBuilder extends HttpClientBuilder {
+		private HttpClientConnectionManager connectionManager;
+
+		@Override
+		protected ClientExecChain createMainExec(HttpRequestExecutor requestExec,
+				HttpClientConnectionManager connManager, ConnectionReuseStrategy reuseStrategy,
+				ConnectionKeepAliveStrategy keepAliveStrategy, HttpProcessor proxyHttpProcessor,
+				AuthenticationStrategy targetAuthStrategy, AuthenticationStrategy proxyAuthStrategy,
+				UserTokenHandler userTokenHandler) {
+			this.connectionManager = connManager;
+			return super.createMainExec(requestExec, connManager, reuseStrategy, keepAliveStrategy,
+					proxyHttpProcessor, targetAuthStrategy, proxyAuthStrategy, userTokenHandler);
+		}
+	}
+
 	@Override
 	public void buildHttpClient() throws ClientException {
 		if (Objects.isNull(this.httpClient)) {
@@ -94,6 +447,14 @@ public class CopClient extends CopClientBase implements Closeable {
 			getHttpClientBuilder().addInterceptorLast(newUnwrapResponseInterceptor());
 			setSigner(new CopClientSigner(getSignMethod()));
 			httpClient = getHttpClientBuilder().build();
+			if (getHttpClientBuilder() instanceof PoolingClientBuilder) {
+				connectionManager = ((PoolingClientBuilder) getHttpClientBuilder()).connectionManager;
+			}
+			if (connectionManager instanceof PoolingHttpClientConnectionManager) {
+				((PoolingHttpClientConnectionManager) connectionManager)
+						.setValidateAfterInactivity((int) Math.min(Integer.MAX_VALUE,
+								connectionPoolConfig.getValidateAfterInactivityMillis()));
+			}
 			executor = Executor.newInstance(httpClient);
 		} else {
 			throw new ClientException("Unable to overwrite executor/httpclient");
@@ -114,8 +475,24 @@ public class CopClient extends CopClientBase implements Closeable {
 				//Do nothing.
 			}
 		}
+		httpAsyncClientLock.lock();
+		try {
+			if (this.httpAsyncClient != null) {
+				try {
+					httpAsyncClient.close();
+				} catch (IOException e) {
+					//Do nothing.
+				}
+			}
+			httpAsyncClient = null;
+		} finally {
+			httpAsyncClientLock.unlock();
+		}
 		httpClient = null;
+		connectionManager = null;
 		httpClientBuilder = null;
+		httpAsyncClientBuilder = null;
+		super.close();
 	}
 
 	/**
@@ -133,6 +510,35 @@ public class CopClient extends CopClientBase implements Closeable {
 		return Objects.requireNonNull(this.httpClientBuilder, "httpClientBuilder may not be null");
 	}
 
+	/**
+	 * @return the httpAsyncClientBuilder, customise it before the first
+	 *         asynchronous request.
+	 */
+	public HttpAsyncClientBuilder getHttpAsyncClientBuilder() {
+		return Objects.requireNonNull(this.httpAsyncClientBuilder, "httpAsyncClientBuilder may not be null");
+	}
+
+	/**
+	 * The non-blocking client is started on the first asynchronous request, it
+	 * signs requests with the signer of {@link #buildHttpClient()}.
+	 */
+	private CloseableHttpAsyncClient getHttpAsyncClient() throws ClientException {
+		httpAsyncClientLock.lock();
+		try {
+			if (Objects.isNull(this.httpAsyncClient)) {
+				if (Objects.isNull(this.httpClient)) {
+					throw new ClientException("httpclient is not built yet");
+				}
+				getHttpAsyncClientBuilder().addInterceptorLast(newSignRequestInterceptor());
+				httpAsyncClient = getHttpAsyncClientBuilder().build();
+				httpAsyncClient.start();
+			}
+			return httpAsyncClient;
+		} finally {
+			httpAsyncClientLock.unlock();
+		}
+	}
+
 	/**
 	 * @return interceptor to perform request signature.
 	 */
@@ -140,18 +546,54 @@ public class CopClient extends CopClientBase implements Closeable {
 		return new HttpRequestInterceptor() {
 			@Override
 			public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
+				if (Boolean.TRUE.equals(context.getAttribute(HTTP_CONTEXT_PRESIGNED))) {
+					return;
+				}
 				if(request instanceof HttpRequestWrapper) {
 					
 					HttpRequestWrapper wrapper = (HttpRequestWrapper)request;
-					String uri = wrapper.getTarget().toURI() + wrapper.getURI().toString();
-					if(getSigner().acceptRequest(uri)) {
+					HttpHost target = CopClientSigner.targetOf(wrapper);
+					if (target != null && getSigner().matchNamespace(target.getSchemeName(), target.getHostName(), target.getPort(),
+							wrapper.getURI().getRawPath()) != null) {
 						getSigner().sign(getCredentialsProvider(), request);
 					}
 				}
+				request.removeHeaders(TenantCredentialsProvider.TENANT_HEADER);
 			}
 		};
 	}
 
+	/**
+	 * @return validator of the request in context.
+	 * @throws IOException
+	 *             if the uri of the request is invalid.
+	 */
+	private Validator getValidator(HttpContext context) throws IOException {
+		String nsValue = (String) context.getAttribute(HTTP_CONTEXT_NAMESPACE);
+		if (StringUtils.isNotBlank(nsValue)) {
+			return getValidatorProvider().getValidator(nsValue);
+		}
+		HttpClientContext clientContext = HttpClientContext.adapt(context);
+		HttpHost target = clientContext.getTargetHost();
+		HttpRequest request = clientContext.getRequest();
+		if (Objects.isNull(target) || Objects.isNull(request)) {
+			return null;
+		}
+		String rawPath;
+		if (request instanceof HttpRequestWrapper) {
+			rawPath = ((HttpRequestWrapper) request).getURI().getRawPath();
+		} else {
+			String uri = request.getRequestLine().getUri();
+			try {
+				rawPath = new URI(uri).getRawPath();
+			} catch (URISyntaxException e) {
+				throw new ClientProtocolException("Invalid request uri:" + uri, e);
+			}
+		}
+		return getValidatorProvider().getValidator(target.getSchemeName(), target.getHostName(), target.getPort(),
+				rawPath);
+	}
+
 	/**
 	 * @return interceptor to unwrap response.
 	 */
@@ -159,25 +601,67 @@ public class CopClient extends CopClientBase implements Closeable {
 		return new HttpResponseInterceptor() {
 			@Override
 			public void process(HttpResponse response, HttpContext context) throws HttpException, IOException {
-				String nsValue = (String) context.getAttribute(HTTP_CONTEXT_NAMESPACE);
-				if (StringUtils.isBlank(nsValue)) {
+				StatusLine statusLine = response.getStatusLine();
+				if (statusLine.getStatusCode() < 200 || statusLine.getStatusCode() >= 300) {
 					return;
 				}
-				Validator validator = getValidatorProvider().getValidator(nsValue);
-				StatusLine statusLine = response.getStatusLine();
-				if (statusLine.getStatusCode() >= 200 && statusLine.getStatusCode() < 300) {
-					HttpEntity entity = response.getEntity();
-					if (Objects.nonNull(entity)) {
-						response.setEntity(new BufferedHttpEntity(entity));
-					}
-					if (Objects.nonNull(validator) && !validator.validate(response)) {
-						throw new HttpException("COP response validation failed.");
-					}
+				Validator validator = getValidator(context);
+				if (Objects.nonNull(validator)) {
+					verify(response, validator);
 				}
 			}
 		};
 	}
 
+	/**
+	 * Validates the response, a streaming validator verifies the entity as the
+	 * application reads it.
+	 */
+	private static void verify(HttpResponse response, Validator validator) throws HttpException, IOException {
+		HttpEntity entity = response.getEntity();
+		if (validator instanceof StreamingValidator) {
+			BodyVerifier verifier = ((StreamingValidator) validator).begin(name -> {
+				Header header = response.getFirstHeader(name);
+				return header == null ? null : header.getValue();
+			});
+			if (Objects.isNull(entity)) {
+				verifier.verify();
+			} else {
+				response.setEntity(new VerifyingEntity(entity, verifier));
+			}
+		} else {
+			if (Objects.nonNull(entity)) {
+				response.setEntity(new BufferedHttpEntity(entity));
+			}
+			if (!validator.validate(response)) {
+				throw new HttpException("COP response validation failed.");
+			}
+		}
+	}
+
+	/**
+	 * Validates the response of an asynchronous request once it has been
+	 * received in full, response interceptors of the async client run before
+	 * the entity is available.
+	 */
+	private void verify(HttpUriRequest request, HttpResponse response) throws HttpException, IOException {
+		StatusLine statusLine = response.getStatusLine();
+		if (statusLine.getStatusCode() < 200 || statusLine.getStatusCode() >= 300) {
+			return;
+		}
+		URI uri = request.getURI();
+		Validator validator = getValidatorProvider().getValidator(uri.getScheme(), uri.getHost(), uri.getPort(),
+				uri.getRawPath());
+		if (Objects.isNull(validator)) {
+			return;
+		}
+		verify(response, validator);
+		HttpEntity entity = response.getEntity();
+		if (entity instanceof VerifyingEntity) {
+			response.setEntity(new BufferedHttpEntity(entity));
+		}
+	}
+
 	/*
 	 * *****************************************************************************
 	 * ********************
@@ -227,17 +711,9 @@ public class CopClient extends CopClientBase implements Closeable {
 	}
 
 	@Override
-	public String doGet(Namespace namespace, String relativeUri, Map<String, List<String>> extraHeaders)
+	public String doGet(Endpoint endpoint, String relativeUri, Map<String, List<String>> extraHeaders)
 			throws ClientException {
-		Request get = Request.Get(namespace.getPrefix() + relativeUri);
-
-		get = populateHeaders(get, extraHeaders);
-		try {
-			return getExecutor().execute(get).handleResponse(getResponseHandler());
-		} catch (IOException e) {
-			throw new ClientException(e.getLocalizedMessage(), e);
-		}
-
+		return handle(get(endpoint, relativeUri, extraHeaders)).getBody();
 	}
 
 	@Override
@@ -246,16 +722,10 @@ public class CopClient extends CopClientBase implements Closeable {
 	}
 
 	@Override
-	public String doPost(Namespace namespace, String relativeUri, String payload,
+	public String doPost(Endpoint endpoint, String relativeUri, String payload,
 			Map<String, List<String>> extraHeaders) throws ClientException {
-		Request post = Request.Post(namespace.getPrefix() + relativeUri)
-				.body(new StringEntity(payload, ContentType.APPLICATION_JSON));
-		post = populateHeaders(post, extraHeaders);
-		try {
-			return getExecutor().execute(post).handleResponse(getResponseHandler());
-		} catch (IOException e) {
-			throw new ClientException(e.getLocalizedMessage(), e);
-		}
+		return handle(post(endpoint, relativeUri, new DigestedStringEntity(payload, ContentType.APPLICATION_JSON),
+				extraHeaders)).getBody();
 	}
 
 	@Override
@@ -264,36 +734,298 @@ public class CopClient extends CopClientBase implements Closeable {
 	}
 
 	@Override
-	public HttpResponse doGetWithResponse(Namespace namespace, String relativeUri,
+	public HttpResponse doGetWithResponse(Endpoint endpoint, String relativeUri,
 			Map<String, List<String>> extraHeaders) throws ClientException {
+		return returnResponse(get(endpoint, relativeUri, extraHeaders));
+	}
 
-		Request get = Request.Get(namespace.getPrefix() + relativeUri);
+	@Override
+	public HttpResponse doPostWithResponse(Namespace namespace, String relativeUri, String payload)
+			throws ClientException {
+		return doPostWithResponse(namespace, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	@Override
+	public HttpResponse doPostWithResponse(Endpoint endpoint, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return returnResponse(post(endpoint, relativeUri,
+				new DigestedStringEntity(payload, ContentType.APPLICATION_JSON), extraHeaders));
+	}
+
+	@Override
+	public String doPost(Endpoint endpoint, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return handle(post(endpoint, relativeUri, new PayloadEntity(payload), extraHeaders)).getBody();
+	}
+
+	@Override
+	public HttpResponse doPostWithResponse(Endpoint endpoint, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return returnResponse(post(endpoint, relativeUri, new PayloadEntity(payload), extraHeaders));
+	}
+
+	private Request get(Endpoint endpoint, String relativeUri, Map<String, List<String>> extraHeaders)
+			throws ClientException {
+		return populateHeaders(Request.Get(resolve(endpoint, relativeUri)), extraHeaders);
+	}
 
-		get = populateHeaders(get, extraHeaders);
+	private Request post(Endpoint endpoint, String relativeUri, HttpEntity entity,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return populateHeaders(Request.Post(resolve(endpoint, relativeUri)).body(entity), extraHeaders);
+	}
+
+	private HttpResponse returnResponse(Request request) throws ClientException {
+		try {
+			return getExecutor().execute(request).returnResponse();
+		} catch (IOException e) {
+			throw new ClientException(e.getLocalizedMessage(), e);
+		}
+	}
+
+	/**
+	 * Outcome of the response handler for one attempt, with the status the
+	 * router records.
+	 */
+	private static final class Handled {
+		private final int status;
+		private final String body;
+		private final IOException failure;
+
+		Handled(int status, String body, IOException failure) {
+			this.status = status;
+			this.body = body;
+			this.failure = failure;
+		}
+
+		int getStatus() {
+			return status;
+		}
+
+		String getBody() throws ClientException {
+			if (failure != null) {
+				throw new ClientException(failure.getLocalizedMessage(), failure);
+			}
+			return body;
+		}
+	}
+
+	/**
+	 * Applies the response handler to the response as it streams in, the
+	 * response is neither buffered nor copied.
+	 */
+	private Handled handle(Request request) throws ClientException {
+		final ResponseHandler<String> handler = getResponseHandler();
 		try {
-			return getExecutor().execute(get).returnResponse();
+			return getExecutor().execute(request).handleResponse(response -> {
+				int status = response.getStatusLine().getStatusCode();
+				try {
+					return new Handled(status, handler.handleResponse(response), null);
+				} catch (IOException e) {
+					return new Handled(status, null, e);
+				}
+			});
 		} catch (IOException e) {
 			throw new ClientException(e.getLocalizedMessage(), e);
 		}
 	}
 
+	private static String resolve(Endpoint endpoint, String relativeUri) throws ClientException {
+		return requireRegistered(endpoint).resolve(relativeUri);
+	}
+
 	@Override
-	public HttpResponse doPostWithResponse(Namespace namespace, String relativeUri, String payload)
+	public String doGet(Namespace namespace, String relativeUri, Map<String, List<String>> extraHeaders)
 			throws ClientException {
-		return doPostWithResponse(namespace, relativeUri, payload, (Map<String, List<String>>) null);
+		return route(namespace, true, endpoint -> handle(get(endpoint, relativeUri, extraHeaders)),
+				Handled::getStatus).getBody();
+	}
+
+	@Override
+	public HttpResponse doGetWithResponse(Namespace namespace, String relativeUri,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return route(namespace, true, endpoint -> doGetWithResponse(endpoint, relativeUri, extraHeaders),
+				response -> response.getStatusLine().getStatusCode());
+	}
+
+	@Override
+	public String doPost(Namespace namespace, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return route(namespace, false, endpoint -> handle(post(endpoint, relativeUri,
+				new DigestedStringEntity(payload, ContentType.APPLICATION_JSON), extraHeaders)), Handled::getStatus)
+						.getBody();
 	}
 
 	@Override
 	public HttpResponse doPostWithResponse(Namespace namespace, String relativeUri, String payload,
 			Map<String, List<String>> extraHeaders) throws ClientException {
-		Request post = Request.Post(namespace.getPrefix() + relativeUri)
-				.body(new StringEntity(payload, ContentType.APPLICATION_JSON));
-		post = populateHeaders(post, extraHeaders);
+		return route(namespace, false, endpoint -> doPostWithResponse(endpoint, relativeUri, payload, extraHeaders),
+				response -> response.getStatusLine().getStatusCode());
+	}
+
+	@Override
+	public String doPost(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return route(namespace, false,
+				endpoint -> handle(post(endpoint, relativeUri, new PayloadEntity(payload), extraHeaders)),
+				Handled::getStatus).getBody();
+	}
+
+	@Override
+	public HttpResponse doPostWithResponse(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return route(namespace, false, endpoint -> doPostWithResponse(endpoint, relativeUri, payload, extraHeaders),
+				response -> response.getStatusLine().getStatusCode());
+	}
+
+	@Override
+	public HttpResponse doGetWithResponse(Endpoint endpoint, String relativeUri) throws ClientException {
+		return doGetWithResponse(endpoint, relativeUri, null);
+	}
+
+	@Override
+	public HttpResponse doPostWithResponse(Endpoint endpoint, String relativeUri, String payload)
+			throws ClientException {
+		return doPostWithResponse(endpoint, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	/**
+	 * @param entity
+	 *            <code>null</code> for a GET request.
+	 */
+	private static HttpUriRequest newRequest(Endpoint endpoint, String relativeUri, HttpEntity entity,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		HttpUriRequest request;
+		if (Objects.isNull(entity)) {
+			request = new HttpGet(resolve(endpoint, relativeUri));
+		} else {
+			HttpPost post = new HttpPost(resolve(endpoint, relativeUri));
+			post.setEntity(entity);
+			request = post;
+		}
+		if (Objects.nonNull(extraHeaders)) {
+			for (Map.Entry<String, List<String>> headers : extraHeaders.entrySet()) {
+				for (String hValue : headers.getValue()) {
+					request.addHeader(headers.getKey(), hValue);
+				}
+			}
+		}
+		return request;
+	}
+
+	/**
+	 * Builds a request to an endpoint, see {@link CopClient#executeAsync(RequestFactory)}.
+	 */
+	@FunctionalInterface
+	private interface RequestFactory {
+		HttpUriRequest create() throws ClientException;
+	}
+
+	/**
+	 * Executes the request on the non-blocking client, the response entity is
+	 * buffered and validated before the future completes.
+	 */
+	private CompletableFuture<HttpResponse> executeAsync(RequestFactory factory) {
+		final HttpUriRequest request;
+		final CloseableHttpAsyncClient client;
 		try {
-			return getExecutor().execute(post).returnResponse();
-		} catch (IOException e) {
-			throw new ClientException(e.getLocalizedMessage(), e);
+			request = factory.create();
+			client = getHttpAsyncClient();
+		} catch (ClientException e) {
+			return failed(e);
 		}
+		final CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+		final Future<HttpResponse> call = client.execute(request, new FutureCallback<HttpResponse>() {
+			@Override
+			public void completed(HttpResponse response) {
+				try {
+					verify(request, response);
+					future.complete(response);
+				} catch (HttpException | IOException e) {
+					future.completeExceptionally(new ClientException(e.getLocalizedMessage(), e));
+				}
+			}
+
+			@Override
+			public void failed(Exception ex) {
+				future.completeExceptionally(new ClientException(ex.getLocalizedMessage(), ex));
+			}
+
+			@Override
+			public void cancelled() {
+				future.cancel(false);
+			}
+		});
+		future.whenComplete((response, error) -> {
+			if (future.isCancelled()) {
+				call.cancel(true);
+			}
+		});
+		return future;
+	}
+
+	private CompletableFuture<String> handleAsync(CompletableFuture<HttpResponse> responseFuture) {
+		return responseFuture.thenApply(response -> {
+			try {
+				return getResponseHandler().handleResponse(response);
+			} catch (IOException e) {
+				throw new CompletionException(new ClientException(e.getLocalizedMessage(), e));
+			}
+		});
+	}
+
+	@Override
+	public CompletableFuture<String> doGetAsync(Namespace namespace, String relativeUri,
+			Map<String, List<String>> extraHeaders) {
+		return handleAsync(doGetWithResponseAsync(namespace, relativeUri, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> doGetWithResponseAsync(Namespace namespace, String relativeUri) {
+		return doGetWithResponseAsync(namespace, relativeUri, null);
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> doGetWithResponseAsync(Namespace namespace, String relativeUri,
+			Map<String, List<String>> extraHeaders) {
+		return routeAsync(namespace, true,
+				endpoint -> executeAsync(() -> newRequest(endpoint, relativeUri, null, extraHeaders)),
+				response -> response.getStatusLine().getStatusCode());
+	}
+
+	@Override
+	public CompletableFuture<String> doPostAsync(Namespace namespace, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) {
+		return handleAsync(doPostWithResponseAsync(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			String payload) {
+		return doPostWithResponseAsync(namespace, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			String payload, Map<String, List<String>> extraHeaders) {
+		final HttpEntity entity = new DigestedStringEntity(payload, ContentType.APPLICATION_JSON);
+		return routeAsync(namespace, false,
+				endpoint -> executeAsync(() -> newRequest(endpoint, relativeUri, entity, extraHeaders)),
+				response -> response.getStatusLine().getStatusCode());
+	}
+
+	@Override
+	public CompletableFuture<String> doPostAsync(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) {
+		return handleAsync(doPostWithResponseAsync(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			Payload payload, Map<String, List<String>> extraHeaders) {
+		final HttpEntity entity = new PayloadEntity(payload);
+		return routeAsync(namespace, false,
+				endpoint -> executeAsync(() -> newRequest(endpoint, relativeUri, entity, extraHeaders)),
+				response -> response.getStatusLine().getStatusCode());
 	}
 
 	protected Request populateHeaders(Request request, Map<String, List<String>> extraHeaders) {
@@ -17,17 +17,25 @@
 package com.coscon.cop.httpclient;
 
 import java.io.IOException;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
 import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
+import org.apache.http.util.ByteArrayBuffer;
 
 import com.coscon.cop.core.ClientException;
 import com.coscon.cop.core.Credentials;
@@ -35,7 +43,13 @@ import com.coscon.cop.core.CredentialsProvider;
 import com.coscon.cop.core.SignAlgorithm;
 import com.coscon.cop.core.Signer;
 import com.coscon.cop.internal.BasicSigner;
-import com.coscon.cop.internal.HmacPureExecutor;
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.ContentDigestOutputStream;
+import com.coscon.cop.internal.DigestedContent;
+import com.coscon.cop.internal.RequestSignature;
+import com.coscon.cop.internal.RequestToSign;
+import com.coscon.cop.internal.SigningEngine;
+import com.coscon.cop.internal.TenantCredentialsProvider;
 
 /**
  * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
@@ -43,11 +57,94 @@ import com.coscon.cop.internal.HmacPureExecutor;
  */
 class CopClientSigner extends BasicSigner implements Signer {
 
+	private static final int STREAM_BUFFER_SIZE = 4096;
+
 	public CopClientSigner(SignAlgorithm method) {
 		super(method);
 	}
 
 
+	/**
+	 * Digest the entity from the bytes it holds or by streaming its content,
+	 * without materialising it in another array. A non-repeatable entity is
+	 * the exception, see {@link #bufferAndDigest(HttpEntityEnclosingRequest, HttpEntity)}.
+	 */
+	private ContentDigest digestOf(HttpEntityEnclosingRequest request) throws IOException {
+		HttpEntity entity = request.getEntity();
+		if (entity == null) {
+			return ContentDigest.EMPTY;
+		}
+		if (entity instanceof DigestedContent) {
+			return ((DigestedContent) entity).getContentDigest();
+		}
+		if (!entity.isRepeatable()) {
+			return bufferAndDigest(request, entity);
+		}
+		try (InputStream content = entity.getContent()) {
+			return ContentDigest.of(content);
+		}
+	}
+
+	/**
+	 * The digest is signed into the headers, which are sent before the body,
+	 * so a non-repeatable entity has to be held until then. It is read once,
+	 * digested while it is buffered, and sent from that buffer.
+	 */
+	private static ContentDigest bufferAndDigest(HttpEntityEnclosingRequest request, HttpEntity entity)
+			throws IOException {
+		ContentDigestOutputStream digest = new ContentDigestOutputStream();
+		long length = entity.getContentLength();
+		ByteArrayBuffer buffer = new ByteArrayBuffer(
+				length > 0 && length < Integer.MAX_VALUE ? (int) length : STREAM_BUFFER_SIZE);
+		try (InputStream content = entity.getContent()) {
+			byte[] chunk = new byte[STREAM_BUFFER_SIZE];
+			int read;
+			while ((read = content.read(chunk)) != -1) {
+				digest.write(chunk, 0, read);
+				buffer.append(chunk, 0, read);
+			}
+		}
+		ByteArrayEntity buffered = new ByteArrayEntity(buffer.buffer(), 0, buffer.length());
+		buffered.setContentType(entity.getContentType());
+		buffered.setContentEncoding(entity.getContentEncoding());
+		request.setEntity(buffered);
+		return digest.getContentDigest();
+	}
+
+	/**
+	 * The target of the wrapper, or of the absolute URI of the original request
+	 * since the async client wraps requests without their target.
+	 */
+	static HttpHost targetOf(HttpRequestWrapper request) {
+		HttpHost target = request.getTarget();
+		if (target == null && request.getOriginal() instanceof HttpUriRequest) {
+			target = URIUtils.extractHost(((HttpUriRequest) request.getOriginal()).getURI());
+		}
+		return target;
+	}
+
+	private Credentials getCredentials(CredentialsProvider provider, HttpRequestWrapper request) throws IOException {
+		HttpHost target = targetOf(request);
+		if (target == null) {
+			throw new IOException("Unable to determine the target host");
+		}
+		Header tenant = request.getFirstHeader(TenantCredentialsProvider.TENANT_HEADER);
+		final Credentials credentials = getCredentialsProvider(provider, tenant == null ? null : tenant.getValue())
+				.getCredentials(target.getSchemeName(), target.getHostName(), target.getPort(),
+						request.getURI().getRawPath());
+		if(Objects.isNull(credentials)) {
+			throw new IOException("Unable to find suitable credentials");
+		}
+		return credentials;
+	}
+
+	private ContentDigest digestOf(HttpRequest request) throws IOException {
+		if (request instanceof HttpEntityEnclosingRequest) {
+			return digestOf((HttpEntityEnclosingRequest) request);
+		}
+		return ContentDigest.EMPTY;
+	}
+
 	@Override
 	public Object sign(final CredentialsProvider provider, Object rawRequest) throws IOException {
 		if (!(rawRequest instanceof HttpRequestWrapper)) {
@@ -55,61 +152,71 @@ class CopClientSigner extends BasicSigner implements Signer {
 		}
 		HttpRequestWrapper request = (HttpRequestWrapper) rawRequest;
 		
-		final Credentials credentials = provider
-				.getCredentials(request.getTarget().toURI() + request.getURI().toString());
-		if(Objects.isNull(credentials)) {
-			throw new IOException("Unable to find suitable credentials");
-		}
+		final Credentials credentials = getCredentials(provider, request);
 		
-		byte[] httpContent = new byte[0];
-		if (request instanceof HttpEntityEnclosingRequest) {
-			HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
-			if (entity != null) {
-				httpContent = IOUtils.toByteArray(entity.getContent());
+		ContentDigest contentDigest = digestOf(request);
+		try {
+			RequestSignature signature = getSigningEngine(credentials).sign(request.getRequestLine().toString(),
+					contentDigest);
+			applySignature(request, signature);
+			return request;
+		} catch (ClientException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Signs a batch of requests with absolute URIs ahead of dispatch across the
+	 * {@link ForkJoinPool#commonPool()}. The request line is the one the
+	 * client sends to the target host directly, i.e. without proxy.
+	 * 
+	 * @return the given requests, signed in place.
+	 */
+	<T extends HttpUriRequest> List<T> signAll(CredentialsProvider provider, List<T> requests) throws IOException {
+		Objects.requireNonNull(requests, "requests may not be null");
+		int size = requests.size();
+		SigningEngine[] engines = new SigningEngine[size];
+		RequestToSign[] batch = new RequestToSign[size];
+		for (int i = 0; i < size; i++) {
+			T request = requests.get(i);
+			URI uri = request.getURI();
+			HttpRequestWrapper wrapper = HttpRequestWrapper.wrap(request, URIUtils.extractHost(uri));
+			try {
+				wrapper.setURI(URIUtils.rewriteURI(uri, (HttpHost) null, URIUtils.DROP_FRAGMENT_AND_NORMALIZE));
+			} catch (URISyntaxException e) {
+				throw new IOException(e.getMessage(), e);
 			}
+			engines[i] = getSigningEngine(getCredentials(provider, wrapper));
+			batch[i] = new RequestToSign(wrapper.getRequestLine().toString(), digestOf(request));
 		}
+		RequestSignature[] signatures;
 		try {
-			final CopClientSigner signerSelf = this;
-			HmacPureExecutor executor = new HmacPureExecutor() {
-				
-				@Override
-				protected String getSecretKey() {
-					return credentials.getPassword();
-				}
-				
-				@Override
-				public SignAlgorithm getHmacAlgorithm() {
-					return signerSelf.getMethod();
-				}
-				
-				@Override
-				protected String getApiKey() {
-					return credentials.getPrincipal().getName();
-				}
-			};
-			Map<String, String> headers = executor.buildHmacHeaders(request.getRequestLine().toString(), httpContent);
-			if (headers != null) {
-				for (Entry<String, String> e : headers.entrySet()) {
-					request.setHeader(e.getKey(), e.getValue());
-				}
-			}
-			Header uaHeader = request.getFirstHeader(HEADER_USER_AGENT);
-
-			if (uaHeader == null || StringUtils.isEmpty(uaHeader.getValue())) {
-				request.setHeader(HEADER_USER_AGENT, CopClient.COP_SDK_VERSION);
-			} else {
-				if (!uaHeader.getValue().toUpperCase().contains(CopClient.COP_SDK_VERSION.toUpperCase())) {
-					StringBuilder uaBuilder = new StringBuilder();
-					uaBuilder.append(uaHeader.getValue()).append(" ").append(CopClient.COP_SDK_VERSION);
-					request.setHeader(HEADER_USER_AGENT, uaBuilder.toString());
-				}
-			}
-			request.setHeader(HEADER_ACCEPT,ContentType.APPLICATION_JSON.getMimeType());
-			request.setHeader(HEADER_ACCEPT_CHARSET,ContentType.APPLICATION_JSON.getCharset().toString());
-			return request;
+			signatures = signAll(engines, batch, ForkJoinPool.commonPool());
 		} catch (ClientException e) {
 			throw new IOException(e.getMessage(), e);
 		}
+		for (int i = 0; i < size; i++) {
+			applySignature(requests.get(i), signatures[i]);
+		}
+		return requests;
+	}
+
+	private void applySignature(HttpRequest request, RequestSignature signature) {
+		request.removeHeaders(TenantCredentialsProvider.TENANT_HEADER);
+		signature.writeTo(request::setHeader);
+		Header uaHeader = request.getFirstHeader(HEADER_USER_AGENT);
+
+		if (uaHeader == null || StringUtils.isEmpty(uaHeader.getValue())) {
+			request.setHeader(HEADER_USER_AGENT, CopClient.COP_SDK_VERSION);
+		} else {
+			if (!uaHeader.getValue().toUpperCase().contains(CopClient.COP_SDK_VERSION.toUpperCase())) {
+				StringBuilder uaBuilder = new StringBuilder();
+				uaBuilder.append(uaHeader.getValue()).append(" ").append(CopClient.COP_SDK_VERSION);
+				request.setHeader(HEADER_USER_AGENT, uaBuilder.toString());
+			}
+		}
+		request.setHeader(HEADER_ACCEPT,ContentType.APPLICATION_JSON.getMimeType());
+		request.setHeader(HEADER_ACCEPT_CHARSET,ContentType.APPLICATION_JSON.getCharset().toString());
 	}
 
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.httpclient;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.DigestedContent;
+
+/**
+ * {@link StringEntity} which computes its <code>X-Coscon-Digest</code> once
+ * from the bytes it already holds, the signer does not have to read the
+ * payload into another array.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class DigestedStringEntity extends StringEntity implements DigestedContent {
+	private volatile ContentDigest contentDigest;
+
+	public DigestedStringEntity(String string, ContentType contentType) {
+		super(string, contentType);
+	}
+
+	@Override
+	public ContentDigest getContentDigest() {
+		ContentDigest result = contentDigest;
+		if (result == null) {
+			result = ContentDigest.of(this.content);
+			contentDigest = result;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.httpclient;
+
+import java.util.Objects;
+
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.DigestedContent;
+import com.coscon.cop.internal.Payload;
+
+/**
+ * JSON {@link ByteArrayEntity} over a reusable {@link Payload}, the signer uses
+ * the digest held by the payload.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class PayloadEntity extends ByteArrayEntity implements DigestedContent {
+	private final Payload payload;
+
+	public PayloadEntity(Payload payload) {
+		super(Objects.requireNonNull(payload, "payload may not be null").getContent(), ContentType.APPLICATION_JSON);
+		this.payload = payload;
+	}
+
+	@Override
+	public ContentDigest getContentDigest() {
+		return payload.getContentDigest();
+	}
+}
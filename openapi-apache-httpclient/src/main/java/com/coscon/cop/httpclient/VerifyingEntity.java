@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.httpclient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import com.coscon.cop.internal.BodyVerifier;
+import com.coscon.cop.internal.VerifyingInputStream;
+
+/**
+ * Response entity which feeds its content to a {@link BodyVerifier} as the
+ * application reads it and verifies at end of stream.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+class VerifyingEntity extends HttpEntityWrapper {
+	private final BodyVerifier verifier;
+	private InputStream content;
+
+	VerifyingEntity(HttpEntity wrappedEntity, BodyVerifier verifier) {
+		super(wrappedEntity);
+		this.verifier = Objects.requireNonNull(verifier, "verifier may not be null");
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return false;
+	}
+
+	@Override
+	public InputStream getContent() throws IOException {
+		if (content == null) {
+			content = new VerifyingInputStream(wrappedEntity.getContent(), verifier);
+		}
+		return content;
+	}
+
+	@Override
+	public void writeTo(OutputStream outStream) throws IOException {
+		Objects.requireNonNull(outStream, "outStream may not be null");
+		try (InputStream in = getContent()) {
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				outStream.write(buffer, 0, read);
+			}
+		}
+	}
+}
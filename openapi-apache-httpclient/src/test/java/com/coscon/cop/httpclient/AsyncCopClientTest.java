@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.httpclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.EndpointRegistry;
+import com.coscon.cop.core.EndpointRouter;
+import com.coscon.cop.core.Namespace;
+import com.coscon.cop.internal.StandInGateway;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Asynchronous requests against a local stand-in gateway.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class AsyncCopClientTest {
+	private static final Namespace NS = Namespace.COP_PUBLIC_PP;
+	private static final String URI = "/info/tracking/6309441170?numberType=bl";
+
+	private StandInGateway gateway;
+	private MockWebServer server;
+	private Endpoint endpoint;
+	private CopClient client;
+
+	@Before
+	public void setUp() throws Exception {
+		gateway = StandInGateway.start("stand-in-async", NS);
+		server = gateway.getServer();
+		endpoint = gateway.getEndpoint();
+
+		client = CopClient.newInstance();
+		client.getHttpAsyncClientBuilder().setSSLContext(StandInGateway.clientCertificates().sslContext());
+		client.getHttpClientBuilder().setSSLContext(StandInGateway.clientCertificates().sslContext());
+		client.withCredentials(NS, StandInGateway.API_KEY, StandInGateway.SECRET_KEY);
+		client.buildHttpClient();
+		client.withRouter(NS, new EndpointRouter(Collections.singletonList(endpoint)));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		gateway.close();
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.httpclient.CopClient#doGetAsync(Namespace, String)}.
+	 */
+	@Test
+	public void testAsync() throws Exception {
+		List<CompletableFuture<String>> futures = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			server.enqueue(new MockResponse().setBody("{\"code\":0}"));
+			futures.add(client.doGetAsync(NS, URI));
+		}
+		server.enqueue(new MockResponse().setBody("{\"code\":0}"));
+		futures.add(client.doPostAsync(NS, URI, "{\"numbers\":[\"6309441170\"]}"));
+		for (CompletableFuture<String> future : futures) {
+			assertEquals("{\"code\":0}", future.get(10, TimeUnit.SECONDS));
+		}
+		for (int i = 0; i < 11; i++) {
+			RecordedRequest request = server.takeRequest();
+			assertEquals("/service" + URI, request.getPath());
+			StandInGateway.assertSigned(request);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.httpclient.CopClient#doGetWithResponseAsync(Namespace, String)}.
+	 */
+	@Test
+	public void testAsyncValidation() throws Exception {
+		server.enqueue(new MockResponse().setBody("{\"code\":0}"));
+		server.enqueue(new MockResponse().setBody("{\"code\":1}"));
+		client.withValidator(NS, response -> {
+			try {
+				return EntityUtils.toString(((HttpResponse) response).getEntity()).equals("{\"code\":0}");
+			} catch (Exception e) {
+				return false;
+			}
+		});
+		HttpResponse response = client.doGetWithResponseAsync(NS, URI).get(10, TimeUnit.SECONDS);
+		assertEquals("{\"code\":0}", EntityUtils.toString(response.getEntity()));
+		try {
+			client.doGetWithResponseAsync(NS, URI).get(10, TimeUnit.SECONDS);
+			fail("validation failure is expected");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ClientException);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.httpclient.CopClient#doGet(Namespace, String)}.
+	 */
+	@Test
+	public void testRoutedGetHandlesEachAttempt() throws Exception {
+		Endpoint other = Endpoint.of("stand-in-async-other", "https://localhost:" + server.getPort() + "/other", NS);
+		EndpointRegistry.register(other);
+		try {
+			client.withRouter(NS, new EndpointRouter(Arrays.asList(endpoint, other)));
+			server.enqueue(new MockResponse().setResponseCode(503).setBody("{\"code\":503}"));
+			server.enqueue(new MockResponse().setBody("{\"code\":0}"));
+			assertEquals("{\"code\":0}", client.doGet(NS, URI));
+			assertEquals(2, server.getRequestCount());
+
+			// the handler of the last attempt fails the request.
+			server.enqueue(new MockResponse().setResponseCode(503));
+			server.enqueue(new MockResponse().setResponseCode(503));
+			try {
+				client.doGet(NS, URI);
+				fail("server errors are expected to fail");
+			} catch (ClientException e) {
+				assertTrue(e.getMessage().contains("503"));
+			}
+		} finally {
+			EndpointRegistry.unregister(other.getName());
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.httpclient;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.ConnectionPoolConfig;
+import com.coscon.cop.core.ConnectionPoolStats;
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.EndpointRouter;
+import com.coscon.cop.core.Namespace;
+import com.coscon.cop.internal.StandInGateway;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class ConnectionPoolTest {
+	private static final Namespace NS = Namespace.COP_PUBLIC_PP;
+	private static final String URI = "/info/tracking/6309441170?numberType=bl";
+
+	private StandInGateway gateway;
+	private MockWebServer server;
+	private Endpoint endpoint;
+	private CopClient client;
+
+	@Before
+	public void setUp() throws Exception {
+		gateway = StandInGateway.start("stand-in-pool", NS);
+		server = gateway.getServer();
+		endpoint = gateway.getEndpoint();
+		client = CopClient.newInstance();
+		client.getHttpClientBuilder().setSSLContext(StandInGateway.clientCertificates().sslContext());
+		client.withCredentials(NS, StandInGateway.API_KEY, StandInGateway.SECRET_KEY);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		gateway.close();
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.httpclient.CopClient#getConnectionPoolStats()}.
+	 */
+	@Test
+	public void testDefaultPool() throws Exception {
+		client.buildHttpClient();
+		ConnectionPoolStats stats = client.getConnectionPoolStats();
+		assertEquals(ConnectionPoolConfig.DEFAULT.getMaxTotal(), stats.getMax());
+		assertEquals(0, stats.getLeased());
+		assertEquals(ConnectionPoolConfig.DEFAULT.getMaxPerEndpoint(),
+				client.getConnectionPoolStats(endpoint).getMax());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.httpclient.CopClient#withConnectionPool(ConnectionPoolConfig)}.
+	 */
+	@Test
+	public void testConnectionReused() throws Exception {
+		client.withConnectionPool(ConnectionPoolConfig.custom().setMaxPerEndpoint(2).setMaxTotal(4)
+				.setKeepAlive(10, TimeUnit.SECONDS).build());
+		client.buildHttpClient();
+		for (int i = 0; i < 3; i++) {
+			server.enqueue(new MockResponse().setBody("{\"code\":0}"));
+			assertEquals("{\"code\":0}", client.doGet(endpoint, URI));
+		}
+		assertEquals(0, server.takeRequest().getSequenceNumber());
+		assertEquals(1, server.takeRequest().getSequenceNumber());
+		assertEquals(2, server.takeRequest().getSequenceNumber());
+
+		ConnectionPoolStats stats = client.getConnectionPoolStats(endpoint);
+		assertEquals(2, stats.getMax());
+		assertEquals(0, stats.getLeased());
+		assertEquals(1, stats.getAvailable());
+		assertEquals(0, stats.getPending());
+		assertEquals(4, client.getConnectionPoolStats().getMax());
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.httpclient.CopClient#getConnectionPoolStats()}.
+	 */
+	@Test(expected = ClientException.class)
+	public void testStatsBeforeBuild() throws Exception {
+		client.getConnectionPoolStats();
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.httpclient.CopClient#warmUp(int, long, TimeUnit)}.
+	 */
+	@Test
+	public void testWarmUp() throws Exception {
+		client.withRouter(NS, new EndpointRouter(Collections.singletonList(endpoint)));
+		client.buildHttpClient();
+		assertEquals(2, client.warmUp(2, 10, TimeUnit.SECONDS));
+		assertEquals(0, server.getRequestCount());
+		ConnectionPoolStats stats = client.getConnectionPoolStats(endpoint);
+		assertEquals(0, stats.getLeased());
+		assertEquals(2, stats.getAvailable());
+
+		server.enqueue(new MockResponse().setBody("{\"code\":0}"));
+		assertEquals("{\"code\":0}", client.doGet(NS, URI));
+		assertEquals(0, server.takeRequest().getSequenceNumber());
+		assertEquals(2, client.getConnectionPoolStats(endpoint).getAvailable());
+	}
+}
@@ -103,7 +103,7 @@ public class CopClientInApacheHttpTest2 {
 				+ "  \"endDate\": \"2021-07-30T00:00:00.000Z\"," + "  \"fndCityId\": \"738872886233842\","
 				+ "  \"porCityId\": \"738872886232873\"," + "  \"page\": 1," + "  \"size\": 20" + "}";
 
-		assertThrows(ClientException.class, () -> copClient.doPost(ns, "/synconhub/product/reefer/search", payload));
+		assertThrows(ClientException.class, () -> copClient.doPost(ns, "/synconhub/product/reefer/search", payload, null));
 	}
 
 	/**
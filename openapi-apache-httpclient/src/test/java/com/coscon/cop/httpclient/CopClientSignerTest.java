@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.httpclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.util.EntityUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coscon.cop.core.Namespace;
+import com.coscon.cop.core.SignAlgorithm;
+import com.coscon.cop.internal.BasicCredentialsProvider;
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.Payload;
+import com.coscon.cop.internal.SigningEngine;
+import com.coscon.cop.internal.UsernamePasswordCredentials;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class CopClientSignerTest {
+	private static final String PAYLOAD = "{\"cargoCategory\": \"REEFER\", \"page\": 1, \"size\": 20}";
+	private static final String PATH = "/service/synconhub/product/reefer/search";
+
+	private final CopClientSigner signer = new CopClientSigner(SignAlgorithm.HMAC_SHA1);
+	private final BasicCredentialsProvider provider = new BasicCredentialsProvider();
+	private final Namespace ns = Namespace.COP_PUBLIC_PP;
+	private final HttpHost target = HttpHost.create("https://api-pp.lines.coscoshipping.com");
+
+	@Before
+	public void setUp() {
+		provider.setCredentials(ns, new UsernamePasswordCredentials(ns, "FakeApiKey", "FakeSecretKey"));
+	}
+
+	private static String expectedDigest(byte[] content) {
+		return "SHA-256=" + Base64.encodeBase64String(DigestUtils.sha256(content));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.httpclient.CopClientSigner#sign(com.coscon.cop.core.CredentialsProvider, Object)}.
+	 */
+	@Test
+	public void testSignDigestedStringEntity() throws IOException {
+		HttpPost post = new HttpPost(PATH);
+		post.setEntity(new DigestedStringEntity(PAYLOAD, ContentType.APPLICATION_JSON));
+		HttpRequestWrapper request = HttpRequestWrapper.wrap(post, target);
+		signer.sign(provider, request);
+		assertEquals(expectedDigest(PAYLOAD.getBytes(StandardCharsets.UTF_8)),
+				request.getFirstHeader(SigningEngine.X_DIGEST).getValue());
+		assertNotNull(request.getFirstHeader(SigningEngine.X_AUTHORIZATION));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.httpclient.CopClientSigner#sign(com.coscon.cop.core.CredentialsProvider, Object)}.
+	 */
+	@Test
+	public void testSignStreamedEntity() throws IOException {
+		byte[] content = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+		HttpPost post = new HttpPost(PATH);
+		post.setEntity(new InputStreamEntity(new ByteArrayInputStream(content), ContentType.APPLICATION_JSON));
+		HttpRequestWrapper request = HttpRequestWrapper.wrap(post, target);
+		signer.sign(provider, request);
+		assertEquals(expectedDigest(content), request.getFirstHeader(SigningEngine.X_DIGEST).getValue());
+		// non-repeatable entity is still available for the wire.
+		HttpEntityEnclosingRequest enclosing = (HttpEntityEnclosingRequest) request;
+		assertTrue(enclosing.getEntity().isRepeatable());
+		assertEquals(ContentType.APPLICATION_JSON.toString(), enclosing.getEntity().getContentType().getValue());
+		assertEquals(PAYLOAD, EntityUtils.toString(enclosing.getEntity(), StandardCharsets.UTF_8));
+
+		HttpRequestWrapper get = HttpRequestWrapper.wrap(new HttpGet("/service/info/tracking/6309441170"), target);
+		signer.sign(provider, get);
+		assertEquals(expectedDigest(new byte[0]), get.getFirstHeader(SigningEngine.X_DIGEST).getValue());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.httpclient.CopClientSigner#sign(com.coscon.cop.core.CredentialsProvider, Object)}.
+	 */
+	@Test
+	public void testSignPayloadEntity() throws IOException {
+		// the signer trusts the digest supplied with the payload.
+		ContentDigest precomputed = ContentDigest.ofSha256(new byte[32]);
+		Payload payload = Payload.of(PAYLOAD.getBytes(StandardCharsets.UTF_8), precomputed);
+		HttpPost post = new HttpPost(PATH);
+		post.setEntity(new PayloadEntity(payload));
+		HttpRequestWrapper request = HttpRequestWrapper.wrap(post, target);
+		signer.sign(provider, request);
+		assertEquals(precomputed.getHeaderValue(), request.getFirstHeader(SigningEngine.X_DIGEST).getValue());
+		assertEquals(PAYLOAD, EntityUtils.toString(post.getEntity(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.httpclient.CopClientSigner#signAll(com.coscon.cop.core.CredentialsProvider, List)}.
+	 */
+	@Test
+	public void testSignAll() throws IOException {
+		List<HttpUriRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			requests.add(new HttpGet(target.toURI() + "/service/info/tracking/" + i + "?numberType=bl"));
+		}
+		Payload payload = Payload.of(PAYLOAD);
+		HttpPost post = new HttpPost(target.toURI() + PATH);
+		post.setEntity(new PayloadEntity(payload));
+		requests.add(post);
+
+		List<HttpUriRequest> signed = signer.signAll(provider, requests);
+		assertEquals(requests, signed);
+		for (HttpUriRequest request : signed) {
+			assertNotNull(request.getFirstHeader(SigningEngine.X_AUTHORIZATION));
+			assertNotNull(request.getFirstHeader(SigningEngine.X_DATE));
+			assertEquals(CopClient.COP_SDK_VERSION, request.getFirstHeader("User-Agent").getValue());
+		}
+		assertEquals(expectedDigest(new byte[0]), signed.get(0).getFirstHeader(SigningEngine.X_DIGEST).getValue());
+		assertEquals(payload.getContentDigest().getHeaderValue(),
+				post.getFirstHeader(SigningEngine.X_DIGEST).getValue());
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.httpclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.ContentDigestValidator;
+import com.coscon.cop.internal.SigningEngine;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class VerifyingEntityTest {
+	private static final String BODY = "{\"code\": 200, \"data\": {\"content\": []}}";
+
+	private static VerifyingEntity verifying(String digest, String body) throws IOException {
+		ContentDigestValidator validator = new ContentDigestValidator();
+		InputStreamEntity entity = new InputStreamEntity(
+				new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), ContentType.APPLICATION_JSON);
+		return new VerifyingEntity(entity,
+				validator.begin(name -> SigningEngine.X_DIGEST.equalsIgnoreCase(name) ? digest : null));
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.httpclient.VerifyingEntity#getContent()}.
+	 */
+	@Test
+	public void testGetContent() throws IOException {
+		String digest = ContentDigest.of(BODY.getBytes(StandardCharsets.UTF_8)).getHeaderValue();
+		VerifyingEntity entity = verifying(digest, BODY);
+		assertFalse(entity.isRepeatable());
+		assertEquals(BODY, EntityUtils.toString(entity, StandardCharsets.UTF_8));
+
+		VerifyingEntity tampered = verifying(digest, BODY.replace('[', '{'));
+		assertThrows(IOException.class, () -> EntityUtils.toString(tampered, StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.httpclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.Namespace;
+import com.coscon.cop.internal.StandInGateway;
+import com.coscon.cop.internal.VirtualThreads;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * Blocking calls from virtual threads. Pinned carriers are found in a flight
+ * recording of <code>jdk.VirtualThreadPinned</code> events, which every JDK
+ * with virtual threads emits.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class VirtualThreadTest {
+	private static final Namespace NS = Namespace.COP_PUBLIC_PP;
+	private static final String URI = "/info/tracking/6309441170?numberType=bl";
+	private static final int REQUESTS = 32;
+	private static final String PINNED = "jdk.VirtualThreadPinned";
+
+	private StandInGateway gateway;
+	private MockWebServer server;
+	private Endpoint endpoint;
+	private CopClient client;
+
+	@Before
+	public void setUp() throws Exception {
+		gateway = StandInGateway.start("stand-in-virtual", NS);
+		server = gateway.getServer();
+		endpoint = gateway.getEndpoint();
+		client = CopClient.newInstance();
+		client.getHttpClientBuilder().setSSLContext(StandInGateway.clientCertificates().sslContext());
+		client.withCredentials(NS, StandInGateway.API_KEY, StandInGateway.SECRET_KEY);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		gateway.close();
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.httpclient.CopClient#withVirtualThreads(int)}.
+	 */
+	@Test
+	public void testNoPinning() throws Exception {
+		assumeTrue(VirtualThreads.isSupported());
+		client.withVirtualThreads(REQUESTS);
+		client.buildHttpClient();
+		for (int i = 0; i < REQUESTS * 2; i++) {
+			server.enqueue(new MockResponse().setBody("{\"code\":0}"));
+		}
+
+		Recording recording = new Recording();
+		recording.enable(PINNED).withThreshold(Duration.ZERO).withStackTrace();
+		recording.start();
+		ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < REQUESTS; i++) {
+				results.add(executor.submit(() -> client.doGet(endpoint, URI)));
+				results.add(executor.submit(() -> client.doPost(endpoint, URI, "{\"numbers\":[\"6309441170\"]}")));
+			}
+			for (Future<String> result : results) {
+				assertEquals("{\"code\":0}", result.get(30, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdown();
+			recording.stop();
+		}
+		assertEquals(REQUESTS * 2, server.getRequestCount());
+		List<RecordedEvent> pinned = pinnedEvents(recording);
+		assertTrue(pinned.toString(), pinned.isEmpty());
+	}
+
+	private static List<RecordedEvent> pinnedEvents(Recording recording) throws IOException {
+		Path dump = Files.createTempFile("pinned", ".jfr");
+		try {
+			recording.dump(dump);
+			List<RecordedEvent> pinned = new ArrayList<>();
+			for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+				if (PINNED.equals(event.getEventType().getName())) {
+					pinned.add(event);
+				}
+			}
+			return pinned;
+		} finally {
+			recording.close();
+			Files.delete(dump);
+		}
+	}
+}
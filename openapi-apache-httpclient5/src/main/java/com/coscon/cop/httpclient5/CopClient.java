@@ -0,0 +1,507 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.httpclient5;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.io.CloseMode;
+
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.CredentialsProvider;
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.EndpointRouter;
+import com.coscon.cop.core.Namespace;
+import com.coscon.cop.core.Validator;
+import com.coscon.cop.internal.CopClientBase;
+import com.coscon.cop.internal.CredentialsRefresher;
+import com.coscon.cop.internal.DigestedContent;
+import com.coscon.cop.internal.Payload;
+
+/**
+ * COP client over the HTTP/2 async client of Apache HttpClient 5. Concurrent
+ * requests to one gateway are multiplexed as streams of a single connection
+ * instead of holding a pooled connection and a thread each, the gateway must
+ * accept HTTP/2 through ALPN.
+ * <p>
+ * Request bodies are streamed from the bytes of their {@link Payload}, response
+ * bodies are verified frame by frame as they arrive. The blocking methods wait
+ * for the asynchronous ones.
+ * <p>
+ * The methods returning {@link SimpleHttpResponse} or <code>String</code> hold
+ * the whole response body in memory, which suits the JSON documents of COP.
+ * Large bodies should be streamed to an {@link AsyncResponseConsumer} of the
+ * application with
+ * {@link #doGetAsync(Endpoint, String, AsyncResponseConsumer, Map)} or
+ * {@link #doPostAsync(Endpoint, String, Payload, AsyncResponseConsumer, Map)}.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class CopClient extends CopClientBase implements Closeable {
+
+	public static final String COP_SDK_VERSION = "COP_SDK_HttpClient5/0.0.1";
+
+	private H2AsyncClientBuilder httpClientBuilder;
+
+	private CloseableHttpAsyncClient httpClient = null;
+
+	private CopClient() {
+		super();
+	}
+
+	@Override
+	protected void initialize() {
+		httpClientBuilder = HttpAsyncClients.customHttp2();
+		httpClientBuilder.setDefaultConnectionConfig(
+				ConnectionConfig.custom().setTimeToLive(30, TimeUnit.SECONDS).build());
+		setSignMethod(defaultSignMethod);
+		setResponseHandler(defaultResponseHandler);
+	}
+
+	public static CopClient newInstance() {
+		return new CopClient();
+	}
+
+	/**
+	 * the default response handler
+	 */
+	private static final ResponseHandler<String> defaultResponseHandler = new ResponseHandler<String>() {
+		@Override
+		public String handleResponse(SimpleHttpResponse response) throws IOException {
+			final int status = response.getCode();
+			if (status >= 200 && status < 300) {
+				String content = response.getBodyText();
+				return content == null ? "" : content;
+			} else {
+				throw new IOException(
+						"http response - status:" + status + ", reason phrase:" + response.getReasonPhrase());
+			}
+		}
+	};
+
+	@Override
+	public void setResponseHandler(Object handler) {
+		if (handler instanceof ResponseHandler<?>) {
+			super.setResponseHandler(handler);
+		} else {
+			Objects.requireNonNull(handler, "handler may not be null");
+			throw new IllegalArgumentException("handler may not ResponseHandler<String> intance");
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected ResponseHandler<String> getResponseHandler() {
+		return (ResponseHandler<String>) super.getResponseHandler();
+	}
+
+	/**
+	 * @return the httpClientBuilder
+	 */
+	public H2AsyncClientBuilder getHttpClientBuilder() {
+		return Objects.requireNonNull(this.httpClientBuilder, "httpClientBuilder may not be null");
+	}
+
+	@Override
+	public void buildHttpClient() throws ClientException {
+		if (Objects.isNull(this.httpClient)) {
+			CopClientSigner signer = new CopClientSigner(getSignMethod());
+			setSigner(signer);
+			SignExecHandler signHandler = new SignExecHandler(signer, this::getCredentialsProvider);
+			httpClient = getHttpClientBuilder()
+					.addExecInterceptorAfter(ChainElement.PROTOCOL.name(), SignExecHandler.NAME, signHandler)
+					.addRequestInterceptorLast(signHandler).build();
+			httpClient.start();
+		} else {
+			throw new ClientException("Unable to overwrite httpclient");
+		}
+	}
+
+	@Override
+	public void close() {
+		if (this.httpClient != null) {
+			httpClient.close(CloseMode.GRACEFUL);
+		}
+		httpClient = null;
+		httpClientBuilder = null;
+		super.close();
+	}
+
+	@Override
+	public CopClient withCredentials(Namespace namespace, String apiKey, String secretKey) throws ClientException {
+		return (CopClient) super.withCredentials(namespace, apiKey, secretKey);
+	}
+
+	@Override
+	public CopClient rotateCredentials(Namespace namespace, String apiKey, String secretKey) {
+		return (CopClient) super.rotateCredentials(namespace, apiKey, secretKey);
+	}
+
+	@Override
+	public CopClient withCredentialsRefresher(CredentialsRefresher.Source source, long period, TimeUnit unit)
+			throws ClientException {
+		return (CopClient) super.withCredentialsRefresher(source, period, unit);
+	}
+
+	@Override
+	public CopClient withCredentialsProvider(CredentialsProvider provider) {
+		return (CopClient) super.withCredentialsProvider(provider);
+	}
+
+	@Override
+	public CopClient withRouter(Namespace namespace, EndpointRouter router) {
+		return (CopClient) super.withRouter(namespace, router);
+	}
+
+	@Override
+	public CopClient withValidator(Namespace namespace, Validator validator) {
+		return (CopClient) super.withValidator(namespace, validator);
+	}
+
+	/*
+	 * *****************************************************************************
+	 * ********************
+	 */
+
+	/**
+	 * Sends a request to a registered endpoint, the response is collected in
+	 * a {@link SimpleHttpResponse}.
+	 * 
+	 * @param entity
+	 *            <code>null</code> for a GET request.
+	 */
+	private CompletableFuture<SimpleHttpResponse> execute(Endpoint endpoint, String relativeUri,
+			AsyncEntityProducer entity, Map<String, List<String>> extraHeaders) {
+		return execute(endpoint, relativeUri, entity, extraHeaders, VerifyingResponseConsumer::new);
+	}
+
+	/**
+	 * Sends a request to a registered endpoint.
+	 * 
+	 * @param entity
+	 *            <code>null</code> for a GET request.
+	 * @param consumerOf
+	 *            creates the response consumer for the validator of the
+	 *            request.
+	 */
+	private <T> CompletableFuture<T> execute(Endpoint endpoint, String relativeUri, AsyncEntityProducer entity,
+			Map<String, List<String>> extraHeaders, Function<Validator, AsyncResponseConsumer<T>> consumerOf) {
+		final URI uri;
+		try {
+			uri = URI.create(requireRegistered(endpoint).resolve(relativeUri));
+		} catch (ClientException e) {
+			return failed(e);
+		} catch (IllegalArgumentException e) {
+			return failed(new ClientException(e.getLocalizedMessage(), e));
+		}
+		if (Objects.isNull(httpClient)) {
+			return failed(new ClientException("httpclient is not built yet"));
+		}
+		HttpRequest request = new BasicHttpRequest(entity == null ? Method.GET : Method.POST, uri);
+		if (Objects.nonNull(extraHeaders)) {
+			for (Map.Entry<String, List<String>> headers : extraHeaders.entrySet()) {
+				for (String hValue : headers.getValue()) {
+					request.addHeader(headers.getKey(), hValue);
+				}
+			}
+		}
+		Validator validator = getValidatorProvider().getValidator(uri.getScheme(), uri.getHost(), uri.getPort(),
+				uri.getRawPath());
+		HttpClientContext context = HttpClientContext.create();
+		if (entity instanceof DigestedContent) {
+			context.setAttribute(SignExecHandler.HTTP_CONTEXT_DIGEST, ((DigestedContent) entity).getContentDigest());
+		}
+		final CompletableFuture<T> future = new CompletableFuture<>();
+		final Future<T> call = httpClient.execute(new BasicRequestProducer(request, entity),
+				consumerOf.apply(validator), context, new FutureCallback<T>() {
+					@Override
+					public void completed(T response) {
+						future.complete(response);
+					}
+
+					@Override
+					public void failed(Exception ex) {
+						future.completeExceptionally(new ClientException(ex.getLocalizedMessage(), ex));
+					}
+
+					@Override
+					public void cancelled() {
+						future.cancel(false);
+					}
+				});
+		future.whenComplete((response, error) -> {
+			if (future.isCancelled()) {
+				call.cancel(true);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Blocks until the asynchronous request completes.
+	 */
+	private static <T> T await(CompletableFuture<T> future) throws ClientException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new ClientException(e.getLocalizedMessage(), e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof ClientException) {
+				throw (ClientException) e.getCause();
+			}
+			throw new ClientException(e.getCause().getLocalizedMessage(), e.getCause());
+		}
+	}
+
+	private String handleResponse(SimpleHttpResponse response) throws ClientException {
+		try {
+			return getResponseHandler().handleResponse(response);
+		} catch (IOException e) {
+			throw new ClientException(e.getLocalizedMessage(), e);
+		}
+	}
+
+	private CompletableFuture<String> handleAsync(CompletableFuture<SimpleHttpResponse> responseFuture) {
+		return responseFuture.thenApply(response -> {
+			try {
+				return getResponseHandler().handleResponse(response);
+			} catch (IOException e) {
+				throw new CompletionException(new ClientException(e.getLocalizedMessage(), e));
+			}
+		});
+	}
+
+	@Override
+	public String doGet(Namespace namespace, String relativeUri) throws ClientException {
+		return doGet(namespace, relativeUri, null);
+	}
+
+	@Override
+	public String doGet(Namespace namespace, String relativeUri, Map<String, List<String>> extraHeaders)
+			throws ClientException {
+		return handleResponse(doGetWithResponse(namespace, relativeUri, extraHeaders));
+	}
+
+	@Override
+	public SimpleHttpResponse doGetWithResponse(Namespace namespace, String relativeUri) throws ClientException {
+		return doGetWithResponse(namespace, relativeUri, null);
+	}
+
+	@Override
+	public SimpleHttpResponse doGetWithResponse(Namespace namespace, String relativeUri,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return await(doGetWithResponseAsync(namespace, relativeUri, extraHeaders));
+	}
+
+	@Override
+	public String doPost(Namespace namespace, String relativeUri, String payload) throws ClientException {
+		return doPost(namespace, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	@Override
+	public String doPost(Namespace namespace, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return handleResponse(doPostWithResponse(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public SimpleHttpResponse doPostWithResponse(Namespace namespace, String relativeUri, String payload)
+			throws ClientException {
+		return doPostWithResponse(namespace, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	@Override
+	public SimpleHttpResponse doPostWithResponse(Namespace namespace, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return await(doPostWithResponseAsync(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public String doPost(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return handleResponse(doPostWithResponse(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public SimpleHttpResponse doPostWithResponse(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return await(doPostWithResponseAsync(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public String doGet(Endpoint endpoint, String relativeUri, Map<String, List<String>> extraHeaders)
+			throws ClientException {
+		return handleResponse(doGetWithResponse(endpoint, relativeUri, extraHeaders));
+	}
+
+	@Override
+	public SimpleHttpResponse doGetWithResponse(Endpoint endpoint, String relativeUri) throws ClientException {
+		return doGetWithResponse(endpoint, relativeUri, null);
+	}
+
+	@Override
+	public SimpleHttpResponse doGetWithResponse(Endpoint endpoint, String relativeUri,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return await(execute(endpoint, relativeUri, null, extraHeaders));
+	}
+
+	@Override
+	public String doPost(Endpoint endpoint, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return handleResponse(doPostWithResponse(endpoint, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public SimpleHttpResponse doPostWithResponse(Endpoint endpoint, String relativeUri, String payload)
+			throws ClientException {
+		return doPostWithResponse(endpoint, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	@Override
+	public SimpleHttpResponse doPostWithResponse(Endpoint endpoint, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return doPostWithResponse(endpoint, relativeUri, Payload.of(payload), extraHeaders);
+	}
+
+	@Override
+	public String doPost(Endpoint endpoint, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return handleResponse(doPostWithResponse(endpoint, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public SimpleHttpResponse doPostWithResponse(Endpoint endpoint, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return await(execute(endpoint, relativeUri, new DigestedEntityProducer(payload), extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<String> doGetAsync(Namespace namespace, String relativeUri,
+			Map<String, List<String>> extraHeaders) {
+		return handleAsync(doGetWithResponseAsync(namespace, relativeUri, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<SimpleHttpResponse> doGetWithResponseAsync(Namespace namespace, String relativeUri) {
+		return doGetWithResponseAsync(namespace, relativeUri, null);
+	}
+
+	@Override
+	public CompletableFuture<SimpleHttpResponse> doGetWithResponseAsync(Namespace namespace, String relativeUri,
+			Map<String, List<String>> extraHeaders) {
+		return routeAsync(namespace, true, endpoint -> execute(endpoint, relativeUri, null, extraHeaders),
+				SimpleHttpResponse::getCode);
+	}
+
+	@Override
+	public CompletableFuture<String> doPostAsync(Namespace namespace, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) {
+		return handleAsync(doPostWithResponseAsync(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<SimpleHttpResponse> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			String payload) {
+		return doPostWithResponseAsync(namespace, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	@Override
+	public CompletableFuture<SimpleHttpResponse> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			String payload, Map<String, List<String>> extraHeaders) {
+		return doPostWithResponseAsync(namespace, relativeUri, Payload.of(payload), extraHeaders);
+	}
+
+	@Override
+	public CompletableFuture<String> doPostAsync(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) {
+		return handleAsync(doPostWithResponseAsync(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<SimpleHttpResponse> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			Payload payload, Map<String, List<String>> extraHeaders) {
+		Objects.requireNonNull(payload, "payload may not be null");
+		return routeAsync(namespace, false,
+				endpoint -> execute(endpoint, relativeUri, new DigestedEntityProducer(payload), extraHeaders),
+				SimpleHttpResponse::getCode);
+	}
+
+	/**
+	 * Streams the response of a GET request to the given consumer instead of
+	 * collecting it in a {@link SimpleHttpResponse}. The body is verified as it
+	 * passes, the consumer sees it before verification completes and the
+	 * result fails when the body does not match.
+	 * <p>
+	 * A consumer cannot be replayed, the request is sent to the endpoint
+	 * without failover.
+	 * 
+	 * @param consumer
+	 *            consumer of the response, used for one exchange.
+	 * @throws NullPointerException
+	 *             if <code>consumer</code> is <code>null</code>.
+	 */
+	public <T> CompletableFuture<T> doGetAsync(Endpoint endpoint, String relativeUri,
+			AsyncResponseConsumer<T> consumer, Map<String, List<String>> extraHeaders) {
+		Objects.requireNonNull(consumer, "consumer may not be null");
+		return execute(endpoint, relativeUri, null, extraHeaders,
+				validator -> new StreamingResponseConsumer<>(consumer, validator));
+	}
+
+	/**
+	 * Streams the response of a POST request to the given consumer, see
+	 * {@link #doGetAsync(Endpoint, String, AsyncResponseConsumer, Map)}.
+	 * 
+	 * @param consumer
+	 *            consumer of the response, used for one exchange.
+	 * @throws NullPointerException
+	 *             if <code>payload</code> or <code>consumer</code> is
+	 *             <code>null</code>.
+	 */
+	public <T> CompletableFuture<T> doPostAsync(Endpoint endpoint, String relativeUri, Payload payload,
+			AsyncResponseConsumer<T> consumer, Map<String, List<String>> extraHeaders) {
+		Objects.requireNonNull(payload, "payload may not be null");
+		Objects.requireNonNull(consumer, "consumer may not be null");
+		return execute(endpoint, relativeUri, new DigestedEntityProducer(payload), extraHeaders,
+				validator -> new StreamingResponseConsumer<>(consumer, validator));
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.httpclient5;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpVersion;
+import org.apache.hc.core5.http.ProtocolVersion;
+import org.apache.hc.core5.net.URIAuthority;
+
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.Credentials;
+import com.coscon.cop.core.CredentialsProvider;
+import com.coscon.cop.core.SignAlgorithm;
+import com.coscon.cop.core.Signer;
+import com.coscon.cop.internal.BasicSigner;
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.DigestedContent;
+import com.coscon.cop.internal.RequestSignature;
+import com.coscon.cop.internal.SigningEngine;
+import com.coscon.cop.internal.TenantCredentialsProvider;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+class CopClientSigner extends BasicSigner implements Signer {
+
+	public CopClientSigner(SignAlgorithm method) {
+		super(method);
+	}
+
+	private static String rawPathOf(HttpRequest request) {
+		String path = request.getPath();
+		int query = path == null ? -1 : path.indexOf('?');
+		return query < 0 ? path : path.substring(0, query);
+	}
+
+	/**
+	 * @return whether the absolute request targets a COP namespace.
+	 */
+	boolean accept(HttpRequest request) {
+		URIAuthority authority = request.getAuthority();
+		return authority != null && matchNamespace(request.getScheme(), authority.getHostName(), authority.getPort(),
+				rawPathOf(request)) != null;
+	}
+
+	/**
+	 * Resolves the credentials of the absolute request, of its tenant if any.
+	 */
+	SigningEngine getSigningEngine(CredentialsProvider provider, HttpRequest request) throws IOException {
+		URIAuthority authority = request.getAuthority();
+		if (authority == null) {
+			throw new IOException("Unable to determine the target host");
+		}
+		Header tenant = request.getFirstHeader(TenantCredentialsProvider.TENANT_HEADER);
+		final Credentials credentials = getCredentialsProvider(provider, tenant == null ? null : tenant.getValue())
+				.getCredentials(request.getScheme(), authority.getHostName(), authority.getPort(), rawPathOf(request));
+		if (Objects.isNull(credentials)) {
+			throw new IOException("Unable to find suitable credentials");
+		}
+		return getSigningEngine(credentials);
+	}
+
+	/**
+	 * The entities of {@link CopClient} know their digest, an entity is never
+	 * read just to sign it since it is streamed to the connection afterwards.
+	 */
+	static ContentDigest digestOf(EntityDetails entity) throws IOException {
+		if (entity == null) {
+			return ContentDigest.EMPTY;
+		}
+		if (entity instanceof DigestedContent) {
+			return ((DigestedContent) entity).getContentDigest();
+		}
+		throw new IOException("Request entity of unknown digest:" + entity);
+	}
+
+	/**
+	 * Signs the request as sent over a connection of the given protocol, e.g.
+	 * <code>GET /path?query HTTP/2.0</code> once HTTP/2 is negotiated.
+	 */
+	void sign(SigningEngine engine, HttpRequest request, ContentDigest contentDigest, ProtocolVersion version)
+			throws IOException {
+		String requestLine = request.getMethod() + ' ' + request.getRequestUri() + ' '
+				+ (version == null ? HttpVersion.HTTP_1_1 : version);
+		try {
+			applySignature(request, engine.sign(requestLine, contentDigest));
+		} catch (ClientException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public Object sign(CredentialsProvider provider, Object rawRequest) throws IOException {
+		if (!(rawRequest instanceof HttpRequest)) {
+			throw new IllegalArgumentException("HttpRequest request is expected.");
+		}
+		HttpRequest request = (HttpRequest) rawRequest;
+		ContentDigest contentDigest = ContentDigest.EMPTY;
+		if (request instanceof SimpleHttpRequest && ((SimpleHttpRequest) request).getBodyBytes() != null) {
+			contentDigest = ContentDigest.of(((SimpleHttpRequest) request).getBodyBytes());
+		}
+		sign(getSigningEngine(provider, request), request, contentDigest, request.getVersion());
+		return request;
+	}
+
+	private void applySignature(HttpRequest request, RequestSignature signature) {
+		request.removeHeaders(TenantCredentialsProvider.TENANT_HEADER);
+		signature.writeTo(request::setHeader);
+		Header uaHeader = request.getFirstHeader(HEADER_USER_AGENT);
+
+		if (uaHeader == null || StringUtils.isEmpty(uaHeader.getValue())) {
+			request.setHeader(HEADER_USER_AGENT, CopClient.COP_SDK_VERSION);
+		} else {
+			if (!uaHeader.getValue().toUpperCase().contains(CopClient.COP_SDK_VERSION.toUpperCase())) {
+				StringBuilder uaBuilder = new StringBuilder();
+				uaBuilder.append(uaHeader.getValue()).append(" ").append(CopClient.COP_SDK_VERSION);
+				request.setHeader(HEADER_USER_AGENT, uaBuilder.toString());
+			}
+		}
+		request.setHeader(HEADER_ACCEPT, ContentType.APPLICATION_JSON.getMimeType());
+		request.setHeader(HEADER_ACCEPT_CHARSET, ContentType.APPLICATION_JSON.getCharset().toString());
+	}
+}
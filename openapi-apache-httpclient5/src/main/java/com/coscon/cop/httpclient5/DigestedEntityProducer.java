@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.httpclient5;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityProducer;
+
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.DigestedContent;
+import com.coscon.cop.internal.Payload;
+
+/**
+ * Request entity streamed from the bytes of a {@link Payload}, in chunks as
+ * the connection accepts them, whose digest is known in advance.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+class DigestedEntityProducer extends BasicAsyncEntityProducer implements DigestedContent {
+	private final ContentDigest contentDigest;
+
+	DigestedEntityProducer(Payload payload) {
+		super(payload.getContent(), ContentType.APPLICATION_JSON);
+		this.contentDigest = payload.getContentDigest();
+	}
+
+	@Override
+	public ContentDigest getContentDigest() {
+		return contentDigest;
+	}
+}
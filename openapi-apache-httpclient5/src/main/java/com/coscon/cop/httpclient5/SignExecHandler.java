@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.httpclient5;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpRequestInterceptor;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import com.coscon.cop.core.CredentialsProvider;
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.SigningEngine;
+import com.coscon.cop.internal.TenantCredentialsProvider;
+
+/**
+ * Signs COP requests in two steps. As an exec-chain handler it resolves the
+ * credentials and the body digest of each attempt before a connection is
+ * leased, so a request without credentials fails without connecting. As a
+ * request interceptor it signs once the request is produced on the
+ * connection, whose negotiated protocol is part of the request line.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+class SignExecHandler implements AsyncExecChainHandler, HttpRequestInterceptor {
+	static final String NAME = "cop-sign";
+
+	/**
+	 * {@link ContentDigest} of the request entity, the client wraps the
+	 * entity producer before it reaches the exec chain.
+	 */
+	static final String HTTP_CONTEXT_DIGEST = "http.context.cop.digest";
+
+	private static final String HTTP_CONTEXT_SIGNING = "http.context.cop.signing";
+
+	private final CopClientSigner signer;
+	private final Supplier<CredentialsProvider> credentialsProvider;
+
+	SignExecHandler(CopClientSigner signer, Supplier<CredentialsProvider> credentialsProvider) {
+		this.signer = Objects.requireNonNull(signer, "signer may not be null");
+		this.credentialsProvider = Objects.requireNonNull(credentialsProvider,
+				"credentialsProvider may not be null");
+	}
+
+	/**
+	 * Credentials and digest of an attempt, waiting for the connection.
+	 */
+	private static final class Signing {
+		private final SigningEngine engine;
+		private final ContentDigest contentDigest;
+
+		private Signing(SigningEngine engine, ContentDigest contentDigest) {
+			this.engine = engine;
+			this.contentDigest = contentDigest;
+		}
+	}
+
+	@Override
+	public void execute(HttpRequest request, AsyncEntityProducer entityProducer, AsyncExecChain.Scope scope,
+			AsyncExecChain chain, AsyncExecCallback asyncExecCallback) throws HttpException, IOException {
+		if (signer.accept(request)) {
+			SigningEngine engine = signer.getSigningEngine(credentialsProvider.get(), request);
+			Object contentDigest = scope.clientContext.getAttribute(HTTP_CONTEXT_DIGEST);
+			scope.clientContext.setAttribute(HTTP_CONTEXT_SIGNING,
+					new Signing(engine, entityProducer != null && contentDigest instanceof ContentDigest
+							? (ContentDigest) contentDigest : CopClientSigner.digestOf(entityProducer)));
+		} else {
+			scope.clientContext.removeAttribute(HTTP_CONTEXT_SIGNING);
+		}
+		request.removeHeaders(TenantCredentialsProvider.TENANT_HEADER);
+		chain.proceed(request, entityProducer, scope, asyncExecCallback);
+	}
+
+	@Override
+	public void process(HttpRequest request, EntityDetails entity, HttpContext context)
+			throws HttpException, IOException {
+		Signing signing = (Signing) context.removeAttribute(HTTP_CONTEXT_SIGNING);
+		if (signing != null) {
+			signer.sign(signing.engine, request, signing.contentDigest, context.getProtocolVersion());
+		}
+	}
+}
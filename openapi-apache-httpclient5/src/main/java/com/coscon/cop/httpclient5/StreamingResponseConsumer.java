@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.httpclient5;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import com.coscon.cop.core.Validator;
+import com.coscon.cop.internal.BodyVerifier;
+import com.coscon.cop.internal.StreamingValidator;
+
+/**
+ * Hands the response body to an application consumer frame by frame and feeds
+ * a {@link StreamingValidator} with every chunk on the way, nothing is
+ * buffered here.
+ * <p>
+ * The application consumer sees the body before it has been verified, a
+ * validation failure at end of stream fails the result instead of completing
+ * it and the rest of the body is discarded. A {@link Validator} which is not a
+ * {@link StreamingValidator} needs the whole response and fails the result up
+ * front.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+class StreamingResponseConsumer<T> implements AsyncResponseConsumer<T> {
+	private final AsyncResponseConsumer<T> delegate;
+	private final Validator validator;
+	private BodyVerifier verifier;
+	private byte[] chunk;
+	private FutureCallback<T> resultCallback;
+	private boolean failed;
+
+	/**
+	 * @param delegate
+	 *            consumer of the application.
+	 * @param validator
+	 *            validator of the request, <code>null</code> if none.
+	 */
+	StreamingResponseConsumer(AsyncResponseConsumer<T> delegate, Validator validator) {
+		this.delegate = Objects.requireNonNull(delegate, "delegate may not be null");
+		this.validator = validator;
+	}
+
+	@Override
+	public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+			FutureCallback<T> resultCallback) throws HttpException, IOException {
+		this.resultCallback = resultCallback;
+		if (validator != null && response.getCode() >= 200 && response.getCode() < 300) {
+			if (!(validator instanceof StreamingValidator)) {
+				failed(new HttpException("COP response validation needs a buffered response."));
+				return;
+			}
+			try {
+				verifier = ((StreamingValidator) validator).begin(name -> {
+					Header header = response.getFirstHeader(name);
+					return header == null ? null : header.getValue();
+				});
+			} catch (IOException e) {
+				failed(e);
+				return;
+			}
+			if (entityDetails == null && !verified()) {
+				return;
+			}
+		}
+		delegate.consumeResponse(response, entityDetails, context, resultCallback);
+	}
+
+	@Override
+	public void informationResponse(HttpResponse response, HttpContext context) throws HttpException, IOException {
+		delegate.informationResponse(response, context);
+	}
+
+	@Override
+	public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+		if (failed) {
+			capacityChannel.update(Integer.MAX_VALUE);
+			return;
+		}
+		delegate.updateCapacity(capacityChannel);
+	}
+
+	@Override
+	public void consume(ByteBuffer src) throws IOException {
+		if (failed) {
+			return;
+		}
+		if (verifier != null) {
+			ByteBuffer view = src.duplicate();
+			if (view.hasArray()) {
+				verifier.write(view.array(), view.arrayOffset() + view.position(), view.remaining());
+			} else {
+				while (view.hasRemaining()) {
+					if (chunk == null) {
+						chunk = new byte[4096];
+					}
+					int length = Math.min(chunk.length, view.remaining());
+					view.get(chunk, 0, length);
+					verifier.write(chunk, 0, length);
+				}
+			}
+		}
+		delegate.consume(src);
+	}
+
+	@Override
+	public void streamEnd(List<? extends Header> trailers) throws HttpException, IOException {
+		if (!failed && verified()) {
+			delegate.streamEnd(trailers);
+		}
+	}
+
+	/**
+	 * Fails the result before the application consumer completes when the
+	 * body does not match.
+	 */
+	private boolean verified() {
+		if (verifier != null) {
+			try {
+				verifier.verify();
+			} catch (IOException e) {
+				failed(e);
+				return false;
+			}
+			verifier = null;
+		}
+		return true;
+	}
+
+	@Override
+	public void failed(Exception cause) {
+		if (failed) {
+			return;
+		}
+		failed = true;
+		FutureCallback<T> callback = resultCallback;
+		releaseResources();
+		delegate.failed(cause);
+		if (callback != null) {
+			callback.failed(cause);
+		}
+	}
+
+	@Override
+	public void releaseResources() {
+		verifier = null;
+		chunk = null;
+		resultCallback = null;
+		delegate.releaseResources();
+	}
+}
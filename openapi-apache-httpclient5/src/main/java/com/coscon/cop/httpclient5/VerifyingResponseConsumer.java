@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.httpclient5;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.ByteArrayBuffer;
+
+import com.coscon.cop.core.Validator;
+import com.coscon.cop.internal.BodyVerifier;
+import com.coscon.cop.internal.StreamingValidator;
+
+/**
+ * Collects the response body as its frames arrive and feeds a
+ * {@link StreamingValidator} with every chunk on the way, the response is
+ * completed once the body has been verified at end of stream.
+ * <p>
+ * A validation failure fails the result rather than the stream, the
+ * connection is kept for other exchanges and the rest of the body is
+ * discarded.
+ * <p>
+ * The whole body is held in memory, large bodies go through a
+ * {@link StreamingResponseConsumer} instead.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+class VerifyingResponseConsumer implements AsyncResponseConsumer<SimpleHttpResponse> {
+	private static final int INITIAL_CAPACITY = 4096;
+
+	private final Validator validator;
+	private SimpleHttpResponse response;
+	private ContentType contentType;
+	private ByteArrayBuffer buffer;
+	private BodyVerifier verifier;
+	private FutureCallback<SimpleHttpResponse> resultCallback;
+
+	/**
+	 * @param validator
+	 *            validator of the request, <code>null</code> if none.
+	 */
+	VerifyingResponseConsumer(Validator validator) {
+		this.validator = validator;
+	}
+
+	private boolean validating() {
+		return validator != null && response.getCode() >= 200 && response.getCode() < 300;
+	}
+
+	@Override
+	public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+			FutureCallback<SimpleHttpResponse> resultCallback) throws HttpException, IOException {
+		this.response = SimpleHttpResponse.copy(response);
+		this.resultCallback = resultCallback;
+		if (validating() && validator instanceof StreamingValidator) {
+			try {
+				verifier = ((StreamingValidator) validator).begin(name -> {
+					Header header = response.getFirstHeader(name);
+					return header == null ? null : header.getValue();
+				});
+			} catch (IOException e) {
+				failed(e);
+				return;
+			}
+		}
+		if (entityDetails == null) {
+			complete();
+			return;
+		}
+		contentType = ContentType.parseLenient(entityDetails.getContentType());
+		long length = entityDetails.getContentLength();
+		buffer = new ByteArrayBuffer(length > 0 && length < Integer.MAX_VALUE ? (int) length : INITIAL_CAPACITY);
+	}
+
+	@Override
+	public void informationResponse(HttpResponse response, HttpContext context) throws HttpException, IOException {
+		// Do nothing.
+	}
+
+	@Override
+	public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+		capacityChannel.update(Integer.MAX_VALUE);
+	}
+
+	@Override
+	public void consume(ByteBuffer src) throws IOException {
+		if (buffer == null) {
+			return;
+		}
+		int offset = buffer.length();
+		buffer.append(src);
+		if (verifier != null) {
+			verifier.write(buffer.array(), offset, buffer.length() - offset);
+		}
+	}
+
+	@Override
+	public void streamEnd(List<? extends Header> trailers) throws HttpException, IOException {
+		complete();
+	}
+
+	private void complete() {
+		if (resultCallback == null) {
+			return;
+		}
+		try {
+			if (verifier != null) {
+				verifier.verify();
+			}
+			if (buffer != null) {
+				response.setBody(buffer.toByteArray(), contentType);
+			}
+			if (validating() && !(validator instanceof StreamingValidator) && !validator.validate(response)) {
+				throw new HttpException("COP response validation failed.");
+			}
+		} catch (HttpException | IOException e) {
+			failed(e);
+			return;
+		}
+		FutureCallback<SimpleHttpResponse> callback = resultCallback;
+		SimpleHttpResponse result = response;
+		releaseResources();
+		if (callback != null) {
+			callback.completed(result);
+		}
+	}
+
+	@Override
+	public void failed(Exception cause) {
+		FutureCallback<SimpleHttpResponse> callback = resultCallback;
+		releaseResources();
+		if (callback != null) {
+			callback.failed(cause);
+		}
+	}
+
+	@Override
+	public void releaseResources() {
+		response = null;
+		buffer = null;
+		verifier = null;
+		resultCallback = null;
+	}
+}
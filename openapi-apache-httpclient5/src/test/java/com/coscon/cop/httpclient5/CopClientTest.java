@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.httpclient5;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicResponseConsumer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.EndpointRouter;
+import com.coscon.cop.core.Namespace;
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.ContentDigestValidator;
+import com.coscon.cop.internal.SigningEngine;
+import com.coscon.cop.internal.StandInGateway;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Requests over HTTP/2 against a local stand-in gateway.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class CopClientTest {
+	private static final Namespace NS = Namespace.COP_PUBLIC_PP;
+	private static final String URI = "/info/tracking/6309441170?numberType=bl";
+	private static final String BODY = "{\"code\":0}";
+
+	private StandInGateway gateway;
+	private MockWebServer server;
+	private Endpoint endpoint;
+	private CopClient client;
+
+	@Before
+	public void setUp() throws Exception {
+		gateway = StandInGateway.start("stand-in-h2", NS, Protocol.HTTP_2, Protocol.HTTP_1_1);
+		server = gateway.getServer();
+		endpoint = gateway.getEndpoint();
+
+		client = CopClient.newInstance();
+		client.getHttpClientBuilder().setTlsStrategy(ClientTlsStrategyBuilder.create()
+				.setSslContext(StandInGateway.clientCertificates().sslContext()).build());
+		client.withCredentials(NS, StandInGateway.API_KEY, StandInGateway.SECRET_KEY);
+		client.buildHttpClient();
+		client.withRouter(NS, new EndpointRouter(Collections.singletonList(endpoint)));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		gateway.close();
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.httpclient5.CopClient#doGetAsync(Namespace, String)}.
+	 */
+	@Test
+	public void testMultiplexed() throws Exception {
+		for (int i = 0; i < 12; i++) {
+			server.enqueue(new MockResponse().setBody(BODY));
+		}
+		assertEquals(BODY, client.doGet(NS, URI));
+		List<CompletableFuture<String>> futures = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			futures.add(client.doGetAsync(NS, URI));
+		}
+		futures.add(client.doPostAsync(NS, URI, "{\"numbers\":[\"6309441170\"]}"));
+		for (CompletableFuture<String> future : futures) {
+			assertEquals(BODY, future.get(10, TimeUnit.SECONDS));
+		}
+		// streams of the one connection are numbered in sequence.
+		Set<Integer> sequenceNumbers = new HashSet<>();
+		for (int i = 0; i < 12; i++) {
+			RecordedRequest request = server.takeRequest();
+			assertEquals("/service" + URI, request.getPath());
+			StandInGateway.assertSigned(request, "HTTP/2.0");
+			assertTrue(sequenceNumbers.add(request.getSequenceNumber()));
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.httpclient5.CopClient#doGet(Endpoint, String)}.
+	 */
+	@Test
+	public void testStreamingValidation() throws Exception {
+		client.withValidator(NS, new ContentDigestValidator());
+		String digest = ContentDigest.of(BODY.getBytes("UTF-8")).getHeaderValue();
+		server.enqueue(new MockResponse().setBody(BODY).setHeader(SigningEngine.X_DIGEST, digest));
+		server.enqueue(new MockResponse().setBody("{\"code\":1}").setHeader(SigningEngine.X_DIGEST, digest));
+		assertEquals(BODY, client.doGet(endpoint, URI));
+		try {
+			client.doGet(endpoint, URI);
+			fail("digest mismatch is expected");
+		} catch (ClientException e) {
+			assertTrue(e.getMessage().contains("mismatch"));
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.httpclient5.CopClient#doGetAsync(Endpoint, String, org.apache.hc.core5.http.nio.AsyncResponseConsumer, java.util.Map)}.
+	 */
+	@Test
+	public void testStreamedResponse() throws Exception {
+		client.withValidator(NS, new ContentDigestValidator());
+		String digest = ContentDigest.of(BODY.getBytes("UTF-8")).getHeaderValue();
+		server.enqueue(new MockResponse().setBody(BODY).setHeader(SigningEngine.X_DIGEST, digest));
+		server.enqueue(new MockResponse().setBody("{\"code\":1}").setHeader(SigningEngine.X_DIGEST, digest));
+		Message<HttpResponse, byte[]> message = client
+				.doGetAsync(endpoint, URI, new BasicResponseConsumer<>(new BasicAsyncEntityConsumer()), null)
+				.get(10, TimeUnit.SECONDS);
+		assertEquals(200, message.getHead().getCode());
+		assertEquals(BODY, new String(message.getBody(), "UTF-8"));
+		try {
+			client.doGetAsync(endpoint, URI, new BasicResponseConsumer<>(new BasicAsyncEntityConsumer()), null)
+					.get(10, TimeUnit.SECONDS);
+			fail("digest mismatch is expected");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ClientException);
+			assertTrue(e.getCause().getMessage().contains("mismatch"));
+		}
+		StandInGateway.assertSigned(server.takeRequest(), "HTTP/2.0");
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.core;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection pool settings of a transport, applied per COP endpoint, i.e. per
+ * gateway host and port. The defaults suit API-gateway traffic: a few dozen
+ * concurrent calls per gateway, connections closed on the client side before
+ * load balancers drop them as idle.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class ConnectionPoolConfig {
+
+	public static final ConnectionPoolConfig DEFAULT = custom().build();
+
+	private final int maxPerEndpoint;
+	private final int maxTotal;
+	private final long idleTimeoutMillis;
+	private final long validateAfterInactivityMillis;
+	private final long keepAliveMillis;
+
+	private ConnectionPoolConfig(Builder builder) {
+		this.maxPerEndpoint = builder.maxPerEndpoint;
+		this.maxTotal = builder.maxTotal;
+		this.idleTimeoutMillis = builder.idleTimeoutMillis;
+		this.validateAfterInactivityMillis = builder.validateAfterInactivityMillis;
+		this.keepAliveMillis = builder.keepAliveMillis;
+	}
+
+	public static Builder custom() {
+		return new Builder();
+	}
+
+	public static Builder copy(ConnectionPoolConfig config) {
+		Objects.requireNonNull(config, "config may not be null");
+		return new Builder().setMaxPerEndpoint(config.maxPerEndpoint).setMaxTotal(config.maxTotal)
+				.setIdleTimeout(config.idleTimeoutMillis, TimeUnit.MILLISECONDS)
+				.setValidateAfterInactivity(config.validateAfterInactivityMillis, TimeUnit.MILLISECONDS)
+				.setKeepAlive(config.keepAliveMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return connections to one endpoint, in use or idle.
+	 */
+	public int getMaxPerEndpoint() {
+		return maxPerEndpoint;
+	}
+
+	/**
+	 * @return connections to all endpoints, in use or idle.
+	 */
+	public int getMaxTotal() {
+		return maxTotal;
+	}
+
+	/**
+	 * @return millis a connection may stay idle in the pool before it is
+	 *         closed.
+	 */
+	public long getIdleTimeoutMillis() {
+		return idleTimeoutMillis;
+	}
+
+	/**
+	 * @return millis of inactivity after which a pooled connection is checked
+	 *         to be still open before it is reused.
+	 */
+	public long getValidateAfterInactivityMillis() {
+		return validateAfterInactivityMillis;
+	}
+
+	/**
+	 * @return millis a connection is kept alive when the gateway does not tell,
+	 *         and the upper bound of what it tells.
+	 */
+	public long getKeepAliveMillis() {
+		return keepAliveMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionPoolConfig [maxPerEndpoint=" + maxPerEndpoint + ", maxTotal=" + maxTotal
+				+ ", idleTimeoutMillis=" + idleTimeoutMillis + ", validateAfterInactivityMillis="
+				+ validateAfterInactivityMillis + ", keepAliveMillis=" + keepAliveMillis + "]";
+	}
+
+	public static final class Builder {
+		private int maxPerEndpoint = 32;
+		private int maxTotal = 128;
+		private long idleTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+		private long validateAfterInactivityMillis = TimeUnit.SECONDS.toMillis(2);
+		private long keepAliveMillis = TimeUnit.SECONDS.toMillis(30);
+
+		private Builder() {
+			super();
+		}
+
+		public Builder setMaxPerEndpoint(int maxPerEndpoint) {
+			if (maxPerEndpoint < 1) {
+				throw new IllegalArgumentException("maxPerEndpoint must be positive");
+			}
+			this.maxPerEndpoint = maxPerEndpoint;
+			return this;
+		}
+
+		public Builder setMaxTotal(int maxTotal) {
+			if (maxTotal < 1) {
+				throw new IllegalArgumentException("maxTotal must be positive");
+			}
+			this.maxTotal = maxTotal;
+			return this;
+		}
+
+		public Builder setIdleTimeout(long idleTimeout, TimeUnit unit) {
+			this.idleTimeoutMillis = toPositiveMillis(idleTimeout, unit, "idleTimeout");
+			return this;
+		}
+
+		/**
+		 * @param validateAfterInactivity
+		 *            <code>0</code> to check every connection before reuse.
+		 */
+		public Builder setValidateAfterInactivity(long validateAfterInactivity, TimeUnit unit) {
+			Objects.requireNonNull(unit, "unit may not be null");
+			if (validateAfterInactivity < 0) {
+				throw new IllegalArgumentException("validateAfterInactivity may not be negative");
+			}
+			this.validateAfterInactivityMillis = unit.toMillis(validateAfterInactivity);
+			return this;
+		}
+
+		public Builder setKeepAlive(long keepAlive, TimeUnit unit) {
+			this.keepAliveMillis = toPositiveMillis(keepAlive, unit, "keepAlive");
+			return this;
+		}
+
+		/**
+		 * @throws IllegalArgumentException
+		 *             if more connections are allowed per endpoint than in
+		 *             total.
+		 */
+		public ConnectionPoolConfig build() {
+			if (maxPerEndpoint > maxTotal) {
+				throw new IllegalArgumentException("maxPerEndpoint may not exceed maxTotal");
+			}
+			return new ConnectionPoolConfig(this);
+		}
+
+		private static long toPositiveMillis(long duration, TimeUnit unit, String name) {
+			Objects.requireNonNull(unit, "unit may not be null");
+			long millis = unit.toMillis(duration);
+			if (millis < 1) {
+				throw new IllegalArgumentException(name + " must be positive");
+			}
+			return millis;
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.core;
+
+/**
+ * Snapshot of a connection pool, of one endpoint or of all endpoints.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class ConnectionPoolStats {
+	private final int leased;
+	private final int available;
+	private final int pending;
+	private final int max;
+
+	public ConnectionPoolStats(int leased, int available, int pending, int max) {
+		this.leased = leased;
+		this.available = available;
+		this.pending = pending;
+		this.max = max;
+	}
+
+	/**
+	 * @return connections carrying a request.
+	 */
+	public int getLeased() {
+		return leased;
+	}
+
+	/**
+	 * @return idle connections ready for reuse.
+	 */
+	public int getAvailable() {
+		return available;
+	}
+
+	/**
+	 * @return requests waiting for a connection.
+	 */
+	public int getPending() {
+		return pending;
+	}
+
+	/**
+	 * @return connections allowed.
+	 */
+	public int getMax() {
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionPoolStats [leased=" + leased + ", available=" + available + ", pending=" + pending
+				+ ", max=" + max + "]";
+	}
+}
@@ -19,6 +19,8 @@ package com.coscon.cop.core;
 import java.net.URI;
 import java.net.URL;
 
+import com.coscon.cop.internal.CopClientUtils;
+
 /**
  * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
  *
@@ -27,9 +29,54 @@ public interface CredentialsProvider {
 	
     void setCredentials(Namespace ns, Credentials credentials);
 
+    /**
+     * Swaps the credentials of a namespace, e.g. to rotate the secretKey.
+     * Requests being signed keep the credentials they resolved, requests
+     * signed afterwards use the new ones.
+     * <p>
+     * The default implementation gets then sets, a concurrent update may be
+     * lost and the returned credentials may not be those replaced. Providers
+     * override it to swap atomically, as the built-in ones do.
+     * 
+     * @return the previous credentials, <code>null</code> if none.
+     */
+    default Credentials replaceCredentials(Namespace ns, Credentials credentials) {
+        Credentials previous = getCredentials(ns);
+        setCredentials(ns, credentials);
+        return previous;
+    }
+
     Credentials getCredentials(Namespace ns);
     Credentials getCredentials(URL url);
     Credentials getCredentials(URI uri);
     Credentials getCredentials(String url);
+
+    /**
+     * Lookup by the parts of an already parsed url, e.g. of the transport
+     * request, without building the url string.
+     * 
+     * @param port <code>-1</code> for the default port of the scheme.
+     */
+    default Credentials getCredentials(String scheme, String host, int port, String encodedPath) {
+        return getCredentials(CopClientUtils.toUrl(scheme, host, port, encodedPath));
+    }
+
+    /**
+     * Remove the credentials of a namespace, e.g. when they no longer appear
+     * in the source of a credentials refresher. A refresher leaves credentials
+     * in place with a provider that does not support removal.
+     * 
+     * @return the removed credentials, <code>null</code> if none.
+     * @throws UnsupportedOperationException
+     *             if the provider does not support removal.
+     */
+    default Credentials removeCredentials(Namespace ns) {
+        throw new UnsupportedOperationException("removeCredentials");
+    }
+
+    /**
+     * Remove all credentials, signing engines cached for their secret keys are
+     * evicted as well.
+     */
     void clear();
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.core;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * A COP gateway base url, e.g. a regional edge or a local stand-in, requests
+ * to it are signed with the credentials of its {@link Namespace}. The base url
+ * is parsed once, transports resolve relative uris against the parsed parts.
+ * <p>
+ * Endpoints are registered at runtime through {@link EndpointRegistry}, each
+ * {@link Namespace} maps onto the endpoint returned by {@link #of(Namespace)}.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class Endpoint {
+	private static final String HTTPS = "https";
+	private static final int HTTPS_PORT = 443;
+	private static final Endpoint[] NAMESPACE_ENDPOINTS;
+	static {
+		Namespace[] namespaces = Namespace.values();
+		NAMESPACE_ENDPOINTS = new Endpoint[namespaces.length];
+		for (Namespace namespace : namespaces) {
+			NAMESPACE_ENDPOINTS[namespace.ordinal()] = of(namespace.name(), namespace.getPrefix(), namespace);
+		}
+	}
+
+	private final String name;
+	private final Namespace namespace;
+	private final String host;
+	private final int port;
+	private final String basePath;
+	private final String baseUrl;
+
+	private Endpoint(String name, Namespace namespace, String host, int port, String basePath) {
+		this.name = name;
+		this.namespace = namespace;
+		this.host = host;
+		this.port = port;
+		this.basePath = basePath;
+		this.baseUrl = HTTPS + "://" + host + (port == HTTPS_PORT ? "" : ":" + port) + basePath;
+	}
+
+	/**
+	 * @param name
+	 *            unique name of the endpoint.
+	 * @param baseUrl
+	 *            https base url, e.g.
+	 *            <code>https://api-pp.lines.coscoshipping.com/service</code>,
+	 *            without query.
+	 * @param namespace
+	 *            namespace whose credentials sign the requests.
+	 * @return the endpoint.
+	 * @throws IllegalArgumentException
+	 *             if the base url is invalid or not https.
+	 */
+	public static Endpoint of(String name, String baseUrl, Namespace namespace) {
+		Objects.requireNonNull(name, "name may not be null");
+		Objects.requireNonNull(baseUrl, "baseUrl may not be null");
+		Objects.requireNonNull(namespace, "namespace may not be null");
+		URI uri;
+		try {
+			uri = new URI(baseUrl);
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException("Invalid baseUrl:" + baseUrl, e);
+		}
+		if (!HTTPS.equalsIgnoreCase(uri.getScheme())) {
+			throw new IllegalArgumentException("Unsecure baseUrl is not allowed:" + baseUrl);
+		}
+		if (uri.getHost() == null || uri.getRawUserInfo() != null || uri.getRawQuery() != null
+				|| uri.getRawFragment() != null) {
+			throw new IllegalArgumentException("Invalid baseUrl:" + baseUrl);
+		}
+		String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+		while (path.endsWith("/")) {
+			path = path.substring(0, path.length() - 1);
+		}
+		return new Endpoint(name, namespace, uri.getHost().toLowerCase(Locale.ROOT),
+				uri.getPort() == -1 ? HTTPS_PORT : uri.getPort(), path);
+	}
+
+	/**
+	 * @return endpoint of the namespace prefix, named after the namespace.
+	 */
+	public static Endpoint of(Namespace namespace) {
+		Objects.requireNonNull(namespace, "namespace may not be null");
+		return NAMESPACE_ENDPOINTS[namespace.ordinal()];
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Namespace getNamespace() {
+		return namespace;
+	}
+
+	/**
+	 * @return <code>https</code>
+	 */
+	public String getScheme() {
+		return HTTPS;
+	}
+
+	/**
+	 * @return lower case host.
+	 */
+	public String getHost() {
+		return host;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	/**
+	 * @return encoded base path without trailing slash, e.g.
+	 *         <code>/service</code>, empty for the root.
+	 */
+	public String getBasePath() {
+		return basePath;
+	}
+
+	/**
+	 * @return normalized base url, without the default port.
+	 */
+	public String getBaseUrl() {
+		return baseUrl;
+	}
+
+	/**
+	 * @param relativeUri
+	 *            encoded uri relative to the base path, e.g.
+	 *            <code>/info/tracking/6309441170?numberType=bl</code>
+	 * @return absolute url.
+	 */
+	public String resolve(String relativeUri) {
+		return baseUrl + relativeUri;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(name, namespace, baseUrl);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		Endpoint other = (Endpoint) obj;
+		return name.equals(other.name) && namespace == other.namespace && baseUrl.equals(other.baseUrl);
+	}
+
+	@Override
+	public String toString() {
+		return "Endpoint [name=" + name + ", baseUrl=" + baseUrl + ", namespace=" + namespace + "]";
+	}
+}
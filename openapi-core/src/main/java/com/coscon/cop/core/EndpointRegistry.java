@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.coscon.cop.internal.EndpointIndex;
+
+/**
+ * Endpoints whose requests are signed, registered at runtime. The endpoints
+ * of all {@link Namespace}s are registered initially and can not be
+ * unregistered.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class EndpointRegistry {
+	private static final Map<String, Endpoint> ENDPOINTS = new LinkedHashMap<>();
+	private static final EndpointIndex<Endpoint> INDEX = new EndpointIndex<>();
+	static {
+		for (Namespace namespace : Namespace.values()) {
+			register(Endpoint.of(namespace));
+		}
+	}
+
+	private EndpointRegistry() {
+	}
+
+	/**
+	 * Registers an endpoint, replacing the endpoint of the same name.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the endpoint replaces the one of a {@link Namespace} or
+	 *             its base url is taken by another endpoint.
+	 */
+	public static synchronized void register(Endpoint endpoint) {
+		Objects.requireNonNull(endpoint, "endpoint may not be null");
+		Endpoint previous = ENDPOINTS.get(endpoint.getName());
+		if (previous != null && isBuiltIn(previous) && !previous.equals(endpoint)) {
+			throw new IllegalArgumentException("Unable to overwrite endpoint:" + previous);
+		}
+		for (Endpoint registered : ENDPOINTS.values()) {
+			if (registered != previous && registered.getBaseUrl().equals(endpoint.getBaseUrl())) {
+				throw new IllegalArgumentException("baseUrl already registered by endpoint:" + registered);
+			}
+		}
+		if (previous != null) {
+			INDEX.remove(previous.getBaseUrl());
+		}
+		ENDPOINTS.put(endpoint.getName(), endpoint);
+		INDEX.put(endpoint.getBaseUrl(), endpoint);
+	}
+
+	/**
+	 * @return the removed endpoint, <code>null</code> if none.
+	 * @throws IllegalArgumentException
+	 *             if the endpoint is the one of a {@link Namespace}.
+	 */
+	public static synchronized Endpoint unregister(String name) {
+		Objects.requireNonNull(name, "name may not be null");
+		Endpoint endpoint = ENDPOINTS.get(name);
+		if (endpoint == null) {
+			return null;
+		}
+		if (isBuiltIn(endpoint)) {
+			throw new IllegalArgumentException("Unable to unregister endpoint:" + endpoint);
+		}
+		ENDPOINTS.remove(name);
+		INDEX.remove(endpoint.getBaseUrl());
+		return endpoint;
+	}
+
+	private static boolean isBuiltIn(Endpoint endpoint) {
+		return Endpoint.of(endpoint.getNamespace()) == endpoint;
+	}
+
+	/**
+	 * @return endpoint of the name, <code>null</code> if none.
+	 */
+	public static synchronized Endpoint get(String name) {
+		return ENDPOINTS.get(name);
+	}
+
+	/**
+	 * @return registered endpoints, in order of registration.
+	 */
+	public static synchronized Collection<Endpoint> getEndpoints() {
+		return Collections.unmodifiableList(new ArrayList<>(ENDPOINTS.values()));
+	}
+
+	/**
+	 * @param url
+	 *            absolute url
+	 * @return endpoint of the longest base url the url starts with, case
+	 *         insensitive, <code>null</code> if none.
+	 */
+	public static Endpoint match(CharSequence url) {
+		return INDEX.lookup(url);
+	}
+
+	/**
+	 * @param port
+	 *            <code>-1</code> for the default port of the scheme.
+	 * @return endpoint of the parsed url, <code>null</code> if none.
+	 */
+	public static Endpoint match(String scheme, String host, int port, CharSequence encodedPath) {
+		return INDEX.lookup(scheme, host, port, encodedPath);
+	}
+}
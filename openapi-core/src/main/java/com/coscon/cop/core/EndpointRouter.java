@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Routes the requests of a {@link Namespace} across equivalent endpoints,
+ * e.g. <code>COP_PUBLIC_PROD</code> and <code>COP_INTERNAL_PROD</code>, to the
+ * fastest healthy one, see
+ * {@link com.coscon.cop.internal.CopClientBase#withRouter(Namespace, EndpointRouter)}.
+ * <p>
+ * An exponentially weighted moving average (EWMA) of the latency and of the
+ * error rate is kept per endpoint, updated lock-free. An endpoint whose error
+ * rate reaches <code>maxErrorRate</code> is unhealthy, it is tried again after
+ * <code>retryAfter</code>. One request in <code>exploreEvery</code> is sent to
+ * the least recently used healthy endpoint, so that a recovered endpoint is
+ * measured again.
+ * <p>
+ * Each request is signed for the endpoint it is sent to, with the credentials
+ * of the endpoint namespace, which must therefore be set for all endpoints.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class EndpointRouter {
+	public static final double DEFAULT_ALPHA = 0.3d;
+	public static final double DEFAULT_MAX_ERROR_RATE = 0.5d;
+	public static final long DEFAULT_RETRY_AFTER_MILLIS = 10_000L;
+	public static final int DEFAULT_EXPLORE_EVERY = 50;
+
+	/**
+	 * Statistics of an endpoint.
+	 */
+	public static final class Stats {
+		private final Endpoint endpoint;
+		private final AtomicLong latencyBits = new AtomicLong(Double.doubleToRawLongBits(Double.NaN));
+		private final AtomicLong errorRateBits = new AtomicLong(Double.doubleToRawLongBits(0d));
+		private volatile long lastFailureNanos;
+		private volatile long lastUsedNanos = System.nanoTime();
+
+		Stats(Endpoint endpoint) {
+			this.endpoint = endpoint;
+		}
+
+		public Endpoint getEndpoint() {
+			return endpoint;
+		}
+
+		/**
+		 * @return EWMA of the latency in milliseconds, <code>NaN</code> until
+		 *         measured.
+		 */
+		public double getLatencyMillis() {
+			return Double.longBitsToDouble(latencyBits.get()) / 1_000_000d;
+		}
+
+		/**
+		 * @return EWMA of the error rate, between 0 and 1.
+		 */
+		public double getErrorRate() {
+			return Double.longBitsToDouble(errorRateBits.get());
+		}
+
+		private static void update(AtomicLong bits, double sample, double alpha) {
+			long current;
+			double next;
+			do {
+				current = bits.get();
+				double value = Double.longBitsToDouble(current);
+				next = Double.isNaN(value) ? sample : value + alpha * (sample - value);
+			} while (!bits.compareAndSet(current, Double.doubleToRawLongBits(next)));
+		}
+
+		private double latencyNanos() {
+			return Double.longBitsToDouble(latencyBits.get());
+		}
+
+		@Override
+		public String toString() {
+			return "Stats [endpoint=" + endpoint.getName() + ", latencyMillis=" + getLatencyMillis()
+					+ ", errorRate=" + getErrorRate() + "]";
+		}
+	}
+
+	private final List<Stats> stats;
+	private final double alpha;
+	private final double maxErrorRate;
+	private final long retryAfterNanos;
+	private final int exploreEvery;
+	private final AtomicLong selections = new AtomicLong();
+
+	/**
+	 * Router with the default settings.
+	 */
+	public EndpointRouter(List<Endpoint> endpoints) {
+		this(endpoints, DEFAULT_ALPHA, DEFAULT_MAX_ERROR_RATE, DEFAULT_RETRY_AFTER_MILLIS, TimeUnit.MILLISECONDS,
+				DEFAULT_EXPLORE_EVERY);
+	}
+
+	/**
+	 * @param endpoints
+	 *            equivalent endpoints, in order of preference while unmeasured.
+	 * @param alpha
+	 *            weight of the latest sample in the EWMAs, in (0, 1].
+	 * @param maxErrorRate
+	 *            error rate from which an endpoint is unhealthy, in (0, 1].
+	 * @param retryAfter
+	 *            delay before an unhealthy endpoint is tried again.
+	 * @param exploreEvery
+	 *            one request in <code>exploreEvery</code> measures the least
+	 *            recently used healthy endpoint, <code>0</code> to disable.
+	 */
+	public EndpointRouter(List<Endpoint> endpoints, double alpha, double maxErrorRate, long retryAfter,
+			TimeUnit unit, int exploreEvery) {
+		Objects.requireNonNull(endpoints, "endpoints may not be null");
+		Objects.requireNonNull(unit, "unit may not be null");
+		if (endpoints.isEmpty()) {
+			throw new IllegalArgumentException("endpoints may not be empty");
+		}
+		if (!(alpha > 0d && alpha <= 1d) || !(maxErrorRate > 0d && maxErrorRate <= 1d) || retryAfter < 0
+				|| exploreEvery < 0) {
+			throw new IllegalArgumentException("Invalid router settings");
+		}
+		List<Stats> list = new ArrayList<>(endpoints.size());
+		for (Endpoint endpoint : endpoints) {
+			list.add(new Stats(Objects.requireNonNull(endpoint, "endpoint may not be null")));
+		}
+		this.stats = Collections.unmodifiableList(list);
+		this.alpha = alpha;
+		this.maxErrorRate = maxErrorRate;
+		this.retryAfterNanos = unit.toNanos(retryAfter);
+		this.exploreEvery = exploreEvery;
+	}
+
+	private boolean isHealthy(Stats s, long now) {
+		return s.getErrorRate() < maxErrorRate || now - s.lastFailureNanos >= retryAfterNanos;
+	}
+
+	/**
+	 * Healthy endpoints by latency, unmeasured first, then unhealthy ones by
+	 * error rate.
+	 */
+	private Comparator<Stats> order(final long now) {
+		return (a, b) -> {
+			boolean healthyA = isHealthy(a, now);
+			boolean healthyB = isHealthy(b, now);
+			if (healthyA != healthyB) {
+				return healthyA ? -1 : 1;
+			}
+			if (!healthyA) {
+				return Double.compare(a.getErrorRate(), b.getErrorRate());
+			}
+			double latencyA = a.latencyNanos();
+			double latencyB = b.latencyNanos();
+			if (Double.isNaN(latencyA) || Double.isNaN(latencyB)) {
+				return Double.isNaN(latencyA) ? (Double.isNaN(latencyB) ? 0 : -1) : 1;
+			}
+			return Double.compare(latencyA, latencyB);
+		};
+	}
+
+	/**
+	 * @return endpoints to try in order, the selected one first.
+	 */
+	public List<Endpoint> select() {
+		final long now = System.nanoTime();
+		List<Stats> ordered = new ArrayList<>(stats);
+		ordered.sort(order(now));
+		if (exploreEvery > 0 && ordered.size() > 1 && selections.incrementAndGet() % exploreEvery == 0) {
+			Stats leastRecent = null;
+			for (Stats s : ordered) {
+				if (isHealthy(s, now) && (leastRecent == null || s.lastUsedNanos - leastRecent.lastUsedNanos < 0)) {
+					leastRecent = s;
+				}
+			}
+			if (leastRecent != null) {
+				ordered.remove(leastRecent);
+				ordered.add(0, leastRecent);
+			}
+		}
+		List<Endpoint> endpoints = new ArrayList<>(ordered.size());
+		for (Stats s : ordered) {
+			endpoints.add(s.endpoint);
+		}
+		return endpoints;
+	}
+
+	/**
+	 * Records the outcome of a request.
+	 * 
+	 * @param endpoint
+	 *            endpoint the request was sent to.
+	 * @param latencyNanos
+	 *            time to the response, or to the failure.
+	 * @param success
+	 *            <code>false</code> if the request failed or the gateway
+	 *            answered a server error.
+	 */
+	public void record(Endpoint endpoint, long latencyNanos, boolean success) {
+		Stats s = getStats(endpoint);
+		if (s == null) {
+			return;
+		}
+		long now = System.nanoTime();
+		s.lastUsedNanos = now;
+		if (success) {
+			Stats.update(s.latencyBits, latencyNanos, alpha);
+		} else {
+			s.lastFailureNanos = now;
+		}
+		Stats.update(s.errorRateBits, success ? 0d : 1d, alpha);
+	}
+
+	/**
+	 * @return statistics of the endpoint, <code>null</code> if not routed.
+	 */
+	public Stats getStats(Endpoint endpoint) {
+		for (Stats s : stats) {
+			if (s.endpoint.equals(endpoint)) {
+				return s;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return statistics of all endpoints, in the order given.
+	 */
+	public List<Stats> getStats() {
+		return stats;
+	}
+}
@@ -20,7 +20,9 @@ package com.coscon.cop.core;
  * Supported hmac-algorithm.
  * 
  * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ * @deprecated duplicate of {@link SignAlgorithm}, use it instead.
  */
+@Deprecated
 public enum HmacAlgorithm {
 	/**
 	 * Represents HmacSHA1
@@ -74,4 +76,11 @@ public enum HmacAlgorithm {
 	public String getRef() {
 		return ref;
 	}
+
+	/**
+	 * @return the equivalent {@link SignAlgorithm}
+	 */
+	public SignAlgorithm toSignAlgorithm() {
+		return SignAlgorithm.valueOf(name());
+	}
 }
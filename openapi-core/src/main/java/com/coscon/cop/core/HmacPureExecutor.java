@@ -16,17 +16,11 @@
  */
 package com.coscon.cop.core;
 
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
-import java.util.TimeZone;
-import java.util.UUID;
 
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.lang3.time.FastDateFormat;
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.SigningEngine;
 
 /**
  * A Pure Excutor to perform HTTP hmac digest & encryption, used to protect COP
@@ -41,15 +35,17 @@ import org.apache.commons.lang3.time.FastDateFormat;
  * @author 陈吉鹏
  * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
  * @emailto ch_jp@msn.com
+ * @deprecated use {@link SigningEngine}, which this class delegates to.
  */
+@Deprecated
 public class HmacPureExecutor {
 
-	public static final String X_DATE = "X-Coscon-Date";
-	public static final String X_CONTENT_MD5 = "X-Coscon-Content-Md5";
-	public static final String X_AUTHORIZATION = "X-Coscon-Authorization";
-	public static final String X_DIGEST = "X-Coscon-Digest";
+	public static final String X_DATE = SigningEngine.X_DATE;
+	public static final String X_CONTENT_MD5 = SigningEngine.X_CONTENT_MD5;
+	public static final String X_AUTHORIZATION = SigningEngine.X_AUTHORIZATION;
+	public static final String X_DIGEST = SigningEngine.X_DIGEST;
 
-	public static final String REQUEST_LINE = "request-line";
+	public static final String REQUEST_LINE = SigningEngine.REQUEST_LINE;
 
 	protected static final String[] HMAC_ADVISOR_KEYS = { X_DATE, X_CONTENT_MD5, X_AUTHORIZATION, X_DIGEST };
 
@@ -60,7 +56,6 @@ public class HmacPureExecutor {
 	 * For hashing purpose, we choose the minimum cost algorithm 'hmac-sha1'.
 	 */
 	private static final HmacAlgorithm DEFAULT_HMAC_ALGORITHM = HmacAlgorithm.HMAC_SHA1;
-	private static final String X_COSCON_HMAC_HEADER = "X-Coscon-Hmac";
 
 	/**
 	 * The hmac-algorithm in hmac-auth mechanism. Default to hmac-sha1
@@ -74,8 +69,7 @@ public class HmacPureExecutor {
 		return hmacAlgorithm;
 	}
 
-	private String apiKey = null;
-	private String secretKey = null;
+	private final SigningEngine engine;
 
 	/**
 	 * 
@@ -85,26 +79,7 @@ public class HmacPureExecutor {
 		if (Objects.isNull(cred)) {
 			throw new IllegalArgumentException("credential is NULL.");
 		}
-		this.apiKey = cred.getApiKey();
-		this.secretKey = cred.getSecretKey();
-	}
-
-	/**
-	 * date formatter follows API Gateway rule. RFC822
-	 */
-	private static final FastDateFormat X_DATE_FORMATTER = FastDateFormat.getInstance("EEE, dd MMM yyyy HH:mm:ss z",
-			TimeZone.getTimeZone("GMT"), Locale.ENGLISH);
-
-	/**
-	 * Internal representation of HmacAlgorithm
-	 * 
-	 * @param target
-	 *            {@link HmacAlgorithm}
-	 * @return internal representation which sent to API Gateway.
-	 */
-	protected String getInternalHmacAlgorithm() {
-		return getHmacAlgorithm().getRef();
-
+		this.engine = SigningEngine.of(cred.getApiKey(), cred.getSecretKey(), hmacAlgorithm.toSignAlgorithm());
 	}
 
 	/**
@@ -120,42 +95,10 @@ public class HmacPureExecutor {
 	 * @throws OpenClientException
 	 */
 	public Map<String, String> buildHmacHeaders(String requestLine, byte[] httpContent) throws OpenClientException {
-		StringBuilder buf = new StringBuilder();
-		String guid = UUID.randomUUID().toString();
-		String date = "";
-		String encodedSignature = "";
-		String hmacAuth = "";
-		String digest = "";
-		String guidMd5 = DigestUtils.md5Hex(guid);
-
-		date = X_DATE_FORMATTER.format(new Date());
-
-		/**
-		 * MUST be 'SHA-256' encryption.
-		 */
-		digest = "SHA-256=" + Base64.encodeBase64String(DigestUtils.sha256(httpContent));
-
-		buf.setLength(0);
-		buf.append(X_DATE).append(": ").append(date);
-		buf.append("\n").append(X_DIGEST).append(": ").append(digest);
-		buf.append("\n").append(X_CONTENT_MD5).append(": ").append(guidMd5);
-		buf.append("\n").append(requestLine);
-		encodedSignature = Base64.encodeBase64String(
-				HmacShaUtil.signature(getHmacAlgorithm().getAlgorithm(), buf.toString(), this.secretKey));
-		buf.setLength(0);
-		buf.append("hmac username=\"").append(this.apiKey)
-				.append("\",algorithm=\"" + getInternalHmacAlgorithm() + "\",headers=\"").append(X_DATE).append(" ")
-				.append(X_DIGEST).append(" ").append(X_CONTENT_MD5).append(" ").append(REQUEST_LINE)
-				.append("\",signature=\"").append(encodedSignature).append("\"");
-
-		hmacAuth = buf.toString();
-
-		Map<String, String> headers = new HashMap<>();
-		headers.put(X_DATE, date);
-		headers.put(X_DIGEST, digest);
-		headers.put(X_CONTENT_MD5, guidMd5);
-		headers.put(X_AUTHORIZATION, hmacAuth);
-		headers.put(X_COSCON_HMAC_HEADER, guidMd5);
-		return headers;
+		try {
+			return engine.sign(requestLine, ContentDigest.of(httpContent)).toMap();
+		} catch (ClientException e) {
+			throw new OpenClientException(e.getMessage(), e);
+		}
 	}
 }
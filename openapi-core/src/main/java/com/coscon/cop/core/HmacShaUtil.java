@@ -20,16 +20,20 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 
 import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 
 import org.apache.commons.codec.binary.Hex;
 
+import com.coscon.cop.internal.MacCache;
+
 /**
  * Hmac utility.
  * 
  * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
  * @emailto ch_jp@msn.com
+ * @deprecated use {@link com.coscon.cop.internal.HmacShaUtil} or
+ *             {@link com.coscon.cop.internal.SigningEngine}.
  */
+@Deprecated
 public class HmacShaUtil {
 	/**
 	 * Create a signature for specific data.
@@ -45,10 +49,12 @@ public class HmacShaUtil {
 	public static byte[] signature(String hmacAlgorithm, String data, String key) throws OpenClientException {
 		try {
 			HmacAlgorithm algo = HmacAlgorithm.validate(hmacAlgorithm);
-			SecretKeySpec signingKey = new SecretKeySpec(key.getBytes(), algo.getAlgorithm());
-			Mac mac = Mac.getInstance(algo.getAlgorithm());
-			mac.init(signingKey);
-			return mac.doFinal(data.getBytes());
+			Mac mac = MacCache.acquire(algo.toSignAlgorithm(), key);
+			try {
+				return mac.doFinal(data.getBytes());
+			} finally {
+				MacCache.release(algo.toSignAlgorithm(), key, mac);
+			}
 		} catch (NoSuchAlgorithmException | InvalidKeyException e) {
 			throw new OpenClientException(e.getMessage(), e);
 		}
@@ -19,7 +19,7 @@ package com.coscon.cop.core;
 import java.io.IOException;
 import java.util.Objects;
 
-import org.apache.commons.lang3.EnumUtils;
+import com.coscon.cop.internal.NamespaceMatcher;
 
 /**
  * @author Chen Jipeng / chenjp2@coscon.com
@@ -43,12 +43,28 @@ public interface Signer {
 	 * @return result <code>true</code> if the request requires signature.
 	 */
 	default boolean acceptRequest(String uri) {
+		return matchNamespace(uri) != null;
+	}
+
+	/**
+	 * Find the namespace of the specific uri request, case insensitive.
+	 * 
+	 * @param uri of request
+	 * @return namespace whose prefix the uri starts with, <code>null</code> if none.
+	 */
+	default Namespace matchNamespace(String uri) {
 		Objects.requireNonNull(uri, "uri may not be null");
-		for(Namespace ns:EnumUtils.getEnumList(Namespace.class)) {
-			if(uri.toLowerCase().startsWith(ns.getPrefix().toLowerCase())) {
-				return true;
-			}
-		}
-		return false;
+		return NamespaceMatcher.match(uri);
+	}
+
+	/**
+	 * Find the namespace of an already parsed request url, without building
+	 * the url string.
+	 * 
+	 * @param port <code>-1</code> for the default port of the scheme.
+	 * @return namespace of the request, <code>null</code> if none.
+	 */
+	default Namespace matchNamespace(String scheme, String host, int port, String encodedPath) {
+		return NamespaceMatcher.match(scheme, host, port, encodedPath);
 	}
 }
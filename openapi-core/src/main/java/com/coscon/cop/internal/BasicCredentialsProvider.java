@@ -18,7 +18,6 @@ package com.coscon.cop.internal;
 
 import java.net.URI;
 import java.net.URL;
-import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -42,9 +41,32 @@ public class BasicCredentialsProvider implements CredentialsProvider {
 	}
 	@Override
 	public void setCredentials(Namespace ns, Credentials credentials) {
+		replaceCredentials(ns, credentials);
+	}
+
+	/**
+	 * Writers are serialized, lookups stay lock-free and see either the
+	 * previous or the new credentials.
+	 */
+	@Override
+	public synchronized Credentials replaceCredentials(Namespace ns, Credentials credentials) {
 		Objects.requireNonNull(ns, "namespace may not be null");
 		Objects.requireNonNull(credentials, "credentials may not be null");
-		credentialsMap.put(ns, credentials);
+		Credentials previous = credentialsMap.put(ns, credentials);
+		if (previous != null && !previous.getPassword().equals(credentials.getPassword())) {
+			SigningEngine.evict(previous.getPassword());
+		}
+		return previous;
+	}
+
+	@Override
+	public synchronized Credentials removeCredentials(Namespace ns) {
+		Objects.requireNonNull(ns, "namespace may not be null");
+		Credentials previous = credentialsMap.remove(ns);
+		if (previous != null) {
+			SigningEngine.evict(previous.getPassword());
+		}
+		return previous;
 	}
 
 	@Override
@@ -54,12 +76,13 @@ public class BasicCredentialsProvider implements CredentialsProvider {
 	@Override
 	public Credentials getCredentials(String url) {
 		Objects.requireNonNull(url, "url may not be null");
-		for (Map.Entry<Namespace, Credentials> e : credentialsMap.entrySet()) {
-			if(url.toLowerCase().startsWith(e.getKey().getPrefix().toLowerCase())) {
-				return e.getValue();
-			}
-		}
-		return null;
+		Namespace ns = NamespaceMatcher.match(url);
+		return ns == null ? null : credentialsMap.get(ns);
+	}
+	@Override
+	public Credentials getCredentials(String scheme, String host, int port, String encodedPath) {
+		Namespace ns = NamespaceMatcher.match(scheme, host, port, encodedPath);
+		return ns == null ? null : credentialsMap.get(ns);
 	}
 	@Override
 	public Credentials getCredentials(URI uri) {
@@ -70,7 +93,10 @@ public class BasicCredentialsProvider implements CredentialsProvider {
 		return getCredentials(url.toString());
 	}
 	@Override
-	public void clear() {
+	public synchronized void clear() {
+		for (Credentials credentials : credentialsMap.values()) {
+			SigningEngine.evict(credentials.getPassword());
+		}
 		credentialsMap.clear();
 	}
 
@@ -16,8 +16,17 @@
  */
 package com.coscon.cop.internal;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.Credentials;
+import com.coscon.cop.core.CredentialsProvider;
 import com.coscon.cop.core.SignAlgorithm;
 import com.coscon.cop.core.Signer;
 
@@ -41,4 +50,84 @@ public abstract class BasicSigner implements Signer {
 		super();
 		this.method = Objects.requireNonNull(method, "method may not be null");
 	}
+
+	/**
+	 * Engine to sign with the given credentials, held by
+	 * {@link UsernamePasswordCredentials} and otherwise shared through
+	 * {@link SigningEngine#of(Credentials, SignAlgorithm)}.
+	 * 
+	 * @param credentials
+	 *            credentials of the request.
+	 * @return the signing engine.
+	 */
+	protected SigningEngine getSigningEngine(Credentials credentials) {
+		Objects.requireNonNull(credentials, "credentials may not be null");
+		if (credentials instanceof UsernamePasswordCredentials) {
+			return ((UsernamePasswordCredentials) credentials).getSigningEngine(getMethod());
+		}
+		return SigningEngine.of(credentials, getMethod());
+	}
+
+	/**
+	 * Credentials of a request bound to a tenant by the
+	 * {@link TenantCredentialsProvider#TENANT_HEADER} header.
+	 * 
+	 * @param provider
+	 *            provider of the client.
+	 * @param tenantId
+	 *            value of the tenant header, <code>null</code> if absent.
+	 * @return the provider to look the credentials of the request up.
+	 * @throws IOException
+	 *             if the request has a tenant and the provider is not a
+	 *             {@link TenantCredentialsProvider}.
+	 */
+	protected static CredentialsProvider getCredentialsProvider(CredentialsProvider provider, String tenantId)
+			throws IOException {
+		if (tenantId == null) {
+			return provider;
+		}
+		if (provider instanceof TenantCredentialsProvider) {
+			return ((TenantCredentialsProvider) provider).forTenant(tenantId);
+		}
+		throw new IOException("Unable to sign for tenant without TenantCredentialsProvider");
+	}
+
+	/**
+	 * Signs a batch whose requests may belong to different credentials, each
+	 * group of one engine is signed through
+	 * {@link SigningEngine#signAll(List, ForkJoinPool)}.
+	 * 
+	 * @param engines
+	 *            engine of each request.
+	 * @param requests
+	 *            requests to sign, aligned with <code>engines</code>.
+	 * @param pool
+	 *            pool to sign on.
+	 * @return signatures aligned with <code>requests</code>.
+	 * @throws ClientException
+	 *             when any request fails to be signed.
+	 */
+	protected static RequestSignature[] signAll(SigningEngine[] engines, RequestToSign[] requests, ForkJoinPool pool)
+			throws ClientException {
+		if (engines.length != requests.length) {
+			throw new IllegalArgumentException("engines and requests are not aligned");
+		}
+		Map<SigningEngine, List<Integer>> groups = new IdentityHashMap<>();
+		for (int i = 0; i < engines.length; i++) {
+			groups.computeIfAbsent(engines[i], engine -> new ArrayList<>()).add(i);
+		}
+		RequestSignature[] signatures = new RequestSignature[requests.length];
+		for (Map.Entry<SigningEngine, List<Integer>> group : groups.entrySet()) {
+			List<Integer> indexes = group.getValue();
+			List<RequestToSign> batch = new ArrayList<>(indexes.size());
+			for (Integer index : indexes) {
+				batch.add(requests[index]);
+			}
+			List<RequestSignature> signed = group.getKey().signAll(batch, pool);
+			for (int i = 0; i < indexes.size(); i++) {
+				signatures[indexes.get(i)] = signed.get(i);
+			}
+		}
+		return signatures;
+	}
 }
@@ -16,7 +16,6 @@
  */
 package com.coscon.cop.internal;
 
-import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -37,7 +36,7 @@ public class BasicValidatorProvider implements ValidatorProvider {
 		this.validatorMap = new ConcurrentHashMap<>();
 	}
 	@Override
-	public void setValidator(Namespace namespace, Validator validator) {
+	public synchronized void setValidator(Namespace namespace, Validator validator) {
 		validatorMap.put(namespace, validator);
 	}
 	@Override
@@ -47,15 +46,16 @@ public class BasicValidatorProvider implements ValidatorProvider {
 	@Override
 	public Validator getValidator(String url) {
 		Objects.requireNonNull(url, "url may not be null");
-		for (Map.Entry<Namespace, Validator> e : validatorMap.entrySet()) {
-			if(url.toLowerCase().startsWith(e.getKey().getPrefix().toLowerCase())) {
-				return e.getValue();
-			}
-		}
-		return null;
+		Namespace ns = NamespaceMatcher.match(url);
+		return ns == null ? null : validatorMap.get(ns);
 	}
 	@Override
-	public void clear() {
+	public Validator getValidator(String scheme, String host, int port, String encodedPath) {
+		Namespace ns = NamespaceMatcher.match(scheme, host, port, encodedPath);
+		return ns == null ? null : validatorMap.get(ns);
+	}
+	@Override
+	public synchronized void clear() {
 		validatorMap.clear();
 	}
 	
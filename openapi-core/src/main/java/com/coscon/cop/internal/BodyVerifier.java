@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Verifies one response body while the application consumes it: every byte
+ * read is written to the verifier, {@link #verify()} is called once at end of
+ * stream.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public abstract class BodyVerifier extends OutputStream {
+
+	@Override
+	public void write(int b) {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public abstract void write(byte[] b, int off, int len);
+
+	/**
+	 * Called at end of stream.
+	 * 
+	 * @throws IOException
+	 *             when the body fails validation.
+	 */
+	public abstract void verify() throws IOException;
+}
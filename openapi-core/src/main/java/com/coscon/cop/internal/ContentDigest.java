@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Objects;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * SHA-256 digest of a request body, as sent in <code>X-Coscon-Digest</code>.
+ * <p>
+ * The digest is computed from the bytes a body already holds or streamed from
+ * its content, so the payload is never copied just to sign it.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class ContentDigest {
+	private static final int STREAM_BUFFER_SIZE = 8192;
+	/**
+	 * MUST be 'SHA-256' encryption.
+	 */
+	private static final byte[] SHA256_PREFIX = SigningBuffer.encode("SHA-256=");
+
+	/**
+	 * Digest of an empty body, e.g. any GET request.
+	 */
+	public static final ContentDigest EMPTY = new ContentDigest(DigestUtils.sha256(new byte[0]));
+
+	/**
+	 * {@link MessageDigest#getInstance(String)} costs more than hashing a
+	 * typical small COP payload, keep one instance per thread.
+	 */
+	private static final ThreadLocalPool<MessageDigest> SHA256 = new ThreadLocalPool<>(CryptoProviders::newSha256);
+
+	private final String headerValue;
+
+	/**
+	 * Encoded into its own array, a digest may be computed while the signing
+	 * buffer of the thread is in use.
+	 */
+	private ContentDigest(byte[] sha256) {
+		byte[] header = new byte[SHA256_PREFIX.length + (sha256.length + 2) / 3 * 4];
+		System.arraycopy(SHA256_PREFIX, 0, header, 0, SHA256_PREFIX.length);
+		SigningBuffer.encodeBase64(sha256, sha256.length, header, SHA256_PREFIX.length);
+		this.headerValue = new String(header, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Digest of held content.
+	 * 
+	 * @param content
+	 *            content before perform content gzip/deflate.
+	 */
+	public static ContentDigest of(byte[] content) {
+		Objects.requireNonNull(content, "content may not be null");
+		return of(content, 0, content.length);
+	}
+
+	/**
+	 * Digest of a range of held content.
+	 */
+	public static ContentDigest of(byte[] content, int offset, int length) {
+		Objects.requireNonNull(content, "content may not be null");
+		if (length == 0) {
+			return EMPTY;
+		}
+		MessageDigest digest = sha256();
+		try {
+			digest.update(content, offset, length);
+			return new ContentDigest(digest.digest());
+		} finally {
+			SHA256.release(digest);
+		}
+	}
+
+	/**
+	 * Digest of a stream, read in chunks until end-of-stream. The stream is not
+	 * closed.
+	 */
+	public static ContentDigest of(InputStream content) throws IOException {
+		Objects.requireNonNull(content, "content may not be null");
+		MessageDigest digest = sha256();
+		try {
+			byte[] chunk = new byte[STREAM_BUFFER_SIZE];
+			int read;
+			while ((read = content.read(chunk)) != -1) {
+				digest.update(chunk, 0, read);
+			}
+			return new ContentDigest(digest.digest());
+		} finally {
+			SHA256.release(digest);
+		}
+	}
+
+	/**
+	 * Wrap an already computed SHA-256 result.
+	 * 
+	 * @param sha256
+	 *            32 bytes of SHA-256 output.
+	 */
+	public static ContentDigest ofSha256(byte[] sha256) {
+		Objects.requireNonNull(sha256, "sha256 may not be null");
+		if (sha256.length != 32) {
+			throw new IllegalArgumentException("SHA-256 digest of 32 bytes is expected.");
+		}
+		return new ContentDigest(sha256);
+	}
+
+	private static MessageDigest sha256() {
+		MessageDigest digest = SHA256.acquire();
+		if (digest.getProvider() != CryptoProviders.getDigestProvider()) {
+			digest = SHA256.adopt(CryptoProviders.newSha256());
+		} else {
+			digest.reset();
+		}
+		return digest;
+	}
+
+	/**
+	 * @return value of <code>X-Coscon-Digest</code>.
+	 */
+	public String getHeaderValue() {
+		return headerValue;
+	}
+
+	@Override
+	public String toString() {
+		return headerValue;
+	}
+}
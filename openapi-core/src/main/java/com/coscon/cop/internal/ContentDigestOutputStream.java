@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+/**
+ * {@link OutputStream} which digests the content written to it, for bodies
+ * that can only be produced by writing them out.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class ContentDigestOutputStream extends OutputStream {
+	private final MessageDigest digest = CryptoProviders.newSha256();
+
+	@Override
+	public void write(int b) {
+		digest.update((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		digest.update(b, off, len);
+	}
+
+	/**
+	 * @return digest of the content written so far, the stream is reset.
+	 */
+	public ContentDigest getContentDigest() {
+		return ContentDigest.ofSha256(digest.digest());
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Verifies the <code>X-Coscon-Digest</code> header of a response against the
+ * SHA-256 of its decoded body, while the body is streamed.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class ContentDigestValidator implements StreamingValidator {
+	private final boolean digestRequired;
+
+	/**
+	 * Responses without <code>X-Coscon-Digest</code> are rejected.
+	 */
+	public ContentDigestValidator() {
+		this(true);
+	}
+
+	/**
+	 * @param digestRequired
+	 *            whether responses without <code>X-Coscon-Digest</code> are
+	 *            rejected, otherwise they are accepted unverified.
+	 */
+	public ContentDigestValidator(boolean digestRequired) {
+		super();
+		this.digestRequired = digestRequired;
+	}
+
+	@Override
+	public BodyVerifier begin(HeaderSource headers) throws IOException {
+		String expected = headers.getHeader(SigningEngine.X_DIGEST);
+		if (expected == null) {
+			if (digestRequired) {
+				throw new IOException("COP response validation failed, " + SigningEngine.X_DIGEST + " is absent.");
+			}
+			return new BodyVerifier() {
+				@Override
+				public void write(byte[] b, int off, int len) {
+					// unverified
+				}
+
+				@Override
+				public void verify() {
+					// unverified
+				}
+			};
+		}
+		return new DigestVerifier(expected.trim());
+	}
+
+	private static final class DigestVerifier extends BodyVerifier {
+		private final String expected;
+		private final MessageDigest digest = CryptoProviders.newSha256();
+		private boolean verified;
+
+		DigestVerifier(String expected) {
+			super();
+			this.expected = expected;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			digest.update(b, off, len);
+		}
+
+		@Override
+		public void verify() throws IOException {
+			if (verified) {
+				return;
+			}
+			verified = true;
+			String actual = ContentDigest.ofSha256(digest.digest()).getHeaderValue();
+			if (!MessageDigest.isEqual(expected.getBytes(StandardCharsets.ISO_8859_1),
+					actual.getBytes(StandardCharsets.ISO_8859_1))) {
+				throw new IOException("COP response validation failed, " + SigningEngine.X_DIGEST + " mismatch.");
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ContentDigestValidator [digestRequired=" + digestRequired + "]";
+	}
+}
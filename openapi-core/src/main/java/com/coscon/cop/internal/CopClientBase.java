@@ -17,17 +17,37 @@
 package com.coscon.cop.internal;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
 
 import com.coscon.cop.core.ClientException;
 import com.coscon.cop.core.CredentialsProvider;
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.EndpointRegistry;
+import com.coscon.cop.core.EndpointRouter;
 import com.coscon.cop.core.Namespace;
 import com.coscon.cop.core.SignAlgorithm;
 import com.coscon.cop.core.Signer;
+import com.coscon.cop.core.Validator;
 
 /**
  * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
@@ -43,6 +63,10 @@ public abstract class CopClientBase implements Closeable {
 
 	private Signer signer;
 
+	private CredentialsRefresher credentialsRefresher;
+
+	private final ConcurrentHashMap<Namespace, EndpointRouter> routers = new ConcurrentHashMap<>();
+
 	protected CopClientBase() {
 		super();
 		credentialsProvider = new BasicCredentialsProvider();
@@ -71,6 +95,10 @@ public abstract class CopClientBase implements Closeable {
 	}
 	@Override
 	public void close() {
+		if (this.credentialsRefresher != null) {
+			this.credentialsRefresher.close();
+			this.credentialsRefresher = null;
+		}
 		this.credentialsProvider = null;
 		this.validatorProvider = null;
 		this.signer = null;
@@ -139,6 +167,294 @@ public abstract class CopClientBase implements Closeable {
 				new UsernamePasswordCredentials(namespace, apiKey, secretKey));
 		return this;
 	}
+
+	/**
+	 * Rotates the credentials of a namespace in place, the client and its
+	 * connections are kept. Requests being signed keep the previous
+	 * credentials.
+	 * 
+	 * @param namespace
+	 *            scope of credentials.
+	 * @param apiKey
+	 * @param secretKey
+	 * @return self
+	 */
+	public CopClientBase rotateCredentials(Namespace namespace, String apiKey, String secretKey) {
+		getCredentialsProvider().replaceCredentials(namespace,
+				new UsernamePasswordCredentials(namespace, apiKey, secretKey));
+		return this;
+	}
+
+	/**
+	 * Loads the credentials from <code>source</code> now, then reloads them
+	 * every <code>period</code> in the background until the client is closed.
+	 * 
+	 * @param source
+	 *            e.g. {@link CredentialsRefresher#fromFile(java.nio.file.Path)}.
+	 * @return self
+	 * @throws ClientException
+	 *             if the initial load fails or a refresher is already set.
+	 */
+	public CopClientBase withCredentialsRefresher(CredentialsRefresher.Source source, long period, TimeUnit unit)
+			throws ClientException {
+		if (Objects.nonNull(this.credentialsRefresher)) {
+			throw new ClientException("Unable to overwrite credentials refresher");
+		}
+		CredentialsRefresher refresher = new CredentialsRefresher(getCredentialsProvider(), source);
+		try {
+			refresher.refresh();
+		} catch (IOException e) {
+			throw new ClientException(e.getLocalizedMessage(), e);
+		}
+		this.credentialsRefresher = refresher.start(period, unit);
+		return this;
+	}
+
+	/**
+	 * Replaces the credentials provider, e.g. with a
+	 * {@link TenantCredentialsProvider}, before sending any request.
+	 * 
+	 * @param provider
+	 *            the provider.
+	 * @return self
+	 */
+	public CopClientBase withCredentialsProvider(CredentialsProvider provider) {
+		this.credentialsProvider = Objects.requireNonNull(provider, "provider may not be null");
+		return this;
+	}
+
+	/**
+	 * Extra headers binding a request to a tenant of the
+	 * {@link TenantCredentialsProvider}, more headers may be added to the
+	 * returned map.
+	 * 
+	 * @param tenantId
+	 *            the tenant.
+	 * @return extra headers of the request.
+	 */
+	public static Map<String, List<String>> tenantHeaders(String tenantId) {
+		Objects.requireNonNull(tenantId, "tenantId may not be null");
+		Map<String, List<String>> headers = new HashMap<>();
+		headers.put(TenantCredentialsProvider.TENANT_HEADER, Collections.singletonList(tenantId));
+		return headers;
+	}
+
+	/**
+	 * Sets response validator, e.g. {@link ContentDigestValidator}.
+	 * @param namespace scope of validator.
+	 * @param validator a {@link StreamingValidator} validates without buffering the response body.
+	 * @return self
+	 */
+	public CopClientBase withValidator(Namespace namespace, Validator validator) {
+		Objects.requireNonNull(namespace, "namespace may not be null");
+		Objects.requireNonNull(validator, "validator may not be null");
+		getValidatorProvider().setValidator(namespace, validator);
+		return this;
+	}
+	/**
+	 * Routes the requests of a namespace across the endpoints of the router,
+	 * with failover. Every endpoint must be registered in
+	 * {@link EndpointRegistry} and have credentials for its namespace.
+	 * 
+	 * @param namespace
+	 *            namespace of the requests, e.g. <code>COP_PUBLIC_PROD</code>.
+	 * @param router
+	 *            e.g. across <code>COP_PUBLIC_PROD</code> and
+	 *            <code>COP_INTERNAL_PROD</code>.
+	 * @return self
+	 */
+	public CopClientBase withRouter(Namespace namespace, EndpointRouter router) {
+		Objects.requireNonNull(namespace, "namespace may not be null");
+		Objects.requireNonNull(router, "router may not be null");
+		routers.put(namespace, router);
+		return this;
+	}
+
+	/**
+	 * One attempt of a routed request.
+	 */
+	@FunctionalInterface
+	protected interface Exchange<R> {
+		R send(Endpoint endpoint) throws ClientException;
+	}
+
+	/**
+	 * Sends to the endpoint of the namespace, or to the endpoints of its
+	 * router in order, recording the latency and outcome of each attempt.
+	 * 
+	 * @param idempotent
+	 *            whether the request may be sent again after a failure or a
+	 *            server error, a request not idempotent is sent again only if
+	 *            the connection failed.
+	 * @param exchange
+	 *            sends the request to an endpoint.
+	 * @param statusOf
+	 *            http status of the response.
+	 * @return the response of the last attempt.
+	 * @throws ClientException
+	 *             failure of the last attempt.
+	 */
+	protected <R> R route(Namespace namespace, boolean idempotent, Exchange<R> exchange,
+			ToIntFunction<R> statusOf) throws ClientException {
+		EndpointRouter router = routers.get(namespace);
+		if (router == null) {
+			return exchange.send(Endpoint.of(namespace));
+		}
+		List<Endpoint> endpoints = router.select();
+		ClientException failure = null;
+		for (int i = 0; i < endpoints.size(); i++) {
+			Endpoint endpoint = endpoints.get(i);
+			boolean last = i == endpoints.size() - 1;
+			long start = System.nanoTime();
+			R response;
+			try {
+				response = exchange.send(endpoint);
+			} catch (ClientException e) {
+				router.record(endpoint, System.nanoTime() - start, false);
+				if (last || !(idempotent || isConnectFailure(e))) {
+					throw e;
+				}
+				failure = e;
+				continue;
+			}
+			boolean serverError = statusOf.applyAsInt(response) >= 500;
+			router.record(endpoint, System.nanoTime() - start, !serverError);
+			if (serverError && idempotent && !last) {
+				if (response instanceof Closeable) {
+					try {
+						((Closeable) response).close();
+					} catch (IOException e) {
+						// Do nothing.
+					}
+				}
+				continue;
+			}
+			return response;
+		}
+		throw failure;
+	}
+
+	/**
+	 * One attempt of a routed asynchronous request.
+	 */
+	@FunctionalInterface
+	protected interface AsyncExchange<R> {
+		CompletableFuture<R> send(Endpoint endpoint);
+	}
+
+	/**
+	 * Asynchronous {@link #route(Namespace, boolean, Exchange, ToIntFunction)},
+	 * the next endpoint is tried when an attempt completes.
+	 */
+	protected <R> CompletableFuture<R> routeAsync(Namespace namespace, boolean idempotent,
+			AsyncExchange<R> exchange, ToIntFunction<R> statusOf) {
+		EndpointRouter router = routers.get(namespace);
+		if (router == null) {
+			return exchange.send(Endpoint.of(namespace));
+		}
+		return attemptAsync(router, router.select(), 0, idempotent, exchange, statusOf);
+	}
+
+	private <R> CompletableFuture<R> attemptAsync(EndpointRouter router, List<Endpoint> endpoints, int index,
+			boolean idempotent, AsyncExchange<R> exchange, ToIntFunction<R> statusOf) {
+		Endpoint endpoint = endpoints.get(index);
+		boolean last = index == endpoints.size() - 1;
+		long start = System.nanoTime();
+		return exchange.send(endpoint).handle((response, error) -> {
+			long elapsed = System.nanoTime() - start;
+			if (error != null) {
+				router.record(endpoint, elapsed, false);
+				Throwable cause = error instanceof CompletionException && error.getCause() != null
+						? error.getCause() : error;
+				if (last || !(idempotent || isConnectFailure(cause))) {
+					return CopClientBase.<R>failed(cause);
+				}
+				return attemptAsync(router, endpoints, index + 1, idempotent, exchange, statusOf);
+			}
+			boolean serverError = statusOf.applyAsInt(response) >= 500;
+			router.record(endpoint, elapsed, !serverError);
+			if (serverError && idempotent && !last) {
+				if (response instanceof Closeable) {
+					try {
+						((Closeable) response).close();
+					} catch (IOException e) {
+						// Do nothing.
+					}
+				}
+				return attemptAsync(router, endpoints, index + 1, idempotent, exchange, statusOf);
+			}
+			return CompletableFuture.completedFuture(response);
+		}).thenCompose(future -> future);
+	}
+
+	/**
+	 * @return a future completed exceptionally.
+	 */
+	protected static <R> CompletableFuture<R> failed(Throwable error) {
+		CompletableFuture<R> future = new CompletableFuture<>();
+		future.completeExceptionally(error);
+		return future;
+	}
+
+	private static boolean isConnectFailure(Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof ConnectException || cause instanceof UnknownHostException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the endpoint, if registered in {@link EndpointRegistry}.
+	 * @throws ClientException
+	 *             if the endpoint is not registered, its requests would not be
+	 *             signed.
+	 */
+	protected static Endpoint requireRegistered(Endpoint endpoint) throws ClientException {
+		Objects.requireNonNull(endpoint, "endpoint may not be null");
+		if (!endpoint.equals(EndpointRegistry.get(endpoint.getName()))) {
+			throw new ClientException("Unregistered endpoint:" + endpoint);
+		}
+		return endpoint;
+	}
+
+	/**
+	 * Gateways to warm up connections to: the endpoints of the router of each
+	 * namespace with credentials, or else the endpoint of the namespace, once
+	 * per host and port.
+	 */
+	protected List<Endpoint> getWarmUpEndpoints() {
+		Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+		for (Namespace namespace : Namespace.values()) {
+			if (getCredentialsProvider().getCredentials(namespace) == null) {
+				continue;
+			}
+			EndpointRouter router = routers.get(namespace);
+			if (router == null) {
+				Endpoint endpoint = Endpoint.of(namespace);
+				endpoints.putIfAbsent(endpoint.getHost() + ":" + endpoint.getPort(), endpoint);
+				continue;
+			}
+			for (EndpointRouter.Stats stats : router.getStats()) {
+				Endpoint endpoint = stats.getEndpoint();
+				endpoints.putIfAbsent(endpoint.getHost() + ":" + endpoint.getPort(), endpoint);
+			}
+		}
+		return new ArrayList<>(endpoints.values());
+	}
+
+	/**
+	 * @return a thread per task of a warm-up, daemon threads so a warm-up past
+	 *         its deadline does not hold the JVM.
+	 */
+	protected static ExecutorService newWarmUpExecutor(int threads) {
+		return Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "cop-warm-up");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
 	/*
 	 * *****************************************************************************
 	 */
@@ -163,4 +479,185 @@ public abstract class CopClientBase implements Closeable {
 
 	public abstract Object doPostWithResponse(Namespace namespace, String relativeUri, String payload,
 			Map<String, List<String>> extraHeaders) throws ClientException;
+
+	/**
+	 * Post a reusable payload, its digest is not computed again by transports
+	 * which override this method, others post the payload as a UTF-8 string.
+	 */
+	public String doPost(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		Objects.requireNonNull(payload, "payload may not be null");
+		return doPost(namespace, relativeUri, new String(payload.getContent(), StandardCharsets.UTF_8), extraHeaders);
+	}
+
+	/**
+	 * Post a reusable payload, its digest is not computed again by transports
+	 * which override this method, others post the payload as a UTF-8 string.
+	 */
+	public Object doPostWithResponse(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		Objects.requireNonNull(payload, "payload may not be null");
+		return doPostWithResponse(namespace, relativeUri, new String(payload.getContent(), StandardCharsets.UTF_8),
+				extraHeaders);
+	}
+
+	/*
+	 * Requests to an endpoint registered in EndpointRegistry, e.g. a regional
+	 * edge, the methods of a Namespace send to Endpoint.of(namespace). A
+	 * transport which does not override them only sends to the gateway of a
+	 * Namespace, through the methods of the Namespace.
+	 */
+
+	public String doGet(Endpoint endpoint, String relativeUri) throws ClientException {
+		return doGet(endpoint, relativeUri, null);
+	}
+
+	public String doGet(Endpoint endpoint, String relativeUri, Map<String, List<String>> extraHeaders)
+			throws ClientException {
+		return doGet(gatewayOf(endpoint), relativeUri, extraHeaders);
+	}
+
+	public Object doGetWithResponse(Endpoint endpoint, String relativeUri) throws ClientException {
+		return doGetWithResponse(endpoint, relativeUri, null);
+	}
+
+	public Object doGetWithResponse(Endpoint endpoint, String relativeUri, Map<String, List<String>> extraHeaders)
+			throws ClientException {
+		return doGetWithResponse(gatewayOf(endpoint), relativeUri, extraHeaders);
+	}
+
+	public String doPost(Endpoint endpoint, String relativeUri, String payload) throws ClientException {
+		return doPost(endpoint, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	public String doPost(Endpoint endpoint, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return doPost(gatewayOf(endpoint), relativeUri, payload, extraHeaders);
+	}
+
+	public Object doPostWithResponse(Endpoint endpoint, String relativeUri, String payload) throws ClientException {
+		return doPostWithResponse(endpoint, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	public Object doPostWithResponse(Endpoint endpoint, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return doPostWithResponse(gatewayOf(endpoint), relativeUri, payload, extraHeaders);
+	}
+
+	public String doPost(Endpoint endpoint, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return doPost(gatewayOf(endpoint), relativeUri, payload, extraHeaders);
+	}
+
+	public Object doPostWithResponse(Endpoint endpoint, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return doPostWithResponse(gatewayOf(endpoint), relativeUri, payload, extraHeaders);
+	}
+
+	/**
+	 * @return namespace of an endpoint which is the gateway of its namespace.
+	 * @throws ClientException
+	 *             if the endpoint is not a namespace gateway, which the
+	 *             transport does not support.
+	 */
+	private static Namespace gatewayOf(Endpoint endpoint) throws ClientException {
+		Objects.requireNonNull(endpoint, "endpoint may not be null");
+		if (!endpoint.equals(Endpoint.of(endpoint.getNamespace()))) {
+			throw new ClientException("Endpoint " + endpoint.getName() + " is not supported by this transport");
+		}
+		return endpoint.getNamespace();
+	}
+
+	/*
+	 * Asynchronous requests, the futures complete exceptionally with a
+	 * ClientException. The calling thread is not blocked, signing and response
+	 * validation apply as for the blocking requests. A transport which does not
+	 * override them fails them as not supported, unless getAsyncExecutor()
+	 * supplies threads to run the blocking requests on.
+	 */
+
+	public CompletableFuture<String> doGetAsync(Namespace namespace, String relativeUri) {
+		return doGetAsync(namespace, relativeUri, null);
+	}
+
+	public CompletableFuture<String> doGetAsync(Namespace namespace, String relativeUri,
+			Map<String, List<String>> extraHeaders) {
+		return callAsync(() -> doGet(namespace, relativeUri, extraHeaders));
+	}
+
+	public CompletableFuture<?> doGetWithResponseAsync(Namespace namespace, String relativeUri) {
+		return doGetWithResponseAsync(namespace, relativeUri, null);
+	}
+
+	public CompletableFuture<?> doGetWithResponseAsync(Namespace namespace, String relativeUri,
+			Map<String, List<String>> extraHeaders) {
+		return callAsync(() -> doGetWithResponse(namespace, relativeUri, extraHeaders));
+	}
+
+	public CompletableFuture<String> doPostAsync(Namespace namespace, String relativeUri, String payload) {
+		return doPostAsync(namespace, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	public CompletableFuture<String> doPostAsync(Namespace namespace, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) {
+		return callAsync(() -> doPost(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	public CompletableFuture<?> doPostWithResponseAsync(Namespace namespace, String relativeUri, String payload) {
+		return doPostWithResponseAsync(namespace, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	public CompletableFuture<?> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			String payload, Map<String, List<String>> extraHeaders) {
+		return callAsync(() -> doPostWithResponse(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	public CompletableFuture<String> doPostAsync(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) {
+		return callAsync(() -> doPost(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	public CompletableFuture<?> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			Payload payload, Map<String, List<String>> extraHeaders) {
+		return callAsync(() -> doPostWithResponse(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	/**
+	 * Executor of the default asynchronous requests, each of them blocks one
+	 * of its threads until the response arrives, a bounded executor limits
+	 * the requests in flight. Transports with requests of their own which do
+	 * not block a thread override the asynchronous methods instead.
+	 * 
+	 * @return the executor, <code>null</code> if asynchronous requests are
+	 *         not supported, the default.
+	 */
+	protected Executor getAsyncExecutor() {
+		return null;
+	}
+
+	@FunctionalInterface
+	private interface BlockingCall<R> {
+		R call() throws ClientException;
+	}
+
+	private <R> CompletableFuture<R> callAsync(BlockingCall<R> call) {
+		CompletableFuture<R> future = new CompletableFuture<>();
+		Executor executor = getAsyncExecutor();
+		if (executor == null) {
+			future.completeExceptionally(new ClientException("asynchronous requests not supported"));
+			return future;
+		}
+		try {
+			executor.execute(() -> {
+				try {
+					future.complete(call.call());
+				} catch (ClientException | RuntimeException e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(new ClientException("Asynchronous request rejected", e));
+		}
+		return future;
+	}
 }
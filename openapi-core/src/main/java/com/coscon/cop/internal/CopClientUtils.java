@@ -74,4 +74,19 @@ public class CopClientUtils {
 		}
 		return url;
 	}
+
+	/**
+	 * @param port <code>-1</code> for the default port of the scheme.
+	 * @return <code>scheme://host[:port]encodedPath</code>
+	 */
+	public static String toUrl(String scheme, String host, int port, String encodedPath) {
+		StringBuilder urlBuilder = new StringBuilder().append(scheme).append("://").append(host);
+		if (port >= 0) {
+			urlBuilder.append(':').append(port);
+		}
+		if (encodedPath != null) {
+			urlBuilder.append(encodedPath);
+		}
+		return urlBuilder.toString();
+	}
 }
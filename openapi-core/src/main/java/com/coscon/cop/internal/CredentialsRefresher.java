@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.coscon.cop.core.Credentials;
+import com.coscon.cop.core.CredentialsProvider;
+import com.coscon.cop.core.Namespace;
+
+/**
+ * Reloads credentials in the background and swaps the changed ones through
+ * {@link CredentialsProvider#replaceCredentials(Namespace, Credentials)},
+ * rotating keys without rebuilding the client. Credentials the refresher
+ * loaded are removed through
+ * {@link CredentialsProvider#removeCredentials(Namespace)} once they no longer
+ * appear in the source, credentials set otherwise are left alone. A provider
+ * which does not support removal keeps the credentials gone from the source.
+ * <p>
+ * A failed reload keeps the current credentials, the failure is available
+ * from {@link #getLastFailure()}.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class CredentialsRefresher implements Closeable {
+	static final String API_KEY = "apiKey";
+	static final String SECRET_KEY = "secretKey";
+	static final String MOUNT_API_KEY = "_API_KEY";
+	static final String MOUNT_SECRET_KEY = "_SECRET_KEY";
+
+	/**
+	 * Source of credentials.
+	 */
+	@FunctionalInterface
+	public interface Source {
+		/**
+		 * @return credentials by namespace, <code>null</code> if unchanged since
+		 *         the last load.
+		 * @throws IOException
+		 *             if the credentials can not be loaded.
+		 */
+		Map<Namespace, Credentials> load() throws IOException;
+	}
+
+	/**
+	 * Properties file with <code>&lt;NAMESPACE&gt;.apiKey</code> and
+	 * <code>&lt;NAMESPACE&gt;.secretKey</code> entries, e.g.
+	 * <code>COP_PUBLIC_PP.apiKey</code>. The file is loaded again only when
+	 * its modification time or size changes.
+	 */
+	public static Source fromFile(final Path path) {
+		Objects.requireNonNull(path, "path may not be null");
+		return new Source() {
+			private Object lastModified;
+			private long lastSize = -1L;
+
+			@Override
+			public synchronized Map<Namespace, Credentials> load() throws IOException {
+				BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+				if (attributes.lastModifiedTime().equals(lastModified) && attributes.size() == lastSize) {
+					return null;
+				}
+				Properties properties = new Properties();
+				try (InputStream in = Files.newInputStream(path)) {
+					properties.load(in);
+				}
+				Map<Namespace, Credentials> loaded = parse(properties::getProperty, ".", API_KEY, SECRET_KEY);
+				lastModified = attributes.lastModifiedTime();
+				lastSize = attributes.size();
+				return loaded;
+			}
+		};
+	}
+
+	/**
+	 * Mounted secret, e.g. a Kubernetes secret volume, with one file per key
+	 * named <code>&lt;NAMESPACE&gt;_API_KEY</code> and
+	 * <code>&lt;NAMESPACE&gt;_SECRET_KEY</code>, e.g.
+	 * <code>COP_PUBLIC_PP_API_KEY</code>. The files are read on every load, a
+	 * rotated secret is picked up by the next refresh.
+	 */
+	public static Source fromDirectory(final Path directory) {
+		Objects.requireNonNull(directory, "directory may not be null");
+		return () -> parse(name -> {
+			Path file = directory.resolve(name);
+			return Files.isRegularFile(file) ? new String(Files.readAllBytes(file), StandardCharsets.UTF_8) : null;
+		}, "", MOUNT_API_KEY, MOUNT_SECRET_KEY);
+	}
+
+	private interface Lookup {
+		String get(String key) throws IOException;
+	}
+
+	private static Map<Namespace, Credentials> parse(Lookup lookup, String separator, String apiKeySuffix,
+			String secretKeySuffix) throws IOException {
+		Map<Namespace, Credentials> loaded = new EnumMap<>(Namespace.class);
+		for (Namespace ns : Namespace.values()) {
+			String apiKey = lookup.get(ns.name() + separator + apiKeySuffix);
+			String secretKey = lookup.get(ns.name() + separator + secretKeySuffix);
+			if (apiKey == null && secretKey == null) {
+				continue;
+			}
+			if (apiKey == null || secretKey == null || apiKey.trim().isEmpty() || secretKey.trim().isEmpty()) {
+				throw new IOException("Incomplete credentials for namespace:" + ns);
+			}
+			loaded.put(ns, new UsernamePasswordCredentials(ns, apiKey.trim(), secretKey.trim()));
+		}
+		return loaded;
+	}
+
+	private final CredentialsProvider provider;
+	private final Source source;
+	private ScheduledExecutorService scheduler;
+	private volatile Exception lastFailure;
+	/**
+	 * Namespaces of the last load.
+	 */
+	private final Set<Namespace> loadedNamespaces = EnumSet.noneOf(Namespace.class);
+
+	public CredentialsRefresher(CredentialsProvider provider, Source source) {
+		super();
+		this.provider = Objects.requireNonNull(provider, "provider may not be null");
+		this.source = Objects.requireNonNull(source, "source may not be null");
+	}
+
+	/**
+	 * Loads the source once, swaps the credentials that changed and removes
+	 * those which no longer appear.
+	 * 
+	 * @return number of namespaces whose credentials were swapped or removed.
+	 * @throws IOException
+	 *             if the source fails to load, no credentials are swapped.
+	 */
+	public synchronized int refresh() throws IOException {
+		Map<Namespace, Credentials> loaded = source.load();
+		if (loaded == null) {
+			return 0;
+		}
+		int replaced = 0;
+		for (Map.Entry<Namespace, Credentials> entry : loaded.entrySet()) {
+			if (!entry.getValue().equals(provider.getCredentials(entry.getKey()))) {
+				provider.replaceCredentials(entry.getKey(), entry.getValue());
+				replaced++;
+			}
+		}
+		for (Namespace ns : loadedNamespaces) {
+			if (!loaded.containsKey(ns) && remove(ns)) {
+				replaced++;
+			}
+		}
+		loadedNamespaces.clear();
+		loadedNamespaces.addAll(loaded.keySet());
+		return replaced;
+	}
+
+	private boolean remove(Namespace ns) {
+		try {
+			return provider.removeCredentials(ns) != null;
+		} catch (UnsupportedOperationException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Refreshes every <code>period</code> on a daemon thread, the first time
+	 * after one period, call {@link #refresh()} before to load the initial
+	 * credentials.
+	 * 
+	 * @return self
+	 */
+	public synchronized CredentialsRefresher start(long period, TimeUnit unit) {
+		Objects.requireNonNull(unit, "unit may not be null");
+		if (period <= 0) {
+			throw new IllegalArgumentException("period must be positive:" + period);
+		}
+		if (scheduler != null) {
+			throw new IllegalStateException("Refresher already started");
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "cop-credentials-refresher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				refresh();
+				lastFailure = null;
+			} catch (IOException | RuntimeException e) {
+				lastFailure = e;
+			}
+		}, period, period, unit);
+		return this;
+	}
+
+	/**
+	 * @return failure of the last background refresh, <code>null</code> if it
+	 *         succeeded.
+	 */
+	public Exception getLastFailure() {
+		return lastFailure;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.coscon.cop.core.SignAlgorithm;
+
+/**
+ * JCA providers of the HMAC algorithms and of the SHA-256 content digest.
+ * <p>
+ * By default the first provider supporting an algorithm is used, as with
+ * {@link Mac#getInstance(String)}. A provider can be set explicitly per
+ * algorithm, or chosen by {@link #probe(long)} which times every installed
+ * provider and keeps the fastest. The probe runs at class initialization when
+ * the system property <code>cop.crypto.probe</code> is <code>true</code>.
+ * {@link #getSelections()} reports the providers in use.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class CryptoProviders {
+	public static final String SHA_256 = "SHA-256";
+	public static final String PROBE_PROPERTY = "cop.crypto.probe";
+
+	/**
+	 * Default time spent on each candidate provider by {@link #probe()}.
+	 */
+	public static final long DEFAULT_PROBE_MILLIS = 50L;
+
+	/**
+	 * Input sizes of the probe, about a signing string and a search payload.
+	 */
+	private static final int MAC_PROBE_INPUT = 256;
+	private static final int DIGEST_PROBE_INPUT = 1024;
+
+	/**
+	 * How a provider was selected.
+	 */
+	public enum Source {
+		/**
+		 * the first provider supporting the algorithm.
+		 */
+		DEFAULT,
+		/**
+		 * set by {@link CryptoProviders#setMacProvider(SignAlgorithm, Provider)} or
+		 * {@link CryptoProviders#setDigestProvider(Provider)}.
+		 */
+		EXPLICIT,
+		/**
+		 * the fastest provider measured by {@link CryptoProviders#probe(long)}.
+		 */
+		PROBED
+	}
+
+	/**
+	 * Provider selected for one algorithm.
+	 */
+	public static final class Selection {
+		private final String algorithm;
+		private final Provider provider;
+		private final Source source;
+		private final double opsPerSecond;
+
+		Selection(String algorithm, Provider provider, Source source, double opsPerSecond) {
+			super();
+			this.algorithm = algorithm;
+			this.provider = provider;
+			this.source = source;
+			this.opsPerSecond = opsPerSecond;
+		}
+
+		/**
+		 * @return JCA name of the algorithm, e.g. <code>HmacSHA256</code>.
+		 */
+		public String getAlgorithm() {
+			return algorithm;
+		}
+
+		/**
+		 * @return the provider
+		 */
+		public Provider getProvider() {
+			return provider;
+		}
+
+		/**
+		 * @return the source
+		 */
+		public Source getSource() {
+			return source;
+		}
+
+		/**
+		 * @return measured throughput, {@link Double#NaN} unless probed.
+		 */
+		public double getOpsPerSecond() {
+			return opsPerSecond;
+		}
+
+		@Override
+		public String toString() {
+			return "Selection [algorithm=" + algorithm + ", provider=" + provider.getName() + ", source=" + source
+					+ (Double.isNaN(opsPerSecond) ? "" : String.format(", opsPerSecond=%.0f", opsPerSecond)) + "]";
+		}
+	}
+
+	/**
+	 * Indexed by {@link SignAlgorithm#ordinal()}, copied on write so that
+	 * signing reads it without a lock.
+	 */
+	private static volatile Selection[] macSelections;
+	private static volatile Selection digestSelection;
+
+	static {
+		Selection[] selections = new Selection[SignAlgorithm.values().length];
+		for (SignAlgorithm algorithm : SignAlgorithm.values()) {
+			selections[algorithm.ordinal()] = defaultMacSelection(algorithm);
+		}
+		macSelections = selections;
+		digestSelection = defaultDigestSelection();
+		if (Boolean.getBoolean(PROBE_PROPERTY)) {
+			probe();
+		}
+	}
+
+	private CryptoProviders() {
+	}
+
+	private static Selection defaultMacSelection(SignAlgorithm algorithm) {
+		try {
+			return new Selection(algorithm.getAlgorithm(), Mac.getInstance(algorithm.getAlgorithm()).getProvider(),
+					Source.DEFAULT, Double.NaN);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(algorithm.getAlgorithm() + " is not supported by any provider", e);
+		}
+	}
+
+	private static Selection defaultDigestSelection() {
+		try {
+			return new Selection(SHA_256, MessageDigest.getInstance(SHA_256).getProvider(), Source.DEFAULT,
+					Double.NaN);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(SHA_256 + " is not supported by any provider", e);
+		}
+	}
+
+	/**
+	 * @return a new, uninitialized {@link Mac} of the selected provider.
+	 * @throws NoSuchAlgorithmException
+	 */
+	public static Mac newMac(SignAlgorithm algorithm) throws NoSuchAlgorithmException {
+		Objects.requireNonNull(algorithm, "algorithm may not be null");
+		return Mac.getInstance(algorithm.getAlgorithm(), macSelections[algorithm.ordinal()].getProvider());
+	}
+
+	/**
+	 * @return a new SHA-256 {@link MessageDigest} of the selected provider.
+	 */
+	public static MessageDigest newSha256() {
+		try {
+			return MessageDigest.getInstance(SHA_256, digestSelection.getProvider());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @return provider of the HMAC algorithm.
+	 */
+	static Provider getMacProvider(SignAlgorithm algorithm) {
+		return macSelections[algorithm.ordinal()].getProvider();
+	}
+
+	/**
+	 * @return provider of the SHA-256 content digest.
+	 */
+	static Provider getDigestProvider() {
+		return digestSelection.getProvider();
+	}
+
+	/**
+	 * Use the given provider for an HMAC algorithm, cached {@link Mac} engines
+	 * of the algorithm are evicted.
+	 * 
+	 * @param algorithm
+	 *            hmac algorithm
+	 * @param provider
+	 *            the provider, <code>null</code> to restore the default one.
+	 * @throws NoSuchAlgorithmException
+	 *             when the provider does not support the algorithm.
+	 */
+	public static void setMacProvider(SignAlgorithm algorithm, Provider provider) throws NoSuchAlgorithmException {
+		Objects.requireNonNull(algorithm, "algorithm may not be null");
+		Selection selection;
+		if (provider == null) {
+			selection = defaultMacSelection(algorithm);
+		} else {
+			Mac.getInstance(algorithm.getAlgorithm(), provider);
+			selection = new Selection(algorithm.getAlgorithm(), provider, Source.EXPLICIT, Double.NaN);
+		}
+		select(algorithm, selection);
+	}
+
+	/**
+	 * Use the given provider for the SHA-256 content digest.
+	 * 
+	 * @param provider
+	 *            the provider, <code>null</code> to restore the default one.
+	 * @throws NoSuchAlgorithmException
+	 *             when the provider does not support SHA-256.
+	 */
+	public static void setDigestProvider(Provider provider) throws NoSuchAlgorithmException {
+		if (provider == null) {
+			digestSelection = defaultDigestSelection();
+		} else {
+			MessageDigest.getInstance(SHA_256, provider);
+			digestSelection = new Selection(SHA_256, provider, Source.EXPLICIT, Double.NaN);
+		}
+	}
+
+	private static synchronized void select(SignAlgorithm algorithm, Selection selection) {
+		Selection[] selections = macSelections.clone();
+		Selection previous = selections[algorithm.ordinal()];
+		selections[algorithm.ordinal()] = selection;
+		macSelections = selections;
+		if (previous == null || previous.getProvider() != selection.getProvider()) {
+			MacCache.clear(algorithm);
+		}
+	}
+
+	/**
+	 * @return providers in use, HMAC algorithms first and SHA-256 last.
+	 */
+	public static List<Selection> getSelections() {
+		List<Selection> selections = new ArrayList<>(SignAlgorithm.values().length + 1);
+		Collections.addAll(selections, macSelections);
+		selections.add(digestSelection);
+		return selections;
+	}
+
+	/**
+	 * Probe with {@link #DEFAULT_PROBE_MILLIS} per candidate.
+	 * 
+	 * @see #probe(long)
+	 */
+	public static List<Selection> probe() {
+		return probe(DEFAULT_PROBE_MILLIS);
+	}
+
+	/**
+	 * Times every installed provider of each algorithm and selects the fastest.
+	 * Algorithms with an explicit provider are left alone.
+	 * 
+	 * @param millisPerCandidate
+	 *            time spent on each provider, half of it warms up.
+	 * @return providers in use, as {@link #getSelections()}.
+	 */
+	public static synchronized List<Selection> probe(long millisPerCandidate) {
+		if (millisPerCandidate <= 0) {
+			throw new IllegalArgumentException("millisPerCandidate must be positive");
+		}
+		long nanos = TimeUnit.MILLISECONDS.toNanos(millisPerCandidate);
+		for (SignAlgorithm algorithm : SignAlgorithm.values()) {
+			if (macSelections[algorithm.ordinal()].getSource() == Source.EXPLICIT) {
+				continue;
+			}
+			Selection fastest = null;
+			for (Provider provider : candidates("Mac." + algorithm.getAlgorithm())) {
+				double opsPerSecond = timeMac(algorithm, provider, nanos);
+				if (opsPerSecond > 0 && (fastest == null || opsPerSecond > fastest.getOpsPerSecond())) {
+					fastest = new Selection(algorithm.getAlgorithm(), provider, Source.PROBED, opsPerSecond);
+				}
+			}
+			if (fastest != null) {
+				select(algorithm, fastest);
+			}
+		}
+		if (digestSelection.getSource() != Source.EXPLICIT) {
+			Selection fastest = null;
+			for (Provider provider : candidates("MessageDigest." + SHA_256)) {
+				double opsPerSecond = timeDigest(provider, nanos);
+				if (opsPerSecond > 0 && (fastest == null || opsPerSecond > fastest.getOpsPerSecond())) {
+					fastest = new Selection(SHA_256, provider, Source.PROBED, opsPerSecond);
+				}
+			}
+			if (fastest != null) {
+				digestSelection = fastest;
+			}
+		}
+		return getSelections();
+	}
+
+	private static List<Provider> candidates(String service) {
+		Provider[] providers = Security.getProviders(service);
+		List<Provider> candidates = new ArrayList<>();
+		if (providers != null) {
+			Collections.addAll(candidates, providers);
+		}
+		return candidates;
+	}
+
+	private static double timeMac(SignAlgorithm algorithm, Provider provider, long nanos) {
+		try {
+			Mac mac = Mac.getInstance(algorithm.getAlgorithm(), provider);
+			mac.init(new SecretKeySpec("cop-crypto-probe".getBytes(), algorithm.getAlgorithm()));
+			byte[] input = new byte[MAC_PROBE_INPUT];
+			Sample sample = () -> {
+				mac.update(input);
+				input[0] = mac.doFinal()[0];
+			};
+			return time(sample, nanos);
+		} catch (Exception e) {
+			// a provider which fails to serve the algorithm is never selected.
+			return -1;
+		}
+	}
+
+	private static double timeDigest(Provider provider, long nanos) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance(SHA_256, provider);
+			byte[] input = new byte[DIGEST_PROBE_INPUT];
+			Sample sample = () -> {
+				digest.update(input);
+				input[0] = digest.digest()[0];
+			};
+			return time(sample, nanos);
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	private interface Sample {
+		void run() throws Exception;
+	}
+
+	private static double time(Sample sample, long nanos) throws Exception {
+		long warmUpEnd = System.nanoTime() + nanos / 2;
+		while (System.nanoTime() < warmUpEnd) {
+			sample.run();
+		}
+		long ops = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			for (int i = 0; i < 64; i++) {
+				sample.run();
+			}
+			ops += 64;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < nanos / 2);
+		return ops * 1e9 / elapsed;
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.time.Clock;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.lang3.time.FastDateFormat;
+
+/**
+ * Source of <code>X-Coscon-Date</code> values.
+ * <p>
+ * The header has one-second resolution, so the formatted value is cached and
+ * reformatted at most once per second. The cached second/value pair is
+ * published through an {@link AtomicReference}, readers never lock. It only
+ * moves forward: a thread which read an earlier second gets its own value
+ * without replacing a later cached one.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class DateHeaderSource {
+	/**
+	 * date formatter follows API Gateway rule. RFC822
+	 */
+	private static final FastDateFormat X_DATE_FORMATTER = FastDateFormat.getInstance("EEE, dd MMM yyyy HH:mm:ss z",
+			TimeZone.getTimeZone("GMT"), Locale.ENGLISH);
+
+	private static final DateHeaderSource SHARED = new DateHeaderSource(Clock.systemUTC());
+
+	private final Clock clock;
+
+	private final AtomicReference<CachedDate> cached = new AtomicReference<>();
+
+	/**
+	 * @param clock
+	 *            clock to read current time from, tests may inject a fixed
+	 *            one.
+	 */
+	public DateHeaderSource(Clock clock) {
+		super();
+		this.clock = Objects.requireNonNull(clock, "clock may not be null");
+	}
+
+	/**
+	 * @return the instance shared by all clients and threads.
+	 */
+	public static DateHeaderSource shared() {
+		return SHARED;
+	}
+
+	/**
+	 * @return formatted current date, e.g.
+	 *         <code>Tue, 15 Mar 2022 08:12:31 GMT</code>
+	 */
+	public String currentValue() {
+		long epochSecond = Math.floorDiv(clock.millis(), 1000L);
+		CachedDate current = cached.get();
+		if (current != null && current.epochSecond == epochSecond) {
+			return current.value;
+		}
+		CachedDate next = new CachedDate(epochSecond, X_DATE_FORMATTER.format(epochSecond * 1000L));
+		while (current == null || current.epochSecond < epochSecond) {
+			if (cached.compareAndSet(current, next)) {
+				break;
+			}
+			current = cached.get();
+		}
+		return next.value;
+	}
+
+	private static final class CachedDate {
+		private final long epochSecond;
+		private final String value;
+
+		private CachedDate(long epochSecond, String value) {
+			this.epochSecond = epochSecond;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Index of values by URL prefix, e.g. credentials or validators of the COP
+ * namespaces.
+ * <p>
+ * Lookups read an immutable snapshot without locking: either a whole URL
+ * through a {@link PrefixTrie}, or the parts of an already parsed URL through
+ * a host table and a path trie per host, without building the URL string.
+ * Updates rebuild the snapshot and publish it atomically.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ * @param <T>
+ *            type of values
+ */
+public final class EndpointIndex<T> {
+
+	private static final class Route<T> {
+		private final String scheme;
+		private final int port;
+		private final Map<String, T> pathPrefixes = new LinkedHashMap<>();
+		private PrefixTrie<T> paths;
+
+		Route(String scheme, int port) {
+			super();
+			this.scheme = scheme;
+			this.port = port;
+		}
+	}
+
+	private static final class Snapshot<T> {
+		private final PrefixTrie<T> urls;
+		private final Map<String, Route<T>[]> hosts;
+
+		@SuppressWarnings("unchecked")
+		Snapshot(Map<String, T> prefixes) {
+			super();
+			this.urls = new PrefixTrie<>(prefixes);
+			Map<String, List<Route<T>>> routesByHost = new HashMap<>();
+			for (Map.Entry<String, T> entry : prefixes.entrySet()) {
+				URI uri = URI.create(entry.getKey());
+				String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+				int port = normalizePort(scheme, uri.getPort());
+				List<Route<T>> routes = routesByHost.computeIfAbsent(uri.getHost().toLowerCase(Locale.ROOT),
+						h -> new ArrayList<>());
+				Route<T> route = null;
+				for (Route<T> candidate : routes) {
+					if (candidate.scheme.equals(scheme) && candidate.port == port) {
+						route = candidate;
+					}
+				}
+				if (route == null) {
+					route = new Route<>(scheme, port);
+					routes.add(route);
+				}
+				route.pathPrefixes.put(uri.getRawPath() == null ? "" : uri.getRawPath(), entry.getValue());
+			}
+			Map<String, Route<T>[]> hostTable = new HashMap<>();
+			for (Map.Entry<String, List<Route<T>>> entry : routesByHost.entrySet()) {
+				for (Route<T> route : entry.getValue()) {
+					route.paths = new PrefixTrie<>(route.pathPrefixes);
+				}
+				hostTable.put(entry.getKey(), entry.getValue().toArray(new Route[0]));
+			}
+			this.hosts = hostTable;
+		}
+	}
+
+	private final Map<String, T> prefixes = new LinkedHashMap<>();
+	private volatile Snapshot<T> snapshot = new Snapshot<>(Collections.emptyMap());
+
+	private static int normalizePort(String scheme, int port) {
+		if (port >= 0) {
+			return port;
+		}
+		if ("https".equalsIgnoreCase(scheme)) {
+			return 443;
+		}
+		if ("http".equalsIgnoreCase(scheme)) {
+			return 80;
+		}
+		return port;
+	}
+
+	/**
+	 * @param prefix
+	 *            absolute URL prefix, e.g.
+	 *            <code>https://api.lines.coscoshipping.com/service</code>
+	 * @param value
+	 *            the value
+	 * @return the previous value of the prefix.
+	 */
+	public synchronized T put(String prefix, T value) {
+		Objects.requireNonNull(prefix, "prefix may not be null");
+		Objects.requireNonNull(value, "value may not be null");
+		T previous = prefixes.put(prefix, value);
+		snapshot = new Snapshot<>(prefixes);
+		return previous;
+	}
+
+	/**
+	 * @return the removed value of the prefix.
+	 */
+	public synchronized T remove(String prefix) {
+		T previous = prefixes.remove(prefix);
+		if (previous != null) {
+			snapshot = new Snapshot<>(prefixes);
+		}
+		return previous;
+	}
+
+	/**
+	 * Remove all prefixes.
+	 */
+	public synchronized void clear() {
+		prefixes.clear();
+		snapshot = new Snapshot<>(Collections.emptyMap());
+	}
+
+	/**
+	 * @return number of prefixes.
+	 */
+	public int size() {
+		return snapshot.urls.size();
+	}
+
+	/**
+	 * @param url
+	 *            absolute url
+	 * @return value of the longest prefix of the url, case insensitive,
+	 *         <code>null</code> if none matches.
+	 */
+	public T lookup(CharSequence url) {
+		return snapshot.urls.match(url);
+	}
+
+	/**
+	 * @param scheme
+	 *            scheme of the url, e.g. <code>https</code>
+	 * @param host
+	 *            host of the url
+	 * @param port
+	 *            port of the url, <code>-1</code> for the default port of the
+	 *            scheme.
+	 * @param encodedPath
+	 *            encoded path of the url, optionally followed by the query.
+	 * @return value of the longest path prefix registered for the scheme, host
+	 *         and port, <code>null</code> if none matches.
+	 */
+	public T lookup(String scheme, String host, int port, CharSequence encodedPath) {
+		Objects.requireNonNull(scheme, "scheme may not be null");
+		Objects.requireNonNull(host, "host may not be null");
+		Map<String, Route<T>[]> hosts = snapshot.hosts;
+		Route<T>[] routes = hosts.get(host);
+		if (routes == null && hasUpperCase(host)) {
+			routes = hosts.get(host.toLowerCase(Locale.ROOT));
+		}
+		if (routes == null) {
+			return null;
+		}
+		int normalizedPort = normalizePort(scheme, port);
+		for (Route<T> route : routes) {
+			if (route.port == normalizedPort && route.scheme.equalsIgnoreCase(scheme)) {
+				return route.paths.match(encodedPath == null ? "" : encodedPath);
+			}
+		}
+		return null;
+	}
+
+	private static boolean hasUpperCase(String host) {
+		for (int i = 0; i < host.length(); i++) {
+			char c = host.charAt(i);
+			if (c != Character.toLowerCase(c)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
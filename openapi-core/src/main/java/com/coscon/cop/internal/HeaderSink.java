@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+/**
+ * Target of signature headers, e.g. a request or request builder of the
+ * transport.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+@FunctionalInterface
+public interface HeaderSink {
+	/**
+	 * Set a header, replacing any existing value of the same name.
+	 * 
+	 * @param name
+	 *            header name
+	 * @param value
+	 *            header value
+	 */
+	void setHeader(String name, String value);
+}
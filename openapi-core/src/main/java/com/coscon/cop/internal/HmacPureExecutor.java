@@ -16,16 +16,7 @@
  */
 package com.coscon.cop.internal;
 
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
-import java.util.TimeZone;
-import java.util.UUID;
-
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.lang3.time.FastDateFormat;
 
 import com.coscon.cop.core.ClientException;
 import com.coscon.cop.core.SignAlgorithm;
@@ -43,24 +34,21 @@ import com.coscon.cop.core.SignAlgorithm;
  * @author 陈吉鹏
  * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
  * @emailto ch_jp@msn.com
+ * @deprecated create one {@link SigningEngine} per credentials and algorithm
+ *             and reuse it instead.
  */
+@Deprecated
 public abstract class HmacPureExecutor {
-	public static final String X_DATE = "X-Coscon-Date";
-	public static final String X_CONTENT_MD5 = "X-Coscon-Content-Md5";
-	public static final String X_AUTHORIZATION = "X-Coscon-Authorization";
-	public static final String X_DIGEST = "X-Coscon-Digest";
+	public static final String X_DATE = SigningEngine.X_DATE;
+	public static final String X_CONTENT_MD5 = SigningEngine.X_CONTENT_MD5;
+	public static final String X_AUTHORIZATION = SigningEngine.X_AUTHORIZATION;
+	public static final String X_DIGEST = SigningEngine.X_DIGEST;
 
-	public static final String REQUEST_LINE = "request-line";
+	public static final String REQUEST_LINE = SigningEngine.REQUEST_LINE;
 
 	protected static final String[] HMAC_ADVISOR_KEYS = { X_DATE, X_CONTENT_MD5, X_AUTHORIZATION, X_DIGEST };
 
-	/**
-	 * Available HMAC algorithms are: <b>hmac-sha1</b>, <b>hmac-sha256</b>,
-	 * <b>hmac-sha384</b>, <b>hmac-sha512</b>.
-	 * <p>
-	 * For hashing purpose, we choose the minimum cost algorithm 'hmac-sha1'.
-	 */
-	private static final String X_COSCON_HMAC_HEADER = "X-Coscon-Hmac";
+	private volatile SigningEngine engine;
 
 	/**
 	 * @return the hmacAlgorithm
@@ -71,21 +59,22 @@ public abstract class HmacPureExecutor {
 	protected abstract String getSecretKey();
 
 	/**
-	 * date formatter follows API Gateway rule. RFC822
+	 * Source of <code>X-Coscon-Date</code>, shared by all executors unless
+	 * overridden.
+	 * 
+	 * @return the date header source.
 	 */
-	private static final FastDateFormat X_DATE_FORMATTER = FastDateFormat.getInstance("EEE, dd MMM yyyy HH:mm:ss z",
-			TimeZone.getTimeZone("GMT"), Locale.ENGLISH);
+	protected DateHeaderSource getDateHeaderSource() {
+		return DateHeaderSource.shared();
+	}
 
 	/**
-	 * Internal representation of HmacAlgorithm
+	 * Source of the request nonce, shared by all executors unless overridden.
 	 * 
-	 * @param target
-	 *            {@link SignAlgorithm}
-	 * @return internal representation which sent to API Gateway.
+	 * @return the nonce source.
 	 */
-	protected String getInternalHmacAlgorithm() {
-		return getHmacAlgorithm().getRef();
-
+	protected NonceSource getNonceSource() {
+		return ThreadLocalNonceSource.getInstance();
 	}
 
 	/**
@@ -101,42 +90,45 @@ public abstract class HmacPureExecutor {
 	 * @throws ClientException
 	 */
 	public Map<String, String> buildHmacHeaders(String requestLine, byte[] httpContent) throws ClientException {
-		StringBuilder buf = new StringBuilder();
-		String guid = UUID.randomUUID().toString();
-		String date = "";
-		String encodedSignature = "";
-		String hmacAuth = "";
-		String digest = "";
-		String guidMd5 = DigestUtils.md5Hex(guid);
-
-		date = X_DATE_FORMATTER.format(new Date());
-		
-		/**
-		 * MUST be 'SHA-256' encryption.
-		 */
-		digest = "SHA-256=" + Base64.encodeBase64String(DigestUtils.sha256(httpContent));
-
-		buf.setLength(0);
-		buf.append(X_DATE).append(": ").append(date);
-		buf.append("\n").append(X_DIGEST).append(": ").append(digest);
-		buf.append("\n").append(X_CONTENT_MD5).append(": ").append(guidMd5);
-		buf.append("\n").append(requestLine);
-		encodedSignature = Base64.encodeBase64String(
-				HmacShaUtil.signature(getHmacAlgorithm().getAlgorithm(), buf.toString(), getSecretKey()));
-		buf.setLength(0);
-		buf.append("hmac username=\"").append(getApiKey())
-				.append("\",algorithm=\"" + getInternalHmacAlgorithm() + "\",headers=\"").append(X_DATE).append(" ")
-				.append(X_DIGEST).append(" ").append(X_CONTENT_MD5).append(" ").append(REQUEST_LINE)
-				.append("\",signature=\"").append(encodedSignature).append("\"");
+		return buildHmacHeaders(requestLine, ContentDigest.of(httpContent));
+	}
 
-		hmacAuth = buf.toString();
+	/**
+	 * Builds HMAC authentication key-value pairs with a digest computed by the
+	 * caller, usually from the bytes or stream a request body already holds.
+	 * 
+	 * @param requestLine
+	 * @param contentDigest
+	 *            digest of content before perform content gzip/deflate.
+	 * @return hmac k/v pairs.
+	 * @throws ClientException
+	 */
+	public Map<String, String> buildHmacHeaders(String requestLine, ContentDigest contentDigest)
+			throws ClientException {
+		return getSigningEngine().sign(requestLine, contentDigest).toMap();
+	}
 
-		Map<String, String> headers = new HashMap<>();
-		headers.put(X_DATE, date);
-		headers.put(X_DIGEST, digest);
-		headers.put(X_CONTENT_MD5, guidMd5);
-		headers.put(X_AUTHORIZATION, hmacAuth);
-		headers.put(X_COSCON_HMAC_HEADER, guidMd5);
-		return headers;
+	/**
+	 * Engine of the current keys and sources, shared through
+	 * {@link SigningEngine#of(String, String, SignAlgorithm)} with the default
+	 * sources and otherwise kept by this executor until its keys change.
+	 * 
+	 * @return the signing engine.
+	 */
+	protected SigningEngine getSigningEngine() {
+		String apiKey = getApiKey();
+		String secretKey = getSecretKey();
+		SignAlgorithm algorithm = getHmacAlgorithm();
+		DateHeaderSource dateHeaderSource = getDateHeaderSource();
+		NonceSource nonceSource = getNonceSource();
+		if (dateHeaderSource == DateHeaderSource.shared() && nonceSource == ThreadLocalNonceSource.getInstance()) {
+			return SigningEngine.of(apiKey, secretKey, algorithm);
+		}
+		SigningEngine current = engine;
+		if (current == null || !current.signsWith(apiKey, secretKey, algorithm, dateHeaderSource, nonceSource)) {
+			current = new SigningEngine(apiKey, secretKey, algorithm, dateHeaderSource, nonceSource);
+			engine = current;
+		}
+		return current;
 	}
 }
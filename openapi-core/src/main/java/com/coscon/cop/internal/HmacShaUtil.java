@@ -20,7 +20,6 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 
 import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 
 import org.apache.commons.codec.binary.Hex;
 
@@ -51,10 +50,12 @@ public class HmacShaUtil {
 	public static byte[] signature(String hmacAlgorithm, String data, String key) throws ClientException {
 		try {
 			SignAlgorithm algo = SignAlgorithm.validate(hmacAlgorithm);
-			SecretKeySpec signingKey = new SecretKeySpec(key.getBytes(), algo.getAlgorithm());
-			Mac mac = Mac.getInstance(algo.getAlgorithm());
-			mac.init(signingKey);
-			return mac.doFinal(data.getBytes());
+			Mac mac = MacCache.acquire(algo, key);
+			try {
+				return mac.doFinal(data.getBytes());
+			} finally {
+				MacCache.release(algo, key, mac);
+			}
 		} catch (NoSuchAlgorithmException | InvalidKeyException e) {
 			throw new ClientException(e.getMessage(), e);
 		}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.coscon.cop.core.SignAlgorithm;
+
+/**
+ * Cache of initialized {@link Mac} engines, keyed by algorithm and secret key,
+ * for {@link HmacShaUtil} callers signing with a raw secret key. Request
+ * signing keeps its engines in the {@link SigningEngine} of the credentials
+ * instead, they are collected with the credentials.
+ * <p>
+ * Looking up a JCA provider and initializing the key costs more than the HMAC
+ * itself for the short signing strings of COP, so every thread keeps one
+ * initialized engine per (algorithm, secretKey) pair and resets it before each
+ * use. Virtual threads share pooled engines instead, see
+ * {@link ThreadLocalPool}. At most {@link #MAX_KEYS} secret keys are kept per
+ * algorithm. Callers evict the entries of a secret key through
+ * {@link #evict(String)}, an engine released after the eviction is dropped.
+ * Entries are evicted per algorithm when its provider changes in
+ * {@link CryptoProviders}.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class MacCache {
+	/**
+	 * Secret keys cached per algorithm, beyond it another key is evicted.
+	 */
+	static final int MAX_KEYS = 256;
+
+	private static final Map<SignAlgorithm, ConcurrentHashMap<String, ThreadLocalPool<Mac>>> CACHES;
+	static {
+		CACHES = new EnumMap<>(SignAlgorithm.class);
+		for (SignAlgorithm algorithm : SignAlgorithm.values()) {
+			CACHES.put(algorithm, new ConcurrentHashMap<>());
+		}
+	}
+
+	private MacCache() {
+	}
+
+	/**
+	 * Acquire an initialized {@link Mac} for the calling thread.
+	 * <p>
+	 * The returned instance is confined to the calling thread and must not be
+	 * shared or retained beyond the current signing operation, at the end of
+	 * which it is handed back through {@link #release(SignAlgorithm, String, Mac)}.
+	 * 
+	 * @param algorithm
+	 *            hmac algorithm
+	 * @param secretKey
+	 *            the secret key
+	 * @return a reset {@link Mac} initialized with the secret key.
+	 * @throws NoSuchAlgorithmException
+	 * @throws InvalidKeyException
+	 */
+	public static Mac acquire(SignAlgorithm algorithm, String secretKey)
+			throws NoSuchAlgorithmException, InvalidKeyException {
+		Objects.requireNonNull(algorithm, "algorithm may not be null");
+		Objects.requireNonNull(secretKey, "secretKey may not be null");
+		ConcurrentHashMap<String, ThreadLocalPool<Mac>> cache = CACHES.get(algorithm);
+		ThreadLocalPool<Mac> holder = cache.get(secretKey);
+		if (holder == null) {
+			ThreadLocalPool<Mac> created = new ThreadLocalPool<>(null);
+			holder = cache.putIfAbsent(secretKey, created);
+			if (holder == null) {
+				holder = created;
+				trim(cache, secretKey);
+			}
+		}
+		Mac mac = holder.acquire();
+		if (mac == null) {
+			mac = CryptoProviders.newMac(algorithm);
+			mac.init(new SecretKeySpec(secretKey.getBytes(), algorithm.getAlgorithm()));
+			holder.adopt(mac);
+		} else {
+			mac.reset();
+		}
+		return mac;
+	}
+
+	/**
+	 * Ends the signing operation of the calling thread, a virtual thread hands
+	 * the engine back unless it was evicted meanwhile.
+	 * 
+	 * @param mac
+	 *            engine of {@link #acquire(SignAlgorithm, String)},
+	 *            <code>null</code> if it failed.
+	 */
+	public static void release(SignAlgorithm algorithm, String secretKey, Mac mac) {
+		if (mac == null) {
+			return;
+		}
+		ThreadLocalPool<Mac> holder = CACHES.get(algorithm).get(secretKey);
+		if (holder != null) {
+			holder.release(mac);
+		}
+	}
+
+	/**
+	 * Keeps the cache within {@link #MAX_KEYS}, evicting keys other than the
+	 * one just added.
+	 */
+	private static void trim(ConcurrentHashMap<String, ThreadLocalPool<Mac>> cache, String added) {
+		Iterator<String> keys = cache.keySet().iterator();
+		while (cache.size() > MAX_KEYS && keys.hasNext()) {
+			if (!keys.next().equals(added)) {
+				keys.remove();
+			}
+		}
+	}
+
+	/**
+	 * Evict cached engines of all algorithms for a secret key.
+	 * 
+	 * @param secretKey
+	 *            the secret key
+	 */
+	public static void evict(String secretKey) {
+		if (secretKey == null) {
+			return;
+		}
+		for (ConcurrentHashMap<String, ThreadLocalPool<Mac>> cache : CACHES.values()) {
+			cache.remove(secretKey);
+		}
+	}
+
+	/**
+	 * Evict all cached engines.
+	 */
+	public static void clear() {
+		for (ConcurrentHashMap<String, ThreadLocalPool<Mac>> cache : CACHES.values()) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Evict cached engines of an algorithm.
+	 */
+	static void clear(SignAlgorithm algorithm) {
+		CACHES.get(algorithm).clear();
+	}
+
+	/**
+	 * @return number of secret keys cached for the algorithm.
+	 */
+	static int size(SignAlgorithm algorithm) {
+		return CACHES.get(algorithm).size();
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.EndpointRegistry;
+import com.coscon.cop.core.Namespace;
+
+/**
+ * Matches request URLs against the base urls of the endpoints in
+ * {@link EndpointRegistry}, the prefixes of all {@link Namespace}s and the
+ * endpoints registered at runtime.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class NamespaceMatcher {
+
+	private NamespaceMatcher() {
+	}
+
+	private static Namespace namespaceOf(Endpoint endpoint) {
+		return endpoint == null ? null : endpoint.getNamespace();
+	}
+
+	/**
+	 * @param url
+	 *            the url
+	 * @return namespace of the endpoint whose base url the url starts with,
+	 *         case insensitive, <code>null</code> if none.
+	 */
+	public static Namespace match(CharSequence url) {
+		return namespaceOf(EndpointRegistry.match(url));
+	}
+
+	/**
+	 * @param port
+	 *            <code>-1</code> for the default port of the scheme.
+	 * @return namespace of the parsed url, <code>null</code> if none.
+	 * @see EndpointIndex#lookup(String, String, int, CharSequence)
+	 */
+	public static Namespace match(String scheme, String host, int port, CharSequence encodedPath) {
+		return namespaceOf(EndpointRegistry.match(scheme, host, port, encodedPath));
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * UTF-8 encoded JSON request payload together with its {@link ContentDigest}.
+ * <p>
+ * Build a payload once and pass it to
+ * {@link CopClientBase#doPost(com.coscon.cop.core.Namespace, String, Payload, java.util.Map)}
+ * as often as needed, e.g. the same search body sent in every polling cycle,
+ * the payload is neither encoded nor digested again.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class Payload implements DigestedContent {
+	private final byte[] content;
+	private final ContentDigest contentDigest;
+
+	private Payload(byte[] content, ContentDigest contentDigest) {
+		super();
+		this.content = content;
+		this.contentDigest = contentDigest;
+	}
+
+	/**
+	 * @param json
+	 *            the JSON payload
+	 * @return payload with its digest computed once.
+	 */
+	public static Payload of(String json) {
+		return of(Objects.requireNonNull(json, "payload may not be null").getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @param content
+	 *            UTF-8 encoded JSON, must not be modified afterwards.
+	 * @return payload with its digest computed once.
+	 */
+	public static Payload of(byte[] content) {
+		Objects.requireNonNull(content, "payload may not be null");
+		return new Payload(content, ContentDigest.of(content));
+	}
+
+	/**
+	 * @param content
+	 *            UTF-8 encoded JSON, must not be modified afterwards.
+	 * @param contentDigest
+	 *            digest of the content, precomputed by the caller.
+	 * @return payload which trusts the given digest.
+	 */
+	public static Payload of(byte[] content, ContentDigest contentDigest) {
+		return new Payload(Objects.requireNonNull(content, "payload may not be null"),
+				Objects.requireNonNull(contentDigest, "contentDigest may not be null"));
+	}
+
+	/**
+	 * @return the encoded content, callers must not modify it.
+	 */
+	public byte[] getContent() {
+		return content;
+	}
+
+	@Override
+	public ContentDigest getContentDigest() {
+		return contentDigest;
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable, case-insensitive prefix trie over URLs, e.g. scheme, host and
+ * path of the COP namespaces.
+ * <p>
+ * {@link #match(CharSequence)} walks the characters of the given URL in place
+ * and returns the value of the longest matching prefix, it does not allocate.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ * @param <T>
+ *            type of values
+ */
+public final class PrefixTrie<T> {
+	private static final char[] NO_KEYS = new char[0];
+
+	private static final class Node<T> {
+		/**
+		 * sorted, lower case.
+		 */
+		private char[] keys = NO_KEYS;
+		private Node<T>[] children;
+		private T value;
+
+		private Node<T> child(char key) {
+			int index = Arrays.binarySearch(keys, key);
+			return index < 0 ? null : children[index];
+		}
+
+		@SuppressWarnings("unchecked")
+		private Node<T> getOrAddChild(char key) {
+			int index = Arrays.binarySearch(keys, key);
+			if (index >= 0) {
+				return children[index];
+			}
+			int insertAt = -index - 1;
+			char[] newKeys = new char[keys.length + 1];
+			Node<T>[] newChildren = new Node[keys.length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, insertAt);
+			System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+			if (children != null) {
+				System.arraycopy(children, 0, newChildren, 0, insertAt);
+				System.arraycopy(children, insertAt, newChildren, insertAt + 1, keys.length - insertAt);
+			}
+			Node<T> child = new Node<>();
+			newKeys[insertAt] = key;
+			newChildren[insertAt] = child;
+			keys = newKeys;
+			children = newChildren;
+			return child;
+		}
+	}
+
+	private final Node<T> root = new Node<>();
+	private final int size;
+
+	/**
+	 * @param prefixes
+	 *            value of each prefix, prefixes are case insensitive.
+	 */
+	public PrefixTrie(Map<String, ? extends T> prefixes) {
+		super();
+		Objects.requireNonNull(prefixes, "prefixes may not be null");
+		for (Map.Entry<String, ? extends T> entry : prefixes.entrySet()) {
+			String prefix = Objects.requireNonNull(entry.getKey(), "prefix may not be null");
+			Node<T> node = root;
+			for (int i = 0; i < prefix.length(); i++) {
+				node = node.getOrAddChild(fold(prefix.charAt(i)));
+			}
+			node.value = Objects.requireNonNull(entry.getValue(), "value may not be null");
+		}
+		this.size = prefixes.size();
+	}
+
+	private static char fold(char c) {
+		if (c < 0x80) {
+			return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+		}
+		return Character.toLowerCase(c);
+	}
+
+	/**
+	 * @param url
+	 *            the url
+	 * @return value of the longest prefix of the url, <code>null</code> if none
+	 *         matches.
+	 */
+	public T match(CharSequence url) {
+		Objects.requireNonNull(url, "url may not be null");
+		Node<T> node = root;
+		T matched = node.value;
+		for (int i = 0, length = url.length(); i < length; i++) {
+			node = node.child(fold(url.charAt(i)));
+			if (node == null) {
+				break;
+			}
+			if (node.value != null) {
+				matched = node.value;
+			}
+		}
+		return matched;
+	}
+
+	/**
+	 * @return number of prefixes.
+	 */
+	public int size() {
+		return size;
+	}
+}
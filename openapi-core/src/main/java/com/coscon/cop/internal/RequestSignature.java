@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable result of {@link SigningEngine#sign(String, ContentDigest)}, the
+ * HMAC authentication headers of one request.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class RequestSignature {
+	private final String date;
+	private final String digest;
+	private final String nonce;
+	private final String authorization;
+
+	RequestSignature(String date, String digest, String nonce, String authorization) {
+		super();
+		this.date = date;
+		this.digest = digest;
+		this.nonce = nonce;
+		this.authorization = authorization;
+	}
+
+	/**
+	 * @return value of <code>X-Coscon-Date</code>
+	 */
+	public String getDate() {
+		return date;
+	}
+
+	/**
+	 * @return value of <code>X-Coscon-Digest</code>
+	 */
+	public String getDigest() {
+		return digest;
+	}
+
+	/**
+	 * @return value of <code>X-Coscon-Content-Md5</code> and
+	 *         <code>X-Coscon-Hmac</code>
+	 */
+	public String getNonce() {
+		return nonce;
+	}
+
+	/**
+	 * @return value of <code>X-Coscon-Authorization</code>
+	 */
+	public String getAuthorization() {
+		return authorization;
+	}
+
+	/**
+	 * Apply all signature headers.
+	 * 
+	 * @param sink
+	 *            request or request builder of the transport.
+	 */
+	public void writeTo(HeaderSink sink) {
+		sink.setHeader(SigningEngine.X_DATE, date);
+		sink.setHeader(SigningEngine.X_DIGEST, digest);
+		sink.setHeader(SigningEngine.X_CONTENT_MD5, nonce);
+		sink.setHeader(SigningEngine.X_AUTHORIZATION, authorization);
+		sink.setHeader(SigningEngine.X_HMAC, nonce);
+	}
+
+	/**
+	 * @return signature headers as a new map.
+	 */
+	public Map<String, String> toMap() {
+		Map<String, String> headers = new HashMap<>();
+		writeTo(headers::put);
+		return headers;
+	}
+
+	@Override
+	public String toString() {
+		return "RequestSignature [date=" + date + ", digest=" + digest + ", nonce=" + nonce + "]";
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.util.Objects;
+
+/**
+ * Request line and content digest of one request in a batch handed to
+ * {@link SigningEngine#signAll(java.util.List)}.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class RequestToSign {
+	private final String requestLine;
+	private final ContentDigest contentDigest;
+
+	/**
+	 * @param requestLine
+	 *            e.g. <code>GET /service/info/tracking/1?numberType=bl HTTP/1.1</code>
+	 * @param contentDigest
+	 *            digest of content before perform content gzip/deflate.
+	 */
+	public RequestToSign(String requestLine, ContentDigest contentDigest) {
+		super();
+		this.requestLine = Objects.requireNonNull(requestLine, "requestLine may not be null");
+		this.contentDigest = Objects.requireNonNull(contentDigest, "contentDigest may not be null");
+	}
+
+	/**
+	 * @return the requestLine
+	 */
+	public String getRequestLine() {
+		return requestLine;
+	}
+
+	/**
+	 * @return the contentDigest
+	 */
+	public ContentDigest getContentDigest() {
+		return contentDigest;
+	}
+
+	@Override
+	public String toString() {
+		return "RequestToSign [requestLine=" + requestLine + ", contentDigest=" + contentDigest + "]";
+	}
+}
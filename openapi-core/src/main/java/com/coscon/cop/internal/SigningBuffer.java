@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+
+/**
+ * Reusable per-thread byte buffer to assemble signing strings and header
+ * values without intermediate {@link String}/{@link StringBuilder} garbage.
+ * <p>
+ * The buffer is confined to the calling thread, obtain it through
+ * {@link #get()} at the beginning of each signing operation and
+ * {@link #release()} it at the end.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+final class SigningBuffer {
+	private static final ThreadLocalPool<SigningBuffer> POOL = new ThreadLocalPool<>(SigningBuffer::new);
+
+	private static final byte[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+			.getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Large enough for the output of HmacSHA512.
+	 */
+	private final byte[] macOutput = new byte[64];
+
+	private byte[] bytes = new byte[512];
+	private int length;
+
+	private SigningBuffer() {
+	}
+
+	/**
+	 * @return the empty buffer of calling thread.
+	 */
+	static SigningBuffer get() {
+		SigningBuffer buffer = POOL.acquire();
+		buffer.length = 0;
+		return buffer;
+	}
+
+	/**
+	 * Ends the signing operation, a virtual thread hands the buffer back.
+	 */
+	void release() {
+		POOL.release(this);
+	}
+
+	/**
+	 * Pre-encode a constant fragment once.
+	 */
+	static byte[] encode(String fragment) {
+		return fragment.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	void reset() {
+		length = 0;
+	}
+
+	int length() {
+		return length;
+	}
+
+	SigningBuffer append(byte[] fragment) {
+		ensureCapacity(fragment.length);
+		System.arraycopy(fragment, 0, bytes, length, fragment.length);
+		length += fragment.length;
+		return this;
+	}
+
+	/**
+	 * Append a string, plain ASCII is copied char by char, otherwise it falls
+	 * back to the platform charset just like {@link String#getBytes()}.
+	 */
+	SigningBuffer append(String value) {
+		int count = value.length();
+		ensureCapacity(count);
+		int pos = length;
+		for (int i = 0; i < count; i++) {
+			char c = value.charAt(i);
+			if (c >= 0x80) {
+				return append(value.getBytes());
+			}
+			bytes[pos++] = (byte) c;
+		}
+		length = pos;
+		return this;
+	}
+
+	/**
+	 * Append standard base64 (with padding) of <code>src[0, len)</code>.
+	 */
+	SigningBuffer appendBase64(byte[] src, int len) {
+		ensureCapacity((len + 2) / 3 * 4);
+		length = encodeBase64(src, len, bytes, length);
+		return this;
+	}
+
+	/**
+	 * Base64 of the first <code>len</code> bytes of <code>src</code> into
+	 * <code>dst</code>, which must hold <code>(len + 2) / 3 * 4</code> more
+	 * bytes from <code>pos</code>.
+	 * 
+	 * @return the position after the encoded bytes.
+	 */
+	static int encodeBase64(byte[] src, int len, byte[] dst, int pos) {
+		int i = 0;
+		for (; i + 2 < len; i += 3) {
+			int bits = (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8 | (src[i + 2] & 0xff);
+			dst[pos++] = BASE64[bits >>> 18];
+			dst[pos++] = BASE64[(bits >>> 12) & 0x3f];
+			dst[pos++] = BASE64[(bits >>> 6) & 0x3f];
+			dst[pos++] = BASE64[bits & 0x3f];
+		}
+		int remaining = len - i;
+		if (remaining > 0) {
+			int bits = (src[i] & 0xff) << 16 | (remaining == 2 ? (src[i + 1] & 0xff) << 8 : 0);
+			dst[pos++] = BASE64[bits >>> 18];
+			dst[pos++] = BASE64[(bits >>> 12) & 0x3f];
+			dst[pos++] = remaining == 2 ? BASE64[(bits >>> 6) & 0x3f] : (byte) '=';
+			dst[pos++] = '=';
+		}
+		return pos;
+	}
+
+	/**
+	 * Feed the buffered bytes to the mac, the output is kept in a reusable
+	 * array.
+	 * 
+	 * @return the mac output, valid for the first {@link Mac#getMacLength()}
+	 *         bytes.
+	 */
+	byte[] sign(Mac mac) throws ShortBufferException {
+		mac.update(bytes, 0, length);
+		mac.doFinal(macOutput, 0);
+		return macOutput;
+	}
+
+	/**
+	 * @return copy of the buffered bytes.
+	 */
+	byte[] toByteArray() {
+		return Arrays.copyOf(bytes, length);
+	}
+
+	/**
+	 * @return ASCII string of <code>[from, to)</code>.
+	 */
+	String toString(int from, int to) {
+		return new String(bytes, from, to - from, StandardCharsets.ISO_8859_1);
+	}
+
+	@Override
+	public String toString() {
+		return toString(0, length);
+	}
+
+	private void ensureCapacity(int extra) {
+		if (length + extra > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, length + extra));
+		}
+	}
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.Credentials;
+import com.coscon.cop.core.SignAlgorithm;
+
+/**
+ * Thread-safe HMAC signing engine of one apiKey/secretKey pair and
+ * {@link SignAlgorithm}, shared by all transports.
+ * <p>
+ * An engine is created once per credentials and algorithm and reused for every
+ * request: the constant part of <code>X-Coscon-Authorization</code> is
+ * pre-encoded, the signing string is assembled in a per-thread buffer and fed
+ * to a {@link Mac} initialized once per thread. The engine holds its
+ * {@link Mac}s itself, they are collected with the engine and its
+ * credentials.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class SigningEngine {
+	public static final String X_DATE = "X-Coscon-Date";
+	public static final String X_CONTENT_MD5 = "X-Coscon-Content-Md5";
+	public static final String X_AUTHORIZATION = "X-Coscon-Authorization";
+	public static final String X_DIGEST = "X-Coscon-Digest";
+	public static final String X_HMAC = "X-Coscon-Hmac";
+
+	public static final String REQUEST_LINE = "request-line";
+
+	private static final byte[] SIGNING_DATE = SigningBuffer.encode(X_DATE + ": ");
+	private static final byte[] SIGNING_DIGEST = SigningBuffer.encode("\n" + X_DIGEST + ": ");
+	private static final byte[] SIGNING_CONTENT_MD5 = SigningBuffer.encode("\n" + X_CONTENT_MD5 + ": ");
+	private static final byte[] SIGNING_REQUEST_LINE = SigningBuffer.encode("\n");
+	private static final byte[] AUTH_END = SigningBuffer.encode("\"");
+
+	/**
+	 * Requests signed by one fork/join leaf, large enough to amortise the task
+	 * overhead over a few hundred microseconds of signing.
+	 */
+	static final int BATCH_THRESHOLD = 128;
+
+	/**
+	 * Shared engines kept by {@link #of(String, String, SignAlgorithm)}, beyond
+	 * it another engine is evicted.
+	 */
+	static final int MAX_SHARED = 256;
+
+	private static final ConcurrentHashMap<Key, SigningEngine> SHARED = new ConcurrentHashMap<>();
+
+	private final String apiKey;
+	private final String secretKey;
+	private final SignAlgorithm algorithm;
+	private final DateHeaderSource dateHeaderSource;
+	private final NonceSource nonceSource;
+
+	/**
+	 * <code>hmac username="..",algorithm="..",headers="..",signature="</code>
+	 */
+	private final byte[] authorizationPrefix;
+
+	private final ThreadLocalPool<Mac> macs = new ThreadLocalPool<>(null);
+
+	public SigningEngine(Credentials credentials, SignAlgorithm algorithm) {
+		this(Objects.requireNonNull(credentials, "credentials may not be null").getPrincipal().getName(),
+				credentials.getPassword(), algorithm);
+	}
+
+	public SigningEngine(String apiKey, String secretKey, SignAlgorithm algorithm) {
+		this(apiKey, secretKey, algorithm, DateHeaderSource.shared(), ThreadLocalNonceSource.getInstance());
+	}
+
+	public SigningEngine(String apiKey, String secretKey, SignAlgorithm algorithm, DateHeaderSource dateHeaderSource,
+			NonceSource nonceSource) {
+		super();
+		this.apiKey = Objects.requireNonNull(apiKey, "apiKey may not be null");
+		this.secretKey = Objects.requireNonNull(secretKey, "secretKey may not be null");
+		this.algorithm = Objects.requireNonNull(algorithm, "algorithm may not be null");
+		this.dateHeaderSource = Objects.requireNonNull(dateHeaderSource, "dateHeaderSource may not be null");
+		this.nonceSource = Objects.requireNonNull(nonceSource, "nonceSource may not be null");
+		SigningBuffer buffer = SigningBuffer.get();
+		try {
+			this.authorizationPrefix = buffer.append("hmac username=\"").append(apiKey)
+					.append("\",algorithm=\"").append(algorithm.getRef())
+					.append("\",headers=\"" + X_DATE + " " + X_DIGEST + " " + X_CONTENT_MD5 + " " + REQUEST_LINE
+							+ "\",signature=\"")
+					.toByteArray();
+		} finally {
+			buffer.release();
+		}
+	}
+
+	/**
+	 * Engine of the given credentials, shared by every caller signing with the
+	 * same apiKey, secretKey and algorithm, for credentials which do not hold
+	 * their own engine like {@link UsernamePasswordCredentials} does.
+	 * 
+	 * @param credentials
+	 *            credentials to sign with.
+	 * @param algorithm
+	 *            signing algorithm.
+	 * @return the shared engine.
+	 */
+	public static SigningEngine of(Credentials credentials, SignAlgorithm algorithm) {
+		Objects.requireNonNull(credentials, "credentials may not be null");
+		return of(credentials.getPrincipal().getName(), credentials.getPassword(), algorithm);
+	}
+
+	/**
+	 * Engine shared by every caller signing with the same apiKey, secretKey and
+	 * algorithm with the default date and nonce sources. At most
+	 * {@link #MAX_SHARED} engines are kept, engines of removed credentials are
+	 * dropped through {@link #evict(String)}.
+	 * 
+	 * @param apiKey
+	 *            the apiKey
+	 * @param secretKey
+	 *            the secretKey
+	 * @param algorithm
+	 *            signing algorithm.
+	 * @return the shared engine.
+	 */
+	public static SigningEngine of(String apiKey, String secretKey, SignAlgorithm algorithm) {
+		Key key = new Key(apiKey, secretKey, algorithm);
+		SigningEngine engine = SHARED.get(key);
+		if (engine == null) {
+			SigningEngine created = new SigningEngine(apiKey, secretKey, algorithm);
+			engine = SHARED.putIfAbsent(key, created);
+			if (engine == null) {
+				engine = created;
+				trim(key);
+			}
+		}
+		return engine;
+	}
+
+	/**
+	 * Keeps the shared engines within {@link #MAX_SHARED}, evicting engines
+	 * other than the one just added.
+	 */
+	private static void trim(Key added) {
+		Iterator<Key> keys = SHARED.keySet().iterator();
+		while (SHARED.size() > MAX_SHARED && keys.hasNext()) {
+			if (!keys.next().equals(added)) {
+				keys.remove();
+			}
+		}
+	}
+
+	/**
+	 * Drops the shared engines of a secret key once its credentials are
+	 * removed, callers still holding one finish signing with it.
+	 * 
+	 * @param secretKey
+	 *            the secretKey
+	 */
+	public static void evict(String secretKey) {
+		Objects.requireNonNull(secretKey, "secretKey may not be null");
+		SHARED.keySet().removeIf(key -> key.secretKey.equals(secretKey));
+	}
+
+	/**
+	 * @return number of shared engines.
+	 */
+	static int sharedSize() {
+		return SHARED.size();
+	}
+
+	/**
+	 * @return <code>true</code> if this engine signs with exactly these keys
+	 *         and sources.
+	 */
+	boolean signsWith(String apiKey, String secretKey, SignAlgorithm algorithm, DateHeaderSource dateHeaderSource,
+			NonceSource nonceSource) {
+		return this.apiKey.equals(apiKey) && this.secretKey.equals(secretKey) && this.algorithm == algorithm
+				&& this.dateHeaderSource == dateHeaderSource && this.nonceSource == nonceSource;
+	}
+
+	/**
+	 * @return the apiKey
+	 */
+	public String getApiKey() {
+		return apiKey;
+	}
+
+	/**
+	 * @return the algorithm
+	 */
+	public SignAlgorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * Builds HMAC authentication headers.
+	 * <p>
+	 * To secure the COP transporation, the headers shoud be added to the
+	 * request through {@link RequestSignature#writeTo(HeaderSink)}.
+	 * 
+	 * @param requestLine
+	 *            e.g. <code>GET /service/info/tracking/1?numberType=bl HTTP/1.1</code>
+	 * @param contentDigest
+	 *            digest of content before perform content gzip/deflate.
+	 * @return the signature headers.
+	 * @throws ClientException
+	 */
+	public RequestSignature sign(String requestLine, ContentDigest contentDigest) throws ClientException {
+		Objects.requireNonNull(requestLine, "requestLine may not be null");
+		String nonce = nonceSource.nextNonce();
+		String date = dateHeaderSource.currentValue();
+		String digest = Objects.requireNonNull(contentDigest, "contentDigest may not be null").getHeaderValue();
+		SigningBuffer buf = SigningBuffer.get();
+
+		buf.append(SIGNING_DATE).append(date);
+		buf.append(SIGNING_DIGEST).append(digest);
+		buf.append(SIGNING_CONTENT_MD5).append(nonce);
+		buf.append(SIGNING_REQUEST_LINE).append(requestLine);
+
+		String authorization;
+		Mac mac = null;
+		try {
+			mac = acquireMac();
+			byte[] signature = buf.sign(mac);
+			buf.reset();
+			buf.append(authorizationPrefix).appendBase64(signature, mac.getMacLength()).append(AUTH_END);
+			authorization = buf.toString();
+		} catch (GeneralSecurityException e) {
+			throw new ClientException(e.getMessage(), e);
+		} finally {
+			macs.release(mac);
+			buf.release();
+		}
+
+		return new RequestSignature(date, digest, nonce, authorization);
+	}
+
+	/**
+	 * @return a reset {@link Mac} of the calling thread, initialized again
+	 *         when the provider of the algorithm changed.
+	 */
+	private Mac acquireMac() throws GeneralSecurityException {
+		Mac mac = macs.acquire();
+		if (mac != null && mac.getProvider() == CryptoProviders.getMacProvider(algorithm)) {
+			mac.reset();
+			return mac;
+		}
+		mac = CryptoProviders.newMac(algorithm);
+		mac.init(new SecretKeySpec(secretKey.getBytes(), algorithm.getAlgorithm()));
+		return macs.adopt(mac);
+	}
+
+	/**
+	 * Signs a batch of requests across the {@link ForkJoinPool#commonPool()}.
+	 * 
+	 * @see #signAll(List, ForkJoinPool)
+	 */
+	public List<RequestSignature> signAll(List<RequestToSign> requests) throws ClientException {
+		return signAll(requests, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Signs a batch of requests across the given pool. Every worker reuses its
+	 * own {@link Mac}, signing buffer and nonce buffer, the date header is
+	 * shared by the whole batch.
+	 * <p>
+	 * <code>X-Coscon-Date</code> is checked by the gateway, dispatch the signed
+	 * requests shortly afterwards.
+	 * 
+	 * @param requests
+	 *            requests to sign.
+	 * @param pool
+	 *            pool to sign on, small batches are signed by the calling
+	 *            thread.
+	 * @return signatures in the order of <code>requests</code>.
+	 * @throws ClientException
+	 *             when any request fails to be signed.
+	 */
+	public List<RequestSignature> signAll(List<RequestToSign> requests, ForkJoinPool pool) throws ClientException {
+		Objects.requireNonNull(requests, "requests may not be null");
+		Objects.requireNonNull(pool, "pool may not be null");
+		RequestToSign[] batch = requests.toArray(new RequestToSign[0]);
+		RequestSignature[] signatures = new RequestSignature[batch.length];
+		if (batch.length <= BATCH_THRESHOLD || pool.getParallelism() <= 1) {
+			signRange(batch, signatures, 0, batch.length);
+		} else {
+			try {
+				pool.invoke(new BatchSigningTask(batch, signatures, 0, batch.length));
+			} catch (CompletionException e) {
+				// fork/join may rethrow a copy of the exception, look for the cause.
+				for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+					if (cause instanceof ClientException) {
+						throw (ClientException) cause;
+					}
+				}
+				throw e;
+			}
+		}
+		return Arrays.asList(signatures);
+	}
+
+	private void signRange(RequestToSign[] batch, RequestSignature[] signatures, int from, int to)
+			throws ClientException {
+		for (int i = from; i < to; i++) {
+			signatures[i] = sign(batch[i].getRequestLine(), batch[i].getContentDigest());
+		}
+	}
+
+	private final class BatchSigningTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final RequestToSign[] batch;
+		private final RequestSignature[] signatures;
+		private final int from;
+		private final int to;
+
+		BatchSigningTask(RequestToSign[] batch, RequestSignature[] signatures, int from, int to) {
+			super();
+			this.batch = batch;
+			this.signatures = signatures;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= BATCH_THRESHOLD) {
+				try {
+					signRange(batch, signatures, from, to);
+				} catch (ClientException e) {
+					throw new CompletionException(e);
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new BatchSigningTask(batch, signatures, from, middle),
+						new BatchSigningTask(batch, signatures, middle, to));
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SigningEngine [apiKey=" + apiKey + ", algorithm=" + algorithm + "]";
+	}
+
+	private static final class Key {
+		private final String apiKey;
+		private final String secretKey;
+		private final SignAlgorithm algorithm;
+
+		Key(String apiKey, String secretKey, SignAlgorithm algorithm) {
+			this.apiKey = Objects.requireNonNull(apiKey, "apiKey may not be null");
+			this.secretKey = Objects.requireNonNull(secretKey, "secretKey may not be null");
+			this.algorithm = Objects.requireNonNull(algorithm, "algorithm may not be null");
+		}
+
+		@Override
+		public int hashCode() {
+			return (apiKey.hashCode() * 31 + secretKey.hashCode()) * 31 + algorithm.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return algorithm == other.algorithm && apiKey.equals(other.apiKey) && secretKey.equals(other.secretKey);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.io.IOException;
+
+import com.coscon.cop.core.Validator;
+
+/**
+ * {@link Validator} which verifies the response body as it is streamed to the
+ * application, the transports do not buffer the body for it.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public interface StreamingValidator extends Validator {
+	/**
+	 * Starts validating a successful response.
+	 * 
+	 * @param headers
+	 *            headers of the response.
+	 * @return verifier fed with the body.
+	 * @throws IOException
+	 *             when the response fails validation from its headers alone.
+	 */
+	BodyVerifier begin(HeaderSource headers) throws IOException;
+
+	/**
+	 * A streaming validator only validates through
+	 * {@link #begin(HeaderSource)}.
+	 */
+	@Override
+	default boolean validate(Object response) throws IOException {
+		throw new IOException("Streaming validator must be applied to the response body: " + this);
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.util.Map;
+
+import com.coscon.cop.core.Credentials;
+import com.coscon.cop.core.Namespace;
+
+/**
+ * Loads the credentials of a tenant not yet held by a
+ * {@link TenantCredentialsProvider}, e.g. from a database or a secret store.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+@FunctionalInterface
+public interface TenantCredentialsLoader {
+	/**
+	 * Invoked outside of any lock, once for concurrent requests of one cold
+	 * tenant, the other requests wait for its result or failure.
+	 * 
+	 * @param tenantId
+	 *            the tenant.
+	 * @return credentials of the tenant by namespace, <code>null</code> or empty
+	 *         if the tenant is unknown.
+	 */
+	Map<Namespace, Credentials> load(String tenantId);
+}
@@ -0,0 +1,484 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.coscon.cop.core.Credentials;
+import com.coscon.cop.core.CredentialsProvider;
+import com.coscon.cop.core.Namespace;
+
+/**
+ * Credentials of many tenants, e.g. thousands of apiKeys, sharing one client
+ * and its connection pool.
+ * <p>
+ * A request is bound to a tenant with the {@link #TENANT_HEADER} extra
+ * header, see {@link CopClientBase#tenantHeaders(String)}, the header is
+ * removed by the signer and never sent. Requests without it are signed with
+ * the credentials set through {@link #setCredentials(Namespace, Credentials)}.
+ * <p>
+ * Lookups take no lock, they read the tenant from a concurrent map and its
+ * credentials from an atomic reference. Tenants are spread over shards,
+ * writers of one shard serialize on its lock. With <code>maxTenants</code> the
+ * least recently used tenants are evicted, together with the signing keys
+ * cached for their secrets: a lookup only stamps the tenant with the epoch of
+ * its shard, each insertion starts a new epoch and evicts a tenant of the
+ * oldest. Tenants not held are loaded through the
+ * {@link TenantCredentialsLoader}, if any, once however many requests miss
+ * them concurrently.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class TenantCredentialsProvider implements CredentialsProvider {
+	/**
+	 * Extra header binding a request to a tenant.
+	 */
+	public static final String TENANT_HEADER = "X-Coscon-Tenant";
+
+	private static final int NAMESPACES = Namespace.values().length;
+
+	/**
+	 * Credentials of one tenant, indexed by {@link Namespace#ordinal()}.
+	 */
+	private static final class Tenant {
+		private final AtomicReferenceArray<Credentials> credentials = new AtomicReferenceArray<>(NAMESPACES);
+		/**
+		 * Epoch of the shard when the tenant was last looked up.
+		 */
+		private volatile long lastAccess;
+
+		Tenant() {
+		}
+
+		Tenant(Map<Namespace, Credentials> loaded) {
+			for (Map.Entry<Namespace, Credentials> entry : loaded.entrySet()) {
+				credentials.set(entry.getKey().ordinal(),
+						Objects.requireNonNull(entry.getValue(), "credentials may not be null"));
+			}
+		}
+
+		Credentials get(Namespace ns) {
+			return credentials.get(ns.ordinal());
+		}
+
+		Credentials set(Namespace ns, Credentials value) {
+			return credentials.getAndSet(ns.ordinal(), value);
+		}
+
+		void touch(long epoch) {
+			if (lastAccess != epoch) {
+				lastAccess = epoch;
+			}
+		}
+
+		void evictSigningKeys() {
+			for (int i = 0; i < NAMESPACES; i++) {
+				Credentials value = credentials.get(i);
+				if (value != null) {
+					SigningEngine.evict(value.getPassword());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tenants of one shard, read without lock. Writers hold the lock of the
+	 * shard.
+	 */
+	private static final class Shard {
+		private final ConcurrentHashMap<String, Tenant> tenants = new ConcurrentHashMap<>();
+		/**
+		 * Loads in flight, concurrent misses of a tenant wait for the first.
+		 */
+		private final ConcurrentHashMap<String, CompletableFuture<Tenant>> loading = new ConcurrentHashMap<>();
+		private final int capacity;
+		private volatile long epoch;
+
+		Shard(int capacity) {
+			this.capacity = capacity;
+		}
+
+		Tenant get(String tenantId) {
+			Tenant tenant = tenants.get(tenantId);
+			if (tenant != null && capacity > 0) {
+				tenant.touch(epoch);
+			}
+			return tenant;
+		}
+
+		/**
+		 * Adds a tenant under the lock of the shard, a tenant looked up after
+		 * it is more recent.
+		 */
+		void put(String tenantId, Tenant tenant) {
+			tenant.lastAccess = epoch;
+			tenants.put(tenantId, tenant);
+			epoch = epoch + 1;
+			if (capacity > 0 && tenants.size() > capacity) {
+				evictEldest(tenantId);
+			}
+		}
+
+		/**
+		 * Evicts the tenant of the oldest epoch but the one just added, a scan
+		 * of the shard which only insertions beyond the capacity pay.
+		 */
+		private void evictEldest(String added) {
+			Map.Entry<String, Tenant> eldest = null;
+			for (Map.Entry<String, Tenant> entry : tenants.entrySet()) {
+				if (!entry.getKey().equals(added)
+						&& (eldest == null || entry.getValue().lastAccess < eldest.getValue().lastAccess)) {
+					eldest = entry;
+				}
+			}
+			if (eldest != null && tenants.remove(eldest.getKey(), eldest.getValue())) {
+				eldest.getValue().evictSigningKeys();
+			}
+		}
+	}
+
+	private final BasicCredentialsProvider defaults = new BasicCredentialsProvider();
+	private final Shard[] shards;
+	private final int mask;
+	private final TenantCredentialsLoader loader;
+
+	/**
+	 * Unbounded, without loader.
+	 */
+	public TenantCredentialsProvider() {
+		this(0, null);
+	}
+
+	/**
+	 * @param maxTenants
+	 *            approximate number of tenants held, the least recently used
+	 *            are evicted beyond, <code>0</code> for unbounded.
+	 * @param loader
+	 *            loader of tenants not held, may be <code>null</code>.
+	 */
+	public TenantCredentialsProvider(int maxTenants, TenantCredentialsLoader loader) {
+		this(defaultShards(), maxTenants, loader);
+	}
+
+	TenantCredentialsProvider(int shardCount, int maxTenants, TenantCredentialsLoader loader) {
+		super();
+		if (shardCount <= 0 || Integer.bitCount(shardCount) != 1) {
+			throw new IllegalArgumentException("shardCount must be a power of two:" + shardCount);
+		}
+		if (maxTenants < 0) {
+			throw new IllegalArgumentException("maxTenants may not be negative:" + maxTenants);
+		}
+		int capacity = maxTenants == 0 ? 0 : Math.max(1, (maxTenants + shardCount - 1) / shardCount);
+		this.shards = new Shard[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new Shard(capacity);
+		}
+		this.mask = shardCount - 1;
+		this.loader = loader;
+	}
+
+	private static int defaultShards() {
+		int shards = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+		return Math.max(16, shards);
+	}
+
+	private Shard shardOf(String tenantId) {
+		int h = tenantId.hashCode();
+		return shards[(h ^ (h >>> 16)) & mask];
+	}
+
+	private Tenant getTenant(String tenantId) {
+		Shard shard = shardOf(tenantId);
+		Tenant tenant = shard.get(tenantId);
+		if (tenant != null || loader == null) {
+			return tenant;
+		}
+		CompletableFuture<Tenant> pending = new CompletableFuture<>();
+		CompletableFuture<Tenant> inFlight = shard.loading.putIfAbsent(tenantId, pending);
+		if (inFlight != null) {
+			return await(inFlight);
+		}
+		try {
+			// a load may have completed since the lookup.
+			tenant = shard.get(tenantId);
+			if (tenant == null) {
+				tenant = load(shard, tenantId);
+			}
+			pending.complete(tenant);
+			return tenant;
+		} catch (RuntimeException | Error e) {
+			pending.completeExceptionally(e);
+			throw e;
+		} finally {
+			shard.loading.remove(tenantId, pending);
+		}
+	}
+
+	private Tenant load(Shard shard, String tenantId) {
+		Map<Namespace, Credentials> loaded = loader.load(tenantId);
+		if (loaded == null || loaded.isEmpty()) {
+			return null;
+		}
+		Tenant fresh = new Tenant(loaded);
+		synchronized (shard) {
+			Tenant tenant = shard.tenants.get(tenantId);
+			if (tenant == null) {
+				shard.put(tenantId, fresh);
+				tenant = fresh;
+			}
+			return tenant;
+		}
+	}
+
+	/**
+	 * Waits for the load of another request, its failure is rethrown.
+	 */
+	private static Tenant await(CompletableFuture<Tenant> inFlight) {
+		try {
+			return inFlight.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * @return credentials of the tenant, loaded when the tenant is not held,
+	 *         <code>null</code> if none.
+	 */
+	public Credentials getCredentials(String tenantId, Namespace ns) {
+		Objects.requireNonNull(tenantId, "tenantId may not be null");
+		Objects.requireNonNull(ns, "namespace may not be null");
+		Tenant tenant = getTenant(tenantId);
+		return tenant == null ? null : tenant.get(ns);
+	}
+
+	public void setCredentials(String tenantId, Namespace ns, Credentials credentials) {
+		replaceCredentials(tenantId, ns, credentials);
+	}
+
+	/**
+	 * Atomically swaps the credentials of a tenant.
+	 * 
+	 * @return the previous credentials, <code>null</code> if none.
+	 * @see CredentialsProvider#replaceCredentials(Namespace, Credentials)
+	 */
+	public Credentials replaceCredentials(String tenantId, Namespace ns, Credentials credentials) {
+		Objects.requireNonNull(tenantId, "tenantId may not be null");
+		Objects.requireNonNull(ns, "namespace may not be null");
+		Objects.requireNonNull(credentials, "credentials may not be null");
+		Shard shard = shardOf(tenantId);
+		Credentials previous;
+		synchronized (shard) {
+			Tenant tenant = shard.tenants.get(tenantId);
+			if (tenant == null) {
+				tenant = new Tenant();
+				shard.put(tenantId, tenant);
+			}
+			previous = tenant.set(ns, credentials);
+		}
+		if (previous != null && !previous.getPassword().equals(credentials.getPassword())) {
+			SigningEngine.evict(previous.getPassword());
+		}
+		return previous;
+	}
+
+	/**
+	 * Remove the credentials of a tenant for one namespace.
+	 * 
+	 * @return the removed credentials, <code>null</code> if none.
+	 */
+	public Credentials removeCredentials(String tenantId, Namespace ns) {
+		Objects.requireNonNull(tenantId, "tenantId may not be null");
+		Objects.requireNonNull(ns, "namespace may not be null");
+		Shard shard = shardOf(tenantId);
+		Credentials previous;
+		synchronized (shard) {
+			Tenant tenant = shard.tenants.get(tenantId);
+			previous = tenant == null ? null : tenant.set(ns, null);
+		}
+		if (previous != null) {
+			SigningEngine.evict(previous.getPassword());
+		}
+		return previous;
+	}
+
+	/**
+	 * Remove a tenant, signing keys cached for its secrets are evicted as well.
+	 * 
+	 * @return <code>true</code> if the tenant was held.
+	 */
+	public boolean removeTenant(String tenantId) {
+		Objects.requireNonNull(tenantId, "tenantId may not be null");
+		Shard shard = shardOf(tenantId);
+		Tenant tenant;
+		synchronized (shard) {
+			tenant = shard.tenants.remove(tenantId);
+		}
+		if (tenant != null) {
+			tenant.evictSigningKeys();
+		}
+		return tenant != null;
+	}
+
+	/**
+	 * @return number of tenants held.
+	 */
+	public int getTenantCount() {
+		int count = 0;
+		for (Shard shard : shards) {
+			count += shard.tenants.size();
+		}
+		return count;
+	}
+
+	/**
+	 * @return provider resolving the credentials of the tenant by the
+	 *         namespace of the url.
+	 */
+	public CredentialsProvider forTenant(String tenantId) {
+		Objects.requireNonNull(tenantId, "tenantId may not be null");
+		return new TenantView(tenantId);
+	}
+
+	private final class TenantView implements CredentialsProvider {
+		private final String tenantId;
+
+		TenantView(String tenantId) {
+			this.tenantId = tenantId;
+		}
+
+		@Override
+		public void setCredentials(Namespace ns, Credentials credentials) {
+			TenantCredentialsProvider.this.setCredentials(tenantId, ns, credentials);
+		}
+
+		@Override
+		public Credentials replaceCredentials(Namespace ns, Credentials credentials) {
+			return TenantCredentialsProvider.this.replaceCredentials(tenantId, ns, credentials);
+		}
+
+		@Override
+		public Credentials removeCredentials(Namespace ns) {
+			return TenantCredentialsProvider.this.removeCredentials(tenantId, ns);
+		}
+
+		@Override
+		public Credentials getCredentials(Namespace ns) {
+			return TenantCredentialsProvider.this.getCredentials(tenantId, ns);
+		}
+
+		@Override
+		public Credentials getCredentials(URL url) {
+			return getCredentials(url.toString());
+		}
+
+		@Override
+		public Credentials getCredentials(URI uri) {
+			return getCredentials(uri.toString());
+		}
+
+		@Override
+		public Credentials getCredentials(String url) {
+			Objects.requireNonNull(url, "url may not be null");
+			Namespace ns = NamespaceMatcher.match(url);
+			return ns == null ? null : getCredentials(ns);
+		}
+
+		@Override
+		public Credentials getCredentials(String scheme, String host, int port, String encodedPath) {
+			Namespace ns = NamespaceMatcher.match(scheme, host, port, encodedPath);
+			return ns == null ? null : getCredentials(ns);
+		}
+
+		@Override
+		public void clear() {
+			removeTenant(tenantId);
+		}
+	}
+
+	@Override
+	public void setCredentials(Namespace ns, Credentials credentials) {
+		defaults.setCredentials(ns, credentials);
+	}
+
+	@Override
+	public Credentials replaceCredentials(Namespace ns, Credentials credentials) {
+		return defaults.replaceCredentials(ns, credentials);
+	}
+
+	@Override
+	public Credentials removeCredentials(Namespace ns) {
+		return defaults.removeCredentials(ns);
+	}
+
+	@Override
+	public Credentials getCredentials(Namespace ns) {
+		return defaults.getCredentials(ns);
+	}
+
+	@Override
+	public Credentials getCredentials(URL url) {
+		return defaults.getCredentials(url);
+	}
+
+	@Override
+	public Credentials getCredentials(URI uri) {
+		return defaults.getCredentials(uri);
+	}
+
+	@Override
+	public Credentials getCredentials(String url) {
+		return defaults.getCredentials(url);
+	}
+
+	@Override
+	public Credentials getCredentials(String scheme, String host, int port, String encodedPath) {
+		return defaults.getCredentials(scheme, host, port, encodedPath);
+	}
+
+	/**
+	 * Remove the credentials of requests without tenant and all tenants.
+	 */
+	@Override
+	public void clear() {
+		defaults.clear();
+		for (Shard shard : shards) {
+			Tenant[] tenants;
+			synchronized (shard) {
+				tenants = shard.tenants.values().toArray(new Tenant[0]);
+				shard.tenants.clear();
+			}
+			for (Tenant tenant : tenants) {
+				tenant.evictSigningKeys();
+			}
+		}
+	}
+}
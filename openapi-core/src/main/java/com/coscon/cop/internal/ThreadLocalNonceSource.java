@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Default {@link NonceSource}, 128 bits of strong randomness per nonce.
+ * <p>
+ * {@link java.util.UUID#randomUUID()} goes through one shared
+ * {@link SecureRandom}, which threads contend on. Here every thread owns its
+ * generator and prefetches random bytes in blocks, so nonce generation never
+ * touches state shared across cores. Virtual threads share pooled generators,
+ * seeding one for every short-lived thread would cost more than the request.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class ThreadLocalNonceSource implements NonceSource {
+	private static final ThreadLocalNonceSource INSTANCE = new ThreadLocalNonceSource();
+
+	private static final int NONCE_BYTES = 16;
+	private static final int PREFETCH_BYTES = NONCE_BYTES * 32;
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	private static final ThreadLocalPool<State> STATE = new ThreadLocalPool<>(State::new);
+
+	private ThreadLocalNonceSource() {
+	}
+
+	/**
+	 * @return the shared instance.
+	 */
+	public static ThreadLocalNonceSource getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public String nextNonce() {
+		State state = STATE.acquire();
+		try {
+			if (state.position == PREFETCH_BYTES) {
+				state.random.nextBytes(state.prefetched);
+				state.position = 0;
+			}
+			byte[] prefetched = state.prefetched;
+			byte[] hex = state.hex;
+			for (int i = 0, j = state.position; i < NONCE_BYTES; i++, j++) {
+				hex[i << 1] = HEX[(prefetched[j] >>> 4) & 0x0f];
+				hex[(i << 1) + 1] = HEX[prefetched[j] & 0x0f];
+			}
+			state.position += NONCE_BYTES;
+			return new String(hex, 0, hex.length, StandardCharsets.ISO_8859_1);
+		} finally {
+			STATE.release(state);
+		}
+	}
+
+	/**
+	 * Thread confined generator and prefetched bytes.
+	 */
+	private static final class State {
+		private final SecureRandom random = newSecureRandom();
+		private final byte[] prefetched = new byte[PREFETCH_BYTES];
+		private final byte[] hex = new byte[NONCE_BYTES * 2];
+		private int position = PREFETCH_BYTES;
+
+		/**
+		 * SHA1PRNG keeps its state in the instance, unlike the platform default
+		 * which may delegate to a process wide native generator.
+		 */
+		private static SecureRandom newSecureRandom() {
+			try {
+				return SecureRandom.getInstance("SHA1PRNG");
+			} catch (NoSuchAlgorithmException e) {
+				return new SecureRandom();
+			}
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Reusable instances of a thread-confined resource, e.g. an initialized
+ * {@link javax.crypto.Mac}. A platform thread keeps its own instance in a
+ * {@link ThreadLocal}. A virtual thread usually serves a single request, a
+ * thread-local instance would be rebuilt for every request, so virtual
+ * threads share a small pool instead.
+ * <p>
+ * An instance is acquired and released by the same thread around one
+ * operation, it must not be used after it is released.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+final class ThreadLocalPool<T> {
+	/**
+	 * Instances kept for virtual threads, enough for every carrier thread.
+	 */
+	private static final int MAX_POOLED = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+	private final Supplier<T> factory;
+	private final ThreadLocal<T> local = new ThreadLocal<>();
+	private final ConcurrentLinkedQueue<T> pooled = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * @param factory
+	 *            creates a missing instance, <code>null</code> to let the
+	 *            caller create it.
+	 */
+	ThreadLocalPool(Supplier<T> factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * @return an instance for the calling thread, <code>null</code> if none
+	 *         and the pool has no factory.
+	 */
+	T acquire() {
+		T value;
+		if (VirtualThreads.isVirtual(Thread.currentThread())) {
+			value = pooled.poll();
+			if (value != null) {
+				size.decrementAndGet();
+			}
+		} else {
+			value = local.get();
+		}
+		if (value == null && factory != null) {
+			value = adopt(factory.get());
+		}
+		return value;
+	}
+
+	/**
+	 * Binds an instance created by the caller to a platform thread, a virtual
+	 * thread still has to release it.
+	 * 
+	 * @return the instance.
+	 */
+	T adopt(T value) {
+		if (!VirtualThreads.isVirtual(Thread.currentThread())) {
+			local.set(value);
+		}
+		return value;
+	}
+
+	/**
+	 * Hands the instance back, it becomes the instance of a platform thread
+	 * or is pooled for the next virtual thread.
+	 */
+	void release(T value) {
+		if (value == null) {
+			return;
+		}
+		if (VirtualThreads.isVirtual(Thread.currentThread())) {
+			if (size.incrementAndGet() <= MAX_POOLED) {
+				pooled.offer(value);
+			} else {
+				size.decrementAndGet();
+			}
+		} else {
+			local.set(value);
+		}
+	}
+}
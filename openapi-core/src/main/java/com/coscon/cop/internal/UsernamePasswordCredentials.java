@@ -17,9 +17,11 @@
 package com.coscon.cop.internal;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.coscon.cop.core.Credentials;
 import com.coscon.cop.core.Namespace;
+import com.coscon.cop.core.SignAlgorithm;
 
 /**
  * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
@@ -29,6 +31,12 @@ public class UsernamePasswordCredentials implements Credentials {
 	private Namespace namespace;
 	private BasicUserPrincipal principal;
 	private String password;
+	/**
+	 * Signing engines bound to these credentials, indexed by
+	 * {@link SignAlgorithm#ordinal()}.
+	 */
+	private final AtomicReferenceArray<SigningEngine> signingEngines = new AtomicReferenceArray<>(
+			SignAlgorithm.values().length);
 
 	public UsernamePasswordCredentials(Namespace namespace, String username, String password) {
 		super();
@@ -52,6 +60,19 @@ public class UsernamePasswordCredentials implements Credentials {
 		return this.password;
 	}
 
+	/**
+	 * @return the engine signing with these credentials, created once per
+	 *         algorithm.
+	 */
+	SigningEngine getSigningEngine(SignAlgorithm algorithm) {
+		SigningEngine engine = signingEngines.get(algorithm.ordinal());
+		if (engine == null) {
+			signingEngines.compareAndSet(algorithm.ordinal(), null, new SigningEngine(this, algorithm));
+			engine = signingEngines.get(algorithm.ordinal());
+		}
+		return engine;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -29,5 +29,15 @@ public interface ValidatorProvider {
     Validator getValidator(Namespace namespace);
 
     Validator getValidator(String url);
+
+    /**
+     * Lookup by the parts of an already parsed url, e.g. of the transport
+     * request, without building the url string.
+     * 
+     * @param port <code>-1</code> for the default port of the scheme.
+     */
+    default Validator getValidator(String scheme, String host, int port, String encodedPath) {
+        return getValidator(CopClientUtils.toUrl(scheme, host, port, encodedPath));
+    }
     void clear();
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * Feeds every byte read to a {@link BodyVerifier} and verifies at end of
+ * stream, the body is never held in memory.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class VerifyingInputStream extends FilterInputStream {
+	private final BodyVerifier verifier;
+
+	public VerifyingInputStream(InputStream in, BodyVerifier verifier) {
+		super(Objects.requireNonNull(in, "in may not be null"));
+		this.verifier = Objects.requireNonNull(verifier, "verifier may not be null");
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b == -1) {
+			verifier.verify();
+		} else {
+			verifier.write(b);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int read = super.read(b, off, len);
+		if (read == -1) {
+			verifier.verify();
+		} else {
+			verifier.write(b, off, read);
+		}
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		// skipped bytes must still be verified.
+		byte[] buffer = new byte[(int) Math.min(n, 8192)];
+		long skipped = 0;
+		while (skipped < n) {
+			int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+			if (read == -1) {
+				break;
+			}
+			skipped += read;
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {
+		// not supported, the verifier cannot rewind.
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+}
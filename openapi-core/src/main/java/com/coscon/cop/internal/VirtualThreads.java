@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual threads of JDK 21 through reflection, the SDK is compiled for Java
+ * 8. On older runtimes no thread is virtual and the factories throw
+ * {@link UnsupportedOperationException}.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class VirtualThreads {
+	private static final MethodHandle IS_VIRTUAL;
+	private static final MethodHandle NEW_EXECUTOR;
+	private static final MethodHandle OF_VIRTUAL;
+	private static final MethodHandle NAME;
+	private static final MethodHandle FACTORY;
+	static {
+		MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+		MethodHandle isVirtual = null;
+		MethodHandle newExecutor = null;
+		MethodHandle ofVirtual = null;
+		MethodHandle name = null;
+		MethodHandle factory = null;
+		try {
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			Class<?> ofVirtualBuilder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+			isVirtual = lookup.findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+			newExecutor = lookup.findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+					MethodType.methodType(ExecutorService.class));
+			ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtualBuilder))
+					.asType(MethodType.methodType(Object.class));
+			name = lookup.findVirtual(ofVirtualBuilder, "name",
+					MethodType.methodType(ofVirtualBuilder, String.class, long.class))
+					.asType(MethodType.methodType(Object.class, Object.class, String.class, long.class));
+			factory = lookup.findVirtual(builder, "factory", MethodType.methodType(ThreadFactory.class))
+					.asType(MethodType.methodType(ThreadFactory.class, Object.class));
+		} catch (ReflectiveOperationException e) {
+			isVirtual = null;
+		}
+		IS_VIRTUAL = isVirtual;
+		NEW_EXECUTOR = isVirtual == null ? null : newExecutor;
+		OF_VIRTUAL = isVirtual == null ? null : ofVirtual;
+		NAME = isVirtual == null ? null : name;
+		FACTORY = isVirtual == null ? null : factory;
+	}
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * @return whether the runtime has virtual threads.
+	 */
+	public static boolean isSupported() {
+		return IS_VIRTUAL != null;
+	}
+
+	/**
+	 * @return whether the thread is virtual, <code>false</code> before JDK 21.
+	 */
+	public static boolean isVirtual(Thread thread) {
+		if (IS_VIRTUAL == null) {
+			return false;
+		}
+		try {
+			return (boolean) IS_VIRTUAL.invokeExact(thread);
+		} catch (Throwable e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return an executor starting a virtual thread per task.
+	 * @throws UnsupportedOperationException
+	 *             before JDK 21.
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor() {
+		if (NEW_EXECUTOR == null) {
+			throw new UnsupportedOperationException("Virtual threads require JDK 21+");
+		}
+		try {
+			return (ExecutorService) NEW_EXECUTOR.invokeExact();
+		} catch (Throwable e) {
+			throw new UnsupportedOperationException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @param prefix
+	 *            prefix of the thread names, numbered from 0.
+	 * @return factory of virtual threads.
+	 * @throws UnsupportedOperationException
+	 *             before JDK 21.
+	 */
+	public static ThreadFactory newThreadFactory(String prefix) {
+		if (OF_VIRTUAL == null) {
+			throw new UnsupportedOperationException("Virtual threads require JDK 21+");
+		}
+		try {
+			Object builder = OF_VIRTUAL.invokeExact();
+			builder = (Object) NAME.invokeExact(builder, prefix, 0L);
+			return (ThreadFactory) FACTORY.invokeExact(builder);
+		} catch (Throwable e) {
+			throw new UnsupportedOperationException(e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class ConnectionPoolConfigTest {
+
+	/**
+	 * Test method for {@link com.coscon.cop.core.ConnectionPoolConfig#DEFAULT}.
+	 */
+	@Test
+	public void testDefault() {
+		ConnectionPoolConfig config = ConnectionPoolConfig.DEFAULT;
+		assertEquals(32, config.getMaxPerEndpoint());
+		assertEquals(128, config.getMaxTotal());
+		assertEquals(30000, config.getIdleTimeoutMillis());
+		assertEquals(2000, config.getValidateAfterInactivityMillis());
+		assertEquals(30000, config.getKeepAliveMillis());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.core.ConnectionPoolConfig#copy(ConnectionPoolConfig)}.
+	 */
+	@Test
+	public void testCopy() {
+		ConnectionPoolConfig config = ConnectionPoolConfig.custom().setMaxPerEndpoint(4).setMaxTotal(8)
+				.setIdleTimeout(1, TimeUnit.MINUTES).setValidateAfterInactivity(0, TimeUnit.SECONDS)
+				.setKeepAlive(10, TimeUnit.SECONDS).build();
+		ConnectionPoolConfig copy = ConnectionPoolConfig.copy(config).setMaxTotal(16).build();
+		assertEquals(4, copy.getMaxPerEndpoint());
+		assertEquals(16, copy.getMaxTotal());
+		assertEquals(60000, copy.getIdleTimeoutMillis());
+		assertEquals(0, copy.getValidateAfterInactivityMillis());
+		assertEquals(10000, copy.getKeepAliveMillis());
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.core.ConnectionPoolConfig.Builder#build()}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testMaxPerEndpointExceedsMaxTotal() {
+		ConnectionPoolConfig.custom().setMaxPerEndpoint(8).setMaxTotal(4).build();
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.core.ConnectionPoolConfig.Builder#setKeepAlive(long, TimeUnit)}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testKeepAliveMustBePositive() {
+		ConnectionPoolConfig.custom().setKeepAlive(0, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.coscon.cop.internal.BasicCredentialsProvider;
+import com.coscon.cop.internal.UsernamePasswordCredentials;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class EndpointRegistryTest {
+	private static final String EDGE = "edge-sg";
+
+	@After
+	public void tearDown() {
+		EndpointRegistry.unregister(EDGE);
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.core.Endpoint#of(String, String, Namespace)}.
+	 */
+	@Test
+	public void testEndpoint() {
+		Endpoint endpoint = Endpoint.of(EDGE, "HTTPS://Edge-SG.example.com:443/service/", Namespace.COP_PUBLIC_PP);
+		assertEquals("https://edge-sg.example.com/service", endpoint.getBaseUrl());
+		assertEquals("edge-sg.example.com", endpoint.getHost());
+		assertEquals(443, endpoint.getPort());
+		assertEquals("/service", endpoint.getBasePath());
+		assertEquals("https://edge-sg.example.com/service/info?numberType=bl", endpoint.resolve("/info?numberType=bl"));
+		assertEquals("https://localhost:8443", Endpoint.of("local", "https://localhost:8443", Namespace.COP_PUBLIC_PP)
+				.getBaseUrl());
+
+		Endpoint pp = Endpoint.of(Namespace.COP_PUBLIC_PP);
+		assertEquals(Namespace.COP_PUBLIC_PP.getPrefix(), pp.getBaseUrl());
+		assertSame(pp, Endpoint.of(Namespace.COP_PUBLIC_PP));
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.core.Endpoint#of(String, String, Namespace)}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsecureEndpoint() {
+		Endpoint.of(EDGE, "http://edge-sg.example.com/service", Namespace.COP_PUBLIC_PP);
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.core.EndpointRegistry#register(Endpoint)}.
+	 */
+	@Test
+	public void testRegister() {
+		String url = "https://edge-sg.example.com/service/info/tracking/6309441170?numberType=bl";
+		assertNull(EndpointRegistry.match(url));
+		Endpoint endpoint = Endpoint.of(EDGE, "https://edge-sg.example.com/service", Namespace.COP_PUBLIC_PP);
+		EndpointRegistry.register(endpoint);
+		assertSame(endpoint, EndpointRegistry.get(EDGE));
+		assertSame(endpoint, EndpointRegistry.match(url));
+		assertSame(endpoint,
+				EndpointRegistry.match("https", "EDGE-SG.example.com", -1, "/service/info/tracking/6309441170"));
+		assertSame(Endpoint.of(Namespace.COP_PUBLIC_PROD),
+				EndpointRegistry.match(Namespace.COP_PUBLIC_PROD.getPrefix() + "/info"));
+
+		// requests to the endpoint are signed with the credentials of its namespace.
+		CredentialsProvider provider = new BasicCredentialsProvider();
+		Credentials credentials = new UsernamePasswordCredentials(Namespace.COP_PUBLIC_PP, "apiKey", "secretKey");
+		provider.setCredentials(Namespace.COP_PUBLIC_PP, credentials);
+		assertSame(credentials, provider.getCredentials(url));
+
+		// moving the endpoint releases its previous base url.
+		Endpoint moved = Endpoint.of(EDGE, "https://edge-sg2.example.com/service", Namespace.COP_PUBLIC_PP);
+		EndpointRegistry.register(moved);
+		assertNull(EndpointRegistry.match(url));
+		assertSame(moved, EndpointRegistry.match("https://edge-sg2.example.com/service/info"));
+
+		assertSame(moved, EndpointRegistry.unregister(EDGE));
+		assertNull(provider.getCredentials("https://edge-sg2.example.com/service/info"));
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.core.EndpointRegistry#unregister(String)}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnregisterNamespace() {
+		EndpointRegistry.unregister(Namespace.COP_PUBLIC_PP.name());
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class EndpointRouterTest {
+	private static final Endpoint PUBLIC = Endpoint.of(Namespace.COP_PUBLIC_PROD);
+	private static final Endpoint INTERNAL = Endpoint.of(Namespace.COP_INTERNAL_PROD);
+	private static final long MILLIS = 1_000_000L;
+
+	/**
+	 * Test method for {@link com.coscon.cop.core.EndpointRouter#select()}.
+	 */
+	@Test
+	public void testSelectFastest() {
+		EndpointRouter router = new EndpointRouter(Arrays.asList(PUBLIC, INTERNAL), 0.5d, 0.5d, 1, TimeUnit.HOURS, 0);
+		// unmeasured endpoints are tried first, in the order given.
+		assertEquals(Arrays.asList(PUBLIC, INTERNAL), router.select());
+		router.record(PUBLIC, 80 * MILLIS, true);
+		assertEquals(Arrays.asList(INTERNAL, PUBLIC), router.select());
+		router.record(INTERNAL, 20 * MILLIS, true);
+		assertEquals(Arrays.asList(INTERNAL, PUBLIC), router.select());
+
+		// the internal gateway slows down during the day.
+		router.record(INTERNAL, 200 * MILLIS, true);
+		assertEquals(110d, router.getStats(INTERNAL).getLatencyMillis(), 0.001d);
+		assertEquals(Arrays.asList(PUBLIC, INTERNAL), router.select());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.core.EndpointRouter#record(Endpoint, long, boolean)}.
+	 */
+	@Test
+	public void testFailover() throws Exception {
+		EndpointRouter router = new EndpointRouter(Arrays.asList(PUBLIC, INTERNAL), 0.5d, 0.5d, 50,
+				TimeUnit.MILLISECONDS, 0);
+		router.record(PUBLIC, 10 * MILLIS, true);
+		router.record(INTERNAL, 50 * MILLIS, true);
+		assertEquals(PUBLIC, router.select().get(0));
+
+		router.record(PUBLIC, 10 * MILLIS, false);
+		assertEquals(0.5d, router.getStats(PUBLIC).getErrorRate(), 0.001d);
+		assertEquals(Arrays.asList(INTERNAL, PUBLIC), router.select());
+
+		// tried again once retryAfter elapsed, back on success.
+		Thread.sleep(60L);
+		assertEquals(PUBLIC, router.select().get(0));
+		router.record(PUBLIC, 10 * MILLIS, true);
+		assertTrue(router.getStats(PUBLIC).getErrorRate() < 0.5d);
+		assertEquals(PUBLIC, router.select().get(0));
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.core.EndpointRouter#select()}.
+	 */
+	@Test
+	public void testExplore() {
+		EndpointRouter router = new EndpointRouter(Arrays.asList(PUBLIC, INTERNAL), 0.5d, 0.5d, 1, TimeUnit.HOURS, 4);
+		router.record(INTERNAL, 200 * MILLIS, true);
+		router.record(PUBLIC, 10 * MILLIS, true);
+		int explored = 0;
+		for (int i = 0; i < 8; i++) {
+			Endpoint selected = router.select().get(0);
+			router.record(selected, selected == PUBLIC ? 10 * MILLIS : 200 * MILLIS, true);
+			if (selected == INTERNAL) {
+				explored++;
+			}
+		}
+		assertEquals(2, explored);
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class ContentDigestValidatorTest {
+	private static final byte[] BODY = "{\"code\": 200, \"message\": \"\", \"data\": {}}"
+			.getBytes(StandardCharsets.UTF_8);
+
+	private static HeaderSource headers(String digest) {
+		Map<String, String> headers = Collections.singletonMap(SigningEngine.X_DIGEST, digest);
+		return headers::get;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[16];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	private static InputStream verifying(StreamingValidator validator, String digest, byte[] body)
+			throws IOException {
+		return new VerifyingInputStream(new ByteArrayInputStream(body), validator.begin(headers(digest)));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.ContentDigestValidator#begin(HeaderSource)}.
+	 */
+	@Test
+	public void testVerify() throws IOException {
+		StreamingValidator validator = new ContentDigestValidator();
+		String digest = ContentDigest.of(BODY).getHeaderValue();
+		try (InputStream in = verifying(validator, digest, BODY)) {
+			assertEquals(new String(BODY, StandardCharsets.UTF_8), new String(readAll(in), StandardCharsets.UTF_8));
+		}
+		try (InputStream in = verifying(validator, ContentDigest.EMPTY.getHeaderValue(), new byte[0])) {
+			assertEquals(-1, in.read());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.ContentDigestValidator#begin(HeaderSource)}.
+	 */
+	@Test
+	public void testVerifyTampered() throws IOException {
+		StreamingValidator validator = new ContentDigestValidator();
+		String digest = ContentDigest.of(BODY).getHeaderValue();
+		byte[] tampered = BODY.clone();
+		tampered[tampered.length - 2] = ' ';
+		InputStream in = verifying(validator, digest, tampered);
+		// fails at end of stream, not before.
+		for (int i = 0; i < tampered.length; i++) {
+			assertEquals(tampered[i] & 0xff, in.read());
+		}
+		assertThrows(IOException.class, () -> in.read());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.ContentDigestValidator#begin(HeaderSource)}.
+	 */
+	@Test
+	public void testDigestAbsent() throws IOException {
+		assertThrows(IOException.class, () -> new ContentDigestValidator().begin(name -> null));
+		try (InputStream in = new VerifyingInputStream(new ByteArrayInputStream(BODY),
+				new ContentDigestValidator(false).begin(name -> null))) {
+			assertEquals(BODY.length, readAll(in).length);
+		}
+		assertThrows(IOException.class, () -> new ContentDigestValidator().validate(new Object()));
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.Namespace;
+
+/**
+ * Default methods of {@link CopClientBase} for subclasses which implement
+ * only the blocking methods of a {@link Namespace}.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class CopClientBaseTest {
+	private static final Namespace NS = Namespace.COP_PUBLIC_PP;
+
+	private final EchoClient client = new EchoClient();
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.CopClientBase#doPost(Namespace, String, Payload, Map)}.
+	 */
+	@Test
+	public void testPayloadPostedAsString() throws ClientException {
+		assertEquals("POST /search {\"page\": 1}", client.doPost(NS, "/search", Payload.of("{\"page\": 1}"), null));
+		assertEquals("POST /search {\"page\": 1}",
+				client.doPostWithResponse(NS, "/search", Payload.of("{\"page\": 1}"), null));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.CopClientBase#doGet(Endpoint, String)}.
+	 */
+	@Test
+	public void testEndpointOfNamespace() throws ClientException {
+		assertEquals("GET /info", client.doGet(Endpoint.of(NS), "/info"));
+		assertEquals("POST /search {}", client.doPostWithResponse(Endpoint.of(NS), "/search", "{}"));
+
+		Endpoint edge = Endpoint.of("edge", "https://edge.example.com/service", NS);
+		assertThrows(ClientException.class, () -> client.doGet(edge, "/info"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.CopClientBase#doGetAsync(Namespace, String)}.
+	 */
+	@Test
+	public void testAsyncNotSupported() throws Exception {
+		ExecutionException e = assertThrows(ExecutionException.class,
+				() -> client.doGetAsync(NS, "/info").get(5, TimeUnit.SECONDS));
+		assertSame(ClientException.class, e.getCause().getClass());
+		assertEquals("asynchronous requests not supported", e.getCause().getMessage());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.CopClientBase#getAsyncExecutor()}.
+	 */
+	@Test
+	public void testAsyncRunsBlockingRequest() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		EchoClient client = new EchoClient() {
+			@Override
+			protected Executor getAsyncExecutor() {
+				return executor;
+			}
+		};
+		try {
+			assertEquals("GET /info", client.doGetAsync(NS, "/info").get(5, TimeUnit.SECONDS));
+			assertEquals("POST /search {}",
+					client.doPostWithResponseAsync(NS, "/search", Payload.of("{}"), null).get(5, TimeUnit.SECONDS));
+
+			ExecutionException e = assertThrows(ExecutionException.class,
+					() -> client.doGetAsync(NS, "/fail").get(5, TimeUnit.SECONDS));
+			assertSame(ClientException.class, e.getCause().getClass());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static class EchoClient extends CopClientBase {
+		@Override
+		protected void initialize() {
+		}
+
+		@Override
+		public void buildHttpClient() throws ClientException {
+		}
+
+		@Override
+		public String doGet(Namespace namespace, String relativeUri) throws ClientException {
+			return doGet(namespace, relativeUri, null);
+		}
+
+		@Override
+		public String doGet(Namespace namespace, String relativeUri, Map<String, List<String>> extraHeaders)
+				throws ClientException {
+			if (relativeUri.equals("/fail")) {
+				throw new ClientException("failed");
+			}
+			return "GET " + relativeUri;
+		}
+
+		@Override
+		public Object doGetWithResponse(Namespace namespace, String relativeUri) throws ClientException {
+			return doGet(namespace, relativeUri);
+		}
+
+		@Override
+		public Object doGetWithResponse(Namespace namespace, String relativeUri,
+				Map<String, List<String>> extraHeaders) throws ClientException {
+			return doGet(namespace, relativeUri, extraHeaders);
+		}
+
+		@Override
+		public String doPost(Namespace namespace, String relativeUri, String payload) throws ClientException {
+			return doPost(namespace, relativeUri, payload, (Map<String, List<String>>) null);
+		}
+
+		@Override
+		public String doPost(Namespace namespace, String relativeUri, String payload,
+				Map<String, List<String>> extraHeaders) throws ClientException {
+			return "POST " + relativeUri + " " + payload;
+		}
+
+		@Override
+		public Object doPostWithResponse(Namespace namespace, String relativeUri, String payload)
+				throws ClientException {
+			return doPost(namespace, relativeUri, payload);
+		}
+
+		@Override
+		public Object doPostWithResponse(Namespace namespace, String relativeUri, String payload,
+				Map<String, List<String>> extraHeaders) throws ClientException {
+			return doPost(namespace, relativeUri, payload, extraHeaders);
+		}
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.coscon.cop.core.Credentials;
+import com.coscon.cop.core.Namespace;
+import com.coscon.cop.core.SignAlgorithm;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class CredentialsRefresherTest {
+	private static final Namespace NS = Namespace.COP_PUBLIC_PP;
+	private static final String REQUEST_LINE = "GET /service/info/tracking/6309441170?numberType=bl HTTP/1.1";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static void write(Path path, String apiKey, String secretKey, long modified) throws IOException {
+		String content = NS.name() + ".apiKey=" + apiKey + "\n" + NS.name() + ".secretKey=" + secretKey + "\n";
+		Files.write(path, content.getBytes(StandardCharsets.ISO_8859_1));
+		Files.setLastModifiedTime(path, FileTime.fromMillis(modified));
+	}
+
+	private Path mount(String apiKey, String secretKey) throws IOException {
+		Path secret = folder.getRoot().toPath().resolve("secret");
+		Files.createDirectories(secret);
+		Files.write(secret.resolve(NS.name() + "_API_KEY"), (apiKey + "\n").getBytes(StandardCharsets.UTF_8));
+		Files.write(secret.resolve(NS.name() + "_SECRET_KEY"), (secretKey + "\n").getBytes(StandardCharsets.UTF_8));
+		return secret;
+	}
+
+	private static String expectedAuthorization(RequestSignature signature, String secretKey) throws Exception {
+		String signingString = SigningEngine.X_DATE + ": " + signature.getDate() + "\n" + SigningEngine.X_DIGEST + ": "
+				+ signature.getDigest() + "\n" + SigningEngine.X_CONTENT_MD5 + ": " + signature.getNonce() + "\n"
+				+ REQUEST_LINE;
+		// a plain Mac, which leaves MacCache untouched.
+		Mac mac = Mac.getInstance("HmacSHA1");
+		mac.init(new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "HmacSHA1"));
+		String expected = Base64.encodeBase64String(mac.doFinal(signingString.getBytes(StandardCharsets.UTF_8)));
+		return "hmac username=\"apiKey\",algorithm=\"hmac-sha1\",headers=\"X-Coscon-Date X-Coscon-Digest X-Coscon-Content-Md5 request-line\",signature=\""
+				+ expected + "\"";
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.internal.CredentialsRefresher#refresh()}.
+	 */
+	@Test
+	public void testRefreshFromFile() throws Exception {
+		Path path = folder.newFile("cop.properties").toPath();
+		write(path, "apiKey", "secret-1", 1000L);
+		BasicCredentialsProvider provider = new BasicCredentialsProvider();
+		CredentialsRefresher refresher = new CredentialsRefresher(provider, CredentialsRefresher.fromFile(path));
+
+		assertEquals(1, refresher.refresh());
+		Credentials first = provider.getCredentials(NS.getPrefix() + "/info");
+		assertEquals(new UsernamePasswordCredentials(NS, "apiKey", "secret-1"), first);
+		// unchanged file is not loaded again.
+		assertEquals(0, refresher.refresh());
+
+		SigningEngine inFlight = ((UsernamePasswordCredentials) first).getSigningEngine(SignAlgorithm.HMAC_SHA1);
+		write(path, "apiKey", "secret-2", 2000L);
+		assertEquals(1, refresher.refresh());
+		Credentials second = provider.getCredentials(NS);
+		assertEquals("secret-2", second.getPassword());
+		assertSame(second, provider.getCredentials(NS.getPrefix() + "/info"));
+
+		// a request holding the previous credentials still signs with them.
+		RequestSignature previous = inFlight.sign(REQUEST_LINE, ContentDigest.EMPTY);
+		assertEquals(expectedAuthorization(previous, "secret-1"), previous.getAuthorization());
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.internal.CredentialsRefresher#refresh()}.
+	 */
+	@Test
+	public void testRefreshFailureKeepsCredentials() throws Exception {
+		Path secret = mount("apiKey", "secretKey");
+		BasicCredentialsProvider provider = new BasicCredentialsProvider();
+		CredentialsRefresher refresher = new CredentialsRefresher(provider,
+				CredentialsRefresher.fromDirectory(secret));
+		assertEquals(1, refresher.refresh());
+
+		Files.delete(secret.resolve(NS.name() + "_SECRET_KEY"));
+		try {
+			refresher.refresh();
+			fail("incomplete credentials are expected to fail");
+		} catch (IOException e) {
+			// expected
+		}
+		assertEquals("secretKey", provider.getCredentials(NS).getPassword());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.CredentialsRefresher#start(long, TimeUnit)}.
+	 */
+	@Test
+	public void testStart() throws Exception {
+		Path secret = mount("apiKey", "secretKey");
+		BasicCredentialsProvider provider = new BasicCredentialsProvider();
+		try (CredentialsRefresher refresher = new CredentialsRefresher(provider,
+				CredentialsRefresher.fromDirectory(secret)).start(10, TimeUnit.MILLISECONDS)) {
+			long deadline = System.currentTimeMillis() + 5000L;
+			while (provider.getCredentials(NS) == null && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10L);
+			}
+			assertNotNull(provider.getCredentials(NS));
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.CredentialsRefresher#fromDirectory(Path)}.
+	 */
+	@Test
+	public void testRefreshFromDirectory() throws Exception {
+		Path secret = mount("apiKey", "secret-1");
+		BasicCredentialsProvider provider = new BasicCredentialsProvider();
+		CredentialsRefresher refresher = new CredentialsRefresher(provider,
+				CredentialsRefresher.fromDirectory(secret));
+		assertEquals(1, refresher.refresh());
+		assertEquals(new UsernamePasswordCredentials(NS, "apiKey", "secret-1"), provider.getCredentials(NS));
+		assertEquals(0, refresher.refresh());
+
+		// the mounted secret is rotated in place.
+		mount("apiKey", "secret-2");
+		assertEquals(1, refresher.refresh());
+		assertEquals("secret-2", provider.getCredentials(NS).getPassword());
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.internal.CredentialsRefresher#refresh()}.
+	 */
+	@Test
+	public void testRemoveCredentialsGoneFromSource() throws Exception {
+		Path secret = mount("apiKey", "secretKey");
+		BasicCredentialsProvider provider = new BasicCredentialsProvider();
+		Credentials prod = new UsernamePasswordCredentials(Namespace.COP_PUBLIC_PROD, "prodKey", "prodSecret");
+		provider.setCredentials(Namespace.COP_PUBLIC_PROD, prod);
+		CredentialsRefresher refresher = new CredentialsRefresher(provider,
+				CredentialsRefresher.fromDirectory(secret));
+		assertEquals(1, refresher.refresh());
+
+		Files.delete(secret.resolve(NS.name() + "_API_KEY"));
+		Files.delete(secret.resolve(NS.name() + "_SECRET_KEY"));
+		assertEquals(1, refresher.refresh());
+		assertNull(provider.getCredentials(NS));
+		// credentials not loaded by the refresher stay.
+		assertSame(prod, provider.getCredentials(Namespace.COP_PUBLIC_PROD));
+		assertEquals(0, refresher.refresh());
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.internal.CredentialsRefresher#refresh()}.
+	 */
+	@Test
+	public void testKeepCredentialsWithoutRemoval() throws Exception {
+		Path secret = mount("apiKey", "secretKey");
+		BasicCredentialsProvider provider = new BasicCredentialsProvider() {
+			@Override
+			public Credentials removeCredentials(Namespace ns) {
+				throw new UnsupportedOperationException("removeCredentials");
+			}
+		};
+		CredentialsRefresher refresher = new CredentialsRefresher(provider,
+				CredentialsRefresher.fromDirectory(secret));
+		assertEquals(1, refresher.refresh());
+		Credentials loaded = provider.getCredentials(NS);
+
+		Files.delete(secret.resolve(NS.name() + "_API_KEY"));
+		Files.delete(secret.resolve(NS.name() + "_SECRET_KEY"));
+		assertEquals(0, refresher.refresh());
+		assertSame(loaded, provider.getCredentials(NS));
+		// later refreshes still swap credentials.
+		mount("apiKey", "rotatedKey");
+		assertEquals(1, refresher.refresh());
+		assertEquals("rotatedKey", provider.getCredentials(NS).getPassword());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.BasicCredentialsProvider#replaceCredentials(Namespace, Credentials)}.
+	 */
+	@Test
+	public void testRotateWhileSigning() throws Exception {
+		BasicCredentialsProvider provider = new BasicCredentialsProvider();
+		provider.replaceCredentials(NS, new UsernamePasswordCredentials(NS, "apiKey", "rotating-0"));
+		int cachedMacs = MacCache.size(SignAlgorithm.HMAC_SHA1);
+		AtomicBoolean rotating = new AtomicBoolean(true);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread[] signers = new Thread[4];
+		for (int i = 0; i < signers.length; i++) {
+			signers[i] = new Thread(() -> {
+				try {
+					while (rotating.get()) {
+						Credentials credentials = provider.getCredentials(NS);
+						RequestSignature signature = ((UsernamePasswordCredentials) credentials)
+								.getSigningEngine(SignAlgorithm.HMAC_SHA1).sign(REQUEST_LINE, ContentDigest.EMPTY);
+						assertEquals(expectedAuthorization(signature, credentials.getPassword()),
+								signature.getAuthorization());
+					}
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			});
+			signers[i].start();
+		}
+		for (int i = 1; i <= 500 && failure.get() == null; i++) {
+			provider.replaceCredentials(NS, new UsernamePasswordCredentials(NS, "apiKey", "rotating-" + i));
+			Thread.yield();
+		}
+		rotating.set(false);
+		for (Thread signer : signers) {
+			signer.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError("signing failed while rotating", failure.get());
+		}
+		// revoked secrets leave no Mac behind.
+		assertEquals(cachedMacs, MacCache.size(SignAlgorithm.HMAC_SHA1));
+	}
+}
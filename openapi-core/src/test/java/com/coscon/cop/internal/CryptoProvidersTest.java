@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.Security;
+import java.util.List;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import com.coscon.cop.core.SignAlgorithm;
+import com.coscon.cop.internal.CryptoProviders.Selection;
+import com.coscon.cop.internal.CryptoProviders.Source;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class CryptoProvidersTest {
+
+	@After
+	public void tearDown() throws NoSuchAlgorithmException {
+		for (SignAlgorithm algorithm : SignAlgorithm.values()) {
+			CryptoProviders.setMacProvider(algorithm, null);
+		}
+		CryptoProviders.setDigestProvider(null);
+	}
+
+	private static Selection selectionOf(String algorithm) {
+		for (Selection selection : CryptoProviders.getSelections()) {
+			if (selection.getAlgorithm().equals(algorithm)) {
+				return selection;
+			}
+		}
+		throw new AssertionError("no selection for " + algorithm);
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.CryptoProviders#setMacProvider(SignAlgorithm, Provider)}.
+	 */
+	@Test
+	public void testSetMacProvider() throws Exception {
+		Provider sunJce = Security.getProvider("SunJCE");
+		assertNotNull(sunJce);
+		MacCache.acquire(SignAlgorithm.HMAC_SHA256, "providerSecret");
+		assertTrue(MacCache.size(SignAlgorithm.HMAC_SHA256) > 0);
+
+		CryptoProviders.setMacProvider(SignAlgorithm.HMAC_SHA256, sunJce);
+		Selection selection = selectionOf("HmacSHA256");
+		assertSame(sunJce, selection.getProvider());
+		assertEquals(Source.EXPLICIT, selection.getSource());
+		assertSame(sunJce, MacCache.acquire(SignAlgorithm.HMAC_SHA256, "providerSecret").getProvider());
+
+		CryptoProviders.setMacProvider(SignAlgorithm.HMAC_SHA256, null);
+		assertEquals(Source.DEFAULT, selectionOf("HmacSHA256").getSource());
+
+		Provider sun = Security.getProvider("SUN");
+		assertThrows(NoSuchAlgorithmException.class,
+				() -> CryptoProviders.setMacProvider(SignAlgorithm.HMAC_SHA256, sun));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.CryptoProviders#setDigestProvider(Provider)}.
+	 */
+	@Test
+	public void testSetDigestProvider() throws Exception {
+		Provider sun = Security.getProvider("SUN");
+		byte[] content = "{\"page\": 1}".getBytes(StandardCharsets.UTF_8);
+		String expected = "SHA-256=" + Base64.encodeBase64String(DigestUtils.sha256(content));
+		ContentDigest.of(content);
+		CryptoProviders.setDigestProvider(sun);
+		assertEquals(Source.EXPLICIT, selectionOf(CryptoProviders.SHA_256).getSource());
+		assertEquals(expected, ContentDigest.of(content).getHeaderValue());
+		ContentDigestOutputStream out = new ContentDigestOutputStream();
+		out.write(content);
+		assertEquals(expected, out.getContentDigest().getHeaderValue());
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.internal.CryptoProviders#probe(long)}.
+	 */
+	@Test
+	public void testProbe() throws Exception {
+		CryptoProviders.setMacProvider(SignAlgorithm.HMAC_SHA1, Security.getProvider("SunJCE"));
+		List<Selection> selections = CryptoProviders.probe(10);
+		assertEquals(SignAlgorithm.values().length + 1, selections.size());
+		for (Selection selection : selections) {
+			if (selection.getAlgorithm().equals(SignAlgorithm.HMAC_SHA1.getAlgorithm())) {
+				assertEquals(Source.EXPLICIT, selection.getSource());
+			} else {
+				assertEquals(selection.toString(), Source.PROBED, selection.getSource());
+				assertTrue(selection.toString(), selection.getOpsPerSecond() > 0);
+			}
+		}
+		SigningEngine engine = new SigningEngine("apiKey", "secretKey", SignAlgorithm.HMAC_SHA512);
+		assertNotNull(engine.sign("GET / HTTP/1.1", ContentDigest.EMPTY).getAuthorization());
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class DateHeaderSourceTest {
+
+	/**
+	 * Clock which only moves when told to.
+	 */
+	private static final class ManualClock extends Clock {
+		private volatile long millis;
+
+		private ManualClock(long millis) {
+			this.millis = millis;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis);
+		}
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.internal.DateHeaderSource#currentValue()}.
+	 */
+	@Test
+	public void testCurrentValue() {
+		ManualClock clock = new ManualClock(1647331951000L);
+		DateHeaderSource source = new DateHeaderSource(clock);
+		String first = source.currentValue();
+		assertEquals("Tue, 15 Mar 2022 08:12:31 GMT", first);
+
+		clock.millis += 999;
+		assertSame(first, source.currentValue());
+
+		clock.millis += 1;
+		String next = source.currentValue();
+		assertNotSame(first, next);
+		assertEquals("Tue, 15 Mar 2022 08:12:32 GMT", next);
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.internal.DateHeaderSource#currentValue()}.
+	 */
+	@Test
+	public void testCachedValueNeverMovesBackwards() {
+		ManualClock clock = new ManualClock(1647331952000L);
+		DateHeaderSource source = new DateHeaderSource(clock);
+		String later = source.currentValue();
+
+		// a thread still on the previous second.
+		clock.millis -= 1000;
+		assertEquals("Tue, 15 Mar 2022 08:12:31 GMT", source.currentValue());
+
+		clock.millis += 1000;
+		assertSame(later, source.currentValue());
+	}
+}
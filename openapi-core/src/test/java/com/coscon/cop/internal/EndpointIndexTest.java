@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.net.URI;
+import java.net.URL;
+
+import org.junit.Test;
+
+import com.coscon.cop.core.Credentials;
+import com.coscon.cop.core.CredentialsProvider;
+import com.coscon.cop.core.Namespace;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class EndpointIndexTest {
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.EndpointIndex#lookup(String, String, int, CharSequence)}.
+	 */
+	@Test
+	public void testLookup() {
+		EndpointIndex<String> index = new EndpointIndex<>();
+		index.put("https://api.lines.coscoshipping.com/service", "prod");
+		index.put("https://api.lines.coscoshipping.com/service/synconhub", "synconhub");
+		index.put("https://api-pp.lines.coscoshipping.com:8443/service", "pp");
+		assertEquals(3, index.size());
+
+		assertEquals("prod", index.lookup("https", "api.lines.coscoshipping.com", -1, "/service/info/tracking/1"));
+		assertEquals("prod", index.lookup("HTTPS", "API.lines.coscoshipping.com", 443, "/Service/info"));
+		assertEquals("synconhub",
+				index.lookup("https", "api.lines.coscoshipping.com", -1, "/service/synconhub/product"));
+		assertNull(index.lookup("http", "api.lines.coscoshipping.com", -1, "/service/info"));
+		assertNull(index.lookup("https", "api.lines.coscoshipping.com", 8443, "/service/info"));
+		assertNull(index.lookup("https", "api.lines.coscoshipping.com", -1, "/other"));
+		assertEquals("pp", index.lookup("https", "api-pp.lines.coscoshipping.com", 8443, "/service"));
+		assertNull(index.lookup("https", "api-pp.lines.coscoshipping.com", -1, "/service"));
+
+		assertEquals("synconhub", index.lookup("https://api.lines.coscoshipping.com/service/synconhub/x"));
+		assertEquals("pp", index.lookup("https://api-pp.lines.coscoshipping.com:8443/service/x"));
+
+		assertEquals("prod", index.put("https://api.lines.coscoshipping.com/service", "prod2"));
+		assertEquals("prod2", index.lookup("https", "api.lines.coscoshipping.com", -1, "/service/info"));
+		assertEquals("synconhub", index.remove("https://api.lines.coscoshipping.com/service/synconhub"));
+		assertEquals("prod2", index.lookup("https://api.lines.coscoshipping.com/service/synconhub/x"));
+		index.clear();
+		assertEquals(0, index.size());
+		assertNull(index.lookup("https://api.lines.coscoshipping.com/service/info"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.BasicCredentialsProvider#getCredentials(String, String, int, String)}.
+	 */
+	@Test
+	public void testGetCredentials() throws Exception {
+		CredentialsProvider provider = new BasicCredentialsProvider();
+		Namespace ns = Namespace.COP_PUBLIC_PP;
+		Credentials credentials = new UsernamePasswordCredentials(ns, "apiKey", "secretKey");
+		provider.setCredentials(ns, credentials);
+		String url = ns.getPrefix() + "/info/tracking/6309441170?numberType=bl";
+		assertSame(credentials, provider.getCredentials(url));
+		assertSame(credentials, provider.getCredentials(new URI(url)));
+		assertSame(credentials, provider.getCredentials(new URL(url)));
+		assertSame(credentials, provider.getCredentials("https", "api-pp.lines.coscoshipping.com", -1,
+				"/service/info/tracking/6309441170"));
+		assertNull(provider.getCredentials(Namespace.COP_PUBLIC_PROD.getPrefix() + "/info"));
+
+		// the interface default builds the url.
+		CredentialsProvider delegating = new BasicCredentialsProvider() {
+			@Override
+			public Credentials getCredentials(String url) {
+				return super.getCredentials(url);
+			}
+		};
+		delegating.setCredentials(ns, credentials);
+		assertSame(credentials, delegating.getCredentials("https", "api-pp.lines.coscoshipping.com", 443,
+				"/service/info"));
+
+		provider.clear();
+		assertNull(provider.getCredentials(url));
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.coscon.cop.core.SignAlgorithm;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class MacCacheTest {
+
+	@After
+	public void tearDown() {
+		MacCache.clear();
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.MacCache#acquire(SignAlgorithm, String)}.
+	 */
+	@Test
+	public void testAcquireReusesInitializedMac() throws Exception {
+		Mac first = MacCache.acquire(SignAlgorithm.HMAC_SHA256, "secret");
+		first.update("dirty".getBytes());
+		Mac second = MacCache.acquire(SignAlgorithm.HMAC_SHA256, "secret");
+		assertSame(first, second);
+
+		Mac expected = Mac.getInstance("HmacSHA256");
+		expected.init(new SecretKeySpec("secret".getBytes(), "HmacSHA256"));
+		assertArrayEquals(expected.doFinal("data".getBytes()), second.doFinal("data".getBytes()));
+		assertArrayEquals(expected.doFinal("data".getBytes()),
+				HmacShaUtil.signature("HmacSHA256", "data", "secret"));
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.internal.MacCache#evict(String)}.
+	 */
+	@Test
+	public void testEvict() throws Exception {
+		Mac first = MacCache.acquire(SignAlgorithm.HMAC_SHA1, "evictMe");
+		assertEquals(1, MacCache.size(SignAlgorithm.HMAC_SHA1));
+
+		MacCache.evict("evictMe");
+		// released after the eviction, the engine is dropped.
+		MacCache.release(SignAlgorithm.HMAC_SHA1, "evictMe", first);
+		assertEquals(0, MacCache.size(SignAlgorithm.HMAC_SHA1));
+		assertNotSame(first, MacCache.acquire(SignAlgorithm.HMAC_SHA1, "evictMe"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.MacCache#acquire(SignAlgorithm, String)}.
+	 */
+	@Test
+	public void testBounded() throws Exception {
+		for (int i = 0; i < MacCache.MAX_KEYS + 16; i++) {
+			MacCache.acquire(SignAlgorithm.HMAC_SHA1, "secret-" + i);
+		}
+		assertEquals(MacCache.MAX_KEYS, MacCache.size(SignAlgorithm.HMAC_SHA1));
+		// the key just added is kept.
+		Mac last = MacCache.acquire(SignAlgorithm.HMAC_SHA1, "secret-" + (MacCache.MAX_KEYS + 15));
+		assertSame(last, MacCache.acquire(SignAlgorithm.HMAC_SHA1, "secret-" + (MacCache.MAX_KEYS + 15)));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.SigningEngine#sign(String, ContentDigest)}.
+	 */
+	@Test
+	public void testSigningEngineHoldsItsMac() throws Exception {
+		SigningEngine engine = new SigningEngine("apiKey", "engineSecret", SignAlgorithm.HMAC_SHA256);
+		engine.sign("GET / HTTP/1.1", ContentDigest.EMPTY);
+		assertEquals(0, MacCache.size(SignAlgorithm.HMAC_SHA256));
+	}
+}
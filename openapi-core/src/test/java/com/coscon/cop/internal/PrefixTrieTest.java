@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.coscon.cop.core.Namespace;
+import com.coscon.cop.core.Signer;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class PrefixTrieTest {
+
+	/**
+	 * Test method for {@link com.coscon.cop.internal.PrefixTrie#match(CharSequence)}.
+	 */
+	@Test
+	public void testMatch() {
+		Map<String, String> prefixes = new HashMap<>();
+		prefixes.put("https://api.lines.coscoshipping.com/service", "service");
+		prefixes.put("https://api.lines.coscoshipping.com/service/synconhub", "synconhub");
+		PrefixTrie<String> trie = new PrefixTrie<>(prefixes);
+		assertEquals(2, trie.size());
+		assertEquals("service", trie.match("https://api.lines.coscoshipping.com/service/info/tracking/1"));
+		assertEquals("synconhub", trie.match("HTTPS://API.Lines.CoscoShipping.com/Service/SynconHub/product"));
+		assertNull(trie.match("https://api.lines.coscoshipping.com/servic"));
+		assertNull(trie.match("https://api-pp.lines.coscoshipping.com/service"));
+		assertNull(trie.match(""));
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.core.Signer#matchNamespace(String)}.
+	 */
+	@Test
+	public void testMatchNamespace() {
+		Signer signer = (provider, request) -> request;
+		for (Namespace namespace : Namespace.values()) {
+			assertEquals(namespace, signer.matchNamespace(namespace.getPrefix() + "/info/tracking/6309441170"));
+			assertEquals(namespace, signer.matchNamespace(namespace.getPrefix().toUpperCase()));
+			assertTrue(signer.acceptRequest(namespace.getPrefix() + "/synconhub/product/reefer/search"));
+		}
+		assertFalse(signer.acceptRequest("https://example.com/service"));
+		assertFalse(signer.acceptRequest("http://api.lines.coscoshipping.com/service"));
+	}
+
+	/**
+	 * {@link com.coscon.cop.internal.PrefixTrie#match(CharSequence)} does not
+	 * allocate.
+	 */
+	@Test
+	public void testMatchAllocation() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+		Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+
+		String url = Namespace.COP_PUBLIC_PP.getPrefix() + "/info/tracking/6309441170?numberType=bl";
+		int iterations = 100000;
+		int matched = 0;
+		for (int i = 0; i < iterations; i++) {
+			matched += NamespaceMatcher.match(url) == null ? 0 : 1;
+		}
+		long threadId = Thread.currentThread().getId();
+		long before = threadBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < iterations; i++) {
+			matched += NamespaceMatcher.match(url) == null ? 0 : 1;
+		}
+		long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+		assertEquals(2 * iterations, matched);
+		// a few bytes of slack for the measurement itself.
+		assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+	}
+}
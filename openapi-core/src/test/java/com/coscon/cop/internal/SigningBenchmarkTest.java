@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coscon.cop.core.SignAlgorithm;
+
+/**
+ * Multi-threaded signing throughput, run with <code>-Dcop.benchmark=true</code>.
+ * <p>
+ * Measures requests signed per second for 1..N threads, N being the number of
+ * available processors, and asserts the scaling against a single thread and
+ * the speedup of batch signing with tolerant bounds, since other load of the
+ * host skews the measurements.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class SigningBenchmarkTest {
+	private static final String REQUEST_LINE = "GET /service/info/tracking/6309441170?numberType=bl HTTP/1.1";
+	private static final long MEASURE_MILLIS = Long.getLong("cop.benchmark.millis", 2000L);
+	private static final ContentDigest EMPTY = ContentDigest.EMPTY;
+	/**
+	 * Share of the ideal scaling or speedup required.
+	 */
+	private static final double TOLERANCE = 0.5;
+
+	/**
+	 * One signing operation of a benchmark.
+	 */
+	private interface Operation {
+		void run() throws Exception;
+	}
+
+	@Before
+	public void setUp() {
+		Assume.assumeTrue("benchmark disabled, run with -Dcop.benchmark=true", Boolean.getBoolean("cop.benchmark"));
+	}
+
+	private static double throughput(int threads, final Operation operation) throws InterruptedException {
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final LongAdder counter = new LongAdder();
+		final CountDownLatch started = new CountDownLatch(threads);
+		List<Thread> workers = new ArrayList<>(threads);
+		for (int i = 0; i < threads; i++) {
+			Thread worker = new Thread(() -> {
+				started.countDown();
+				try {
+					while (running.get()) {
+						operation.run();
+						counter.increment();
+					}
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			workers.add(worker);
+			worker.start();
+		}
+		started.await();
+		// warm-up
+		Thread.sleep(MEASURE_MILLIS);
+		long before = counter.sum();
+		long start = System.nanoTime();
+		Thread.sleep(MEASURE_MILLIS);
+		long ops = counter.sum() - before;
+		long elapsed = System.nanoTime() - start;
+		running.set(false);
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		return ops * 1e9 / elapsed;
+	}
+
+	/**
+	 * Asserts that the throughput of all available processors is within
+	 * {@link #TOLERANCE} of the ideal scaling of a single thread.
+	 * 
+	 * @return throughput of a single thread and of all processors.
+	 */
+	private static double[] assertScales(String name, Operation operation) throws InterruptedException {
+		int cores = Runtime.getRuntime().availableProcessors();
+		double single = throughput(1, operation);
+		double all = cores == 1 ? single : throughput(cores, operation);
+		String measured = String.format("%s: %,.0f ops/s on 1 thread, %,.0f ops/s on %d threads", name, single, all,
+				cores);
+		assertTrue(measured, all >= single * cores * TOLERANCE);
+		return new double[] { single, all };
+	}
+
+	@Test
+	public void testSigningScalability() throws InterruptedException {
+		Assume.assumeTrue("scaling needs more than one processor", Runtime.getRuntime().availableProcessors() > 1);
+		final SigningEngine engine = new SigningEngine("apiKey", "secretKey", SignAlgorithm.HMAC_SHA1);
+		double[] prefetched = assertScales("sign, ThreadLocalNonceSource", () -> engine.sign(REQUEST_LINE, EMPTY));
+
+		final SigningEngine uuidEngine = new SigningEngine("apiKey", "secretKey", SignAlgorithm.HMAC_SHA1,
+				DateHeaderSource.shared(), () -> DigestUtils.md5Hex(UUID.randomUUID().toString()));
+		double uuid = throughput(Runtime.getRuntime().availableProcessors(),
+				() -> uuidEngine.sign(REQUEST_LINE, EMPTY));
+		assertTrue(String.format("prefetched nonces %,.0f ops/s, UUID + md5Hex %,.0f ops/s", prefetched[1], uuid),
+				prefetched[1] >= uuid);
+	}
+
+	@Test
+	public void testBatchSigning() throws Exception {
+		final SigningEngine engine = new SigningEngine("apiKey", "secretKey", SignAlgorithm.HMAC_SHA1);
+		final List<RequestToSign> batch = new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			batch.add(new RequestToSign(REQUEST_LINE, EMPTY));
+		}
+		double sequential = throughput(1, () -> {
+			for (RequestToSign request : batch) {
+				engine.sign(request.getRequestLine(), request.getContentDigest());
+			}
+		}) * batch.size();
+		double parallel = throughput(1, () -> engine.signAll(batch)) * batch.size();
+		int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		String measured = String.format("one by one %,.0f ops/s, signAll %,.0f ops/s on parallelism %d", sequential,
+				parallel, parallelism);
+		// Without parallelism signAll signs on the calling thread and must merely keep up.
+		double expected = parallelism > 1 ? parallelism * TOLERANCE : 1 - TOLERANCE / 2;
+		assertTrue(measured, parallel >= sequential * expected);
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.coscon.cop.core.SignAlgorithm;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class SigningEngineTest {
+	private static final String API_KEY = "apiKey";
+	private static final String SECRET_KEY = "secretKey";
+	private static final String REQUEST_LINE = "GET /service/info/tracking/6309441170?numberType=bl HTTP/1.1";
+
+	private final SigningEngine engine = new SigningEngine(API_KEY, SECRET_KEY, SignAlgorithm.HMAC_SHA256);
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.SigningEngine#sign(String, ContentDigest)}.
+	 */
+	@Test
+	public void testSign() throws Exception {
+		byte[] content = "{\"page\": 1}".getBytes(StandardCharsets.UTF_8);
+		assertSignature(engine.sign(REQUEST_LINE, ContentDigest.of(content)).toMap(), content);
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.internal.ContentDigest#of(byte[])}.
+	 */
+	@Test
+	public void testContentDigestKeepsSigningBuffer() {
+		SigningBuffer buffer = SigningBuffer.get();
+		try {
+			buffer.append("X-Coscon-Date: ");
+			byte[] content = "{\"page\": 1}".getBytes(StandardCharsets.UTF_8);
+			assertEquals("SHA-256=" + Base64.encodeBase64String(DigestUtils.sha256(content)),
+					ContentDigest.of(content).getHeaderValue());
+			assertEquals("X-Coscon-Date: ", buffer.toString());
+		} finally {
+			buffer.release();
+		}
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.internal.ContentDigest#of(byte[])}.
+	 */
+	@Test
+	public void testContentDigest() throws Exception {
+		assertSame(ContentDigest.EMPTY, ContentDigest.of(new byte[0]));
+		assertEquals("SHA-256=" + Base64.encodeBase64String(DigestUtils.sha256(new byte[0])),
+				ContentDigest.EMPTY.getHeaderValue());
+		byte[] content = "{\"page\": 1}".getBytes(StandardCharsets.UTF_8);
+		String expected = "SHA-256=" + Base64.encodeBase64String(DigestUtils.sha256(content));
+		// the per-thread digest is reset between calls.
+		assertEquals(expected, ContentDigest.of(content).getHeaderValue());
+		assertEquals(expected, ContentDigest.of(content).getHeaderValue());
+		assertEquals(expected, ContentDigest.of(new ByteArrayInputStream(content)).getHeaderValue());
+
+		ContentDigest precomputed = ContentDigest.of(content);
+		Payload payload = Payload.of(content, precomputed);
+		assertSame(precomputed, payload.getContentDigest());
+		assertEquals(expected, Payload.of("{\"page\": 1}").getContentDigest().getHeaderValue());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.SigningEngine#signAll(List, ForkJoinPool)}.
+	 */
+	@Test
+	public void testSignAll() throws Exception {
+		byte[] content = "{\"page\": 1}".getBytes(StandardCharsets.UTF_8);
+		ContentDigest digest = ContentDigest.of(content);
+		List<RequestToSign> requests = new ArrayList<>();
+		for (int i = 0; i < SigningEngine.BATCH_THRESHOLD * 8; i++) {
+			requests.add(new RequestToSign("POST /synconhub/product/reefer/search?page=" + i + " HTTP/1.1", digest));
+		}
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			List<RequestSignature> signatures = engine.signAll(requests, pool);
+			assertEquals(requests.size(), signatures.size());
+			Set<String> nonces = new HashSet<>();
+			for (int i = 0; i < requests.size(); i++) {
+				assertSignature(signatures.get(i).toMap(), content, requests.get(i).getRequestLine());
+				nonces.add(signatures.get(i).getNonce());
+			}
+			assertEquals(requests.size(), nonces.size());
+		} finally {
+			pool.shutdown();
+		}
+		assertTrue(engine.signAll(new ArrayList<>()).isEmpty());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.HmacPureExecutor#buildHmacHeaders(String, byte[])}.
+	 */
+	@SuppressWarnings("deprecation")
+	@Test
+	public void testBuildHmacHeaders() throws Exception {
+		HmacPureExecutor executor = new HmacPureExecutor() {
+			@Override
+			public SignAlgorithm getHmacAlgorithm() {
+				return SignAlgorithm.HMAC_SHA256;
+			}
+
+			@Override
+			protected String getApiKey() {
+				return API_KEY;
+			}
+
+			@Override
+			protected String getSecretKey() {
+				return SECRET_KEY;
+			}
+		};
+		byte[] content = "{\"page\": 1}".getBytes(StandardCharsets.UTF_8);
+		assertSignature(executor.buildHmacHeaders(REQUEST_LINE, content), content);
+	}
+
+	private static void assertSignature(Map<String, String> headers, byte[] content) throws Exception {
+		assertSignature(headers, content, REQUEST_LINE);
+	}
+
+	private static void assertSignature(Map<String, String> headers, byte[] content, String requestLine)
+			throws Exception {
+
+		String digest = "SHA-256=" + Base64.encodeBase64String(DigestUtils.sha256(content));
+		assertEquals(digest, headers.get(SigningEngine.X_DIGEST));
+		String signingString = SigningEngine.X_DATE + ": " + headers.get(SigningEngine.X_DATE) + "\n"
+				+ SigningEngine.X_DIGEST + ": " + digest + "\n" + SigningEngine.X_CONTENT_MD5 + ": "
+				+ headers.get(SigningEngine.X_CONTENT_MD5) + "\n" + requestLine;
+		String signature = Base64
+				.encodeBase64String(HmacShaUtil.signature("HmacSHA256", signingString, SECRET_KEY));
+		assertEquals("hmac username=\"apiKey\",algorithm=\"hmac-sha256\",headers=\"X-Coscon-Date X-Coscon-Digest "
+				+ "X-Coscon-Content-Md5 request-line\",signature=\"" + signature + "\"",
+				headers.get(SigningEngine.X_AUTHORIZATION));
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.internal.ThreadLocalNonceSource#nextNonce()}.
+	 */
+	@Test
+	public void testNextNonce() {
+		Set<String> nonces = new HashSet<>();
+		for (int i = 0; i < 1000; i++) {
+			String nonce = ThreadLocalNonceSource.getInstance().nextNonce();
+			assertTrue(nonce, nonce.matches("[0-9a-f]{32}"));
+			assertTrue(nonces.add(nonce));
+		}
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.internal.SigningBuffer#appendBase64(byte[], int)}.
+	 */
+	@Test
+	public void testAppendBase64() {
+		byte[] src = new byte[] { (byte) 0xfb, (byte) 0xff, 0x00, 0x7f, 0x10 };
+		for (int len = 0; len <= src.length; len++) {
+			byte[] part = new byte[len];
+			System.arraycopy(src, 0, part, 0, len);
+			assertEquals(Base64.encodeBase64String(part), SigningBuffer.get().appendBase64(src, len).toString());
+		}
+	}
+
+	/**
+	 * Signing string assembly and HMAC should not produce garbage besides the
+	 * header values.
+	 */
+	@Test
+	public void testSignAllocation() throws Exception {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+		Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+
+		ContentDigest content = ContentDigest.EMPTY;
+		int iterations = 20000;
+		for (int i = 0; i < iterations; i++) {
+			engine.sign(REQUEST_LINE, content);
+		}
+		long threadId = Thread.currentThread().getId();
+		long before = threadBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < iterations; i++) {
+			engine.sign(REQUEST_LINE, content);
+		}
+		long perRequest = (threadBean.getThreadAllocatedBytes(threadId) - before) / iterations;
+		assertTrue("allocated " + perRequest + " bytes per request", perRequest < 1024);
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.SigningEngine#of(String, String, SignAlgorithm)}.
+	 */
+	@Test
+	public void testSharedEngine() {
+		SigningEngine shared = SigningEngine.of(API_KEY, "sharedSecret", SignAlgorithm.HMAC_SHA256);
+		assertSame(shared, SigningEngine.of(API_KEY, "sharedSecret", SignAlgorithm.HMAC_SHA256));
+		assertNotSame(shared, SigningEngine.of(API_KEY, "sharedSecret", SignAlgorithm.HMAC_SHA1));
+		assertNotSame(shared, SigningEngine.of("otherKey", "sharedSecret", SignAlgorithm.HMAC_SHA256));
+
+		SigningEngine.evict("sharedSecret");
+		assertNotSame(shared, SigningEngine.of(API_KEY, "sharedSecret", SignAlgorithm.HMAC_SHA256));
+		SigningEngine.evict("sharedSecret");
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.SigningEngine#of(String, String, SignAlgorithm)}.
+	 */
+	@Test
+	public void testSharedEnginesBounded() {
+		for (int i = 0; i <= SigningEngine.MAX_SHARED; i++) {
+			SigningEngine.of(API_KEY, "boundedSecret" + i, SignAlgorithm.HMAC_SHA1);
+		}
+		assertTrue(SigningEngine.sharedSize() <= SigningEngine.MAX_SHARED);
+		for (int i = 0; i <= SigningEngine.MAX_SHARED; i++) {
+			SigningEngine.evict("boundedSecret" + i);
+		}
+	}
+}
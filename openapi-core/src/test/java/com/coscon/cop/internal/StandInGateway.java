@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.EndpointRegistry;
+import com.coscon.cop.core.Namespace;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+/**
+ * Local stand-in of a COP gateway for the tests of the transports: a
+ * {@link MockWebServer} over TLS with a self-signed certificate for
+ * <code>localhost</code>, registered as an {@link Endpoint} with the base path
+ * <code>/service</code>. Clients trust it through
+ * {@link #clientCertificates()} and sign with {@link #API_KEY} and
+ * {@link #SECRET_KEY}.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public final class StandInGateway implements Closeable {
+	public static final String API_KEY = "FakeApiKey";
+	public static final String SECRET_KEY = "FakeSecretKey";
+
+	private static final HeldCertificate LOCALHOST = new HeldCertificate.Builder()
+			.addSubjectAlternativeName("localhost").build();
+	private static final HandshakeCertificates SERVER_CERTIFICATES = new HandshakeCertificates.Builder()
+			.heldCertificate(LOCALHOST).build();
+	private static final HandshakeCertificates CLIENT_CERTIFICATES = new HandshakeCertificates.Builder()
+			.addTrustedCertificate(LOCALHOST.certificate()).build();
+
+	private final MockWebServer server;
+	private final Endpoint endpoint;
+
+	private StandInGateway(MockWebServer server, Endpoint endpoint) {
+		this.server = server;
+		this.endpoint = endpoint;
+	}
+
+	/**
+	 * Starts a stand-in and registers its endpoint.
+	 * 
+	 * @param name
+	 *            name of the endpoint, unique among the registered ones.
+	 * @param protocols
+	 *            protocols offered through ALPN, those of
+	 *            {@link MockWebServer} if none.
+	 */
+	public static StandInGateway start(String name, Namespace namespace, Protocol... protocols)
+			throws IOException {
+		MockWebServer server = new MockWebServer();
+		server.useHttps(SERVER_CERTIFICATES.sslSocketFactory(), false);
+		if (protocols.length > 0) {
+			server.setProtocols(Arrays.asList(protocols));
+		}
+		server.start();
+		Endpoint endpoint = Endpoint.of(name, "https://localhost:" + server.getPort() + "/service", namespace);
+		EndpointRegistry.register(endpoint);
+		return new StandInGateway(server, endpoint);
+	}
+
+	/**
+	 * @return trust material of the clients.
+	 */
+	public static HandshakeCertificates clientCertificates() {
+		return CLIENT_CERTIFICATES;
+	}
+
+	public MockWebServer getServer() {
+		return server;
+	}
+
+	public Endpoint getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * Unregisters the endpoint and shuts the server down.
+	 */
+	@Override
+	public void close() throws IOException {
+		EndpointRegistry.unregister(endpoint.getName());
+		server.shutdown();
+	}
+
+	/**
+	 * Asserts the request was signed with {@link #SECRET_KEY} over HTTP/1.1.
+	 */
+	public static void assertSigned(RecordedRequest request) throws ClientException {
+		assertSigned(request, "HTTP/1.1");
+	}
+
+	/**
+	 * Asserts the request was signed with {@link #SECRET_KEY}, the signature is
+	 * computed independently of the signing engine. The stand-in records the
+	 * request line of an HTTP/2 stream as HTTP/1.1, the signed version is
+	 * given instead.
+	 * 
+	 * @param version
+	 *            protocol version in the signed request line, e.g.
+	 *            <code>HTTP/2.0</code>.
+	 */
+	public static void assertSigned(RecordedRequest request, String version) throws ClientException {
+		String signingString = SigningEngine.X_DATE + ": " + request.getHeader(SigningEngine.X_DATE) + "\n"
+				+ SigningEngine.X_DIGEST + ": " + request.getHeader(SigningEngine.X_DIGEST) + "\n"
+				+ SigningEngine.X_CONTENT_MD5 + ": " + request.getHeader(SigningEngine.X_CONTENT_MD5) + "\n"
+				+ request.getMethod() + " " + request.getPath() + " " + version;
+		String signature = Base64.encodeBase64String(HmacShaUtil.signature("HmacSHA1", signingString, SECRET_KEY));
+		assertTrue(request.getHeader(SigningEngine.X_AUTHORIZATION).endsWith("signature=\"" + signature + "\""));
+	}
+}
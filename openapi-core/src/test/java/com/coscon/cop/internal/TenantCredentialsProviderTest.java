@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.coscon.cop.core.Credentials;
+import com.coscon.cop.core.CredentialsProvider;
+import com.coscon.cop.core.Namespace;
+import com.coscon.cop.core.SignAlgorithm;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class TenantCredentialsProviderTest {
+	private static final Namespace NS = Namespace.COP_PUBLIC_PP;
+	private static final String URL = NS.getPrefix() + "/info/tracking/6309441170?numberType=bl";
+
+	private static Credentials credentialsOf(String tenantId) {
+		return new UsernamePasswordCredentials(NS, tenantId + "-apiKey", tenantId + "-secretKey");
+	}
+
+	@After
+	public void tearDown() {
+		for (String tenantId : new String[] { "a", "b", "c" }) {
+			SigningEngine.evict(credentialsOf(tenantId).getPassword());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.TenantCredentialsProvider#forTenant(String)}.
+	 */
+	@Test
+	public void testForTenant() {
+		TenantCredentialsProvider provider = new TenantCredentialsProvider();
+		Credentials shared = credentialsOf("shared");
+		provider.setCredentials(NS, shared);
+		for (int i = 0; i < 1000; i++) {
+			provider.setCredentials("tenant-" + i, NS, credentialsOf("tenant-" + i));
+		}
+		assertEquals(1000, provider.getTenantCount());
+		assertSame(shared, provider.getCredentials(URL));
+
+		CredentialsProvider tenant = provider.forTenant("tenant-42");
+		assertEquals(credentialsOf("tenant-42"), tenant.getCredentials(URL));
+		assertEquals(credentialsOf("tenant-42"), tenant.getCredentials("https", "API-PP.lines.coscoshipping.com", -1,
+				"/service/info/tracking/6309441170"));
+		assertNull(tenant.getCredentials(Namespace.COP_PUBLIC_PROD));
+		assertNull(tenant.getCredentials("https://example.com/service"));
+		assertNull(provider.forTenant("unknown").getCredentials(URL));
+
+		assertEquals(credentialsOf("tenant-42"), tenant.removeCredentials(NS));
+		assertNull(tenant.getCredentials(URL));
+		assertEquals(1000, provider.getTenantCount());
+		tenant.clear();
+		assertEquals(999, provider.getTenantCount());
+		provider.clear();
+		assertEquals(0, provider.getTenantCount());
+		assertNull(provider.getCredentials(NS));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.TenantCredentialsProvider#getCredentials(String, Namespace)}.
+	 */
+	@Test
+	public void testLoadColdTenant() {
+		AtomicInteger loads = new AtomicInteger();
+		TenantCredentialsProvider provider = new TenantCredentialsProvider(0, tenantId -> {
+			loads.incrementAndGet();
+			return tenantId.startsWith("known") ? Collections.singletonMap(NS, credentialsOf(tenantId)) : null;
+		});
+		assertEquals(credentialsOf("known-1"), provider.getCredentials("known-1", NS));
+		assertEquals(credentialsOf("known-1"), provider.getCredentials("known-1", NS));
+		assertEquals(1, loads.get());
+
+		// unknown tenants are not held, they are looked up again.
+		assertNull(provider.getCredentials("other", NS));
+		assertNull(provider.getCredentials("other", NS));
+		assertEquals(3, loads.get());
+		assertEquals(1, provider.getTenantCount());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.TenantCredentialsProvider#getCredentials(String, Namespace)}.
+	 */
+	@Test
+	public void testLoadColdTenantOnce() throws Exception {
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		TenantCredentialsProvider provider = new TenantCredentialsProvider(0, tenantId -> {
+			loads.incrementAndGet();
+			loading.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return Collections.singletonMap(NS, credentialsOf(tenantId));
+		});
+		List<Credentials> results = new CopyOnWriteArrayList<>();
+		Thread[] requests = new Thread[8];
+		for (int i = 0; i < requests.length; i++) {
+			requests[i] = new Thread(() -> results.add(provider.getCredentials("cold", NS)));
+			requests[i].start();
+		}
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+		// all but the loading request wait for its result.
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (waiting(requests) < requests.length - 1 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		release.countDown();
+		for (Thread request : requests) {
+			request.join(5000);
+		}
+		assertEquals(1, loads.get());
+		assertEquals(requests.length, results.size());
+		for (Credentials credentials : results) {
+			assertSame(results.get(0), credentials);
+		}
+		assertEquals(credentialsOf("cold"), results.get(0));
+	}
+
+	private static int waiting(Thread[] threads) {
+		int waiting = 0;
+		for (Thread thread : threads) {
+			if (thread.getState() == Thread.State.WAITING) {
+				waiting++;
+			}
+		}
+		return waiting;
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.internal.TenantCredentialsProvider#TenantCredentialsProvider(int, int, TenantCredentialsLoader)}.
+	 */
+	@Test
+	public void testEvictLeastRecentlyUsed() throws Exception {
+		AtomicInteger loads = new AtomicInteger();
+		TenantCredentialsProvider provider = new TenantCredentialsProvider(1, 2, tenantId -> {
+			loads.incrementAndGet();
+			return Collections.singletonMap(NS, credentialsOf(tenantId));
+		});
+		provider.getCredentials("a", NS);
+		provider.getCredentials("b", NS);
+		SigningEngine engineA = SigningEngine.of(credentialsOf("a"), SignAlgorithm.HMAC_SHA1);
+		SigningEngine engineB = SigningEngine.of(credentialsOf("b"), SignAlgorithm.HMAC_SHA1);
+		// "b" becomes the least recently used.
+		provider.getCredentials("a", NS);
+		provider.getCredentials("c", NS);
+		assertEquals(2, provider.getTenantCount());
+		assertEquals(3, loads.get());
+		assertSame(engineA, SigningEngine.of(credentialsOf("a"), SignAlgorithm.HMAC_SHA1));
+		assertNotSame(engineB, SigningEngine.of(credentialsOf("b"), SignAlgorithm.HMAC_SHA1));
+
+		provider.getCredentials("a", NS);
+		assertEquals(3, loads.get());
+		provider.getCredentials("b", NS);
+		assertEquals(4, loads.get());
+
+		assertTrue(provider.removeTenant("a"));
+		assertFalse(provider.removeTenant("a"));
+		assertNotSame(engineA, SigningEngine.of(credentialsOf("a"), SignAlgorithm.HMAC_SHA1));
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.internal;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class ThreadLocalPoolTest {
+
+	/**
+	 * Test method for {@link com.coscon.cop.internal.ThreadLocalPool#acquire()}.
+	 */
+	@Test
+	public void testPlatformThreadKeepsInstance() throws Exception {
+		ThreadLocalPool<Object> pool = new ThreadLocalPool<>(Object::new);
+		Object first = pool.acquire();
+		pool.release(first);
+		assertSame(first, pool.acquire());
+
+		Object[] other = new Object[1];
+		Thread thread = new Thread(() -> other[0] = pool.acquire());
+		thread.start();
+		thread.join();
+		assertNotNull(other[0]);
+		assertNotSame(first, other[0]);
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.internal.ThreadLocalPool#adopt(Object)}.
+	 */
+	@Test
+	public void testAdoptWithoutFactory() {
+		ThreadLocalPool<Object> pool = new ThreadLocalPool<>(null);
+		assertNull(pool.acquire());
+		Object value = pool.adopt(new Object());
+		assertSame(value, pool.acquire());
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.internal.ThreadLocalPool#release(Object)}.
+	 */
+	@Test
+	public void testVirtualThreadsSharePool() throws Exception {
+		assumeTrue(VirtualThreads.isSupported());
+		ThreadLocalPool<Object> pool = new ThreadLocalPool<>(Object::new);
+		ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+		try {
+			Object first = executor.submit(() -> {
+				Object value = pool.acquire();
+				pool.release(value);
+				return value;
+			}).get(10, TimeUnit.SECONDS);
+			assertSame(first, executor.submit(pool::acquire).get(10, TimeUnit.SECONDS));
+			// a platform thread does not take from the pool.
+			assertNotSame(first, pool.acquire());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
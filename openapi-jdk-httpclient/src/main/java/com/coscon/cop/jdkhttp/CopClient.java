@@ -0,0 +1,548 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.jdkhttp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.CredentialsProvider;
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.EndpointRouter;
+import com.coscon.cop.core.Namespace;
+import com.coscon.cop.core.Validator;
+import com.coscon.cop.internal.CopClientBase;
+import com.coscon.cop.internal.CredentialsRefresher;
+import com.coscon.cop.internal.Payload;
+import com.coscon.cop.internal.StreamingValidator;
+
+/**
+ * COP client over {@link HttpClient} of the JDK, without any dependency but
+ * <code>openapi-core</code>. Requests are sent asynchronously through
+ * {@link HttpClient#sendAsync(HttpRequest, HttpResponse.BodyHandler)}, the
+ * blocking methods wait for the asynchronous ones.
+ * <p>
+ * Requests are signed by {@link SigningRequestBuilder} when they are built,
+ * response bodies are verified as they arrive.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class CopClient extends CopClientBase implements Closeable {
+
+	public static final String COP_SDK_VERSION = "COP_SDK_JdkHttpClient/0.0.1";
+
+	private static final String HEADER_CONTENT_TYPE = "Content-Type";
+
+	private HttpClient.Builder httpClientBuilder;
+
+	private HttpClient httpClient = null;
+
+	private CopClientSigner signer;
+
+	private boolean http2 = false;
+
+	/**
+	 * Version negotiated with each gateway, by scheme and authority.
+	 */
+	private final Map<String, HttpClient.Version> negotiatedVersions = new ConcurrentHashMap<>();
+
+	private CopClient() {
+		super();
+	}
+
+	@Override
+	protected void initialize() {
+		httpClientBuilder = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1);
+		setSignMethod(defaultSignMethod);
+		setResponseHandler(defaultResponseHandler);
+	}
+
+	public static CopClient newInstance() {
+		return new CopClient();
+	}
+
+	/**
+	 * the default response handler
+	 */
+	private static final ResponseHandler<String> defaultResponseHandler = new ResponseHandler<String>() {
+		@Override
+		public String handleResponse(HttpResponse<byte[]> response) throws IOException {
+			final int status = response.statusCode();
+			if (status >= 200 && status < 300) {
+				byte[] content = response.body();
+				return content == null ? "" : new String(content, charsetOf(response));
+			} else {
+				throw new IOException("http response - status:" + status);
+			}
+		}
+	};
+
+	private static Charset charsetOf(HttpResponse<?> response) {
+		String contentType = response.headers().firstValue(HEADER_CONTENT_TYPE).orElse("");
+		for (String parameter : contentType.split(";")) {
+			String[] pair = parameter.trim().split("=", 2);
+			if (pair.length == 2 && "charset".equalsIgnoreCase(pair[0].trim())) {
+				try {
+					return Charset.forName(pair[1].trim().replace("\"", ""));
+				} catch (IllegalArgumentException e) {
+					break;
+				}
+			}
+		}
+		return StandardCharsets.UTF_8;
+	}
+
+	@Override
+	public void setResponseHandler(Object handler) {
+		if (handler instanceof ResponseHandler<?>) {
+			super.setResponseHandler(handler);
+		} else {
+			Objects.requireNonNull(handler, "handler may not be null");
+			throw new IllegalArgumentException("handler may not ResponseHandler<String> intance");
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected ResponseHandler<String> getResponseHandler() {
+		return (ResponseHandler<String>) super.getResponseHandler();
+	}
+
+	/**
+	 * @return the httpClientBuilder
+	 */
+	public HttpClient.Builder getHttpClientBuilder() {
+		return Objects.requireNonNull(this.httpClientBuilder, "httpClientBuilder may not be null");
+	}
+
+	/**
+	 * Offers HTTP/2 to HTTPS gateways through ALPN, concurrent requests to a
+	 * gateway are then multiplexed over one connection. Must be called before
+	 * {@link #buildHttpClient()}.
+	 * <p>
+	 * Requests are signed for the version negotiated with their gateway. The
+	 * first request to a gateway is signed for HTTP/2 and sent once more if the
+	 * gateway answered over HTTP/1.1 and rejected it.
+	 */
+	public CopClient withHttp2() {
+		getHttpClientBuilder().version(HttpClient.Version.HTTP_2);
+		this.http2 = true;
+		return this;
+	}
+
+	@Override
+	public void buildHttpClient() throws ClientException {
+		if (Objects.isNull(this.httpClient)) {
+			signer = new CopClientSigner(getSignMethod());
+			setSigner(signer);
+			httpClient = getHttpClientBuilder().build();
+		} else {
+			throw new ClientException("Unable to overwrite httpclient");
+		}
+	}
+
+	/**
+	 * The connections of the JDK client are released once it is no longer
+	 * referenced.
+	 */
+	@Override
+	public void close() {
+		httpClient = null;
+		httpClientBuilder = null;
+		negotiatedVersions.clear();
+		super.close();
+	}
+
+	/**
+	 * Builder of requests signed with the credentials of this client, e.g. to
+	 * send requests the client has no method for.
+	 * 
+	 * @throws ClientException
+	 *             if the http client is not built yet.
+	 */
+	public SigningRequestBuilder newRequestBuilder() throws ClientException {
+		if (Objects.isNull(signer)) {
+			throw new ClientException("httpclient is not built yet");
+		}
+		return new SigningRequestBuilder(HttpRequest.newBuilder(), signer, this::getCredentialsProvider);
+	}
+
+	@Override
+	public CopClient withCredentials(Namespace namespace, String apiKey, String secretKey) throws ClientException {
+		return (CopClient) super.withCredentials(namespace, apiKey, secretKey);
+	}
+
+	@Override
+	public CopClient rotateCredentials(Namespace namespace, String apiKey, String secretKey) {
+		return (CopClient) super.rotateCredentials(namespace, apiKey, secretKey);
+	}
+
+	@Override
+	public CopClient withCredentialsRefresher(CredentialsRefresher.Source source, long period, TimeUnit unit)
+			throws ClientException {
+		return (CopClient) super.withCredentialsRefresher(source, period, unit);
+	}
+
+	@Override
+	public CopClient withCredentialsProvider(CredentialsProvider provider) {
+		return (CopClient) super.withCredentialsProvider(provider);
+	}
+
+	@Override
+	public CopClient withRouter(Namespace namespace, EndpointRouter router) {
+		return (CopClient) super.withRouter(namespace, router);
+	}
+
+	@Override
+	public CopClient withValidator(Namespace namespace, Validator validator) {
+		return (CopClient) super.withValidator(namespace, validator);
+	}
+
+	/*
+	 * *****************************************************************************
+	 * ********************
+	 */
+
+	private static String gatewayOf(URI uri) {
+		return uri.getScheme().toLowerCase(Locale.ROOT) + "://" + uri.getRawAuthority().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * @return version to sign the request for, HTTP/1.1 unless HTTP/2 is
+	 *         enabled and expected from the gateway.
+	 */
+	private HttpClient.Version versionOf(URI uri) {
+		if (!http2 || !"https".equalsIgnoreCase(uri.getScheme())) {
+			return HttpClient.Version.HTTP_1_1;
+		}
+		return negotiatedVersions.getOrDefault(gatewayOf(uri), HttpClient.Version.HTTP_2);
+	}
+
+	private static boolean rejected(int status) {
+		return status == 401 || status == 403;
+	}
+
+	private static ClientException clientExceptionOf(Throwable error) {
+		Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+				: error;
+		if (cause instanceof ClientException) {
+			return (ClientException) cause;
+		}
+		return new ClientException(cause.getLocalizedMessage(), cause);
+	}
+
+	/**
+	 * Sends a request to a registered endpoint.
+	 * 
+	 * @param payload
+	 *            <code>null</code> for a GET request.
+	 */
+	private CompletableFuture<HttpResponse<byte[]>> execute(Endpoint endpoint, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) {
+		final URI uri;
+		try {
+			uri = URI.create(requireRegistered(endpoint).resolve(relativeUri));
+		} catch (ClientException e) {
+			return failed(e);
+		} catch (IllegalArgumentException e) {
+			return failed(new ClientException(e.getLocalizedMessage(), e));
+		}
+		if (Objects.isNull(httpClient)) {
+			return failed(new ClientException("httpclient is not built yet"));
+		}
+		Validator validator = getValidatorProvider().getValidator(uri.getScheme(), uri.getHost(), uri.getPort(),
+				uri.getRawPath());
+		return send(uri, payload, extraHeaders, validator, true);
+	}
+
+	private CompletableFuture<HttpResponse<byte[]>> send(URI uri, Payload payload,
+			Map<String, List<String>> extraHeaders, Validator validator, boolean resendIfRejected) {
+		final HttpClient.Version version = versionOf(uri);
+		final HttpRequest request;
+		try {
+			SigningRequestBuilder builder = newRequestBuilder().uri(uri).version(version);
+			boolean contentType = false;
+			if (Objects.nonNull(extraHeaders)) {
+				for (Map.Entry<String, List<String>> headers : extraHeaders.entrySet()) {
+					contentType |= HEADER_CONTENT_TYPE.equalsIgnoreCase(headers.getKey());
+					for (String hValue : headers.getValue()) {
+						builder.header(headers.getKey(), hValue);
+					}
+				}
+			}
+			if (payload == null) {
+				builder.GET();
+			} else {
+				if (!contentType) {
+					builder.setHeader(HEADER_CONTENT_TYPE, "application/json; charset=UTF-8");
+				}
+				builder.POST(new DigestedBodyPublisher(payload));
+			}
+			request = builder.build();
+		} catch (ClientException e) {
+			return failed(e);
+		} catch (UncheckedIOException e) {
+			return failed(new ClientException(e.getCause().getLocalizedMessage(), e.getCause()));
+		} catch (IllegalArgumentException e) {
+			return failed(new ClientException(e.getLocalizedMessage(), e));
+		}
+		final CompletableFuture<HttpResponse<byte[]>> future = new CompletableFuture<>();
+		final CompletableFuture<HttpResponse<byte[]>> call = httpClient.sendAsync(request,
+				new VerifyingBodyHandler(validator));
+		call.whenComplete((response, error) -> {
+			if (error != null) {
+				future.completeExceptionally(clientExceptionOf(error));
+				return;
+			}
+			if (http2 && response.version() != version) {
+				negotiatedVersions.put(gatewayOf(uri), response.version());
+				if (resendIfRejected && rejected(response.statusCode())) {
+					send(uri, payload, extraHeaders, validator, false).whenComplete((resent, resendError) -> {
+						if (resendError != null) {
+							future.completeExceptionally(clientExceptionOf(resendError));
+						} else {
+							future.complete(resent);
+						}
+					});
+					return;
+				}
+			}
+			int status = response.statusCode();
+			if (validator != null && !(validator instanceof StreamingValidator) && status >= 200 && status < 300) {
+				try {
+					if (!validator.validate(response)) {
+						throw new IOException("COP response validation failed.");
+					}
+				} catch (IOException e) {
+					future.completeExceptionally(new ClientException(e.getLocalizedMessage(), e));
+					return;
+				}
+			}
+			future.complete(response);
+		});
+		future.whenComplete((response, error) -> {
+			if (future.isCancelled()) {
+				call.cancel(true);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Blocks until the asynchronous request completes.
+	 */
+	private static <T> T await(CompletableFuture<T> future) throws ClientException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new ClientException(e.getLocalizedMessage(), e);
+		} catch (ExecutionException e) {
+			throw clientExceptionOf(e.getCause());
+		}
+	}
+
+	private String handleResponse(HttpResponse<byte[]> response) throws ClientException {
+		try {
+			return getResponseHandler().handleResponse(response);
+		} catch (IOException e) {
+			throw new ClientException(e.getLocalizedMessage(), e);
+		}
+	}
+
+	private CompletableFuture<String> handleAsync(CompletableFuture<HttpResponse<byte[]>> responseFuture) {
+		return responseFuture.thenApply(response -> {
+			try {
+				return getResponseHandler().handleResponse(response);
+			} catch (IOException e) {
+				throw new CompletionException(new ClientException(e.getLocalizedMessage(), e));
+			}
+		});
+	}
+
+	@Override
+	public String doGet(Namespace namespace, String relativeUri) throws ClientException {
+		return doGet(namespace, relativeUri, null);
+	}
+
+	@Override
+	public String doGet(Namespace namespace, String relativeUri, Map<String, List<String>> extraHeaders)
+			throws ClientException {
+		return handleResponse(doGetWithResponse(namespace, relativeUri, extraHeaders));
+	}
+
+	@Override
+	public HttpResponse<byte[]> doGetWithResponse(Namespace namespace, String relativeUri) throws ClientException {
+		return doGetWithResponse(namespace, relativeUri, null);
+	}
+
+	@Override
+	public HttpResponse<byte[]> doGetWithResponse(Namespace namespace, String relativeUri,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return await(doGetWithResponseAsync(namespace, relativeUri, extraHeaders));
+	}
+
+	@Override
+	public String doPost(Namespace namespace, String relativeUri, String payload) throws ClientException {
+		return doPost(namespace, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	@Override
+	public String doPost(Namespace namespace, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return handleResponse(doPostWithResponse(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public HttpResponse<byte[]> doPostWithResponse(Namespace namespace, String relativeUri, String payload)
+			throws ClientException {
+		return doPostWithResponse(namespace, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	@Override
+	public HttpResponse<byte[]> doPostWithResponse(Namespace namespace, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return await(doPostWithResponseAsync(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public String doPost(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return handleResponse(doPostWithResponse(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public HttpResponse<byte[]> doPostWithResponse(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return await(doPostWithResponseAsync(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public String doGet(Endpoint endpoint, String relativeUri, Map<String, List<String>> extraHeaders)
+			throws ClientException {
+		return handleResponse(doGetWithResponse(endpoint, relativeUri, extraHeaders));
+	}
+
+	@Override
+	public HttpResponse<byte[]> doGetWithResponse(Endpoint endpoint, String relativeUri) throws ClientException {
+		return doGetWithResponse(endpoint, relativeUri, null);
+	}
+
+	@Override
+	public HttpResponse<byte[]> doGetWithResponse(Endpoint endpoint, String relativeUri,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return await(execute(endpoint, relativeUri, null, extraHeaders));
+	}
+
+	@Override
+	public String doPost(Endpoint endpoint, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return handleResponse(doPostWithResponse(endpoint, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public HttpResponse<byte[]> doPostWithResponse(Endpoint endpoint, String relativeUri, String payload)
+			throws ClientException {
+		return doPostWithResponse(endpoint, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	@Override
+	public HttpResponse<byte[]> doPostWithResponse(Endpoint endpoint, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return doPostWithResponse(endpoint, relativeUri, Payload.of(payload), extraHeaders);
+	}
+
+	@Override
+	public String doPost(Endpoint endpoint, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return handleResponse(doPostWithResponse(endpoint, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public HttpResponse<byte[]> doPostWithResponse(Endpoint endpoint, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return await(execute(endpoint, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<String> doGetAsync(Namespace namespace, String relativeUri,
+			Map<String, List<String>> extraHeaders) {
+		return handleAsync(doGetWithResponseAsync(namespace, relativeUri, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse<byte[]>> doGetWithResponseAsync(Namespace namespace, String relativeUri) {
+		return doGetWithResponseAsync(namespace, relativeUri, null);
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse<byte[]>> doGetWithResponseAsync(Namespace namespace, String relativeUri,
+			Map<String, List<String>> extraHeaders) {
+		return routeAsync(namespace, true, endpoint -> execute(endpoint, relativeUri, null, extraHeaders),
+				HttpResponse::statusCode);
+	}
+
+	@Override
+	public CompletableFuture<String> doPostAsync(Namespace namespace, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) {
+		return handleAsync(doPostWithResponseAsync(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse<byte[]>> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			String payload) {
+		return doPostWithResponseAsync(namespace, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse<byte[]>> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			String payload, Map<String, List<String>> extraHeaders) {
+		return doPostWithResponseAsync(namespace, relativeUri, Payload.of(payload), extraHeaders);
+	}
+
+	@Override
+	public CompletableFuture<String> doPostAsync(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) {
+		return handleAsync(doPostWithResponseAsync(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse<byte[]>> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			Payload payload, Map<String, List<String>> extraHeaders) {
+		Objects.requireNonNull(payload, "payload may not be null");
+		return routeAsync(namespace, false,
+				endpoint -> execute(endpoint, relativeUri, payload, extraHeaders),
+				HttpResponse::statusCode);
+	}
+}
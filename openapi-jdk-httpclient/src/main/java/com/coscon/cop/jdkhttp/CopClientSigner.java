@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.jdkhttp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.Credentials;
+import com.coscon.cop.core.CredentialsProvider;
+import com.coscon.cop.core.SignAlgorithm;
+import com.coscon.cop.core.Signer;
+import com.coscon.cop.internal.BasicSigner;
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.DigestedContent;
+import com.coscon.cop.internal.RequestSignature;
+import com.coscon.cop.internal.SigningEngine;
+import com.coscon.cop.internal.TenantCredentialsProvider;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+class CopClientSigner extends BasicSigner implements Signer {
+	static final String CONTENT_TYPE_JSON = "application/json";
+	static final String CHARSET_UTF8 = "UTF-8";
+
+	public CopClientSigner(SignAlgorithm method) {
+		super(method);
+	}
+
+	/**
+	 * @return version of the request line, HTTP/2 is signed as
+	 *         <code>HTTP/2.0</code> like the other transports.
+	 */
+	static String versionOf(HttpClient.Version version) {
+		return version == HttpClient.Version.HTTP_2 ? "HTTP/2.0" : "HTTP/1.1";
+	}
+
+	static String requestLineOf(String method, URI uri, HttpClient.Version version) {
+		String path = uri.getRawPath();
+		StringBuilder requestLine = new StringBuilder(method).append(' ')
+				.append(path == null || path.isEmpty() ? "/" : path);
+		if (uri.getRawQuery() != null) {
+			requestLine.append('?').append(uri.getRawQuery());
+		}
+		return requestLine.append(' ').append(versionOf(version)).toString();
+	}
+
+	/**
+	 * Resolves the credentials of the request, of its tenant if any.
+	 * 
+	 * @param tenantId
+	 *            <code>null</code> if the request is not bound to a tenant.
+	 */
+	SigningEngine getSigningEngine(CredentialsProvider provider, URI uri, String tenantId) throws IOException {
+		if (uri.getHost() == null) {
+			throw new IOException("Unable to determine the target host");
+		}
+		final Credentials credentials = getCredentialsProvider(provider, tenantId).getCredentials(uri.getScheme(),
+				uri.getHost(), uri.getPort(), uri.getRawPath());
+		if (Objects.isNull(credentials)) {
+			throw new IOException("Unable to find suitable credentials");
+		}
+		return getSigningEngine(credentials);
+	}
+
+	/**
+	 * The bodies of {@link CopClient} know their digest, a body publisher is
+	 * never subscribed to just to sign the request.
+	 */
+	static ContentDigest digestOf(BodyPublisher body) throws IOException {
+		if (body == null || body.contentLength() == 0) {
+			return ContentDigest.EMPTY;
+		}
+		if (body instanceof DigestedContent) {
+			return ((DigestedContent) body).getContentDigest();
+		}
+		throw new IOException("Request body of unknown digest:" + body);
+	}
+
+	/**
+	 * Signs the request line and writes the signature with the COP headers to
+	 * the builder.
+	 */
+	void sign(SigningEngine engine, HttpRequest.Builder builder, String requestLine, ContentDigest contentDigest,
+			String userAgent) throws IOException {
+		RequestSignature signature;
+		try {
+			signature = engine.sign(requestLine, contentDigest);
+		} catch (ClientException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		signature.writeTo(builder::setHeader);
+		if (userAgent == null || userAgent.isEmpty()) {
+			builder.setHeader(HEADER_USER_AGENT, CopClient.COP_SDK_VERSION);
+		} else if (!userAgent.toUpperCase().contains(CopClient.COP_SDK_VERSION.toUpperCase())) {
+			builder.setHeader(HEADER_USER_AGENT, userAgent + " " + CopClient.COP_SDK_VERSION);
+		}
+		builder.setHeader(HEADER_ACCEPT, CONTENT_TYPE_JSON);
+		builder.setHeader(HEADER_ACCEPT_CHARSET, CHARSET_UTF8);
+	}
+
+	/**
+	 * A built {@link HttpRequest} is immutable, the signed copy is returned
+	 * instead. The request is signed for the version it asks for, HTTP/1.1 if
+	 * it leaves that to the client.
+	 */
+	@Override
+	public Object sign(CredentialsProvider provider, Object rawRequest) throws IOException {
+		if (!(rawRequest instanceof HttpRequest)) {
+			throw new IllegalArgumentException("HttpRequest request is expected.");
+		}
+		HttpRequest request = (HttpRequest) rawRequest;
+		SigningRequestBuilder builder = new SigningRequestBuilder(HttpRequest.newBuilder(), this, () -> provider);
+		builder.uri(request.uri()).expectContinue(request.expectContinue());
+		request.timeout().ifPresent(builder::timeout);
+		builder.version(request.version().orElse(HttpClient.Version.HTTP_1_1));
+		for (Map.Entry<String, List<String>> header : request.headers().map().entrySet()) {
+			for (String value : header.getValue()) {
+				builder.header(header.getKey(), value);
+			}
+		}
+		builder.method(request.method(), request.bodyPublisher().orElse(HttpRequest.BodyPublishers.noBody()));
+		try {
+			return builder.build();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	static boolean isTenantHeader(String name) {
+		return TenantCredentialsProvider.TENANT_HEADER.equalsIgnoreCase(name);
+	}
+}
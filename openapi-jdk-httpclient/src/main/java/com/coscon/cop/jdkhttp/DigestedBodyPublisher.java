@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.jdkhttp;
+
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow.Subscriber;
+
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.DigestedContent;
+import com.coscon.cop.internal.Payload;
+
+/**
+ * Request body published from the bytes of a {@link Payload}, whose digest is
+ * known in advance.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+class DigestedBodyPublisher implements BodyPublisher, DigestedContent {
+	private final BodyPublisher delegate;
+	private final ContentDigest contentDigest;
+
+	DigestedBodyPublisher(Payload payload) {
+		this.delegate = BodyPublishers.ofByteArray(payload.getContent());
+		this.contentDigest = payload.getContentDigest();
+	}
+
+	@Override
+	public ContentDigest getContentDigest() {
+		return contentDigest;
+	}
+
+	@Override
+	public long contentLength() {
+		return delegate.contentLength();
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+		delegate.subscribe(subscriber);
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.jdkhttp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import com.coscon.cop.core.CredentialsProvider;
+import com.coscon.cop.internal.SigningEngine;
+
+/**
+ * {@link HttpRequest.Builder} which signs the request when it is built, since
+ * {@link HttpClient} has no interceptors and the built request is immutable.
+ * <p>
+ * The request is signed for the version set on the builder, HTTP/1.1 unless
+ * set otherwise. The tenant header only selects the credentials and is not
+ * sent.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class SigningRequestBuilder implements HttpRequest.Builder {
+	private static final String HEADER_USER_AGENT = "User-Agent";
+
+	private final HttpRequest.Builder delegate;
+	private final CopClientSigner signer;
+	private final Supplier<CredentialsProvider> provider;
+	private URI uri;
+	private String method = "GET";
+	private BodyPublisher body;
+	private HttpClient.Version version;
+	private String tenantId;
+	private String userAgent;
+
+	SigningRequestBuilder(HttpRequest.Builder delegate, CopClientSigner signer,
+			Supplier<CredentialsProvider> provider) {
+		this.delegate = Objects.requireNonNull(delegate, "delegate may not be null");
+		this.signer = Objects.requireNonNull(signer, "signer may not be null");
+		this.provider = Objects.requireNonNull(provider, "provider may not be null");
+	}
+
+	@Override
+	public SigningRequestBuilder uri(URI uri) {
+		delegate.uri(uri);
+		this.uri = uri;
+		return this;
+	}
+
+	@Override
+	public SigningRequestBuilder expectContinue(boolean enable) {
+		delegate.expectContinue(enable);
+		return this;
+	}
+
+	@Override
+	public SigningRequestBuilder version(HttpClient.Version version) {
+		delegate.version(version);
+		this.version = version;
+		return this;
+	}
+
+	@Override
+	public SigningRequestBuilder header(String name, String value) {
+		if (CopClientSigner.isTenantHeader(name)) {
+			tenantId = value;
+		} else {
+			delegate.header(name, value);
+			if (HEADER_USER_AGENT.equalsIgnoreCase(name)) {
+				userAgent = userAgent == null ? value : userAgent + ", " + value;
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public SigningRequestBuilder headers(String... headers) {
+		Objects.requireNonNull(headers, "headers may not be null");
+		if (headers.length % 2 != 0) {
+			throw new IllegalArgumentException("wrong number, " + headers.length + ", of parameters");
+		}
+		for (int i = 0; i < headers.length; i += 2) {
+			header(headers[i], headers[i + 1]);
+		}
+		return this;
+	}
+
+	@Override
+	public SigningRequestBuilder timeout(Duration duration) {
+		delegate.timeout(duration);
+		return this;
+	}
+
+	@Override
+	public SigningRequestBuilder setHeader(String name, String value) {
+		if (CopClientSigner.isTenantHeader(name)) {
+			tenantId = value;
+		} else {
+			delegate.setHeader(name, value);
+			if (HEADER_USER_AGENT.equalsIgnoreCase(name)) {
+				userAgent = value;
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public SigningRequestBuilder GET() {
+		return method("GET", null);
+	}
+
+	@Override
+	public SigningRequestBuilder POST(BodyPublisher bodyPublisher) {
+		return method("POST", Objects.requireNonNull(bodyPublisher, "bodyPublisher may not be null"));
+	}
+
+	@Override
+	public SigningRequestBuilder PUT(BodyPublisher bodyPublisher) {
+		return method("PUT", Objects.requireNonNull(bodyPublisher, "bodyPublisher may not be null"));
+	}
+
+	@Override
+	public SigningRequestBuilder DELETE() {
+		return method("DELETE", null);
+	}
+
+	@Override
+	public SigningRequestBuilder method(String method, BodyPublisher bodyPublisher) {
+		if (bodyPublisher == null) {
+			if ("GET".equals(method)) {
+				delegate.GET();
+			} else if ("DELETE".equals(method)) {
+				delegate.DELETE();
+			} else {
+				delegate.method(method, HttpRequest.BodyPublishers.noBody());
+			}
+		} else {
+			delegate.method(method, bodyPublisher);
+		}
+		this.method = method;
+		this.body = bodyPublisher;
+		return this;
+	}
+
+	/**
+	 * @throws UncheckedIOException
+	 *             when the request can not be signed, e.g. without credentials
+	 *             for its URI.
+	 */
+	@Override
+	public HttpRequest build() {
+		if (uri == null) {
+			throw new IllegalStateException("uri is not set");
+		}
+		HttpClient.Version signedVersion = version == null ? HttpClient.Version.HTTP_1_1 : version;
+		delegate.version(signedVersion);
+		try {
+			SigningEngine engine = signer.getSigningEngine(provider.get(), uri, tenantId);
+			signer.sign(engine, delegate, CopClientSigner.requestLineOf(method, uri, signedVersion),
+					CopClientSigner.digestOf(body), userAgent);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e.getMessage(), e);
+		}
+		return delegate.build();
+	}
+
+	@Override
+	public SigningRequestBuilder copy() {
+		SigningRequestBuilder copy = new SigningRequestBuilder(delegate.copy(), signer, provider);
+		copy.uri = uri;
+		copy.method = method;
+		copy.body = body;
+		copy.version = version;
+		copy.tenantId = tenantId;
+		copy.userAgent = userAgent;
+		return copy;
+	}
+}
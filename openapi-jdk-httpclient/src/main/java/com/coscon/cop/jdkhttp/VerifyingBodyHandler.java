@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.jdkhttp;
+
+import java.io.IOException;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+import com.coscon.cop.core.Validator;
+import com.coscon.cop.internal.BodyVerifier;
+import com.coscon.cop.internal.StreamingValidator;
+
+/**
+ * Collects the response body and feeds a {@link StreamingValidator} with
+ * every buffer as it arrives, the body completes once it has been verified at
+ * end of stream.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+class VerifyingBodyHandler implements BodyHandler<byte[]> {
+	private final Validator validator;
+
+	/**
+	 * @param validator
+	 *            validator of the request, <code>null</code> if none.
+	 */
+	VerifyingBodyHandler(Validator validator) {
+		this.validator = validator;
+	}
+
+	@Override
+	public BodySubscriber<byte[]> apply(ResponseInfo responseInfo) {
+		BodySubscriber<byte[]> body = BodySubscribers.ofByteArray();
+		int status = responseInfo.statusCode();
+		if (!(validator instanceof StreamingValidator) || status < 200 || status >= 300) {
+			return body;
+		}
+		try {
+			return new VerifyingSubscriber(body, ((StreamingValidator) validator)
+					.begin(name -> responseInfo.headers().firstValue(name).orElse(null)));
+		} catch (IOException e) {
+			return new VerifyingSubscriber(body, e);
+		}
+	}
+
+	private static class VerifyingSubscriber implements BodySubscriber<byte[]> {
+		private final BodySubscriber<byte[]> downstream;
+		private final BodyVerifier verifier;
+		private final IOException failure;
+
+		VerifyingSubscriber(BodySubscriber<byte[]> downstream, BodyVerifier verifier) {
+			this.downstream = downstream;
+			this.verifier = verifier;
+			this.failure = null;
+		}
+
+		/**
+		 * The response failed validation from its headers, the body is
+		 * discarded.
+		 */
+		VerifyingSubscriber(BodySubscriber<byte[]> downstream, IOException failure) {
+			this.downstream = downstream;
+			this.verifier = null;
+			this.failure = failure;
+		}
+
+		@Override
+		public CompletionStage<byte[]> getBody() {
+			return downstream.getBody();
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			if (failure != null) {
+				subscription.cancel();
+				downstream.onError(failure);
+			} else {
+				downstream.onSubscribe(subscription);
+			}
+		}
+
+		@Override
+		public void onNext(List<ByteBuffer> items) {
+			if (failure != null) {
+				return;
+			}
+			for (ByteBuffer item : items) {
+				ByteBuffer chunk = item.duplicate();
+				if (chunk.hasArray()) {
+					verifier.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+				} else {
+					byte[] bytes = new byte[chunk.remaining()];
+					chunk.get(bytes);
+					verifier.write(bytes, 0, bytes.length);
+				}
+			}
+			downstream.onNext(items);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			if (failure == null) {
+				downstream.onError(throwable);
+			}
+		}
+
+		@Override
+		public void onComplete() {
+			if (failure != null) {
+				return;
+			}
+			try {
+				verifier.verify();
+			} catch (IOException e) {
+				downstream.onError(e);
+				return;
+			}
+			downstream.onComplete();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.jdkhttp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.EndpointRouter;
+import com.coscon.cop.core.Namespace;
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.ContentDigestValidator;
+import com.coscon.cop.internal.SigningEngine;
+import com.coscon.cop.internal.StandInGateway;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Requests over HTTP/1.1 and HTTP/2 against a local stand-in gateway.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class CopClientTest {
+	private static final Namespace NS = Namespace.COP_PUBLIC_PP;
+	private static final String URI = "/info/tracking/6309441170?numberType=bl";
+	private static final String BODY = "{\"code\":0}";
+
+	private StandInGateway gateway;
+	private MockWebServer server;
+	private Endpoint endpoint;
+	private CopClient client;
+
+	private void start(Protocol... protocols) throws Exception {
+		gateway = StandInGateway.start("stand-in-jdk", NS, protocols);
+		server = gateway.getServer();
+		endpoint = gateway.getEndpoint();
+	}
+
+	private CopClient newClient(boolean http2) throws Exception {
+		client = CopClient.newInstance();
+		if (http2) {
+			client.withHttp2();
+		}
+		client.getHttpClientBuilder().sslContext(StandInGateway.clientCertificates().sslContext());
+		client.withCredentials(NS, StandInGateway.API_KEY, StandInGateway.SECRET_KEY);
+		client.buildHttpClient();
+		client.withRouter(NS, new EndpointRouter(Collections.singletonList(endpoint)));
+		return client;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (client != null) {
+			client.close();
+		}
+		if (gateway != null) {
+			gateway.close();
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.jdkhttp.CopClient#doPostWithResponse(Endpoint, String, String)}.
+	 */
+	@Test
+	public void testHttp11() throws Exception {
+		start(Protocol.HTTP_2, Protocol.HTTP_1_1);
+		server.enqueue(new MockResponse().setBody(BODY));
+		server.enqueue(new MockResponse().setBody(BODY));
+		newClient(false);
+		assertEquals(BODY, client.doGet(endpoint, URI));
+		HttpResponse<byte[]> response = client.doPostWithResponse(endpoint, URI, "{\"numbers\":[\"6309441170\"]}");
+		assertEquals(HttpClient.Version.HTTP_1_1, response.version());
+		StandInGateway.assertSigned(server.takeRequest(), "HTTP/1.1");
+		RecordedRequest post = server.takeRequest();
+		StandInGateway.assertSigned(post, "HTTP/1.1");
+		assertEquals(ContentDigest.of("{\"numbers\":[\"6309441170\"]}".getBytes("UTF-8")).getHeaderValue(),
+				post.getHeader(SigningEngine.X_DIGEST));
+		assertTrue(post.getHeader("User-Agent").contains(CopClient.COP_SDK_VERSION));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.jdkhttp.CopClient#doGetAsync(Namespace, String)}.
+	 */
+	@Test
+	public void testHttp2() throws Exception {
+		start(Protocol.HTTP_2, Protocol.HTTP_1_1);
+		for (int i = 0; i < 12; i++) {
+			server.enqueue(new MockResponse().setBody(BODY));
+		}
+		newClient(true);
+		assertEquals(HttpClient.Version.HTTP_2, client.doGetWithResponse(NS, URI).version());
+		List<CompletableFuture<String>> futures = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			futures.add(client.doGetAsync(NS, URI));
+		}
+		futures.add(client.doPostAsync(NS, URI, "{\"numbers\":[\"6309441170\"]}"));
+		for (CompletableFuture<String> future : futures) {
+			assertEquals(BODY, future.get(10, TimeUnit.SECONDS));
+		}
+		// streams of the one connection are numbered in sequence.
+		Set<Integer> sequenceNumbers = new HashSet<>();
+		for (int i = 0; i < 12; i++) {
+			RecordedRequest request = server.takeRequest();
+			assertEquals("/service" + URI, request.getPath());
+			StandInGateway.assertSigned(request, "HTTP/2.0");
+			assertTrue(sequenceNumbers.add(request.getSequenceNumber()));
+		}
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.jdkhttp.CopClient#withHttp2()}.
+	 */
+	@Test
+	public void testHttp2Fallback() throws Exception {
+		start(Protocol.HTTP_1_1);
+		// the gateway rejects the signature for HTTP/2.0 over HTTP/1.1.
+		server.enqueue(new MockResponse().setResponseCode(401));
+		server.enqueue(new MockResponse().setBody(BODY));
+		server.enqueue(new MockResponse().setBody(BODY));
+		newClient(true);
+		assertEquals(BODY, client.doGet(endpoint, URI));
+		assertEquals(BODY, client.doGet(endpoint, URI));
+		StandInGateway.assertSigned(server.takeRequest(), "HTTP/2.0");
+		StandInGateway.assertSigned(server.takeRequest(), "HTTP/1.1");
+		StandInGateway.assertSigned(server.takeRequest(), "HTTP/1.1");
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.jdkhttp.CopClient#doGet(Endpoint, String)}.
+	 */
+	@Test
+	public void testStreamingValidation() throws Exception {
+		start(Protocol.HTTP_2, Protocol.HTTP_1_1);
+		newClient(true);
+		client.withValidator(NS, new ContentDigestValidator());
+		String digest = ContentDigest.of(BODY.getBytes("UTF-8")).getHeaderValue();
+		server.enqueue(new MockResponse().setBody(BODY).setHeader(SigningEngine.X_DIGEST, digest));
+		server.enqueue(new MockResponse().setBody("{\"code\":1}").setHeader(SigningEngine.X_DIGEST, digest));
+		assertEquals(BODY, client.doGet(endpoint, URI));
+		try {
+			client.doGet(endpoint, URI);
+			fail("digest mismatch is expected");
+		} catch (ClientException e) {
+			assertTrue(e.getMessage().contains("mismatch"));
+		}
+	}
+}
@@ -0,0 +1,612 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.netty;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.CredentialsProvider;
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.EndpointRouter;
+import com.coscon.cop.core.Namespace;
+import com.coscon.cop.core.Validator;
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.CopClientBase;
+import com.coscon.cop.internal.CredentialsRefresher;
+import com.coscon.cop.internal.Payload;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.pool.AbstractChannelPoolHandler;
+import io.netty.channel.pool.AbstractChannelPoolMap;
+import io.netty.channel.pool.ChannelHealthChecker;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.concurrent.Future;
+
+/**
+ * COP client on the event loop of Netty, for many requests in flight on few
+ * threads. Each gateway has a {@link FixedChannelPool} of HTTP/1.1
+ * connections, requests beyond its capacity wait for a connection without
+ * holding a thread.
+ * <p>
+ * Responses are {@link PooledHttpResponse}s whose content stays in the
+ * buffers read from the connection, the caller must release them. The
+ * blocking methods wait for the asynchronous ones and must not be called on
+ * the event loop.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class CopClient extends CopClientBase implements Closeable {
+
+	public static final String COP_SDK_VERSION = "COP_SDK_Netty/0.0.1";
+
+	private static final String EXCHANGE_HANDLER = "cop-exchange";
+
+	private Bootstrap bootstrap;
+
+	private SslContextBuilder sslContextBuilder;
+
+	private int maxConnectionsPerEndpoint = 64;
+
+	private long responseTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+
+	private EventLoopGroup eventLoopGroup = null;
+
+	private AbstractChannelPoolMap<URI, FixedChannelPool> channelPools;
+
+	private CopClientSigner signer;
+
+	private CopClient() {
+		super();
+	}
+
+	@Override
+	protected void initialize() {
+		bootstrap = new Bootstrap().channel(NioSocketChannel.class)
+				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) TimeUnit.SECONDS.toMillis(10))
+				.option(ChannelOption.SO_KEEPALIVE, true).option(ChannelOption.TCP_NODELAY, true);
+		sslContextBuilder = SslContextBuilder.forClient();
+		setSignMethod(defaultSignMethod);
+		setResponseHandler(defaultResponseHandler);
+	}
+
+	public static CopClient newInstance() {
+		return new CopClient();
+	}
+
+	/**
+	 * the default response handler
+	 */
+	private static final ResponseHandler<String> defaultResponseHandler = new ResponseHandler<String>() {
+		@Override
+		public String handleResponse(FullHttpResponse response) throws IOException {
+			final int status = response.status().code();
+			if (status >= 200 && status < 300) {
+				return response.content().toString(HttpUtil.getCharset(response, StandardCharsets.UTF_8));
+			} else {
+				throw new IOException(
+						"http response - status:" + status + ", reason phrase:" + response.status().reasonPhrase());
+			}
+		}
+	};
+
+	@Override
+	public void setResponseHandler(Object handler) {
+		if (handler instanceof ResponseHandler<?>) {
+			super.setResponseHandler(handler);
+		} else {
+			Objects.requireNonNull(handler, "handler may not be null");
+			throw new IllegalArgumentException("handler may not ResponseHandler<String> intance");
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected ResponseHandler<String> getResponseHandler() {
+		return (ResponseHandler<String>) super.getResponseHandler();
+	}
+
+	/**
+	 * @return the bootstrap every connection is opened with, its group is set
+	 *         by {@link #buildHttpClient()}.
+	 */
+	public Bootstrap getBootstrap() {
+		return Objects.requireNonNull(this.bootstrap, "bootstrap may not be null");
+	}
+
+	/**
+	 * @return the builder of the TLS context of HTTPS gateways.
+	 */
+	public SslContextBuilder getSslContextBuilder() {
+		return Objects.requireNonNull(this.sslContextBuilder, "sslContextBuilder may not be null");
+	}
+
+	/**
+	 * @param maxConnections
+	 *            connections kept to each gateway, 64 by default. Must be set
+	 *            before {@link #buildHttpClient()}.
+	 */
+	public CopClient withMaxConnectionsPerEndpoint(int maxConnections) {
+		if (maxConnections < 1) {
+			throw new IllegalArgumentException("maxConnections must be positive");
+		}
+		this.maxConnectionsPerEndpoint = maxConnections;
+		return this;
+	}
+
+	/**
+	 * @param timeout
+	 *            time from sending a request to its complete response, 30
+	 *            seconds by default, not positive to wait forever.
+	 */
+	public CopClient withResponseTimeout(long timeout, TimeUnit unit) {
+		this.responseTimeoutMillis = unit.toMillis(timeout);
+		return this;
+	}
+
+	@Override
+	public void buildHttpClient() throws ClientException {
+		if (Objects.isNull(this.eventLoopGroup)) {
+			final SslContext sslContext;
+			try {
+				sslContext = getSslContextBuilder().build();
+			} catch (SSLException e) {
+				throw new ClientException(e.getLocalizedMessage(), e);
+			}
+			signer = new CopClientSigner(getSignMethod());
+			setSigner(signer);
+			eventLoopGroup = new NioEventLoopGroup();
+			getBootstrap().group(eventLoopGroup);
+			final int maxConnections = maxConnectionsPerEndpoint;
+			channelPools = new AbstractChannelPoolMap<URI, FixedChannelPool>() {
+				@Override
+				protected FixedChannelPool newPool(URI gateway) {
+					return new FixedChannelPool(
+							bootstrap.clone().remoteAddress(
+									InetSocketAddress.createUnresolved(gateway.getHost(), gateway.getPort())),
+							new GatewayChannelPoolHandler(gateway, sslContext), ChannelHealthChecker.ACTIVE, null, -1,
+							maxConnections, Integer.MAX_VALUE, true, true);
+				}
+			};
+		} else {
+			throw new ClientException("Unable to overwrite httpclient");
+		}
+	}
+
+	/**
+	 * Opens the connections of a gateway with TLS for HTTPS and the HTTP/1.1
+	 * codec.
+	 */
+	private static class GatewayChannelPoolHandler extends AbstractChannelPoolHandler {
+		private final URI gateway;
+		private final SslContext sslContext;
+
+		GatewayChannelPoolHandler(URI gateway, SslContext sslContext) {
+			this.gateway = gateway;
+			this.sslContext = sslContext;
+		}
+
+		@Override
+		public void channelCreated(Channel ch) {
+			if ("https".equals(gateway.getScheme())) {
+				SslHandler sslHandler = sslContext.newHandler(ch.alloc(), gateway.getHost(), gateway.getPort());
+				SSLParameters parameters = sslHandler.engine().getSSLParameters();
+				parameters.setEndpointIdentificationAlgorithm("HTTPS");
+				sslHandler.engine().setSSLParameters(parameters);
+				ch.pipeline().addLast(sslHandler);
+			}
+			ch.pipeline().addLast(new HttpClientCodec()).addLast(EXCHANGE_HANDLER, new ExchangeHandler());
+		}
+	}
+
+	@Override
+	public void close() {
+		if (this.channelPools != null) {
+			channelPools.close();
+		}
+		if (this.eventLoopGroup != null) {
+			eventLoopGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS);
+		}
+		channelPools = null;
+		eventLoopGroup = null;
+		bootstrap = null;
+		sslContextBuilder = null;
+		super.close();
+	}
+
+	@Override
+	public CopClient withCredentials(Namespace namespace, String apiKey, String secretKey) throws ClientException {
+		return (CopClient) super.withCredentials(namespace, apiKey, secretKey);
+	}
+
+	@Override
+	public CopClient rotateCredentials(Namespace namespace, String apiKey, String secretKey) {
+		return (CopClient) super.rotateCredentials(namespace, apiKey, secretKey);
+	}
+
+	@Override
+	public CopClient withCredentialsRefresher(CredentialsRefresher.Source source, long period, TimeUnit unit)
+			throws ClientException {
+		return (CopClient) super.withCredentialsRefresher(source, period, unit);
+	}
+
+	@Override
+	public CopClient withCredentialsProvider(CredentialsProvider provider) {
+		return (CopClient) super.withCredentialsProvider(provider);
+	}
+
+	@Override
+	public CopClient withRouter(Namespace namespace, EndpointRouter router) {
+		return (CopClient) super.withRouter(namespace, router);
+	}
+
+	@Override
+	public CopClient withValidator(Namespace namespace, Validator validator) {
+		return (CopClient) super.withValidator(namespace, validator);
+	}
+
+	/*
+	 * *****************************************************************************
+	 * ********************
+	 */
+
+	static String originFormOf(URI uri) {
+		String path = uri.getRawPath();
+		StringBuilder originForm = new StringBuilder(path == null || path.isEmpty() ? "/" : path);
+		if (uri.getRawQuery() != null) {
+			originForm.append('?').append(uri.getRawQuery());
+		}
+		return originForm.toString();
+	}
+
+	private static int defaultPortOf(String scheme) {
+		return "https".equals(scheme) ? 443 : 80;
+	}
+
+	/**
+	 * @return <code>scheme://host:port</code> of the uri, the key of its pool.
+	 */
+	private static URI gatewayOf(URI uri) {
+		String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+		int port = uri.getPort() < 0 ? defaultPortOf(scheme) : uri.getPort();
+		return URI.create(scheme + "://" + uri.getHost().toLowerCase(Locale.ROOT) + ":" + port);
+	}
+
+	private static int statusOf(PooledHttpResponse response) {
+		return response.status().code();
+	}
+
+	private FullHttpRequest newRequest(URI uri, Payload payload, Map<String, List<String>> extraHeaders)
+			throws IOException {
+		ByteBuf content = payload == null ? Unpooled.EMPTY_BUFFER : Unpooled.wrappedBuffer(payload.getContent());
+		FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1,
+				payload == null ? HttpMethod.GET : HttpMethod.POST, originFormOf(uri), content);
+		request.headers().set(HttpHeaderNames.HOST,
+				uri.getPort() < 0 || uri.getPort() == defaultPortOf(uri.getScheme()) ? uri.getHost()
+						: uri.getHost() + ":" + uri.getPort());
+		if (payload != null) {
+			request.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON + "; charset=UTF-8");
+		}
+		HttpUtil.setContentLength(request, content.readableBytes());
+		if (Objects.nonNull(extraHeaders)) {
+			for (Map.Entry<String, List<String>> headers : extraHeaders.entrySet()) {
+				request.headers().remove(headers.getKey());
+				for (String hValue : headers.getValue()) {
+					request.headers().add(headers.getKey(), hValue);
+				}
+			}
+		}
+		signer.sign(signer.getSigningEngine(getCredentialsProvider(), uri, request), request,
+				payload == null ? ContentDigest.EMPTY : payload.getContentDigest());
+		return request;
+	}
+
+	/**
+	 * Sends a request to a registered endpoint over a pooled connection of its
+	 * gateway.
+	 * 
+	 * @param payload
+	 *            <code>null</code> for a GET request.
+	 */
+	private CompletableFuture<PooledHttpResponse> execute(Endpoint endpoint, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) {
+		final URI uri;
+		try {
+			uri = URI.create(requireRegistered(endpoint).resolve(relativeUri));
+		} catch (ClientException e) {
+			return failed(e);
+		} catch (IllegalArgumentException e) {
+			return failed(new ClientException(e.getLocalizedMessage(), e));
+		}
+		final AbstractChannelPoolMap<URI, FixedChannelPool> pools = channelPools;
+		if (Objects.isNull(pools)) {
+			return failed(new ClientException("httpclient is not built yet"));
+		}
+		final FullHttpRequest request;
+		try {
+			request = newRequest(uri, payload, extraHeaders);
+		} catch (IOException | IllegalArgumentException e) {
+			return failed(new ClientException(e.getLocalizedMessage(), e));
+		}
+		final Validator validator = getValidatorProvider().getValidator(uri.getScheme(), uri.getHost(),
+				uri.getPort(), uri.getRawPath());
+		final long timeoutMillis = responseTimeoutMillis;
+		final FixedChannelPool pool = pools.get(gatewayOf(uri));
+		final CompletableFuture<PooledHttpResponse> future = new CompletableFuture<>();
+		pool.acquire().addListener((Future<Channel> acquired) -> {
+			if (!acquired.isSuccess()) {
+				request.release();
+				future.completeExceptionally(
+						new ClientException(acquired.cause().getLocalizedMessage(), acquired.cause()));
+				return;
+			}
+			final Channel channel = acquired.getNow();
+			channel.eventLoop().execute(() -> {
+				if (future.isDone()) {
+					request.release();
+					pool.release(channel);
+					return;
+				}
+				ChannelHandlerContext ctx = channel.pipeline().context(EXCHANGE_HANDLER);
+				ExchangeHandler handler = (ExchangeHandler) ctx.handler();
+				future.whenComplete((response, error) -> {
+					if (error != null || !handler.isReusable()) {
+						channel.close();
+					}
+					pool.release(channel);
+				});
+				handler.begin(ctx, future, validator, timeoutMillis);
+				channel.writeAndFlush(request).addListener(written -> {
+					if (!written.isSuccess()) {
+						future.completeExceptionally(
+								new ClientException(written.cause().getLocalizedMessage(), written.cause()));
+					}
+				});
+			});
+		});
+		return future;
+	}
+
+	/**
+	 * Blocks until the asynchronous request completes.
+	 */
+	private static <T> T await(CompletableFuture<T> future) throws ClientException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new ClientException(e.getLocalizedMessage(), e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof ClientException) {
+				throw (ClientException) e.getCause();
+			}
+			throw new ClientException(e.getCause().getLocalizedMessage(), e.getCause());
+		}
+	}
+
+	private String handleResponse(PooledHttpResponse response) throws ClientException {
+		try {
+			return getResponseHandler().handleResponse(response);
+		} catch (IOException e) {
+			throw new ClientException(e.getLocalizedMessage(), e);
+		} finally {
+			response.close();
+		}
+	}
+
+	private CompletableFuture<String> handleAsync(CompletableFuture<PooledHttpResponse> responseFuture) {
+		return responseFuture.thenApply(response -> {
+			try {
+				return getResponseHandler().handleResponse(response);
+			} catch (IOException e) {
+				throw new CompletionException(new ClientException(e.getLocalizedMessage(), e));
+			} finally {
+				response.close();
+			}
+		});
+	}
+
+	@Override
+	public String doGet(Namespace namespace, String relativeUri) throws ClientException {
+		return doGet(namespace, relativeUri, null);
+	}
+
+	@Override
+	public String doGet(Namespace namespace, String relativeUri, Map<String, List<String>> extraHeaders)
+			throws ClientException {
+		return handleResponse(doGetWithResponse(namespace, relativeUri, extraHeaders));
+	}
+
+	@Override
+	public PooledHttpResponse doGetWithResponse(Namespace namespace, String relativeUri) throws ClientException {
+		return doGetWithResponse(namespace, relativeUri, null);
+	}
+
+	@Override
+	public PooledHttpResponse doGetWithResponse(Namespace namespace, String relativeUri,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return await(doGetWithResponseAsync(namespace, relativeUri, extraHeaders));
+	}
+
+	@Override
+	public String doPost(Namespace namespace, String relativeUri, String payload) throws ClientException {
+		return doPost(namespace, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	@Override
+	public String doPost(Namespace namespace, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return handleResponse(doPostWithResponse(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public PooledHttpResponse doPostWithResponse(Namespace namespace, String relativeUri, String payload)
+			throws ClientException {
+		return doPostWithResponse(namespace, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	@Override
+	public PooledHttpResponse doPostWithResponse(Namespace namespace, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return await(doPostWithResponseAsync(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public String doPost(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return handleResponse(doPostWithResponse(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public PooledHttpResponse doPostWithResponse(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return await(doPostWithResponseAsync(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public String doGet(Endpoint endpoint, String relativeUri, Map<String, List<String>> extraHeaders)
+			throws ClientException {
+		return handleResponse(doGetWithResponse(endpoint, relativeUri, extraHeaders));
+	}
+
+	@Override
+	public PooledHttpResponse doGetWithResponse(Endpoint endpoint, String relativeUri) throws ClientException {
+		return doGetWithResponse(endpoint, relativeUri, null);
+	}
+
+	@Override
+	public PooledHttpResponse doGetWithResponse(Endpoint endpoint, String relativeUri,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return await(execute(endpoint, relativeUri, null, extraHeaders));
+	}
+
+	@Override
+	public String doPost(Endpoint endpoint, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return handleResponse(doPostWithResponse(endpoint, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public PooledHttpResponse doPostWithResponse(Endpoint endpoint, String relativeUri, String payload)
+			throws ClientException {
+		return doPostWithResponse(endpoint, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	@Override
+	public PooledHttpResponse doPostWithResponse(Endpoint endpoint, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return doPostWithResponse(endpoint, relativeUri, Payload.of(payload), extraHeaders);
+	}
+
+	@Override
+	public String doPost(Endpoint endpoint, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return handleResponse(doPostWithResponse(endpoint, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public PooledHttpResponse doPostWithResponse(Endpoint endpoint, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return await(execute(endpoint, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<String> doGetAsync(Namespace namespace, String relativeUri,
+			Map<String, List<String>> extraHeaders) {
+		return handleAsync(doGetWithResponseAsync(namespace, relativeUri, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<PooledHttpResponse> doGetWithResponseAsync(Namespace namespace, String relativeUri) {
+		return doGetWithResponseAsync(namespace, relativeUri, null);
+	}
+
+	@Override
+	public CompletableFuture<PooledHttpResponse> doGetWithResponseAsync(Namespace namespace, String relativeUri,
+			Map<String, List<String>> extraHeaders) {
+		return routeAsync(namespace, true, endpoint -> execute(endpoint, relativeUri, null, extraHeaders),
+				CopClient::statusOf);
+	}
+
+	@Override
+	public CompletableFuture<String> doPostAsync(Namespace namespace, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) {
+		return handleAsync(doPostWithResponseAsync(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<PooledHttpResponse> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			String payload) {
+		return doPostWithResponseAsync(namespace, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	@Override
+	public CompletableFuture<PooledHttpResponse> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			String payload, Map<String, List<String>> extraHeaders) {
+		return doPostWithResponseAsync(namespace, relativeUri, Payload.of(payload), extraHeaders);
+	}
+
+	@Override
+	public CompletableFuture<String> doPostAsync(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) {
+		return handleAsync(doPostWithResponseAsync(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<PooledHttpResponse> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			Payload payload, Map<String, List<String>> extraHeaders) {
+		Objects.requireNonNull(payload, "payload may not be null");
+		return routeAsync(namespace, false,
+				endpoint -> execute(endpoint, relativeUri, payload, extraHeaders),
+				CopClient::statusOf);
+	}
+}
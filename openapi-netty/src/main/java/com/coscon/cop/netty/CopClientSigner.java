@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.netty;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Objects;
+
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.Credentials;
+import com.coscon.cop.core.CredentialsProvider;
+import com.coscon.cop.core.SignAlgorithm;
+import com.coscon.cop.core.Signer;
+import com.coscon.cop.internal.BasicSigner;
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.RequestSignature;
+import com.coscon.cop.internal.SigningEngine;
+import com.coscon.cop.internal.TenantCredentialsProvider;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.util.AsciiString;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+class CopClientSigner extends BasicSigner implements Signer {
+	private static final AsciiString X_DATE = AsciiString.cached(SigningEngine.X_DATE);
+	private static final AsciiString X_DIGEST = AsciiString.cached(SigningEngine.X_DIGEST);
+	private static final AsciiString X_CONTENT_MD5 = AsciiString.cached(SigningEngine.X_CONTENT_MD5);
+	private static final AsciiString X_AUTHORIZATION = AsciiString.cached(SigningEngine.X_AUTHORIZATION);
+	private static final AsciiString X_HMAC = AsciiString.cached(SigningEngine.X_HMAC);
+	private static final AsciiString TENANT_HEADER = AsciiString.cached(TenantCredentialsProvider.TENANT_HEADER);
+	private static final AsciiString USER_AGENT = AsciiString.cached(CopClient.COP_SDK_VERSION);
+	private static final AsciiString CHARSET_UTF8 = AsciiString.cached("UTF-8");
+
+	public CopClientSigner(SignAlgorithm method) {
+		super(method);
+	}
+
+	/**
+	 * Resolves the credentials of the request to the given target, of its
+	 * tenant if any.
+	 */
+	SigningEngine getSigningEngine(CredentialsProvider provider, URI target, HttpRequest request)
+			throws IOException {
+		if (target.getHost() == null) {
+			throw new IOException("Unable to determine the target host");
+		}
+		final Credentials credentials = getCredentialsProvider(provider, request.headers().get(TENANT_HEADER))
+				.getCredentials(target.getScheme(), target.getHost(), target.getPort(), target.getRawPath());
+		if (Objects.isNull(credentials)) {
+			throw new IOException("Unable to find suitable credentials");
+		}
+		return getSigningEngine(credentials);
+	}
+
+	static ContentDigest digestOf(ByteBuf content) {
+		if (!content.isReadable()) {
+			return ContentDigest.EMPTY;
+		}
+		if (content.hasArray()) {
+			return ContentDigest.of(content.array(), content.arrayOffset() + content.readerIndex(),
+					content.readableBytes());
+		}
+		return ContentDigest.of(ByteBufUtil.getBytes(content));
+	}
+
+	/**
+	 * Signs the request in origin-form. The headers are set as
+	 * {@link AsciiString}s, which the encoder copies byte for byte into the
+	 * pooled buffer of the request head.
+	 */
+	void sign(SigningEngine engine, HttpRequest request, ContentDigest contentDigest) throws IOException {
+		String requestLine = request.method().name() + ' ' + request.uri() + ' ' + request.protocolVersion().text();
+		RequestSignature signature;
+		try {
+			signature = engine.sign(requestLine, contentDigest);
+		} catch (ClientException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		HttpHeaders headers = request.headers();
+		headers.remove(TENANT_HEADER);
+		headers.set(X_DATE, AsciiString.of(signature.getDate()));
+		headers.set(X_DIGEST, AsciiString.of(signature.getDigest()));
+		headers.set(X_CONTENT_MD5, AsciiString.of(signature.getNonce()));
+		headers.set(X_AUTHORIZATION, AsciiString.of(signature.getAuthorization()));
+		headers.set(X_HMAC, AsciiString.of(signature.getNonce()));
+		String userAgent = headers.get(HttpHeaderNames.USER_AGENT);
+		if (userAgent == null || userAgent.isEmpty()) {
+			headers.set(HttpHeaderNames.USER_AGENT, USER_AGENT);
+		} else if (!userAgent.toUpperCase().contains(CopClient.COP_SDK_VERSION.toUpperCase())) {
+			headers.set(HttpHeaderNames.USER_AGENT, userAgent + " " + CopClient.COP_SDK_VERSION);
+		}
+		headers.set(HttpHeaderNames.ACCEPT, HttpHeaderValues.APPLICATION_JSON);
+		headers.set(HttpHeaderNames.ACCEPT_CHARSET, CHARSET_UTF8);
+	}
+
+	/**
+	 * Signs a {@link FullHttpRequest} in absolute-form, which is rewritten to
+	 * origin-form with its <code>Host</code> header to be written as is.
+	 */
+	@Override
+	public Object sign(CredentialsProvider provider, Object rawRequest) throws IOException {
+		if (!(rawRequest instanceof FullHttpRequest)) {
+			throw new IllegalArgumentException("FullHttpRequest request is expected.");
+		}
+		FullHttpRequest request = (FullHttpRequest) rawRequest;
+		URI target = URI.create(request.uri());
+		if (!target.isAbsolute()) {
+			throw new IllegalArgumentException("Absolute request uri is expected.");
+		}
+		request.setUri(CopClient.originFormOf(target));
+		request.headers().set(HttpHeaderNames.HOST, target.getRawAuthority());
+		sign(getSigningEngine(provider, target, request), request, digestOf(request.content()));
+		return request;
+	}
+}
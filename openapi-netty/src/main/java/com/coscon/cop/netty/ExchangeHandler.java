@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.netty;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.Validator;
+import com.coscon.cop.internal.BodyVerifier;
+import com.coscon.cop.internal.StreamingValidator;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+
+/**
+ * Last handler of a pooled channel, which carries one exchange at a time. The
+ * content of the response is collected as retained slices of the buffers read
+ * from the connection, each is fed to the {@link StreamingValidator} of the
+ * request on the way.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+class ExchangeHandler extends SimpleChannelInboundHandler<HttpObject> {
+	private static final int SCRATCH_SIZE = 8192;
+
+	private CompletableFuture<PooledHttpResponse> result;
+	private Validator validator;
+	private ScheduledFuture<?> timeout;
+	private HttpResponse response;
+	private CompositeByteBuf content;
+	private BodyVerifier verifier;
+	private byte[] scratch;
+	private boolean reusable;
+
+	/**
+	 * Starts an exchange on the event loop of the channel, before the request
+	 * is written.
+	 * 
+	 * @param validator
+	 *            validator of the request, <code>null</code> if none.
+	 * @param timeoutMillis
+	 *            time to wait for the complete response, not positive to wait
+	 *            forever.
+	 */
+	void begin(ChannelHandlerContext ctx, CompletableFuture<PooledHttpResponse> result, Validator validator,
+			long timeoutMillis) {
+		this.result = result;
+		this.validator = validator;
+		this.reusable = false;
+		if (timeoutMillis > 0) {
+			timeout = ctx.executor().schedule(() -> {
+				fail(new ClientException("No complete response within " + timeoutMillis + "ms"));
+				ctx.close();
+			}, timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * @return whether the connection may carry the next exchange.
+	 */
+	boolean isReusable() {
+		return reusable;
+	}
+
+	private boolean validating() {
+		int status = response.status().code();
+		return validator != null && status >= 200 && status < 300;
+	}
+
+	@Override
+	protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) throws Exception {
+		if (result == null) {
+			return;
+		}
+		if (msg.decoderResult().isFailure()) {
+			fail(new ClientException(msg.decoderResult().cause().getLocalizedMessage(), msg.decoderResult().cause()));
+			ctx.close();
+			return;
+		}
+		if (msg instanceof HttpResponse) {
+			response = (HttpResponse) msg;
+			content = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
+			if (validating() && validator instanceof StreamingValidator) {
+				try {
+					verifier = ((StreamingValidator) validator).begin(response.headers()::get);
+				} catch (IOException e) {
+					fail(new ClientException(e.getLocalizedMessage(), e));
+					ctx.close();
+					return;
+				}
+			}
+		}
+		if (msg instanceof HttpContent && content != null) {
+			ByteBuf chunk = ((HttpContent) msg).content();
+			if (chunk.isReadable()) {
+				if (verifier != null) {
+					verify(chunk);
+				}
+				content.addComponent(true, chunk.retain());
+			}
+			if (msg instanceof LastHttpContent) {
+				complete((LastHttpContent) msg);
+			}
+		}
+	}
+
+	private void verify(ByteBuf chunk) {
+		if (chunk.hasArray()) {
+			verifier.write(chunk.array(), chunk.arrayOffset() + chunk.readerIndex(), chunk.readableBytes());
+			return;
+		}
+		if (scratch == null) {
+			scratch = new byte[SCRATCH_SIZE];
+		}
+		for (int index = chunk.readerIndex(); index < chunk.writerIndex(); index += SCRATCH_SIZE) {
+			int length = Math.min(SCRATCH_SIZE, chunk.writerIndex() - index);
+			chunk.getBytes(index, scratch, 0, length);
+			verifier.write(scratch, 0, length);
+		}
+	}
+
+	private void complete(LastHttpContent last) {
+		PooledHttpResponse pooled = new PooledHttpResponse(response.protocolVersion(), response.status(), content,
+				response.headers(), last.trailingHeaders().copy());
+		content = null;
+		try {
+			if (verifier != null) {
+				verifier.verify();
+			}
+			if (validating() && !(validator instanceof StreamingValidator) && !validator.validate(pooled)) {
+				throw new IOException("COP response validation failed.");
+			}
+		} catch (IOException e) {
+			pooled.release();
+			fail(new ClientException(e.getLocalizedMessage(), e));
+			return;
+		}
+		reusable = HttpUtil.isKeepAlive(response);
+		CompletableFuture<PooledHttpResponse> completed = result;
+		reset();
+		if (!completed.complete(pooled)) {
+			pooled.release();
+		}
+	}
+
+	private void fail(Throwable cause) {
+		if (result == null) {
+			return;
+		}
+		CompletableFuture<PooledHttpResponse> failed = result;
+		if (content != null) {
+			content.release();
+		}
+		reusable = false;
+		reset();
+		failed.completeExceptionally(cause);
+	}
+
+	private void reset() {
+		if (timeout != null) {
+			timeout.cancel(false);
+		}
+		result = null;
+		validator = null;
+		timeout = null;
+		response = null;
+		content = null;
+		verifier = null;
+	}
+
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		fail(new ClientException("Connection closed before the response completed"));
+		super.channelInactive(ctx);
+	}
+
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+		fail(new ClientException(cause.getLocalizedMessage(), cause));
+		ctx.close();
+	}
+}
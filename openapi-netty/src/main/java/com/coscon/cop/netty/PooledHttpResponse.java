@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.netty;
+
+import java.io.Closeable;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+
+/**
+ * Response whose content is a reference-counted composite of the buffers read
+ * from the connection, without copying them onto the heap. The response must
+ * be released, e.g. by {@link #close()} in a try-with-resources statement.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class PooledHttpResponse extends DefaultFullHttpResponse implements Closeable {
+
+	PooledHttpResponse(HttpVersion version, HttpResponseStatus status, ByteBuf content, HttpHeaders headers,
+			HttpHeaders trailingHeaders) {
+		super(version, status, content, headers, trailingHeaders);
+	}
+
+	/**
+	 * Releases the content unless it is already released.
+	 */
+	@Override
+	public void close() {
+		if (refCnt() > 0) {
+			release();
+		}
+	}
+}
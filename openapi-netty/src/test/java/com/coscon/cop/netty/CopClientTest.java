@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.netty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.EndpointRegistry;
+import com.coscon.cop.core.EndpointRouter;
+import com.coscon.cop.core.Namespace;
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.ContentDigestValidator;
+import com.coscon.cop.internal.SigningEngine;
+import com.coscon.cop.internal.StandInGateway;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Requests over pooled connections against a local stand-in gateway.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class CopClientTest {
+	private static final Namespace NS = Namespace.COP_PUBLIC_PP;
+	private static final String URI = "/info/tracking/6309441170?numberType=bl";
+	private static final String BODY = "{\"code\":0}";
+	private static final String PAYLOAD = "{\"numbers\":[\"6309441170\"]}";
+
+	private StandInGateway gateway;
+	private MockWebServer server;
+	private Endpoint endpoint;
+	private CopClient client;
+
+	@Before
+	public void setUp() throws Exception {
+		gateway = StandInGateway.start("stand-in-netty", NS, Protocol.HTTP_1_1);
+		server = gateway.getServer();
+		endpoint = gateway.getEndpoint();
+
+		client = CopClient.newInstance();
+		client.getSslContextBuilder().trustManager(StandInGateway.clientCertificates().trustManager());
+		client.withMaxConnectionsPerEndpoint(4);
+		client.withCredentials(NS, StandInGateway.API_KEY, StandInGateway.SECRET_KEY);
+		client.buildHttpClient();
+		client.withRouter(NS, new EndpointRouter(Collections.singletonList(endpoint)));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		gateway.close();
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.netty.CopClient#doPost(Endpoint, String, String)}.
+	 */
+	@Test
+	public void testSign() throws Exception {
+		server.enqueue(new MockResponse().setBody(BODY));
+		server.enqueue(new MockResponse().setBody(BODY));
+		assertEquals(BODY, client.doGet(endpoint, URI));
+		assertEquals(BODY, client.doPost(endpoint, URI, PAYLOAD));
+		RecordedRequest get = server.takeRequest();
+		assertEquals("GET /service" + URI + " HTTP/1.1", get.getRequestLine());
+		StandInGateway.assertSigned(get);
+		RecordedRequest post = server.takeRequest();
+		StandInGateway.assertSigned(post);
+		assertEquals(PAYLOAD, post.getBody().readUtf8());
+		assertEquals(ContentDigest.of(PAYLOAD.getBytes(StandardCharsets.UTF_8)).getHeaderValue(),
+				post.getHeader(SigningEngine.X_DIGEST));
+		assertTrue(post.getHeader("User-Agent").contains(CopClient.COP_SDK_VERSION));
+		// the connection is kept for the next exchange.
+		assertEquals(1, post.getSequenceNumber());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.netty.CopClient#doGetAsync(Namespace, String)}.
+	 */
+	@Test
+	public void testConcurrent() throws Exception {
+		int requests = 200;
+		for (int i = 0; i < requests; i++) {
+			server.enqueue(new MockResponse().setBody(BODY));
+		}
+		List<CompletableFuture<String>> futures = new ArrayList<>();
+		for (int i = 0; i < requests; i++) {
+			futures.add(i % 2 == 0 ? client.doGetAsync(NS, URI) : client.doPostAsync(NS, URI, PAYLOAD));
+		}
+		for (CompletableFuture<String> future : futures) {
+			assertEquals(BODY, future.get(30, TimeUnit.SECONDS));
+		}
+		int connections = 0;
+		for (int i = 0; i < requests; i++) {
+			RecordedRequest request = server.takeRequest();
+			StandInGateway.assertSigned(request);
+			if (request.getSequenceNumber() == 0) {
+				connections++;
+			}
+		}
+		assertTrue("connections: " + connections, connections <= 4);
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.netty.CopClient#doGetWithResponse(Endpoint, String)}.
+	 */
+	@Test
+	public void testPooledResponse() throws Exception {
+		server.enqueue(new MockResponse().setBody(BODY));
+		PooledHttpResponse response = client.doGetWithResponse(endpoint, URI);
+		try {
+			assertEquals(200, response.status().code());
+			assertEquals(1, response.refCnt());
+			assertEquals(BODY, response.content().toString(StandardCharsets.UTF_8));
+		} finally {
+			response.close();
+		}
+		assertEquals(0, response.refCnt());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.netty.CopClient#doGet(Namespace, String)}.
+	 */
+	@Test
+	public void testFailover() throws Exception {
+		Endpoint failing = Endpoint.of("stand-in-netty-failing",
+				"https://localhost:" + server.getPort() + "/failing", NS);
+		EndpointRegistry.register(failing);
+		try {
+			server.setDispatcher(new Dispatcher() {
+				@Override
+				public MockResponse dispatch(RecordedRequest request) {
+					return request.getPath().startsWith("/failing") ? new MockResponse().setResponseCode(503)
+							: new MockResponse().setBody(BODY);
+				}
+			});
+			client.withRouter(NS, new EndpointRouter(Arrays.asList(failing, endpoint)));
+			assertEquals(BODY, client.doGet(NS, URI));
+			assertEquals("/failing" + URI, server.takeRequest().getPath());
+			assertEquals("/service" + URI, server.takeRequest().getPath());
+		} finally {
+			EndpointRegistry.unregister(failing.getName());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.netty.CopClient#doGet(Endpoint, String)}.
+	 */
+	@Test
+	public void testStreamingValidation() throws Exception {
+		client.withValidator(NS, new ContentDigestValidator());
+		String digest = ContentDigest.of(BODY.getBytes("UTF-8")).getHeaderValue();
+		server.enqueue(new MockResponse().setBody(BODY).setHeader(SigningEngine.X_DIGEST, digest));
+		server.enqueue(new MockResponse().setBody("{\"code\":1}").setHeader(SigningEngine.X_DIGEST, digest));
+		assertEquals(BODY, client.doGet(endpoint, URI));
+		try {
+			client.doGet(endpoint, URI);
+			fail("digest mismatch is expected");
+		} catch (ClientException e) {
+			assertTrue(e.getMessage().contains("mismatch"));
+		}
+	}
+}
@@ -20,20 +20,46 @@ import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.IOUtils;
 
 import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.ConnectionPoolConfig;
+import com.coscon.cop.core.ConnectionPoolStats;
+import com.coscon.cop.core.CredentialsProvider;
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.EndpointRouter;
 import com.coscon.cop.core.Namespace;
 import com.coscon.cop.core.SignAlgorithm;
 import com.coscon.cop.core.Signer;
 import com.coscon.cop.core.Validator;
+import com.coscon.cop.internal.BodyVerifier;
 import com.coscon.cop.internal.CopClientBase;
+import com.coscon.cop.internal.CredentialsRefresher;
+import com.coscon.cop.internal.Payload;
+import com.coscon.cop.internal.RequestSignature;
+import com.coscon.cop.internal.StreamingValidator;
+import com.coscon.cop.internal.TenantCredentialsProvider;
+import com.coscon.cop.internal.VirtualThreads;
 
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
@@ -42,6 +68,10 @@ import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.GzipSource;
+import okio.Okio;
+import okio.Source;
 
 /**
  * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
@@ -50,13 +80,20 @@ import okhttp3.ResponseBody;
 public class CopClient extends CopClientBase implements Closeable {
 	@Override
 	public void close() {
+		if (virtualThreadExecutor != null) {
+			virtualThreadExecutor.shutdown();
+			virtualThreadExecutor = null;
+		}
+		connectionPool.evictAll();
 		httpClient = null;
 		httpClientBuilder = null;
 		signer = null;
+		baseUrls.clear();
 		super.close();
 	}
 
 	public static final String COP_SDK_VERSION = "COP_SDK_Okhttp/0.0.1";
+	private static final MediaType JSON = MediaType.parse("application/json");
 	private OkHttpClient.Builder httpClientBuilder;
 
 	private CopClient() {
@@ -67,6 +104,9 @@ public class CopClient extends CopClientBase implements Closeable {
 	protected void initialize() {
 		httpClientBuilder = new OkHttpClient.Builder();
 		httpClientBuilder.callTimeout(30, TimeUnit.SECONDS);
+		dispatcher = new Dispatcher();
+		httpClientBuilder.dispatcher(dispatcher);
+		withConnectionPool(ConnectionPoolConfig.DEFAULT);
 		setResponseHandler(defaultResponseHandler);
 		setSignMethod(SignAlgorithm.HMAC_SHA1);
 	}
@@ -100,6 +140,7 @@ public class CopClient extends CopClientBase implements Closeable {
 	}
 
 	private OkHttpClient httpClient = null;
+	private final ConcurrentHashMap<Endpoint, HttpUrl> baseUrls = new ConcurrentHashMap<>();
 	private Signer signer = null;
 
 	@Override
@@ -108,13 +149,206 @@ public class CopClient extends CopClientBase implements Closeable {
 		return signer;
 	}
 
+	private boolean http2 = false;
+
+	/**
+	 * Negotiates HTTP/2 through ALPN, concurrent requests to a gateway are then
+	 * multiplexed over one connection. Requests are signed with the protocol
+	 * of the connection they are sent over, <code>HTTP/2.0</code> in the
+	 * request line over h2. Call before {@link #buildHttpClient()}.
+	 * 
+	 * @return self
+	 */
+	public CopClient withHttp2() {
+		this.http2 = true;
+		return this;
+	}
+
+	private ExecutorService virtualThreadExecutor = null;
+
+	/**
+	 * Virtual-thread mode for JDK 21: asynchronous calls run on a virtual
+	 * thread each instead of the pooled threads of the dispatcher, and
+	 * connections are kept for as many blocking calls from virtual threads.
+	 * Call before {@link #buildHttpClient()}.
+	 * <p>
+	 * HTTP/1.1 exchanges hold no monitor while blocked on the socket. HTTP/2
+	 * frames are written under the monitor of the connection, a virtual thread
+	 * blocked on a write pins its carrier, so leave {@link #withHttp2()} off in
+	 * this mode.
+	 * 
+	 * @param maxRequests
+	 *            calls in flight, in total and per gateway.
+	 * @return self
+	 * @throws UnsupportedOperationException
+	 *             before JDK 21.
+	 */
+	public CopClient withVirtualThreads(int maxRequests) {
+		ConnectionPoolConfig config = ConnectionPoolConfig.copy(connectionPoolConfig).setMaxPerEndpoint(maxRequests)
+				.setMaxTotal(maxRequests).build();
+		ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+		dispatcher = new Dispatcher(executor);
+		getHttpClientBuilder().dispatcher(dispatcher);
+		withConnectionPool(config);
+		if (virtualThreadExecutor != null) {
+			virtualThreadExecutor.shutdown();
+		}
+		virtualThreadExecutor = executor;
+		return this;
+	}
+
+	private Dispatcher dispatcher;
+
+	private ConnectionPool connectionPool;
+
+	private ConnectionPoolConfig connectionPoolConfig;
+
+	/**
+	 * Maps the pool settings onto OkHttp: the dispatcher runs up to
+	 * <code>maxPerEndpoint</code> asynchronous calls per gateway and
+	 * <code>maxTotal</code> in all, the connection pool keeps up to
+	 * <code>maxTotal</code> idle connections for the shorter of the idle
+	 * timeout and the keep-alive. Blocking calls are not queued by the
+	 * dispatcher, and OkHttp checks the health of a pooled connection itself
+	 * before reuse, so <code>validateAfterInactivity</code> does not apply.
+	 * Call before {@link #buildHttpClient()}, {@link ConnectionPoolConfig#DEFAULT}
+	 * applies otherwise.
+	 * 
+	 * @return self
+	 */
+	public CopClient withConnectionPool(ConnectionPoolConfig config) {
+		Objects.requireNonNull(config, "config may not be null");
+		dispatcher.setMaxRequests(config.getMaxTotal());
+		dispatcher.setMaxRequestsPerHost(config.getMaxPerEndpoint());
+		connectionPool = new ConnectionPool(config.getMaxTotal(),
+				Math.min(config.getIdleTimeoutMillis(), config.getKeepAliveMillis()), TimeUnit.MILLISECONDS);
+		getHttpClientBuilder().connectionPool(connectionPool);
+		connectionPoolConfig = config;
+		return this;
+	}
+
+	/**
+	 * @return the pool settings of {@link #withConnectionPool(ConnectionPoolConfig)}.
+	 */
+	public ConnectionPoolConfig getConnectionPoolConfig() {
+		return connectionPoolConfig;
+	}
+
+	/**
+	 * @return connections to all endpoints, pending are the asynchronous calls
+	 *         queued by the dispatcher.
+	 */
+	public ConnectionPoolStats getConnectionPoolStats() {
+		int available = connectionPool.idleConnectionCount();
+		return new ConnectionPoolStats(connectionPool.connectionCount() - available, available,
+				dispatcher.queuedCallsCount(), connectionPoolConfig.getMaxTotal());
+	}
+
+	/**
+	 * Opens connections to the gateway of every namespace with credentials,
+	 * or to the endpoints of its router, and parks them idle in the pool, so
+	 * that the first requests skip DNS, TCP and TLS handshakes.
+	 * <p>
+	 * <b>This sends requests to the gateway.</b> OkHttp opens connections for
+	 * calls only, each connection is opened by an unsigned <code>HEAD</code>
+	 * of <code>relativeUri</code> on the endpoint, so pick a path the gateway
+	 * answers without side effects. No warm-up happens unless this method is
+	 * called. The calls are sent in parallel through the dispatcher and
+	 * canceled at the deadline. Over HTTP/2 one connection per endpoint
+	 * carries all requests.
+	 * 
+	 * @param relativeUri
+	 *            path the unsigned <code>HEAD</code> requests are sent to.
+	 * @param connectionsPerEndpoint
+	 *            up to <code>maxPerEndpoint</code> of the pool.
+	 * @return connections parked, those of the calls answered by the deadline.
+	 * @throws ClientException
+	 *             if the client is not built yet, or <code>relativeUri</code>
+	 *             is invalid.
+	 */
+	public int warmUp(String relativeUri, int connectionsPerEndpoint, long timeout, TimeUnit unit)
+			throws ClientException {
+		Objects.requireNonNull(relativeUri, "relativeUri may not be null");
+		if (connectionsPerEndpoint < 1) {
+			throw new IllegalArgumentException("connectionsPerEndpoint must be positive");
+		}
+		Objects.requireNonNull(unit, "unit may not be null");
+		if (httpClient == null) {
+			throw new ClientException("httpclient is not built yet");
+		}
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		int perEndpoint = http2 ? 1 : Math.min(connectionsPerEndpoint, connectionPoolConfig.getMaxPerEndpoint());
+		List<Request> requests = new ArrayList<>();
+		for (Endpoint endpoint : getWarmUpEndpoints()) {
+			Request request = new Request.Builder().url(resolve(endpoint, relativeUri)).head()
+					.header("User-Agent", COP_SDK_VERSION).build();
+			for (int i = 0; i < perEndpoint; i++) {
+				requests.add(request);
+			}
+		}
+		int size = Math.min(requests.size(), connectionPoolConfig.getMaxTotal());
+		if (size == 0) {
+			return 0;
+		}
+		// connection of each call, a fast call may free one for a slow call.
+		final Map<Call, Connection> acquired = new ConcurrentHashMap<>();
+		final Set<Connection> parked = Collections.newSetFromMap(new ConcurrentHashMap<>());
+		// shares the dispatcher and the pool, without signing and validation.
+		OkHttpClient.Builder builder = httpClient.newBuilder().callTimeout(timeout, unit)
+				.eventListener(new EventListener() {
+					@Override
+					public void connectionAcquired(Call call, Connection connection) {
+						acquired.put(call, connection);
+					}
+				});
+		builder.interceptors().clear();
+		builder.networkInterceptors().clear();
+		OkHttpClient client = builder.build();
+		CountDownLatch done = new CountDownLatch(size);
+		Callback callback = new Callback() {
+			@Override
+			public void onFailure(Call call, IOException e) {
+				done.countDown();
+			}
+
+			@Override
+			public void onResponse(Call call, Response response) {
+				response.close();
+				Connection connection = acquired.get(call);
+				if (connection != null) {
+					parked.add(connection);
+				}
+				done.countDown();
+			}
+		};
+		List<Call> calls = new ArrayList<>(size);
+		for (Request request : requests.subList(0, size)) {
+			Call call = client.newCall(request);
+			calls.add(call);
+			call.enqueue(callback);
+		}
+		try {
+			done.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (Call call : calls) {
+			call.cancel();
+		}
+		return parked.size();
+	}
+
 	@Override
 	public void buildHttpClient() throws ClientException {
 		if (httpClient == null) {
 			List<Protocol> protocols = new ArrayList<>();
+			if (http2) {
+				protocols.add(okhttp3.Protocol.HTTP_2);
+			}
 			protocols.add(okhttp3.Protocol.HTTP_1_1);
 			this.httpClientBuilder = getHttpClientBuilder().protocols(protocols);
 			signer = new CopClientSigner(getSignMethod());
+			httpClientBuilder.addInterceptor(ApplicationEncoding::tag);
 			httpClientBuilder.addNetworkInterceptor(newSignRequestInterceptor());
 			httpClient = getHttpClientBuilder().build();
 		} else {
@@ -129,11 +363,79 @@ public class CopClient extends CopClientBase implements Closeable {
 		return httpClient;
 	}
 
+	/**
+	 * Signs a batch of requests ahead of dispatch, e.g. the tracking calls of a
+	 * nightly job, in parallel across the {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+	 * <p>
+	 * The signed requests are not signed again by the interceptor over an
+	 * HTTP/1.1 connection, execute them with {@link #getHttpClient()} shortly
+	 * afterwards since <code>X-Coscon-Date</code> is checked by the gateway.
+	 * 
+	 * @param requests
+	 *            https requests to COP.
+	 * @return signed requests in the order of <code>requests</code>.
+	 * @throws ClientException
+	 *             when any request fails to be signed.
+	 */
+	public List<Request> signAll(List<Request> requests) throws ClientException {
+		Signer currentSigner = getSigner();
+		if (!(currentSigner instanceof CopClientSigner)) {
+			throw new ClientException("Batch signing is not supported by signer:" + currentSigner);
+		}
+		try {
+			return ((CopClientSigner) currentSigner).signAll(getCredentialsProvider(), requests);
+		} catch (IOException e) {
+			throw new ClientException(e.getLocalizedMessage(), e);
+		}
+	}
+
 	@Override
 	public CopClient withCredentials(Namespace namespace, String apiKey, String secretKey) throws ClientException {
 		return (CopClient) super.withCredentials(namespace, apiKey, secretKey);
 	}
 
+	@Override
+	public CopClient rotateCredentials(Namespace namespace, String apiKey, String secretKey) {
+		return (CopClient) super.rotateCredentials(namespace, apiKey, secretKey);
+	}
+
+	@Override
+	public CopClient withCredentialsRefresher(CredentialsRefresher.Source source, long period, TimeUnit unit)
+			throws ClientException {
+		return (CopClient) super.withCredentialsRefresher(source, period, unit);
+	}
+
+	@Override
+	public CopClient withCredentialsProvider(CredentialsProvider provider) {
+		return (CopClient) super.withCredentialsProvider(provider);
+	}
+
+	@Override
+	public CopClient withRouter(Namespace namespace, EndpointRouter router) {
+		return (CopClient) super.withRouter(namespace, router);
+	}
+
+	@Override
+	public CopClient withValidator(Namespace namespace, Validator validator) {
+		return (CopClient) super.withValidator(namespace, validator);
+	}
+
+	/**
+	 * Marks requests whose <code>Accept-Encoding</code> the application set,
+	 * okhttp hands their body to the application as received.
+	 */
+	private static final class ApplicationEncoding {
+		private static final ApplicationEncoding INSTANCE = new ApplicationEncoding();
+
+		static Response tag(Interceptor.Chain chain) throws IOException {
+			Request request = chain.request();
+			if (request.header("Accept-Encoding") != null) {
+				request = request.newBuilder().tag(ApplicationEncoding.class, INSTANCE).build();
+			}
+			return chain.proceed(request);
+		}
+	}
+
 	/**
 	 * @return
 	 */
@@ -148,21 +450,66 @@ public class CopClient extends CopClientBase implements Closeable {
 				}
 			}
 
+			/**
+			 * Verify the body while the application reads it, the digest covers
+			 * the decoded content of a gzip body. The body is decoded here
+			 * unless the application set <code>Accept-Encoding</code> itself
+			 * and expects the encoded body.
+			 */
+			protected Response verifyingResponse(Response response, StreamingValidator validator)
+					throws IOException {
+				BodyVerifier verifier = validator.begin(response::header);
+				ResponseBody body = response.body();
+				if (body == null) {
+					verifier.verify();
+					return response;
+				}
+				Response.Builder builder = response.newBuilder();
+				Source source = body.source();
+				long contentLength = body.contentLength();
+				if (!"gzip".equalsIgnoreCase(response.header("Content-Encoding"))) {
+					source = new VerifyingSource(source, verifier);
+				} else if (response.request().tag(ApplicationEncoding.class) != null) {
+					source = new EncodedVerifyingSource(source, verifier);
+				} else {
+					source = new VerifyingSource(new GzipSource(source), verifier);
+					builder.removeHeader("Content-Encoding").removeHeader("Content-Length");
+					contentLength = -1L;
+				}
+				BufferedSource verifying = Okio.buffer(source);
+				return builder.body(ResponseBody.create(verifying, body.contentType(), contentLength)).build();
+			}
+
 			@Override
 			public Response intercept(Chain chain) throws IOException {
 				if (getSigner().acceptRequest(chain.request().url().toString())) {
-					Request request = (Request) getSigner().sign(getCredentialsProvider(), chain.request());
+					Request request = chain.request();
+					Protocol protocol = chain.connection() == null ? Protocol.HTTP_1_1
+							: chain.connection().protocol();
+					if (request.tag(RequestSignature.class) == null || protocol != Protocol.HTTP_1_1) {
+						request = getSigner() instanceof CopClientSigner
+								? ((CopClientSigner) getSigner()).sign(getCredentialsProvider(), request, protocol)
+								: (Request) getSigner().sign(getCredentialsProvider(), request);
+					}
 					Response response = chain.proceed(request);
 					if (response.code() >= 200 && response.code() < 300) {
-						response = convertToRepeatableResponse(response);
 						Validator validator = getValidatorProvider().getValidator(request.url().toString());
-						if (validator != null && !validator.validate(response)) {
-							throw new IOException("COP response validation failed.");
+						if (validator instanceof StreamingValidator) {
+							response = verifyingResponse(response, (StreamingValidator) validator);
+						} else if (validator != null) {
+							response = convertToRepeatableResponse(response);
+							if (!validator.validate(response)) {
+								throw new IOException("COP response validation failed.");
+							}
 						}
 					}
 					return response;
 				} else {
-					return chain.proceed(chain.request());
+					Request request = chain.request();
+					if (request.header(TenantCredentialsProvider.TENANT_HEADER) != null) {
+						request = request.newBuilder().removeHeader(TenantCredentialsProvider.TENANT_HEADER).build();
+					}
+					return chain.proceed(request);
 				}
 			}
 		};
@@ -192,15 +539,32 @@ public class CopClient extends CopClientBase implements Closeable {
 	@Override
 	public Response doGetWithResponse(Namespace namespace, String relativeUri, Map<String, List<String>> extraHeaders)
 			throws ClientException {
-		Request get = new Request.Builder().url(namespace.getPrefix() + relativeUri).get().build();
-		get = populateHeaders(get, extraHeaders);
+		return route(namespace, true, endpoint -> doGetWithResponse(endpoint, relativeUri, extraHeaders),
+				Response::code);
+	}
+
+	@Override
+	public String doGet(Endpoint endpoint, String relativeUri, Map<String, List<String>> extraHeaders)
+			throws ClientException {
 		try {
-			return getHttpClient().newCall(get).execute();
+			Response response = doGetWithResponse(endpoint, relativeUri, extraHeaders);
+			return getResponseHandler().handleResponse(response);
 		} catch (IOException e) {
 			throw new ClientException(e.getLocalizedMessage(), e);
 		}
 	}
 
+	@Override
+	public Response doGetWithResponse(Endpoint endpoint, String relativeUri) throws ClientException {
+		return doGetWithResponse(endpoint, relativeUri, null);
+	}
+
+	@Override
+	public Response doGetWithResponse(Endpoint endpoint, String relativeUri, Map<String, List<String>> extraHeaders)
+			throws ClientException {
+		return execute(newRequest(endpoint, relativeUri, null, extraHeaders));
+	}
+
 	@Override
 	public String doPost(Namespace namespace, String relativeUri, String payload) throws ClientException {
 		return doPost(namespace, relativeUri, payload, null);
@@ -225,16 +589,216 @@ public class CopClient extends CopClientBase implements Closeable {
 	@Override
 	public Response doPostWithResponse(Namespace namespace, String relativeUri, String payload,
 			Map<String, List<String>> extraHeaders) throws ClientException {
-		Request post = new Request.Builder().url(namespace.getPrefix() + relativeUri)
-				.post(RequestBody.create(payload, MediaType.parse("application/json"))).build();
-		post = populateHeaders(post, extraHeaders);
+		return route(namespace, false, endpoint -> doPostWithResponse(endpoint, relativeUri, payload, extraHeaders),
+				Response::code);
+	}
+
+	@Override
+	public String doPost(Endpoint endpoint, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		try {
+			Response response = doPostWithResponse(endpoint, relativeUri, payload, extraHeaders);
+			return getResponseHandler().handleResponse(response);
+		} catch (IOException e) {
+			throw new ClientException(e.getLocalizedMessage(), e);
+		}
+	}
+
+	@Override
+	public Response doPostWithResponse(Endpoint endpoint, String relativeUri, String payload) throws ClientException {
+		return doPostWithResponse(endpoint, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	@Override
+	public Response doPostWithResponse(Endpoint endpoint, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return execute(newRequest(endpoint, relativeUri, DigestedRequestBody.of(payload, JSON), extraHeaders));
+	}
+
+	@Override
+	public String doPost(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		try {
+			Response response = doPostWithResponse(namespace, relativeUri, payload, extraHeaders);
+			return getResponseHandler().handleResponse(response);
+		} catch (IOException e) {
+			throw new ClientException(e.getLocalizedMessage(), e);
+		}
+	}
+
+	@Override
+	public Response doPostWithResponse(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return route(namespace, false, endpoint -> doPostWithResponse(endpoint, relativeUri, payload, extraHeaders),
+				Response::code);
+	}
+
+	@Override
+	public String doPost(Endpoint endpoint, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
 		try {
-			return getHttpClient().newCall(post).execute();
+			Response response = doPostWithResponse(endpoint, relativeUri, payload, extraHeaders);
+			return getResponseHandler().handleResponse(response);
 		} catch (IOException e) {
 			throw new ClientException(e.getLocalizedMessage(), e);
 		}
 	}
 
+	@Override
+	public Response doPostWithResponse(Endpoint endpoint, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		return execute(newRequest(endpoint, relativeUri, DigestedRequestBody.of(payload), extraHeaders));
+	}
+
+	/**
+	 * Resolves against the base url built once per endpoint, only the
+	 * relative path and query are parsed.
+	 */
+	HttpUrl resolve(Endpoint endpoint, String relativeUri) throws ClientException {
+		HttpUrl base = baseUrls.get(requireRegistered(endpoint));
+		if (base == null) {
+			base = new HttpUrl.Builder().scheme(endpoint.getScheme()).host(endpoint.getHost())
+					.port(endpoint.getPort()).build();
+			baseUrls.putIfAbsent(endpoint, base);
+		}
+		int query = relativeUri.indexOf('?');
+		String path = endpoint.getBasePath() + (query < 0 ? relativeUri : relativeUri.substring(0, query));
+		try {
+			HttpUrl.Builder builder = base.newBuilder().encodedPath(path.isEmpty() ? "/" : path);
+			if (query >= 0) {
+				builder.encodedQuery(relativeUri.substring(query + 1));
+			}
+			return builder.build();
+		} catch (IllegalArgumentException e) {
+			throw new ClientException("Invalid relativeUri:" + relativeUri, e);
+		}
+	}
+
+	/**
+	 * @param body
+	 *            <code>null</code> for a GET request.
+	 */
+	private Request newRequest(Endpoint endpoint, String relativeUri, RequestBody body,
+			Map<String, List<String>> extraHeaders) throws ClientException {
+		Request.Builder builder = new Request.Builder().url(resolve(endpoint, relativeUri));
+		Request request = body == null ? builder.get().build() : builder.post(body).build();
+		return populateHeaders(request, extraHeaders);
+	}
+
+	private Response execute(Request request) throws ClientException {
+		try {
+			return getHttpClient().newCall(request).execute();
+		} catch (IOException e) {
+			throw new ClientException(e.getLocalizedMessage(), e);
+		}
+	}
+
+	/**
+	 * Builds a request to an endpoint, see {@link CopClient#enqueue(RequestFactory)}.
+	 */
+	@FunctionalInterface
+	private interface RequestFactory {
+		Request create() throws ClientException;
+	}
+
+	/**
+	 * Enqueues the request on the dispatcher of the client, the calling thread
+	 * returns immediately. Executing calls occupy a thread of the dispatcher,
+	 * up to its <code>maxRequests</code> and <code>maxRequestsPerHost</code>,
+	 * see {@link OkHttpClient.Builder#dispatcher(okhttp3.Dispatcher)}.
+	 */
+	private CompletableFuture<Response> enqueue(RequestFactory factory) {
+		Request request;
+		try {
+			request = factory.create();
+		} catch (ClientException e) {
+			return failed(e);
+		}
+		final Call call = getHttpClient().newCall(request);
+		final CompletableFuture<Response> future = new CompletableFuture<>();
+		future.whenComplete((response, error) -> {
+			if (future.isCancelled()) {
+				call.cancel();
+			}
+		});
+		call.enqueue(new Callback() {
+			@Override
+			public void onFailure(Call call, IOException e) {
+				future.completeExceptionally(new ClientException(e.getLocalizedMessage(), e));
+			}
+
+			@Override
+			public void onResponse(Call call, Response response) {
+				if (!future.complete(response)) {
+					response.close();
+				}
+			}
+		});
+		return future;
+	}
+
+	private CompletableFuture<String> handleAsync(CompletableFuture<Response> responseFuture) {
+		return responseFuture.thenApply(response -> {
+			try {
+				return getResponseHandler().handleResponse(response);
+			} catch (IOException e) {
+				throw new CompletionException(new ClientException(e.getLocalizedMessage(), e));
+			}
+		});
+	}
+
+	@Override
+	public CompletableFuture<String> doGetAsync(Namespace namespace, String relativeUri,
+			Map<String, List<String>> extraHeaders) {
+		return handleAsync(doGetWithResponseAsync(namespace, relativeUri, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<Response> doGetWithResponseAsync(Namespace namespace, String relativeUri) {
+		return doGetWithResponseAsync(namespace, relativeUri, null);
+	}
+
+	@Override
+	public CompletableFuture<Response> doGetWithResponseAsync(Namespace namespace, String relativeUri,
+			Map<String, List<String>> extraHeaders) {
+		return routeAsync(namespace, true,
+				endpoint -> enqueue(() -> newRequest(endpoint, relativeUri, null, extraHeaders)), Response::code);
+	}
+
+	@Override
+	public CompletableFuture<String> doPostAsync(Namespace namespace, String relativeUri, String payload,
+			Map<String, List<String>> extraHeaders) {
+		return handleAsync(doPostWithResponseAsync(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<Response> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			String payload) {
+		return doPostWithResponseAsync(namespace, relativeUri, payload, (Map<String, List<String>>) null);
+	}
+
+	@Override
+	public CompletableFuture<Response> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			String payload, Map<String, List<String>> extraHeaders) {
+		final RequestBody body = DigestedRequestBody.of(payload, JSON);
+		return routeAsync(namespace, false,
+				endpoint -> enqueue(() -> newRequest(endpoint, relativeUri, body, extraHeaders)), Response::code);
+	}
+
+	@Override
+	public CompletableFuture<String> doPostAsync(Namespace namespace, String relativeUri, Payload payload,
+			Map<String, List<String>> extraHeaders) {
+		return handleAsync(doPostWithResponseAsync(namespace, relativeUri, payload, extraHeaders));
+	}
+
+	@Override
+	public CompletableFuture<Response> doPostWithResponseAsync(Namespace namespace, String relativeUri,
+			Payload payload, Map<String, List<String>> extraHeaders) {
+		final RequestBody body = DigestedRequestBody.of(payload);
+		return routeAsync(namespace, false,
+				endpoint -> enqueue(() -> newRequest(endpoint, relativeUri, body, extraHeaders)), Response::code);
+	}
+
 	protected Request populateHeaders(Request request, Map<String, List<String>> extraHeaders) {
 		if (extraHeaders != null && !extraHeaders.isEmpty()) {
 			Request.Builder newBuilder = request.newBuilder();
@@ -17,9 +17,10 @@
 package com.coscon.cop.okhttp3;
 
 import java.io.IOException;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -29,12 +30,20 @@ import com.coscon.cop.core.CredentialsProvider;
 import com.coscon.cop.core.SignAlgorithm;
 import com.coscon.cop.core.Signer;
 import com.coscon.cop.internal.BasicSigner;
-import com.coscon.cop.internal.HmacPureExecutor;
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.ContentDigestOutputStream;
+import com.coscon.cop.internal.DigestedContent;
+import com.coscon.cop.internal.RequestSignature;
+import com.coscon.cop.internal.RequestToSign;
+import com.coscon.cop.internal.SigningEngine;
+import com.coscon.cop.internal.TenantCredentialsProvider;
 
 import okhttp3.HttpUrl;
 import okhttp3.Protocol;
 import okhttp3.Request;
-import okio.Buffer;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
 
 /**
  * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
@@ -45,7 +54,23 @@ class CopClientSigner extends BasicSigner implements Signer {
 		super(method);
 	}
 
-	private String parseRequestLine(Request request) {
+	/**
+	 * HTTP version of the request line, e.g. <code>HTTP/2.0</code> over h2 as
+	 * the gateway rebuilds the request line of an HTTP/2 stream.
+	 */
+	static String versionOf(Protocol protocol) {
+		switch (protocol) {
+		case HTTP_2:
+		case H2_PRIOR_KNOWLEDGE:
+			return "HTTP/2.0";
+		case HTTP_1_0:
+			return "HTTP/1.0";
+		default:
+			return "HTTP/1.1";
+		}
+	}
+
+	private String parseRequestLine(Request request, Protocol protocol) {
 		HttpUrl url = request.url();
 		StringBuilder requestLineBuilder = new StringBuilder();
 		requestLineBuilder.append(request.method()).append(' ');
@@ -60,73 +85,111 @@ class CopClientSigner extends BasicSigner implements Signer {
 				requestLineBuilder.append('?').append(query);
 			}
 		}
-		requestLineBuilder.append(' ').append(Protocol.HTTP_1_1.toString().toUpperCase());
+		requestLineBuilder.append(' ').append(versionOf(protocol));
 		return requestLineBuilder.toString();
 	}
 
+	/**
+	 * Digest the body as it is produced, without materialising it in another
+	 * array.
+	 */
+	private ContentDigest digestOf(RequestBody body) throws IOException {
+		if (body == null) {
+			return ContentDigest.EMPTY;
+		}
+		if (body instanceof DigestedContent) {
+			return ((DigestedContent) body).getContentDigest();
+		}
+		ContentDigestOutputStream digestStream = new ContentDigestOutputStream();
+		try (BufferedSink sink = Okio.buffer(Okio.sink(digestStream))) {
+			body.writeTo(sink);
+		}
+		return digestStream.getContentDigest();
+	}
+
+	private Credentials getCredentials(CredentialsProvider provider, Request request) throws IOException {
+		final Credentials credentials = getCredentialsProvider(provider,
+				request.header(TenantCredentialsProvider.TENANT_HEADER)).getCredentials(request.url().toString());
+		if(Objects.isNull(credentials)) {
+			throw new IOException("Unable to find suitable credentials");
+		}
+		return credentials;
+	}
+
 	@Override
 	public Object sign(CredentialsProvider provider, Object rawRequest) throws IOException {
 		if (!(rawRequest instanceof Request)) {
 			throw new IllegalArgumentException("Request request is expected.");
 		}
-		Request request = (Request) rawRequest;
-		final Credentials credentials = provider.getCredentials(request.url().toString());
-		if(Objects.isNull(credentials)) {
-			throw new IOException("Unable to find suitable credentials");
-		}
+		return sign(provider, (Request) rawRequest, Protocol.HTTP_1_1);
+	}
+
+	/**
+	 * Signs the request as sent over a connection of the given protocol.
+	 */
+	Request sign(CredentialsProvider provider, Request request, Protocol protocol) throws IOException {
+		final Credentials credentials = getCredentials(provider, request);
 		
-		byte[] httpContent = new byte[0];
+		ContentDigest contentDigest = digestOf(request.body());
 
-		if ("POST".equalsIgnoreCase(request.method())) {
-			final Buffer buffer = new Buffer();
-			request.body().writeTo(buffer);
-			httpContent = buffer.readByteArray();
+		try {
+			RequestSignature signature = getSigningEngine(credentials).sign(parseRequestLine(request, protocol),
+					contentDigest);
+			return withSignature(request, signature).build();
+		} catch (ClientException e) {
+			throw new IOException(e.getMessage(), e);
 		}
+	}
 
+	/**
+	 * Signs a batch of requests ahead of dispatch across the
+	 * {@link ForkJoinPool#commonPool()}, for HTTP/1.1 connections.
+	 * 
+	 * @return signed requests in the order of <code>requests</code>, tagged
+	 *         with their {@link RequestSignature} so that the interceptor does
+	 *         not sign them again.
+	 */
+	List<Request> signAll(CredentialsProvider provider, List<Request> requests) throws IOException {
+		Objects.requireNonNull(requests, "requests may not be null");
+		int size = requests.size();
+		SigningEngine[] engines = new SigningEngine[size];
+		RequestToSign[] batch = new RequestToSign[size];
+		for (int i = 0; i < size; i++) {
+			Request request = requests.get(i);
+			engines[i] = getSigningEngine(getCredentials(provider, request));
+			batch[i] = new RequestToSign(parseRequestLine(request, Protocol.HTTP_1_1), digestOf(request.body()));
+		}
+		RequestSignature[] signatures;
 		try {
-			final CopClientSigner signerSelf = this;
-			HmacPureExecutor executor = new HmacPureExecutor() {
-
-				@Override
-				protected String getSecretKey() {
-					return credentials.getPassword();
-				}
-
-				@Override
-				public SignAlgorithm getHmacAlgorithm() {
-					return signerSelf.getMethod();
-				}
+			signatures = signAll(engines, batch, ForkJoinPool.commonPool());
+		} catch (ClientException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		List<Request> signed = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			signed.add(withSignature(requests.get(i), signatures[i]).tag(RequestSignature.class, signatures[i]).build());
+		}
+		return signed;
+	}
 
-				@Override
-				protected String getApiKey() {
-					return credentials.getPrincipal().getName();
-				}
-			};
-			Map<String, String> headers = executor.buildHmacHeaders(parseRequestLine(request), httpContent);
-			Request.Builder newBuilder = request.newBuilder();
-			if (headers != null) {
-				for (Entry<String, String> e : headers.entrySet()) {
-					newBuilder = newBuilder.header(e.getKey(), e.getValue());
-				}
-			}
-			String ua = request.header(HEADER_USER_AGENT);
-			StringBuilder uaBuilder = new StringBuilder();
+	private Request.Builder withSignature(Request request, RequestSignature signature) {
+		Request.Builder newBuilder = request.newBuilder().removeHeader(TenantCredentialsProvider.TENANT_HEADER);
+		signature.writeTo(newBuilder::header);
+		String ua = request.header(HEADER_USER_AGENT);
+		StringBuilder uaBuilder = new StringBuilder();
 
-			if (StringUtils.isEmpty(ua)) {
+		if (StringUtils.isEmpty(ua)) {
+			uaBuilder.append(CopClient.COP_SDK_VERSION);
+		} else {
+			uaBuilder.append(ua);
+			if (!ua.toUpperCase().contains(CopClient.COP_SDK_VERSION.toUpperCase())) {
+				uaBuilder.append(" ");
 				uaBuilder.append(CopClient.COP_SDK_VERSION);
-			} else {
-				uaBuilder.append(ua);
-				if (!ua.toUpperCase().contains(CopClient.COP_SDK_VERSION.toUpperCase())) {
-					uaBuilder.append(" ");
-					uaBuilder.append(CopClient.COP_SDK_VERSION);
-				}
 			}
-			newBuilder = newBuilder.header(HEADER_USER_AGENT, uaBuilder.toString());
-			newBuilder = newBuilder.header(HEADER_ACCEPT, "application/json");
-			newBuilder = newBuilder.header(HEADER_ACCEPT_CHARSET, "utf-8");
-			return newBuilder.build();
-		} catch (ClientException e) {
-			throw new IOException(e.getMessage(), e);
 		}
+		newBuilder = newBuilder.header(HEADER_USER_AGENT, uaBuilder.toString());
+		newBuilder = newBuilder.header(HEADER_ACCEPT, "application/json");
+		newBuilder = newBuilder.header(HEADER_ACCEPT_CHARSET, "utf-8");
+		return newBuilder;
 	}
 }
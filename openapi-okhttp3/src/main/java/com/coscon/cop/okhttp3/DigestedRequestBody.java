@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.okhttp3;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.DigestedContent;
+import com.coscon.cop.internal.Payload;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * {@link RequestBody} over held bytes which computes its
+ * <code>X-Coscon-Digest</code> once, the signer does not have to write the
+ * payload into another buffer.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class DigestedRequestBody extends RequestBody implements DigestedContent {
+	static final MediaType APPLICATION_JSON = MediaType.get("application/json; charset=utf-8");
+
+	private final MediaType contentType;
+	private final byte[] content;
+	private volatile ContentDigest contentDigest;
+
+	public DigestedRequestBody(byte[] content, MediaType contentType) {
+		super();
+		this.content = Objects.requireNonNull(content, "content may not be null");
+		this.contentType = contentType;
+	}
+
+	private DigestedRequestBody(byte[] content, MediaType contentType, ContentDigest contentDigest) {
+		this(content, contentType);
+		this.contentDigest = contentDigest;
+	}
+
+	/**
+	 * @return JSON body reusing the digest held by the payload.
+	 */
+	public static DigestedRequestBody of(Payload payload) {
+		Objects.requireNonNull(payload, "payload may not be null");
+		return new DigestedRequestBody(payload.getContent(), APPLICATION_JSON, payload.getContentDigest());
+	}
+
+	/**
+	 * Same as {@link RequestBody#create(String, MediaType)}, charset defaults to
+	 * utf-8.
+	 */
+	public static DigestedRequestBody of(String content, MediaType contentType) {
+		Charset charset = StandardCharsets.UTF_8;
+		MediaType finalContentType = contentType;
+		if (contentType != null) {
+			Charset resolved = contentType.charset();
+			if (resolved == null) {
+				finalContentType = MediaType.parse(contentType + "; charset=utf-8");
+			} else {
+				charset = resolved;
+			}
+		}
+		return new DigestedRequestBody(content.getBytes(charset), finalContentType);
+	}
+
+	@Override
+	public MediaType contentType() {
+		return contentType;
+	}
+
+	@Override
+	public long contentLength() {
+		return content.length;
+	}
+
+	@Override
+	public void writeTo(BufferedSink sink) throws IOException {
+		sink.write(content);
+	}
+
+	@Override
+	public ContentDigest getContentDigest() {
+		ContentDigest result = contentDigest;
+		if (result == null) {
+			result = ContentDigest.of(content);
+			contentDigest = result;
+		}
+		return result;
+	}
+}
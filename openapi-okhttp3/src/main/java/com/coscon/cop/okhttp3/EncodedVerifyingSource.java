@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.okhttp3;
+
+import java.io.IOException;
+
+import com.coscon.cop.internal.BodyVerifier;
+
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.GzipSource;
+import okio.Source;
+import okio.Timeout;
+
+/**
+ * Passes a gzip body to the application as received and feeds its decoded
+ * content to a {@link BodyVerifier}, for applications which set
+ * <code>Accept-Encoding</code> themselves and decode the body on their own.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+class EncodedVerifyingSource implements Source {
+	private static final long SEGMENT_SIZE = 8192L;
+
+	private final Buffer encoded = new Buffer();
+	private final Buffer decoded = new Buffer();
+	private final Source decoder;
+	private final BodyVerifier verifier;
+	private boolean exhausted;
+
+	EncodedVerifyingSource(Source delegate, BodyVerifier verifier) {
+		this.decoder = new GzipSource(new ForwardingSource(delegate) {
+			@Override
+			public long read(Buffer sink, long byteCount) throws IOException {
+				long read = super.read(sink, byteCount);
+				if (read > 0) {
+					sink.copyTo(encoded, sink.size() - read, read);
+				}
+				return read;
+			}
+		});
+		this.verifier = verifier;
+	}
+
+	@Override
+	public long read(Buffer sink, long byteCount) throws IOException {
+		while (encoded.size() == 0 && !exhausted) {
+			if (decoder.read(decoded, SEGMENT_SIZE) == -1) {
+				exhausted = true;
+				verifier.verify();
+			} else {
+				decoded.writeTo(verifier);
+			}
+		}
+		return encoded.read(sink, byteCount);
+	}
+
+	@Override
+	public Timeout timeout() {
+		return decoder.timeout();
+	}
+
+	@Override
+	public void close() throws IOException {
+		decoder.close();
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.okhttp3;
+
+import java.io.IOException;
+
+import com.coscon.cop.internal.BodyVerifier;
+
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Source;
+
+/**
+ * Feeds the body to a {@link BodyVerifier} as the application reads it and
+ * verifies at end of stream.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+class VerifyingSource extends ForwardingSource {
+	private final BodyVerifier verifier;
+
+	VerifyingSource(Source delegate, BodyVerifier verifier) {
+		super(delegate);
+		this.verifier = verifier;
+	}
+
+	@Override
+	public long read(Buffer sink, long byteCount) throws IOException {
+		long read = super.read(sink, byteCount);
+		if (read == -1) {
+			verifier.verify();
+		} else {
+			sink.copyTo(verifier, sink.size() - read, read);
+		}
+		return read;
+	}
+}
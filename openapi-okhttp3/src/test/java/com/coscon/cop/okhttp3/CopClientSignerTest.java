@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.okhttp3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coscon.cop.core.ClientException;
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.EndpointRegistry;
+import com.coscon.cop.core.Namespace;
+import com.coscon.cop.core.SignAlgorithm;
+import com.coscon.cop.internal.BasicCredentialsProvider;
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.Payload;
+import com.coscon.cop.internal.RequestSignature;
+import com.coscon.cop.internal.SigningEngine;
+import com.coscon.cop.internal.TenantCredentialsProvider;
+import com.coscon.cop.internal.UsernamePasswordCredentials;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class CopClientSignerTest {
+	private static final String PAYLOAD = "{\"cargoCategory\": \"REEFER\", \"page\": 1, \"size\": 20}";
+	private static final MediaType JSON = MediaType.parse("application/json");
+
+	private final CopClientSigner signer = new CopClientSigner(SignAlgorithm.HMAC_SHA1);
+	private final BasicCredentialsProvider provider = new BasicCredentialsProvider();
+	private final Namespace ns = Namespace.COP_PUBLIC_PP;
+
+	@Before
+	public void setUp() {
+		provider.setCredentials(ns, new UsernamePasswordCredentials(ns, "FakeApiKey", "FakeSecretKey"));
+	}
+
+	private static String expectedDigest(byte[] content) {
+		return "SHA-256=" + Base64.encodeBase64String(DigestUtils.sha256(content));
+	}
+
+	private Request sign(Request request) throws IOException {
+		return (Request) signer.sign(provider, request);
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.okhttp3.CopClientSigner#sign(com.coscon.cop.core.CredentialsProvider, Object)}.
+	 */
+	@Test
+	public void testSignDigestedRequestBody() throws IOException {
+		Request post = new Request.Builder().url(ns.getPrefix() + "/synconhub/product/reefer/search")
+				.post(DigestedRequestBody.of(PAYLOAD, JSON)).build();
+		Request signed = sign(post);
+		assertEquals(expectedDigest(PAYLOAD.getBytes(StandardCharsets.UTF_8)),
+				signed.header(SigningEngine.X_DIGEST));
+		assertNotNull(signed.header(SigningEngine.X_AUTHORIZATION));
+		assertEquals("application/json; charset=utf-8", signed.body().contentType().toString());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.okhttp3.CopClientSigner#sign(com.coscon.cop.core.CredentialsProvider, Object)}.
+	 */
+	@Test
+	public void testSignStreamedRequestBody() throws IOException {
+		Request post = new Request.Builder().url(ns.getPrefix() + "/synconhub/product/reefer/search")
+				.post(RequestBody.create(PAYLOAD, JSON)).build();
+		assertEquals(expectedDigest(PAYLOAD.getBytes(StandardCharsets.UTF_8)),
+				sign(post).header(SigningEngine.X_DIGEST));
+
+		Request get = new Request.Builder().url(ns.getPrefix() + "/info/tracking/6309441170?numberType=bl").build();
+		assertEquals(expectedDigest(new byte[0]), sign(get).header(SigningEngine.X_DIGEST));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.okhttp3.CopClientSigner#sign(com.coscon.cop.core.CredentialsProvider, Object)}.
+	 */
+	@Test
+	public void testSignPrecomputedPayload() throws IOException {
+		// the signer trusts the digest supplied with the payload.
+		ContentDigest precomputed = ContentDigest.ofSha256(new byte[32]);
+		Payload payload = Payload.of(PAYLOAD.getBytes(StandardCharsets.UTF_8), precomputed);
+		Request post = new Request.Builder().url(ns.getPrefix() + "/synconhub/product/reefer/search")
+				.post(DigestedRequestBody.of(payload)).build();
+		Request signed = sign(post);
+		assertEquals(precomputed.getHeaderValue(), signed.header(SigningEngine.X_DIGEST));
+		assertEquals("application/json; charset=utf-8", signed.body().contentType().toString());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.okhttp3.CopClientSigner#signAll(com.coscon.cop.core.CredentialsProvider, List)}.
+	 */
+	@Test
+	public void testSignAll() throws IOException {
+		List<Request> requests = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			requests.add(new Request.Builder().url(ns.getPrefix() + "/info/tracking/" + i + "?numberType=bl").build());
+		}
+		Payload payload = Payload.of(PAYLOAD);
+		requests.add(new Request.Builder().url(ns.getPrefix() + "/synconhub/product/reefer/search")
+				.post(DigestedRequestBody.of(payload)).build());
+
+		List<Request> signed = signer.signAll(provider, requests);
+		assertEquals(requests.size(), signed.size());
+		for (int i = 0; i < signed.size(); i++) {
+			Request request = signed.get(i);
+			assertEquals(requests.get(i).url(), request.url());
+			RequestSignature signature = request.tag(RequestSignature.class);
+			assertNotNull(signature);
+			assertEquals(signature.getAuthorization(), request.header(SigningEngine.X_AUTHORIZATION));
+			assertEquals(CopClient.COP_SDK_VERSION, request.header("User-Agent"));
+		}
+		assertEquals(expectedDigest(new byte[0]), signed.get(0).header(SigningEngine.X_DIGEST));
+		assertEquals(payload.getContentDigest().getHeaderValue(),
+				signed.get(requests.size() - 1).header(SigningEngine.X_DIGEST));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.okhttp3.CopClientSigner#sign(com.coscon.cop.core.CredentialsProvider, Object)}.
+	 */
+	@Test
+	public void testSignForTenant() throws IOException {
+		TenantCredentialsProvider tenants = new TenantCredentialsProvider();
+		tenants.setCredentials(ns, new UsernamePasswordCredentials(ns, "FakeApiKey", "FakeSecretKey"));
+		tenants.setCredentials("tenant-1", ns, new UsernamePasswordCredentials(ns, "TenantApiKey", "TenantSecretKey"));
+		Request get = new Request.Builder().url(ns.getPrefix() + "/info/tracking/6309441170?numberType=bl")
+				.header(TenantCredentialsProvider.TENANT_HEADER, "tenant-1").build();
+
+		Request signed = (Request) signer.sign(tenants, get);
+		assertTrue(signed.header(SigningEngine.X_AUTHORIZATION).contains("username=\"TenantApiKey\""));
+		assertNull(signed.header(TenantCredentialsProvider.TENANT_HEADER));
+
+		Request untagged = (Request) signer.sign(tenants,
+				get.newBuilder().removeHeader(TenantCredentialsProvider.TENANT_HEADER).build());
+		assertTrue(untagged.header(SigningEngine.X_AUTHORIZATION).contains("username=\"FakeApiKey\""));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.okhttp3.CopClientSigner#sign(com.coscon.cop.core.CredentialsProvider, Object)}.
+	 */
+	@Test(expected = IOException.class)
+	public void testSignForTenantWithoutTenantProvider() throws IOException {
+		sign(new Request.Builder().url(ns.getPrefix() + "/info/tracking/6309441170?numberType=bl")
+				.header(TenantCredentialsProvider.TENANT_HEADER, "tenant-1").build());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.okhttp3.CopClient#resolve(com.coscon.cop.core.Endpoint, String)}.
+	 */
+	@Test
+	public void testSignRegisteredEndpoint() throws Exception {
+		Endpoint edge = Endpoint.of("edge-local", "https://localhost:8443/gateway/service", ns);
+		CopClient client = CopClient.newInstance();
+		try {
+			client.resolve(edge, "/info");
+			fail("unregistered endpoint is expected to fail");
+		} catch (ClientException e) {
+			// expected
+		}
+		EndpointRegistry.register(edge);
+		try {
+			HttpUrl url = client.resolve(edge, "/info/tracking/6309441170?numberType=bl");
+			assertEquals("https://localhost:8443/gateway/service/info/tracking/6309441170?numberType=bl",
+					url.toString());
+			assertEquals(HttpUrl.get(Namespace.COP_PUBLIC_PROD.getPrefix() + "/info?a=b%20c"),
+					client.resolve(Endpoint.of(Namespace.COP_PUBLIC_PROD), "/info?a=b%20c"));
+			assertTrue(signer.acceptRequest(url.toString()));
+			Request signed = sign(new Request.Builder().url(url).build());
+			assertTrue(signed.header(SigningEngine.X_AUTHORIZATION).contains("username=\"FakeApiKey\""));
+		} finally {
+			EndpointRegistry.unregister(edge.getName());
+		}
+	}
+}
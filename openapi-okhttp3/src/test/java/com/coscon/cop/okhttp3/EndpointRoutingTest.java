@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.okhttp3;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.EndpointRouter;
+import com.coscon.cop.core.Namespace;
+import com.coscon.cop.internal.StandInGateway;
+
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+
+/**
+ * Routing between local stand-in gateways, one of them answering slowly.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class EndpointRoutingTest {
+	private static final Namespace NS = Namespace.COP_PUBLIC_PP;
+	private static final String URI = "/info/tracking/6309441170?numberType=bl";
+
+	private MockWebServer fast;
+	private MockWebServer slow;
+	private StandInGateway fastGateway;
+	private StandInGateway slowGateway;
+	private Endpoint fastEndpoint;
+	private Endpoint slowEndpoint;
+	private EndpointRouter router;
+	private CopClient client;
+
+	private static StandInGateway standIn(String name, final long delayMillis) throws Exception {
+		StandInGateway gateway = StandInGateway.start(name, NS);
+		gateway.getServer().setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				return new MockResponse().setBody("{\"code\":0}").setHeadersDelay(delayMillis,
+						TimeUnit.MILLISECONDS);
+			}
+		});
+		return gateway;
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		fastGateway = standIn("stand-in-fast", 0L);
+		slowGateway = standIn("stand-in-slow", 300L);
+		fast = fastGateway.getServer();
+		slow = slowGateway.getServer();
+		fastEndpoint = fastGateway.getEndpoint();
+		slowEndpoint = slowGateway.getEndpoint();
+
+		client = CopClient.newInstance();
+		HandshakeCertificates certificates = StandInGateway.clientCertificates();
+		client.getHttpClientBuilder().sslSocketFactory(certificates.sslSocketFactory(), certificates.trustManager());
+		client.withCredentials(NS, StandInGateway.API_KEY, StandInGateway.SECRET_KEY);
+		client.buildHttpClient();
+		router = new EndpointRouter(Arrays.asList(slowEndpoint, fastEndpoint), 0.5d, 0.5d, 1, TimeUnit.HOURS, 0);
+		client.withRouter(NS, router);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		fastGateway.close();
+		slowGateway.close();
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.okhttp3.CopClient#doGet(Namespace, String)}.
+	 */
+	@Test
+	public void testRouteToFastest() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			assertEquals("{\"code\":0}", client.doGet(NS, URI));
+		}
+		// each unmeasured stand-in is tried once, then the fast one is kept.
+		assertEquals(1, slow.getRequestCount());
+		assertEquals(9, fast.getRequestCount());
+
+		RecordedRequest request = fast.takeRequest();
+		assertEquals("/service" + URI, request.getPath());
+		StandInGateway.assertSigned(request);
+		StandInGateway.assertSigned(slow.takeRequest());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.okhttp3.CopClient#doGet(Namespace, String)}.
+	 */
+	@Test
+	public void testFailover() throws Exception {
+		client.doGet(NS, URI);
+		client.doGet(NS, URI);
+		fast.shutdown();
+		for (int i = 0; i < 3; i++) {
+			assertEquals("{\"code\":0}", client.doGet(NS, URI));
+		}
+		assertEquals(4, slow.getRequestCount());
+		assertEquals(0.5d, router.getStats(fastEndpoint).getErrorRate(), 0.001d);
+		assertEquals(slowEndpoint, router.select().get(0));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.okhttp3.CopClient#doGetAsync(Namespace, String)}.
+	 */
+	@Test
+	public void testAsync() throws Exception {
+		client.doGet(NS, URI);
+		client.doGet(NS, URI);
+		List<CompletableFuture<String>> futures = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			futures.add(client.doGetAsync(NS, URI));
+		}
+		futures.add(client.doPostAsync(NS, URI, "{\"numbers\":[\"6309441170\"]}"));
+		for (CompletableFuture<String> future : futures) {
+			assertEquals("{\"code\":0}", future.get(10, TimeUnit.SECONDS));
+		}
+		assertEquals(22, fast.getRequestCount());
+		for (int i = 0; i < 22; i++) {
+			StandInGateway.assertSigned(fast.takeRequest());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.okhttp3.CopClient#doGetWithResponseAsync(Namespace, String)}.
+	 */
+	@Test
+	public void testAsyncFailover() throws Exception {
+		client.doGet(NS, URI);
+		client.doGet(NS, URI);
+		fast.shutdown();
+		try (Response response = client.doGetWithResponseAsync(NS, URI).get(10, TimeUnit.SECONDS)) {
+			assertEquals(200, response.code());
+		}
+		assertEquals(2, slow.getRequestCount());
+		assertEquals(slowEndpoint, router.select().get(0));
+	}
+}
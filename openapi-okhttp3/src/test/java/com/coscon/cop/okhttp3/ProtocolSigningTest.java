@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.okhttp3;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coscon.cop.core.Endpoint;
+import com.coscon.cop.core.Namespace;
+import com.coscon.cop.internal.StandInGateway;
+
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+
+/**
+ * Signatures over HTTP/1.1 and HTTP/2 connections to a local stand-in gateway
+ * offering both protocols.
+ * 
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ */
+public class ProtocolSigningTest {
+	private static final Namespace NS = Namespace.COP_PUBLIC_PP;
+	private static final String URI = "/info/tracking/6309441170?numberType=bl";
+
+	private StandInGateway gateway;
+	private MockWebServer server;
+	private Endpoint endpoint;
+	private CopClient client;
+
+	@Before
+	public void setUp() throws Exception {
+		gateway = StandInGateway.start("stand-in-protocols", NS, Protocol.HTTP_2, Protocol.HTTP_1_1);
+		server = gateway.getServer();
+		endpoint = gateway.getEndpoint();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (client != null) {
+			client.close();
+		}
+		gateway.close();
+	}
+
+	private CopClient newClient(boolean http2) throws Exception {
+		client = CopClient.newInstance();
+		if (http2) {
+			client.withHttp2();
+		}
+		HandshakeCertificates certificates = StandInGateway.clientCertificates();
+		client.getHttpClientBuilder().sslSocketFactory(certificates.sslSocketFactory(), certificates.trustManager());
+		client.withCredentials(NS, StandInGateway.API_KEY, StandInGateway.SECRET_KEY);
+		client.buildHttpClient();
+		return client;
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.okhttp3.CopClient#doGetWithResponse(Endpoint, String)}.
+	 */
+	@Test
+	public void testSignOverHttp11() throws Exception {
+		server.enqueue(new MockResponse().setBody("{\"code\":0}"));
+		try (Response response = newClient(false).doGetWithResponse(endpoint, URI)) {
+			assertEquals(Protocol.HTTP_1_1, response.protocol());
+		}
+		StandInGateway.assertSigned(server.takeRequest(), "HTTP/1.1");
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.okhttp3.CopClient#withHttp2()}.
+	 */
+	@Test
+	public void testSignOverHttp2() throws Exception {
+		server.enqueue(new MockResponse().setBody("{\"code\":0}"));
+		server.enqueue(new MockResponse().setBody("{\"code\":0}"));
+		newClient(true);
+		try (Response response = client.doGetWithResponse(endpoint, URI)) {
+			assertEquals(Protocol.HTTP_2, response.protocol());
+		}
+		assertEquals("{\"code\":0}", client.doPost(endpoint, URI, "{\"numbers\":[\"6309441170\"]}"));
+		StandInGateway.assertSigned(server.takeRequest(), "HTTP/2.0");
+		RecordedRequest post = server.takeRequest();
+		StandInGateway.assertSigned(post, "HTTP/2.0");
+		// the second stream of the one connection.
+		assertEquals(1, post.getSequenceNumber());
+	}
+}
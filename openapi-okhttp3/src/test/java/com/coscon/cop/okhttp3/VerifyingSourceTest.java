@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 1998-2022 COSCO Shipping Lines CO., Ltd. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.coscon.cop.okhttp3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.coscon.cop.internal.ContentDigest;
+import com.coscon.cop.internal.ContentDigestValidator;
+import com.coscon.cop.internal.SigningEngine;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * @author <a href="mailto:chenjp2@coscon.com">Chen Jipeng</a>
+ *
+ */
+public class VerifyingSourceTest {
+	private static final String BODY = "{\"code\": 200, \"data\": {\"content\": []}}";
+
+	private static BufferedSource verifying(String digest, String body) throws IOException {
+		ContentDigestValidator validator = new ContentDigestValidator();
+		return Okio.buffer(new VerifyingSource(new Buffer().writeUtf8(body),
+				validator.begin(name -> SigningEngine.X_DIGEST.equalsIgnoreCase(name) ? digest : null)));
+	}
+
+	/**
+	 * Test method for {@link com.coscon.cop.okhttp3.VerifyingSource#read(Buffer, long)}.
+	 */
+	@Test
+	public void testRead() throws IOException {
+		String digest = ContentDigest.of(BODY.getBytes("UTF-8")).getHeaderValue();
+		try (BufferedSource source = verifying(digest, BODY)) {
+			assertEquals(BODY, source.readUtf8());
+		}
+		try (BufferedSource source = verifying(digest, BODY.replace('[', '{'))) {
+			assertThrows(IOException.class, source::readUtf8);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.coscon.cop.okhttp3.EncodedVerifyingSource#read(Buffer, long)}.
+	 */
+	@Test
+	public void testReadEncoded() throws IOException {
+		Buffer gzip = new Buffer();
+		try (BufferedSink sink = Okio.buffer(new GzipSink(gzip))) {
+			sink.writeUtf8(BODY);
+		}
+		ByteString encoded = gzip.snapshot();
+		String digest = ContentDigest.of(BODY.getBytes("UTF-8")).getHeaderValue();
+		try (BufferedSource source = encodedVerifying(digest, encoded)) {
+			assertEquals(encoded, source.readByteString());
+		}
+		String tampered = ContentDigest.of(BODY.replace('[', '{').getBytes("UTF-8")).getHeaderValue();
+		try (BufferedSource source = encodedVerifying(tampered, encoded)) {
+			assertThrows(IOException.class, source::readByteString);
+		}
+	}
+
+	private static BufferedSource encodedVerifying(String digest, ByteString encoded) throws IOException {
+		ContentDigestValidator validator = new ContentDigestValidator();
+		return Okio.buffer(new EncodedVerifyingSource(new Buffer().write(encoded),
+				validator.begin(name -> SigningEngine.X_DIGEST.equalsIgnoreCase(name) ? digest : null)));
+	}
+}